@@ -20,7 +20,6 @@ package org.jboss.modules;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -39,13 +38,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -68,8 +66,14 @@ final class JarFileResourceLoader extends AbstractResourceLoader implements Iter
     private final File fileOfJar;
     private volatile List<String> directory;
 
-    // protected by {@code this}
-    private final Map<CodeSigners, CodeSource> codeSources = new HashMap<>();
+    private final ConcurrentHashMap<CodeSigners, CodeSource> codeSources = new ConcurrentHashMap<>();
+
+    // per-thread scratch buffer for entries of unknown size
+    private static final ThreadLocal<byte[]> READ_BUFFER = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue() {
+            return new byte[16384];
+        }
+    };
 
     JarFileResourceLoader(final String rootName, final JarFile jarFile) {
         this(rootName, jarFile, null);
@@ -123,7 +127,8 @@ final class JarFileResourceLoader extends AbstractResourceLoader implements Iter
         return rootName;
     }
 
-    public synchronized ClassSpec getClassSpec(final String fileName) throws IOException {
+    // not synchronized: JarFile supports concurrent readers, and each entry gets its own input stream and inflater
+    public ClassSpec getClassSpec(final String fileName) throws IOException {
         final ClassSpec spec = new ClassSpec();
         final JarEntry entry = getJarEntry(fileName);
         if (entry == null) {
@@ -131,43 +136,43 @@ final class JarFileResourceLoader extends AbstractResourceLoader implements Iter
             return null;
         }
         final long size = entry.getSize();
+        if (size > (long) Integer.MAX_VALUE) {
+            throw new IOException("Resource is too large to be a valid class file");
+        }
+        final byte[] bytes;
         try (final InputStream is = jarFile.getInputStream(entry)) {
+            byte[] buf = READ_BUFFER.get();
             if (size == -1) {
-                // size unknown
-                final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                final byte[] buf = new byte[16384];
-                int res;
-                while ((res = is.read(buf)) > 0) {
-                    baos.write(buf, 0, res);
+                // size unknown; read into the scratch buffer, growing it as needed
+                int a = 0, res;
+                for (;;) {
+                    if (a == buf.length) {
+                        buf = Arrays.copyOf(buf, buf.length << 1);
+                        READ_BUFFER.set(buf);
+                    }
+                    if ((res = is.read(buf, a, buf.length - a)) <= 0) {
+                        break;
+                    }
+                    a += res;
                 }
-                // done
-                CodeSource codeSource = createCodeSource(entry);
-                baos.close();
-                is.close();
-                spec.setBytes(baos.toByteArray());
-                spec.setCodeSource(codeSource);
-                return spec;
-            } else if (size <= (long) Integer.MAX_VALUE) {
+                bytes = Arrays.copyOf(buf, a);
+            } else {
                 final int castSize = (int) size;
-                byte[] bytes = new byte[castSize];
+                bytes = new byte[castSize];
                 int a = 0, res;
-                while ((res = is.read(bytes, a, castSize - a)) > 0) {
+                while (a < castSize && (res = is.read(bytes, a, castSize - a)) > 0) {
                     a += res;
                 }
                 // consume remainder so that cert check doesn't fail in case of wonky JARs
-                while (is.read() != -1) {
+                while (is.read(buf) != -1) {
                     //
                 }
-                // done
-                CodeSource codeSource = createCodeSource(entry);
-                is.close();
-                spec.setBytes(bytes);
-                spec.setCodeSource(codeSource);
-                return spec;
-            } else {
-                throw new IOException("Resource is too large to be a valid class file");
             }
         }
+        // done
+        spec.setBytes(bytes);
+        spec.setCodeSource(createCodeSource(entry));
+        return spec;
     }
 
     // this MUST only be called after the input stream is fully read (see MODULES-201)
@@ -176,7 +181,10 @@ final class JarFileResourceLoader extends AbstractResourceLoader implements Iter
         final CodeSigners codeSigners = entryCodeSigners == null || entryCodeSigners.length == 0 ? EMPTY_CODE_SIGNERS : new CodeSigners(entryCodeSigners);
         CodeSource codeSource = codeSources.get(codeSigners);
         if (codeSource == null) {
-            codeSources.put(codeSigners, codeSource = new CodeSource(rootUrl, entryCodeSigners));
+            final CodeSource appearing = codeSources.putIfAbsent(codeSigners, codeSource = new CodeSource(rootUrl, entryCodeSigners));
+            if (appearing != null) {
+                codeSource = appearing;
+            }
         }
         return codeSource;
     }
@@ -304,6 +312,19 @@ final class JarFileResourceLoader extends AbstractResourceLoader implements Iter
     }
 
     public Collection<String> getPaths() {
+        final PathIndexCache cache = PathIndexCache.getInstance();
+        if (cache == null) {
+            return readPaths();
+        }
+        Collection<String> paths = cache.getPaths(fileOfJar, relativePath);
+        if (paths == null) {
+            paths = readPaths();
+            cache.putPaths(fileOfJar, relativePath, paths);
+        }
+        return paths;
+    }
+
+    private Collection<String> readPaths() {
         final Collection<String> index = new HashSet<String>();
         index.add("");
         String relativePath = this.relativePath;
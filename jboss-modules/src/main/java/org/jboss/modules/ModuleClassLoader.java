@@ -262,7 +262,9 @@ public class ModuleClassLoader extends ConcurrentClassLoader {
             if (loaders.size() > 0) {
                 String fileName = Module.fileNameOfClass(className);
                 for (ResourceLoader loader : loaders) {
+                    final long start = Metrics.getCurrentCPUTime();
                     classSpec = loader.getClassSpec(fileName);
+                    module.getModuleLoader().addClassReadTime(Metrics.getCurrentCPUTime() - start);
                     if (classSpec != null) {
                         resourceLoader = loader;
                         try {
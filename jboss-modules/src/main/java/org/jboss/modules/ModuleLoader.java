@@ -98,6 +98,7 @@ public class ModuleLoader {
     private final AtomicLong linkTime = new AtomicLong();
     private final AtomicLong loadTime = new AtomicLong();
     private final AtomicLong classLoadTime = new AtomicLong();
+    private final AtomicLong classReadTime = new AtomicLong();
     private final AtomicInteger scanCount = new AtomicInteger();
     private final AtomicInteger raceCount = new AtomicInteger();
     private final AtomicInteger classCount = new AtomicInteger();
@@ -858,6 +859,10 @@ public class ModuleLoader {
         if (time != 0L) classLoadTime.addAndGet(time);
     }
 
+    void addClassReadTime(final long time) {
+        if (time != 0L) classReadTime.addAndGet(time);
+    }
+
     void incScanCount() {
         if (Metrics.ENABLED) scanCount.getAndIncrement();
     }
@@ -937,6 +942,10 @@ public class ModuleLoader {
             return getModuleLoader().classLoadTime.get();
         }
 
+        public long getClassReadTime() {
+            return getModuleLoader().classReadTime.get();
+        }
+
         public int getScanCount() {
             return getModuleLoader().scanCount.get();
         }
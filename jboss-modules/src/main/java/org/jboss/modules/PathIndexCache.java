@@ -0,0 +1,296 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.modules;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent cache of the paths contained in JAR resource roots.  Computing the paths of a JAR requires reading
+ * an index file or walking every entry of the JAR, which is repeated for every resource root on every boot.  The cache
+ * stores the paths of each resource root in a single file, keyed by the JAR file name, size, and modification time.
+ * The file is memory-mapped on start, and the paths of an entry are only decoded when the entry is requested.  New
+ * entries are written back when the JVM exits.
+ * <p>
+ * The cache is enabled by setting the {@code jboss.modules.index-cache} system property to the name of the cache
+ * file.
+ */
+final class PathIndexCache {
+    private static final int MAGIC = 0x4a4d5043; // JMPC
+    private static final int VERSION = 1;
+
+    private static final PathIndexCache INSTANCE;
+
+    static {
+        final String fileName = AccessController.doPrivileged(new PropertyReadAction("jboss.modules.index-cache"));
+        INSTANCE = fileName == null || fileName.isEmpty() ? null : new PathIndexCache(new File(fileName).getAbsoluteFile());
+    }
+
+    private final File file;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+    private boolean hookRegistered;
+
+    private PathIndexCache(final File file) {
+        this.file = file;
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            public Void run() {
+                load();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Get the cache instance.
+     *
+     * @return the cache, or {@code null} if the cache is not enabled
+     */
+    static PathIndexCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the cached paths of a resource root.
+     *
+     * @param jarFile the JAR file
+     * @param relativePath the path of the resource root within the JAR, or {@code null} for the JAR root
+     * @return the paths, or {@code null} if the resource root is not cached or the JAR was modified
+     */
+    Collection<String> getPaths(final File jarFile, final String relativePath) {
+        final Entry entry = entries.get(getKey(jarFile, relativePath));
+        if (entry == null || entry.size != jarFile.length() || entry.modified != jarFile.lastModified()) {
+            return null;
+        }
+        try {
+            return entry.getPaths();
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // corrupt file
+            return null;
+        }
+    }
+
+    /**
+     * Add the paths of a resource root to the cache.
+     *
+     * @param jarFile the JAR file
+     * @param relativePath the path of the resource root within the JAR, or {@code null} for the JAR root
+     * @param paths the paths of the resource root
+     */
+    void putPaths(final File jarFile, final String relativePath, final Collection<String> paths) {
+        final long modified = jarFile.lastModified();
+        if (modified == 0L) {
+            // no such file or I/O error
+            return;
+        }
+        entries.put(getKey(jarFile, relativePath), new Entry(jarFile.length(), modified, new ArrayList<>(paths)));
+        dirty = true;
+        synchronized (this) {
+            if (! hookRegistered) {
+                hookRegistered = true;
+                AccessController.doPrivileged(new PrivilegedAction<Void>() {
+                    public Void run() {
+                        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                            public void run() {
+                                save();
+                            }
+                        }, "jboss-modules index cache writer"));
+                        return null;
+                    }
+                });
+            }
+        }
+    }
+
+    private static String getKey(final File jarFile, final String relativePath) {
+        final String path = jarFile.getAbsolutePath();
+        return relativePath == null ? path : path + "!/" + relativePath;
+    }
+
+    private void load() {
+        if (! file.isFile()) {
+            return;
+        }
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return;
+        }
+        final Map<String, Entry> map = new HashMap<>();
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                // not a cache file or an unsupported version; it will be replaced
+                return;
+            }
+            final int count = buffer.getInt();
+            for (int i = 0; i < count; i ++) {
+                final String key = readString(buffer);
+                final long size = buffer.getLong();
+                final long modified = buffer.getLong();
+                final int pathCount = buffer.getInt();
+                final int length = buffer.getInt();
+                final ByteBuffer data = buffer.slice();
+                data.limit(length);
+                buffer.position(buffer.position() + length);
+                map.put(key, new Entry(size, modified, data, pathCount));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // truncated or corrupt file; it will be replaced
+            return;
+        }
+        entries.putAll(map);
+    }
+
+    private void save() {
+        if (! dirty) {
+            return;
+        }
+        final File tmp = new File(file.getPath() + ".tmp");
+        boolean ok = false;
+        try {
+            final File parent = file.getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            final List<Map.Entry<String, Entry>> list = new ArrayList<>();
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                final String key = mapEntry.getKey();
+                final int idx = key.indexOf("!/");
+                // drop entries for JARs which no longer exist
+                if (new File(idx == -1 ? key : key.substring(0, idx)).exists()) {
+                    list.add(mapEntry);
+                }
+            }
+            try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                os.writeInt(MAGIC);
+                os.writeInt(VERSION);
+                os.writeInt(list.size());
+                for (Map.Entry<String, Entry> mapEntry : list) {
+                    final Entry entry = mapEntry.getValue();
+                    final ByteBuffer data = entry.encode();
+                    writeString(os, mapEntry.getKey());
+                    os.writeLong(entry.size);
+                    os.writeLong(entry.modified);
+                    os.writeInt(entry.pathCount);
+                    os.writeInt(data.remaining());
+                    os.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            ok = true;
+        } catch (IOException | RuntimeException e) {
+            // failed, ignore
+        } finally {
+            if (! ok) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final int length = buffer.getShort() & 0xffff;
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(final DataOutputStream os, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IOException("Path is too long");
+        }
+        os.writeShort(bytes.length);
+        os.write(bytes);
+    }
+
+    static final class Entry {
+        private final long size;
+        private final long modified;
+        private final int pathCount;
+        // exactly one of these is set
+        private final ByteBuffer data;
+        private final List<String> paths;
+
+        Entry(final long size, final long modified, final ByteBuffer data, final int pathCount) {
+            this.size = size;
+            this.modified = modified;
+            this.pathCount = pathCount;
+            this.data = data;
+            this.paths = null;
+        }
+
+        Entry(final long size, final long modified, final List<String> paths) {
+            this.size = size;
+            this.modified = modified;
+            this.pathCount = paths.size();
+            this.data = null;
+            this.paths = paths;
+        }
+
+        Collection<String> getPaths() {
+            if (paths != null) {
+                return new HashSet<>(paths);
+            }
+            final ByteBuffer data = this.data.duplicate();
+            final HashSet<String> set = new HashSet<>(pathCount * 4 / 3 + 1);
+            for (int i = 0; i < pathCount; i ++) {
+                set.add(readString(data));
+            }
+            return set;
+        }
+
+        ByteBuffer encode() throws IOException {
+            if (data != null) {
+                // mapped buffers have no backing array
+                final ByteBuffer copy = ByteBuffer.allocate(data.limit());
+                copy.put(data.duplicate());
+                copy.flip();
+                return copy;
+            }
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (DataOutputStream os = new DataOutputStream(baos)) {
+                for (String path : paths) {
+                    writeString(os, path);
+                }
+            }
+            return ByteBuffer.wrap(baos.toByteArray());
+        }
+    }
+}
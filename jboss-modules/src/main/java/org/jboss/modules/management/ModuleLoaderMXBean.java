@@ -56,6 +56,13 @@ public interface ModuleLoaderMXBean {
      */
     long getClassDefineTime();
 
+    /**
+     * Get the estimated CPU time (in nanoseconds) spent reading class bytes from resource loaders for this loader.
+     *
+     * @return the estimated time in nanoseconds
+     */
+    long getClassReadTime();
+
     /**
      * Get the number of times that dependencies of a module from this loader have been scanned.
      *
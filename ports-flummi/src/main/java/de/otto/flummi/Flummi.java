@@ -16,6 +16,7 @@ import com.google.gson.JsonObject;
 import com.ning.http.client.AsyncHttpClient;
 import com.ning.http.client.Response;
 
+import de.otto.flummi.request.BulkProcessor;
 import de.otto.flummi.request.BulkRequestBuilder;
 import de.otto.flummi.request.CountRequestBuilder;
 import de.otto.flummi.request.DeleteRequestBuilder;
@@ -27,6 +28,7 @@ import de.otto.flummi.request.RefreshRequestBuilder;
 import de.otto.flummi.request.SearchRequestBuilder;
 import de.otto.flummi.request.SearchScrollRequestBuilder;
 import de.otto.flummi.util.HttpClientWrapper;
+import de.otto.flummi.util.NodeSet;
 
 
 public class Flummi {
@@ -42,6 +44,14 @@ public class Flummi {
         this.gson = new Gson();
     }
 
+    /**
+     * Creates a client that distributes the requests over the given nodes.
+     */
+    public Flummi(AsyncHttpClient asyncHttpClient, NodeSet nodes) {
+        this.httpClient = new HttpClientWrapper(asyncHttpClient, nodes);
+        this.gson = new Gson();
+    }
+
     public Optional<String> getIndexNameForAlias(String aliasName) {
         try {
             Response response = httpClient.prepareGet("/_aliases").execute().get();
@@ -179,6 +189,10 @@ public class Flummi {
         return new BulkRequestBuilder(httpClient);
     }
 
+    public BulkProcessor.Builder prepareBulkProcessor() {
+        return new BulkProcessor.Builder(httpClient);
+    }
+
     public GetRequestBuilder prepareGet(String indexName, String documentType, String id) {
         return new GetRequestBuilder(httpClient, indexName, documentType, id);
     }
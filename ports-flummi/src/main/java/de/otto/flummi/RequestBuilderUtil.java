@@ -2,9 +2,14 @@ package de.otto.flummi;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
+import com.ning.http.client.ListenableFuture;
 import com.ning.http.client.Response;
 
+import de.otto.flummi.request.HttpRequestBuilder;
 import de.otto.flummi.response.HttpServerErrorException;
 
 public class RequestBuilderUtil {
@@ -43,4 +48,72 @@ public class RequestBuilderUtil {
     public static String buildUrl(String indexName, String documentType) {
         return buildUrl(indexName, documentType, null);
     }
+
+    /**
+     * Sends the request, waits for the response and passes it to the handler.
+     */
+    public static <T> T execute(HttpRequestBuilder request, ResponseHandler<T> handler) {
+        try {
+            return handler.handle(request.execute().get());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sends the request and returns a future that is completed with the result of the handler. The handler
+     * is called on the thread that receives the response, so it should only parse the response and not block.
+     */
+    public static <T> CompletableFuture<T> executeAsync(HttpRequestBuilder request, ResponseHandler<T> handler) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ListenableFuture<Response> future;
+        try {
+            future = request.execute();
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        future.addListener(() -> {
+            try {
+                result.complete(handler.handle(future.get()));
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, Runnable::run);
+        return result;
+    }
+
+    /**
+     * Waits for the result of an asynchronous request. RuntimeExceptions (e.g. {@link HttpServerErrorException})
+     * are rethrown as they are, IOExceptions are wrapped in an UncheckedIOException.
+     */
+    public static <T> T getResult(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws Exception;
+    }
 }
@@ -0,0 +1,416 @@
+package de.otto.flummi.request;
+
+import static de.otto.flummi.RequestBuilderUtil.toHttpServerErrorException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.ning.http.client.ListenableFuture;
+import com.ning.http.client.Response;
+
+import de.mhus.lib.core.logging.Log;
+import de.otto.flummi.bulkactions.BulkActionBuilder;
+import de.otto.flummi.util.HttpClientWrapper;
+
+/**
+ * Collects bulk actions and sends them to <code>/_bulk</code> in the background. A bulk request is sent when the
+ * number of actions or the size of the request reaches a limit, or when the flush interval has passed.
+ * <p>
+ * Up to <code>concurrentRequests</code> bulk requests are in flight at the same time. If all of them are busy,
+ * {@link #add(BulkActionBuilder)} blocks until a request completes. Items rejected with status 429 (the bulk queue
+ * of the cluster is full) are retried with an exponential backoff. All other failed items are reported to the
+ * {@link Listener} instead of failing the whole bulk request.
+ */
+public class BulkProcessor implements Closeable {
+
+    public static final Log LOG = Log.getLog(BulkProcessor.class);
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final HttpClientWrapper httpClient;
+    private final Gson gson = new Gson();
+    private final Listener listener;
+    private final int bulkActions;
+    private final long bulkSize;
+    private final int concurrentRequests;
+    private final int maxRetries;
+    private final long backoffMillis;
+
+    private final Semaphore semaphore;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong executionIds = new AtomicLong();
+
+    // guarded by this
+    private List<BulkActionBuilder> actions = new ArrayList<>();
+    private StringBuilder body = new StringBuilder();
+    private boolean closed;
+
+    private BulkProcessor(HttpClientWrapper httpClient, Builder builder) {
+        this.httpClient = httpClient;
+        this.listener = builder.listener;
+        this.bulkActions = builder.bulkActions;
+        this.bulkSize = builder.bulkSize;
+        this.concurrentRequests = builder.concurrentRequests;
+        this.maxRetries = builder.maxRetries;
+        this.backoffMillis = builder.backoffMillis;
+        this.semaphore = new Semaphore(concurrentRequests);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "flummi-bulk-processor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (builder.flushIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::flushIfIdle, builder.flushIntervalMillis, builder.flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Adds an action. If the action completes a bulk request, the request is sent. Blocks if the maximum number of
+     * concurrent requests is in flight.
+     */
+    public BulkProcessor add(BulkActionBuilder action) {
+        String line = action.toBulkRequestAction();
+        Bulk bulk = null;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("BulkProcessor is closed");
+            }
+            actions.add(action);
+            body.append(line).append("\n");
+            if (actions.size() >= bulkActions || body.length() >= bulkSize) {
+                bulk = takeBulk();
+            }
+        }
+        if (bulk != null) {
+            acquire();
+            send(bulk);
+        }
+        return this;
+    }
+
+    /**
+     * Sends all buffered actions. Blocks if the maximum number of concurrent requests is in flight.
+     */
+    public void flush() {
+        Bulk bulk;
+        synchronized (this) {
+            bulk = takeBulk();
+        }
+        if (bulk != null) {
+            acquire();
+            send(bulk);
+        }
+    }
+
+    /**
+     * Sends all buffered actions and waits until all bulk requests have completed, including retries.
+     *
+     * @return true if all requests completed, false if the timeout elapsed
+     */
+    public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        synchronized (this) {
+            if (closed) {
+                return true;
+            }
+            closed = true;
+        }
+        try {
+            flush();
+            if (semaphore.tryAcquire(concurrentRequests, timeout, unit)) {
+                semaphore.release(concurrentRequests);
+                return true;
+            }
+            return false;
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends all buffered actions and waits until all bulk requests have completed.
+     */
+    @Override
+    public void close() {
+        try {
+            awaitClose(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the number of buffered actions which have not been sent yet.
+     */
+    public synchronized int size() {
+        return actions.size();
+    }
+
+    // called by the scheduler; must not block because retries are scheduled on the same thread
+    private void flushIfIdle() {
+        if (!semaphore.tryAcquire()) {
+            return;
+        }
+        Bulk bulk;
+        synchronized (this) {
+            bulk = takeBulk();
+        }
+        if (bulk == null) {
+            semaphore.release();
+        } else {
+            send(bulk);
+        }
+    }
+
+    // must be called while holding the lock
+    private Bulk takeBulk() {
+        if (actions.isEmpty()) {
+            return null;
+        }
+        Bulk bulk = new Bulk(executionIds.incrementAndGet(), actions, body.toString(), 0, actions.size());
+        actions = new ArrayList<>();
+        body = new StringBuilder();
+        return bulk;
+    }
+
+    private void acquire() {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    // the caller must hold a permit which is released when the bulk (including retries) is done
+    private void send(Bulk bulk) {
+        final ListenableFuture<Response> future;
+        try {
+            future = httpClient
+                    .preparePost("/_bulk")
+                    .setBody(bulk.body)
+                    .setBodyEncoding("UTF-8")
+                    .execute();
+        } catch (Exception e) {
+            done(bulk, e);
+            return;
+        }
+        future.addListener(() -> {
+            try {
+                onResponse(bulk, future.get());
+            } catch (Exception e) {
+                done(bulk, e);
+            }
+        }, Runnable::run);
+    }
+
+    private void onResponse(Bulk bulk, Response response) throws Exception {
+        int statusCode = response.getStatusCode();
+        if (statusCode == TOO_MANY_REQUESTS) {
+            if (!retry(bulk, bulk.actions)) {
+                done(bulk, toHttpServerErrorException(response));
+            }
+            return;
+        }
+        if (statusCode >= 300) {
+            done(bulk, toHttpServerErrorException(response));
+            return;
+        }
+
+        JsonObject responseObject = gson.fromJson(response.getResponseBody(), JsonObject.class);
+        JsonElement errors = responseObject.get("errors");
+        if (errors == null || !errors.getAsBoolean()) {
+            done(bulk, null);
+            return;
+        }
+
+        List<BulkActionBuilder> rejected = new ArrayList<>();
+        JsonArray items = responseObject.get("items") != null ? responseObject.get("items").getAsJsonArray() : new JsonArray();
+        for (int i = 0; i < items.size() && i < bulk.actions.size(); i++) {
+            for (Map.Entry<String, JsonElement> opElement : items.get(i).getAsJsonObject().entrySet()) {
+                JsonObject opObject = opElement.getValue().getAsJsonObject();
+                JsonElement status = opObject.get("status");
+                JsonElement error = opObject.get("error");
+                if (error == null || error.isJsonNull()) {
+                    continue;
+                }
+                int itemStatus = status != null ? status.getAsInt() : 0;
+                if (itemStatus == 404 && "update".equals(opElement.getKey())) {
+                    // updates of missing documents are not treated as errors
+                    continue;
+                }
+                if (itemStatus == TOO_MANY_REQUESTS && bulk.attempt < maxRetries) {
+                    rejected.add(bulk.actions.get(i));
+                } else {
+                    bulk.failures++;
+                    listener.onFailure(bulk.actions.get(i), itemStatus, error);
+                }
+            }
+        }
+        if (rejected.isEmpty() || !retry(bulk, rejected)) {
+            done(bulk, null);
+        }
+    }
+
+    private boolean retry(Bulk bulk, List<BulkActionBuilder> actions) {
+        if (bulk.attempt >= maxRetries) {
+            return false;
+        }
+        StringBuilder retryBody = new StringBuilder();
+        for (BulkActionBuilder action : actions) {
+            retryBody.append(action.toBulkRequestAction()).append("\n");
+        }
+        Bulk retry = new Bulk(bulk.executionId, actions, retryBody.toString(), bulk.attempt + 1, bulk.numberOfActions);
+        retry.failures = bulk.failures;
+        long delay = backoffMillis << bulk.attempt;
+        LOG.d("retrying rejected bulk actions", bulk.executionId, actions.size(), delay);
+        try {
+            scheduler.schedule(() -> send(retry), delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // scheduler was shut down by awaitClose(); send without a delay
+            send(retry);
+        }
+        return true;
+    }
+
+    private void done(Bulk bulk, Throwable failure) {
+        try {
+            if (failure != null) {
+                listener.onError(bulk.actions, failure);
+            } else {
+                listener.afterBulk(bulk.executionId, bulk.numberOfActions, bulk.failures);
+            }
+        } catch (RuntimeException e) {
+            LOG.e("bulk listener failed", e);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private static class Bulk {
+        private final long executionId;
+        private final List<BulkActionBuilder> actions;
+        private final String body;
+        private final int attempt;
+        private final int numberOfActions;
+        private int failures;
+
+        private Bulk(long executionId, List<BulkActionBuilder> actions, String body, int attempt, int numberOfActions) {
+            this.executionId = executionId;
+            this.actions = actions;
+            this.body = body;
+            this.attempt = attempt;
+            this.numberOfActions = numberOfActions;
+        }
+    }
+
+    /**
+     * Receives the results of bulk requests. The methods are called from the threads of the http client and should
+     * not block.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a bulk request completed.
+         *
+         * @param executionId the id of the bulk request
+         * @param numberOfActions the number of actions which were sent, not including retries
+         * @param numberOfFailures the number of actions which failed
+         */
+        default void afterBulk(long executionId, int numberOfActions, int numberOfFailures) {
+        }
+
+        /**
+         * Called for every action which failed and is not retried.
+         */
+        default void onFailure(BulkActionBuilder action, int status, JsonElement error) {
+            LOG.w("bulk action failed", status, error);
+        }
+
+        /**
+         * Called if the whole bulk request failed, e.g. because of an http error.
+         */
+        default void onError(List<BulkActionBuilder> actions, Throwable cause) {
+            LOG.e("bulk request failed", actions.size(), cause);
+        }
+    }
+
+    public static class Builder {
+        private final HttpClientWrapper httpClient;
+        private Listener listener = new Listener() {
+        };
+        private int bulkActions = 1000;
+        private long bulkSize = 5 * 1024 * 1024;
+        private long flushIntervalMillis;
+        private int concurrentRequests = 1;
+        private int maxRetries = 3;
+        private long backoffMillis = 100;
+
+        public Builder(HttpClientWrapper httpClient) {
+            this.httpClient = httpClient;
+        }
+
+        public Builder setListener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the number of actions after which a bulk request is sent. Defaults to 1000.
+         */
+        public Builder setBulkActions(int bulkActions) {
+            this.bulkActions = Math.max(1, bulkActions);
+            return this;
+        }
+
+        /**
+         * Sets the size of the request body (in characters) after which a bulk request is sent. Defaults to 5MB.
+         */
+        public Builder setBulkSize(long bulkSize) {
+            this.bulkSize = Math.max(1, bulkSize);
+            return this;
+        }
+
+        /**
+         * Sets the interval after which buffered actions are sent, regardless of the number of actions. Disabled by
+         * default.
+         */
+        public Builder setFlushInterval(long interval, TimeUnit unit) {
+            this.flushIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Sets the number of bulk requests which may be in flight at the same time. Defaults to 1.
+         */
+        public Builder setConcurrentRequests(int concurrentRequests) {
+            this.concurrentRequests = Math.max(1, concurrentRequests);
+            return this;
+        }
+
+        /**
+         * Sets how often actions rejected with status 429 are retried, and the delay before the first retry. The
+         * delay is doubled for every retry. Defaults to 3 retries and 100ms.
+         */
+        public Builder setBackoff(int maxRetries, long initialDelay, TimeUnit unit) {
+            this.maxRetries = Math.max(0, maxRetries);
+            this.backoffMillis = unit.toMillis(initialDelay);
+            return this;
+        }
+
+        public BulkProcessor build() {
+            return new BulkProcessor(httpClient, this);
+        }
+    }
+}
@@ -3,11 +3,10 @@ package de.otto.flummi.request;
 import static de.otto.flummi.RequestBuilderUtil.toHttpServerErrorException;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
@@ -17,6 +16,7 @@ import com.ning.http.client.Response;
 
 import de.mhus.lib.core.logging.Log;
 import de.otto.flummi.InvalidElasticsearchResponseException;
+import de.otto.flummi.RequestBuilderUtil;
 import de.otto.flummi.bulkactions.BulkActionBuilder;
 import de.otto.flummi.util.HttpClientWrapper;
 
@@ -40,66 +40,70 @@ public class BulkRequestBuilder implements RequestBuilder<Void> {
 
     @Override
     public Void execute() {
-        try {
-            if (actions.isEmpty()) {
-                return null;
-            }
+        if (actions.isEmpty()) {
+            return null;
+        }
+        return RequestBuilderUtil.execute(prepareRequest(), this::parseResponse);
+    }
 
-            StringBuilder postBody = new StringBuilder();
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        if (actions.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::parseResponse);
+    }
 
-            for (BulkActionBuilder action : this.actions) {
-                postBody.append(action.toBulkRequestAction()).append("\n");
-            }
+    private HttpRequestBuilder prepareRequest() {
+        StringBuilder postBody = new StringBuilder();
+
+        for (BulkActionBuilder action : this.actions) {
+            postBody.append(action.toBulkRequestAction()).append("\n");
+        }
 
-            final HttpRequestBuilder boundRequestBuilder = httpClient
-                    .preparePost("/_bulk")
-                    .setBody(postBody.toString())
-                    .setBodyEncoding("UTF-8");
+        return httpClient
+                .preparePost("/_bulk")
+                .setBody(postBody.toString())
+                .setBodyEncoding("UTF-8");
+    }
 
-            Response response = boundRequestBuilder.execute().get();
-            if (response.getStatusCode() >= 300) {
-                throw toHttpServerErrorException(response);
-            }
-            String jsonString = response.getResponseBody();
-            JsonObject responseObject = gson.fromJson(jsonString, JsonObject.class);
-
-            String errors = responseObject.get("errors").getAsString();
-
-            if (("true").equals(errors)) {
-                boolean foundError = false;
-                JsonArray items = responseObject.get("items") != null ? responseObject.get("items").getAsJsonArray() : new JsonArray();
-                for (JsonElement jsonElement : items) {
-                    JsonElement updateField = jsonElement.getAsJsonObject().get("update");
-                    if (updateField != null) {
-                        final JsonElement status = updateField.getAsJsonObject().get("status");
-                        final JsonElement error = updateField.getAsJsonObject().get("error");
-                        if (status != null && status.getAsInt() != 404 && error != null && !error.getAsString().isEmpty()) {
+    private Void parseResponse(Response response) throws IOException {
+        if (response.getStatusCode() >= 300) {
+            throw toHttpServerErrorException(response);
+        }
+        String jsonString = response.getResponseBody();
+        JsonObject responseObject = gson.fromJson(jsonString, JsonObject.class);
+
+        String errors = responseObject.get("errors").getAsString();
+
+        if (("true").equals(errors)) {
+            boolean foundError = false;
+            JsonArray items = responseObject.get("items") != null ? responseObject.get("items").getAsJsonArray() : new JsonArray();
+            for (JsonElement jsonElement : items) {
+                JsonElement updateField = jsonElement.getAsJsonObject().get("update");
+                if (updateField != null) {
+                    final JsonElement status = updateField.getAsJsonObject().get("status");
+                    final JsonElement error = updateField.getAsJsonObject().get("error");
+                    if (status != null && status.getAsInt() != 404 && error != null && !error.getAsString().isEmpty()) {
+                        foundError = true;
+                    }
+                } else {
+                    for (Map.Entry<String, JsonElement> opElement : jsonElement.getAsJsonObject().entrySet()) {
+                        JsonObject opObject = opElement.getValue().getAsJsonObject();
+                        JsonElement errorObj = opObject.get("error");
+                        if (opObject != null && errorObj != null && errorObj.isJsonObject() ) {
                             foundError = true;
-                        }
-                    } else {
-                        for (Map.Entry<String, JsonElement> opElement : jsonElement.getAsJsonObject().entrySet()) {
-                            JsonObject opObject = opElement.getValue().getAsJsonObject();
-                            JsonElement errorObj = opObject.get("error");
-                            if (opObject != null && errorObj != null && errorObj.isJsonObject() ) {
-                                foundError = true;
-                                LOG.d(errorObj);
-                            }
+                            LOG.d(errorObj);
                         }
                     }
                 }
+            }
 
-                if (foundError) {
-                    throw new InvalidElasticsearchResponseException("Response contains errors': " + jsonString);
-                }
+            if (foundError) {
+                throw new InvalidElasticsearchResponseException("Response contains errors': " + jsonString);
             }
-            return null;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
         }
+        return null;
     }
 
     public int size() {
@@ -3,7 +3,7 @@ package de.otto.flummi.request;
 import static de.otto.flummi.RequestBuilderUtil.toHttpServerErrorException;
 
 import java.io.IOException;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -13,6 +13,7 @@ import de.mhus.lib.core.logging.Log;
 import de.otto.flummi.ClusterHealthResponse;
 import de.otto.flummi.ClusterHealthStatus;
 import de.otto.flummi.InvalidElasticsearchResponseException;
+import de.otto.flummi.RequestBuilderUtil;
 import de.otto.flummi.util.HttpClientWrapper;
 
 public class ClusterHealthRequestBuilder implements RequestBuilder<ClusterHealthResponse> {
@@ -37,46 +38,50 @@ public class ClusterHealthRequestBuilder implements RequestBuilder<ClusterHealth
     }
 
     public ClusterHealthResponse execute() {
-        try {
-            StringBuilder url = new StringBuilder("/_cluster/health");
-            if (indexNames != null) {
-                url.append("/").append(String.join(",", indexNames));
-            }
-            HttpRequestBuilder requestBuilder = httpClient.prepareGet(url.toString());
-            if (waitForYellowStatus) {
-                requestBuilder.addQueryParam("wait_for_status", "yellow");
-            }
-            if (timeout != null) {
-                requestBuilder.addQueryParam("timeout", timeout + "ms");
-            }
-            Response response = requestBuilder.execute().get();
-            if (response.getStatusCode() >= 300) {
-                throw toHttpServerErrorException(response);
-            }
-            JsonObject jsonResponse = gson.fromJson(response.getResponseBody(), JsonObject.class);
-            if (jsonResponse.get("status") == null) {
-                throw new InvalidElasticsearchResponseException("Missing response field: status");
-            }
-            if (jsonResponse.get("cluster_name") == null) {
-                throw new InvalidElasticsearchResponseException("Missing response field: cluster_name");
-            }
-            if (jsonResponse.get("timed_out") == null) {
-                throw new InvalidElasticsearchResponseException("Missing response field: timed_out");
-            }
-
-            ClusterHealthResponse clusterHealthResponse = new ClusterHealthResponse(ClusterHealthStatus.valueOf(jsonResponse.get("status").getAsString().toUpperCase()), jsonResponse.get("cluster_name").getAsString(), jsonResponse.get("timed_out").getAsBoolean());
-
-            if (clusterHealthResponse.isTimedOut()) {
-                throw new InvalidElasticsearchResponseException("Timed out waiting for yellow cluster status");
-            }
-            return clusterHealthResponse;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+        return RequestBuilderUtil.execute(prepareRequest(), this::parseResponse);
+    }
+
+    @Override
+    public CompletableFuture<ClusterHealthResponse> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::parseResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
+        StringBuilder url = new StringBuilder("/_cluster/health");
+        if (indexNames != null) {
+            url.append("/").append(String.join(",", indexNames));
+        }
+        HttpRequestBuilder requestBuilder = httpClient.prepareGet(url.toString());
+        if (waitForYellowStatus) {
+            requestBuilder.addQueryParam("wait_for_status", "yellow");
+        }
+        if (timeout != null) {
+            requestBuilder.addQueryParam("timeout", timeout + "ms");
+        }
+        return requestBuilder;
+    }
+
+    private ClusterHealthResponse parseResponse(Response response) throws IOException {
+        if (response.getStatusCode() >= 300) {
+            throw toHttpServerErrorException(response);
+        }
+        JsonObject jsonResponse = gson.fromJson(response.getResponseBody(), JsonObject.class);
+        if (jsonResponse.get("status") == null) {
+            throw new InvalidElasticsearchResponseException("Missing response field: status");
+        }
+        if (jsonResponse.get("cluster_name") == null) {
+            throw new InvalidElasticsearchResponseException("Missing response field: cluster_name");
+        }
+        if (jsonResponse.get("timed_out") == null) {
+            throw new InvalidElasticsearchResponseException("Missing response field: timed_out");
+        }
+
+        ClusterHealthResponse clusterHealthResponse = new ClusterHealthResponse(ClusterHealthStatus.valueOf(jsonResponse.get("status").getAsString().toUpperCase()), jsonResponse.get("cluster_name").getAsString(), jsonResponse.get("timed_out").getAsBoolean());
+
+        if (clusterHealthResponse.isTimedOut()) {
+            throw new InvalidElasticsearchResponseException("Timed out waiting for yellow cluster status");
         }
+        return clusterHealthResponse;
     }
 
     public ClusterHealthRequestBuilder setTimeout(long timeout) {
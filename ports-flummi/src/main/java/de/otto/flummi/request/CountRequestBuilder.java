@@ -3,8 +3,7 @@ package de.otto.flummi.request;
 import static de.otto.flummi.RequestBuilderUtil.toHttpServerErrorException;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -36,21 +35,25 @@ public class CountRequestBuilder implements RequestBuilder<Long> {
 
     @Override
     public Long execute() {
-        try {
-            String url = RequestBuilderUtil.buildUrl(indices, types, "_count");
-            Response response = httpClient.prepareGet(url).execute().get();
-            if (response.getStatusCode() >= 300) {
-                throw toHttpServerErrorException(response);
-            }
-            String jsonString = response.getResponseBody();
-            JsonObject responseObject = gson.fromJson(jsonString, JsonObject.class);
-            return responseObject.get("count").getAsLong();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+        return RequestBuilderUtil.execute(prepareRequest(), this::handleResponse);
+    }
+
+    @Override
+    public CompletableFuture<Long> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::handleResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
+        String url = RequestBuilderUtil.buildUrl(indices, types, "_count");
+        return httpClient.prepareGet(url);
+    }
+
+    private Long handleResponse(Response response) throws IOException {
+        if (response.getStatusCode() >= 300) {
+            throw toHttpServerErrorException(response);
         }
+        String jsonString = response.getResponseBody();
+        JsonObject responseObject = gson.fromJson(jsonString, JsonObject.class);
+        return responseObject.get("count").getAsLong();
     }
 }
\ No newline at end of file
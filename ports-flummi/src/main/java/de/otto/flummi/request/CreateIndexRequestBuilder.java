@@ -1,8 +1,7 @@
 package de.otto.flummi.request;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -39,7 +38,15 @@ public class CreateIndexRequestBuilder implements RequestBuilder<Void> {
     }
 
     public Void execute() {
+        return RequestBuilderUtil.execute(prepareRequest(), this::handleResponse);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::handleResponse);
+    }
 
+    private HttpRequestBuilder prepareRequest() {
         JsonObject jsonObject = new JsonObject();
         if (settings != null) {
             jsonObject.add("settings", settings);
@@ -47,23 +54,18 @@ public class CreateIndexRequestBuilder implements RequestBuilder<Void> {
         if (mappings != null) {
             jsonObject.add("mappings", mappings);
         }
-        try {
-            Response response = httpClient.preparePut("/" + indexName).setBody(jsonObject.toString()).setBodyEncoding("UTF-8").execute().get();
-            if (response.getStatusCode() >= 300) {
-                throw RequestBuilderUtil.toHttpServerErrorException(response);
-            }
-            String jsonString = response.getResponseBody();
-            JsonObject responseObject = gson.fromJson(jsonString, JsonObject.class);
-            if (!responseObject.has("acknowledged") || !responseObject.get("acknowledged").getAsBoolean()) {
-                throw new InvalidElasticsearchResponseException("Invalid reply from Elastic Search: " + jsonString);
-            }
-            return null;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+        return httpClient.preparePut("/" + indexName).setBody(jsonObject.toString()).setBodyEncoding("UTF-8");
+    }
+
+    private Void handleResponse(Response response) throws IOException {
+        if (response.getStatusCode() >= 300) {
+            throw RequestBuilderUtil.toHttpServerErrorException(response);
+        }
+        String jsonString = response.getResponseBody();
+        JsonObject responseObject = gson.fromJson(jsonString, JsonObject.class);
+        if (!responseObject.has("acknowledged") || !responseObject.get("acknowledged").getAsBoolean()) {
+            throw new InvalidElasticsearchResponseException("Invalid reply from Elastic Search: " + jsonString);
         }
+        return null;
     }
 }
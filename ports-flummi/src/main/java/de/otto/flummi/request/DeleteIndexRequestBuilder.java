@@ -1,6 +1,6 @@
 package de.otto.flummi.request;
 
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.ning.http.client.Response;
 
@@ -17,17 +17,23 @@ public class DeleteIndexRequestBuilder implements RequestBuilder<Void> {
     }
 
     public Void execute() {
-        try {
-            String url = RequestBuilderUtil.buildUrl(indexNames, null, null);
-            Response response = httpClient.prepareDelete(url).execute().get();
-            if (response.getStatusCode() >= 300 && response.getStatusCode() != 404) {
-                throw RequestBuilderUtil.toHttpServerErrorException(response);
-            }
-            return null;
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+        return RequestBuilderUtil.execute(prepareRequest(), this::handleResponse);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::handleResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
+        String url = RequestBuilderUtil.buildUrl(indexNames, null, null);
+        return httpClient.prepareDelete(url);
+    }
+
+    private Void handleResponse(Response response) {
+        if (response.getStatusCode() >= 300 && response.getStatusCode() != 404) {
+            throw RequestBuilderUtil.toHttpServerErrorException(response);
         }
+        return null;
     }
 }
@@ -4,7 +4,7 @@ import static de.otto.flummi.RequestBuilderUtil.buildUrl;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.ning.http.client.Response;
 
@@ -40,28 +40,37 @@ public class DeleteRequestBuilder implements RequestBuilder<Void> {
     }
 
     public Void execute() {
+        return RequestBuilderUtil.execute(prepareRequest(), this::handleResponse);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::handleResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
+        if (indexName==null || indexName.isEmpty()) {
+            throw new RuntimeException("missing property 'indexName'");
+        }
+        if (documentType==null || documentType.isEmpty()) {
+            throw new RuntimeException("missing property 'type'");
+        }
+        if (id==null || id.isEmpty()) {
+            throw new RuntimeException("missing property 'id'");
+        }
+        String url;
         try {
-            if (indexName==null || indexName.isEmpty()) {
-                throw new RuntimeException("missing property 'indexName'");
-            }
-            if (documentType==null || documentType.isEmpty()) {
-                throw new RuntimeException("missing property 'type'");
-            }
-            if (id==null || id.isEmpty()) {
-                throw new RuntimeException("missing property 'id'");
-            }
-            Response response = httpClient.prepareDelete(buildUrl(indexName, documentType, URLEncoder.encode(id, "UTF-8")))
-                    .execute().get();
-            if (response.getStatusCode() >= 300) {
-                throw RequestBuilderUtil.toHttpServerErrorException(response);
-            }
-            return null;
+            url = buildUrl(indexName, documentType, URLEncoder.encode(id, "UTF-8"));
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
         }
+        return httpClient.prepareDelete(url);
+    }
+
+    private Void handleResponse(Response response) {
+        if (response.getStatusCode() >= 300) {
+            throw RequestBuilderUtil.toHttpServerErrorException(response);
+        }
+        return null;
     }
 }
@@ -3,9 +3,9 @@ package de.otto.flummi.request;
 import static de.otto.flummi.RequestBuilderUtil.toHttpServerErrorException;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -35,29 +35,37 @@ public class GetRequestBuilder implements RequestBuilder<GetResponse> {
 
     @Override
     public GetResponse execute() {
+        return RequestBuilderUtil.execute(prepareRequest(), this::parseResponse);
+    }
+
+    @Override
+    public CompletableFuture<GetResponse> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::parseResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
+        String url;
         try {
-            String url = RequestBuilderUtil.buildUrl(indexName, documentType, URLEncoder.encode(id, "UTF-8"));
-            Response response = httpClient.prepareGet(url).execute().get();
-            if (response.getStatusCode() >= 300 && 404 != response.getStatusCode()) {
-                throw toHttpServerErrorException(response);
-            }
-
-            if (404 == response.getStatusCode()) {
-                return new GetResponse(false, null, id);
-            }
-            String jsonString = response.getResponseBody();
-            JsonObject responseObject = gson.fromJson(jsonString, JsonObject.class);
-            return new GetResponse(true, responseObject != null && responseObject.get("_source") != null
-                    ? responseObject.get("_source").getAsJsonObject()
-                    : null, responseObject.get("_id").getAsString());
-
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
+            url = RequestBuilderUtil.buildUrl(indexName, documentType, URLEncoder.encode(id, "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         }
+        return httpClient.prepareGet(url);
+    }
+
+    private GetResponse parseResponse(Response response) throws IOException {
+        if (response.getStatusCode() >= 300 && 404 != response.getStatusCode()) {
+            throw toHttpServerErrorException(response);
+        }
+
+        if (404 == response.getStatusCode()) {
+            return new GetResponse(false, null, id);
+        }
+        String jsonString = response.getResponseBody();
+        JsonObject responseObject = gson.fromJson(jsonString, JsonObject.class);
+        return new GetResponse(true, responseObject != null && responseObject.get("_source") != null
+                ? responseObject.get("_source").getAsJsonObject()
+                : null, responseObject.get("_id").getAsString());
     }
 
 }
@@ -28,13 +28,23 @@ import com.ning.http.client.uri.Uri;
 
 import de.mhus.lib.core.MLog;
 import de.mhus.lib.core.logging.Log;
+import de.otto.flummi.util.NodeSet;
 
 public class HttpRequestBuilder extends MLog {
 
 	private BoundRequestBuilder instance;
+	private final NodeSet.Node node;
 
 	public HttpRequestBuilder(BoundRequestBuilder boundRequestBuilder) {
+		this(boundRequestBuilder, null);
+	}
+
+	/**
+	 * @param node the node the request is sent to. The node is marked dead if the request fails.
+	 */
+	public HttpRequestBuilder(BoundRequestBuilder boundRequestBuilder, NodeSet.Node node) {
 		this.instance = boundRequestBuilder;
+		this.node = node;
 	}
 
 	public int hashCode() {
@@ -52,21 +62,43 @@ public class HttpRequestBuilder extends MLog {
 	public <T> ListenableFuture<T> execute(AsyncHandler<T> handler) throws InterruptedException, ExecutionException {
 		ListenableFuture<T> ret = instance.execute(handler);
 		if (log().isLevelEnabled(Log.LEVEL.DEBUG))
-			log().d("result", ret.get() );
+			ret.addListener(() -> {
+				try {
+					log().d("result", ret.get() );
+				} catch (InterruptedException | ExecutionException e) {
+				}
+			}, Runnable::run);
 		return ret;
 	}
 
+	/**
+	 * Sends the request. The response is logged when it arrives, so this method never waits for the
+	 * response, not even if debug logging is enabled. If the request was created for a node of a
+	 * {@link NodeSet}, the node is notified when the request completes.
+	 */
 	public ListenableFuture<Response> execute() throws InterruptedException, ExecutionException {
 		ListenableFuture<Response> ret = instance.execute();
+		if (node != null) {
+			node.requestStarted();
+			ret.addListener(() -> {
+				try {
+					node.requestFinished(ret.get(), null);
+				} catch (InterruptedException | ExecutionException e) {
+					node.requestFinished(null, e);
+				}
+			}, Runnable::run);
+		}
 		if (log().isLevelEnabled(Log.LEVEL.DEBUG))
-			try {
-				Response resp = ret.get();
-				if (resp.getStatusCode() != 200)
-					log().d("result", resp.getStatusCode(), resp.getStatusText() );
-				else
-					log().d("result", resp.getResponseBody() );
-			} catch (IOException e) {
-			}
+			ret.addListener(() -> {
+				try {
+					Response resp = ret.get();
+					if (resp.getStatusCode() != 200)
+						log().d("result", resp.getStatusCode(), resp.getStatusText() );
+					else
+						log().d("result", resp.getResponseBody() );
+				} catch (InterruptedException | ExecutionException | IOException e) {
+				}
+			}, Runnable::run);
 		return ret;
 	}
 
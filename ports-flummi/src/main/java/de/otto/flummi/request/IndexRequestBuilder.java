@@ -5,7 +5,7 @@ import static de.otto.flummi.RequestBuilderUtil.toHttpServerErrorException;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -13,6 +13,7 @@ import com.google.gson.JsonPrimitive;
 import com.ning.http.client.Response;
 
 import de.mhus.lib.core.logging.Log;
+import de.otto.flummi.RequestBuilderUtil;
 import de.otto.flummi.util.HttpClientWrapper;
 
 public class IndexRequestBuilder implements RequestBuilder<Void> {
@@ -63,30 +64,39 @@ public class IndexRequestBuilder implements RequestBuilder<Void> {
 
     @Override
     public Void execute() {
-        try {
-            HttpRequestBuilder reqBuilder;
-            if (id != null) {
-                String url = buildUrl(indexName, documentType, URLEncoder.encode(id.getAsString(), "UTF-8"));
-                reqBuilder = httpClient.preparePut(url);
-            } else {
-                String url = buildUrl(indexName, documentType);
-                reqBuilder = httpClient.preparePost(url);
-            }
-            if (parent != null) {
-                reqBuilder.addQueryParam("parent", parent);
-            }
-            Response response = reqBuilder.setBody(gson.toJson(source)).setBodyEncoding("UTF-8").execute().get();
-            if (response.getStatusCode() >= 300) {
-                throw toHttpServerErrorException(response);
+        return RequestBuilderUtil.execute(prepareRequest(), this::handleResponse);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::handleResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
+        HttpRequestBuilder reqBuilder;
+        if (id != null) {
+            String url;
+            try {
+                url = buildUrl(indexName, documentType, URLEncoder.encode(id.getAsString(), "UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException(e);
             }
-            return null;
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+            reqBuilder = httpClient.preparePut(url);
+        } else {
+            String url = buildUrl(indexName, documentType);
+            reqBuilder = httpClient.preparePost(url);
+        }
+        if (parent != null) {
+            reqBuilder.addQueryParam("parent", parent);
+        }
+        return reqBuilder.setBody(gson.toJson(source)).setBodyEncoding("UTF-8");
+    }
+
+    private Void handleResponse(Response response) {
+        if (response.getStatusCode() >= 300) {
+            throw toHttpServerErrorException(response);
         }
+        return null;
     }
 
 }
@@ -2,12 +2,12 @@ package de.otto.flummi.request;
 
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.ning.http.client.Response;
 
 import de.mhus.lib.core.logging.Log;
+import de.otto.flummi.RequestBuilderUtil;
 import de.otto.flummi.response.HttpServerErrorException;
 import de.otto.flummi.util.HttpClientWrapper;
 
@@ -23,19 +23,23 @@ public class IndicesExistsRequestBuilder implements RequestBuilder<Boolean> {
     }
 
     public Boolean execute() {
-        try {
-            Response response = httpClient.prepareHead("/" + indexName).execute().get();
-            int statusCode = response.getStatusCode();
-            if (statusCode >= 300 && response.getStatusCode() != 404) {
-                throw new HttpServerErrorException(response.getStatusCode(), response.getStatusText(), response.getResponseBody());
-            }
-            return statusCode < 300;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+        return RequestBuilderUtil.execute(prepareRequest(), this::handleResponse);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::handleResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
+        return httpClient.prepareHead("/" + indexName);
+    }
+
+    private Boolean handleResponse(Response response) throws IOException {
+        int statusCode = response.getStatusCode();
+        if (statusCode >= 300 && response.getStatusCode() != 404) {
+            throw new HttpServerErrorException(response.getStatusCode(), response.getStatusText(), response.getResponseBody());
         }
+        return statusCode < 300;
     }
 }
@@ -8,7 +8,7 @@ import static java.util.stream.Collectors.toList;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
@@ -59,55 +59,60 @@ public class MultiGetRequestBuilder implements RequestBuilder<MultiGetResponse>
 
     @Override
     public MultiGetResponse execute() {
-        try {
-            String url = RequestBuilderUtil.buildUrl(indices, types, "_mget");
-            JsonObject body = new JsonObject();
-            if (documents != null) {
-                body.add("docs", array(documents.stream().map(d -> create(d)).collect(toList())));
-            }
-            HttpRequestBuilder boundRequestBuilder = httpClient
-                    .preparePost(url)
-                    .setBodyEncoding("UTF-8");
-            if (timeoutMillis != null) {
-                boundRequestBuilder.setRequestTimeout(timeoutMillis);
-            }
-            long start = System.currentTimeMillis();
-            Response response = boundRequestBuilder.setBody(gson.toJson(body))
-                    .execute()
-                    .get();
-
-            long tookInMillis = System.currentTimeMillis() - start;
-            //Did not find an entry
-            if (response.getStatusCode() == 404) {
-                return new MultiGetResponse(emptyList(), tookInMillis);
-            }
+        HttpRequestBuilder request = prepareRequest();
+        long start = System.currentTimeMillis();
+        return RequestBuilderUtil.execute(request, response -> parseResponse(response, System.currentTimeMillis() - start));
+    }
 
-            //Server Error
-            if (response.getStatusCode() >= 300) {
-                throw toHttpServerErrorException(response);
-            }
+    @Override
+    public CompletableFuture<MultiGetResponse> executeAsync() {
+        HttpRequestBuilder request = prepareRequest();
+        long start = System.currentTimeMillis();
+        return RequestBuilderUtil.executeAsync(request, response -> parseResponse(response, System.currentTimeMillis() - start));
+    }
 
-            JsonObject jsonObject = gson.fromJson(response.getResponseBody(), JsonObject.class);
-            JsonArray docs = jsonObject.get("docs").getAsJsonArray();
-
-            List<MultiGetResponseDocument> documents = new ArrayList<>();
-            for (JsonElement doc : docs) {
-                JsonObject jsonDoc = doc.getAsJsonObject();
-                String id = jsonDoc.get("_id").getAsString();
-                JsonObject source = new JsonObject();
-                boolean found = jsonDoc.get("found").getAsBoolean();
-                if (found) {
-                    source = jsonDoc.get("_source").getAsJsonObject();
-                }
-                documents.add(new MultiGetResponseDocument(id, found, source));
-            }
+    private HttpRequestBuilder prepareRequest() {
+        String url = RequestBuilderUtil.buildUrl(indices, types, "_mget");
+        JsonObject body = new JsonObject();
+        if (documents != null) {
+            body.add("docs", array(documents.stream().map(d -> create(d)).collect(toList())));
+        }
+        HttpRequestBuilder boundRequestBuilder = httpClient
+                .preparePost(url)
+                .setBodyEncoding("UTF-8");
+        if (timeoutMillis != null) {
+            boundRequestBuilder.setRequestTimeout(timeoutMillis);
+        }
+        return boundRequestBuilder.setBody(gson.toJson(body));
+    }
+
+    private MultiGetResponse parseResponse(Response response, long tookInMillis) throws IOException {
+        //Did not find an entry
+        if (response.getStatusCode() == 404) {
+            return new MultiGetResponse(emptyList(), tookInMillis);
+        }
 
-            return new MultiGetResponse(documents, tookInMillis);
-        } catch (InterruptedException | IOException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+        //Server Error
+        if (response.getStatusCode() >= 300) {
+            throw toHttpServerErrorException(response);
         }
+
+        JsonObject jsonObject = gson.fromJson(response.getResponseBody(), JsonObject.class);
+        JsonArray docs = jsonObject.get("docs").getAsJsonArray();
+
+        List<MultiGetResponseDocument> documents = new ArrayList<>();
+        for (JsonElement doc : docs) {
+            JsonObject jsonDoc = doc.getAsJsonObject();
+            String id = jsonDoc.get("_id").getAsString();
+            JsonObject source = new JsonObject();
+            boolean found = jsonDoc.get("found").getAsBoolean();
+            if (found) {
+                source = jsonDoc.get("_source").getAsJsonObject();
+            }
+            documents.add(new MultiGetResponseDocument(id, found, source));
+        }
+
+        return new MultiGetResponse(documents, tookInMillis);
     }
 
     private JsonObject create(MultiGetRequestDocument multiGetRequestDocument) {
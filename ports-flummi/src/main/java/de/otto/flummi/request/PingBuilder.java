@@ -1,9 +1,13 @@
 package de.otto.flummi.request;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.ning.http.client.Response;
 
+import de.otto.flummi.RequestBuilderUtil;
 import de.otto.flummi.response.PingResponse;
 import de.otto.flummi.util.HttpClientWrapper;
 
@@ -19,24 +23,27 @@ public class PingBuilder implements RequestBuilder<PingResponse> {
 
 	@Override
 	public PingResponse execute() {
+		return RequestBuilderUtil.execute(httpClient.prepareGet("/"), this::handleResponse);
+	}
+
+	@Override
+	public CompletableFuture<PingResponse> executeAsync() {
+		return RequestBuilderUtil.executeAsync(httpClient.prepareGet("/"), this::handleResponse);
+	}
+
+	private PingResponse handleResponse(Response response) throws IOException {
+		JsonObject jsonResponse = gson.fromJson(response.getResponseBody(), JsonObject.class);
 		
-		try {
-			Response response = httpClient.prepareGet("/").execute().get();
-			JsonObject jsonResponse = gson.fromJson(response.getResponseBody(), JsonObject.class);
-			
-			return new PingResponse(
-					jsonResponse.get("cluster_name").getAsString(),
-					jsonResponse.get("name").getAsString(),
-					jsonResponse.get("tagline").getAsString(),
-					jsonResponse.getAsJsonObject("version").get("build_hash").getAsString(),
-					jsonResponse.getAsJsonObject("version").get("build_snapshot").getAsBoolean(),
-					jsonResponse.getAsJsonObject("version").get("build_timestamp").getAsString(),
-					jsonResponse.getAsJsonObject("version").get("lucene_version").getAsString(),
-					jsonResponse.getAsJsonObject("version").get("number").getAsString()
-					);
-		} catch (Exception e) {
-            throw new RuntimeException(e);
-		}
+		return new PingResponse(
+				jsonResponse.get("cluster_name").getAsString(),
+				jsonResponse.get("name").getAsString(),
+				jsonResponse.get("tagline").getAsString(),
+				jsonResponse.getAsJsonObject("version").get("build_hash").getAsString(),
+				jsonResponse.getAsJsonObject("version").get("build_snapshot").getAsBoolean(),
+				jsonResponse.getAsJsonObject("version").get("build_timestamp").getAsString(),
+				jsonResponse.getAsJsonObject("version").get("lucene_version").getAsString(),
+				jsonResponse.getAsJsonObject("version").get("number").getAsString()
+				);
 	}
 
 }
@@ -2,11 +2,12 @@ package de.otto.flummi.request;
 
 import static de.otto.flummi.RequestBuilderUtil.toHttpServerErrorException;
 
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.ning.http.client.Response;
 
 import de.mhus.lib.core.logging.Log;
+import de.otto.flummi.RequestBuilderUtil;
 import de.otto.flummi.util.HttpClientWrapper;
 
 public class RefreshRequestBuilder {
@@ -21,16 +22,21 @@ public class RefreshRequestBuilder {
     }
 
     public void execute() {
-        try {
-            Response response = httpClient.preparePost("/" + indexName + "/_refresh").execute().get();
-            if (response.getStatusCode() >= 300) {
-                throw toHttpServerErrorException(response);
-            }
-            return;
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+        RequestBuilderUtil.execute(prepareRequest(), this::handleResponse);
+    }
+
+    public CompletableFuture<Void> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::handleResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
+        return httpClient.preparePost("/" + indexName + "/_refresh");
+    }
+
+    private Void handleResponse(Response response) {
+        if (response.getStatusCode() >= 300) {
+            throw toHttpServerErrorException(response);
         }
+        return null;
     }
 }
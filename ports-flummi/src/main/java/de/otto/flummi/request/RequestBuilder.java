@@ -1,6 +1,28 @@
 package de.otto.flummi.request;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface RequestBuilder<R> {
 
     R execute();
+
+    /**
+     * Sends the request without blocking. The response is parsed when it arrives and the future is
+     * completed with the result, or exceptionally with the same exception {@link #execute()} would throw.
+     * <p>
+     * The default implementation calls {@link #execute()} in the common fork-join pool, so implementations that
+     * predate this method keep working. The builders of this library override it to send the request without
+     * blocking a thread.
+     */
+    default CompletableFuture<R> executeAsync() {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        CompletableFuture.runAsync(() -> {
+            try {
+                future.complete(execute());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
 }
@@ -1,19 +1,25 @@
 package de.otto.flummi.request;
 
+import static de.otto.flummi.RequestBuilderUtil.getResult;
 import static de.otto.flummi.RequestBuilderUtil.toHttpServerErrorException;
+import static de.otto.flummi.request.GsonHelper.object;
 import static de.otto.flummi.response.SearchResponse.emptyResponse;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.ning.http.client.Response;
 
 import de.mhus.lib.core.logging.Log;
@@ -25,12 +31,15 @@ import de.otto.flummi.query.sort.SortBuilder;
 import de.otto.flummi.response.AggregationResult;
 import de.otto.flummi.response.ScrollingSearchHits;
 import de.otto.flummi.response.SearchHit;
+import de.otto.flummi.response.SearchHits;
 import de.otto.flummi.response.SearchResponse;
 import de.otto.flummi.response.SimpleSearchHits;
+import de.otto.flummi.response.SlicedSearchHits;
 import de.otto.flummi.util.HttpClientWrapper;
 
 public class SearchRequestBuilder implements RequestBuilder<SearchResponse> {
     private static final JsonObject EMPTY_JSON_OBJECT = new JsonObject();
+    private static final JsonParser JSON_PARSER = new JsonParser();
 
     private HttpClientWrapper httpClient;
     private final String[] indices;
@@ -46,6 +55,8 @@ public class SearchRequestBuilder implements RequestBuilder<SearchResponse> {
     private QueryBuilder postFilter;
     private List<AggregationBuilder> aggregations;
     private Boolean explain;
+    private boolean prefetch;
+    private int slices;
 
     public static final Log LOG = Log.getLog(SearchRequestBuilder.class);
 
@@ -130,86 +141,283 @@ public class SearchRequestBuilder implements RequestBuilder<SearchResponse> {
         return this;
     }
 
+    /**
+     * Prefetch the next page of a scroll while the current page is processed. Only used if a
+     * scroll timeout is set.
+     */
+    public SearchRequestBuilder setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * Split the scroll into the given number of slices which are scrolled independently. The hits
+     * of the response are {@link SlicedSearchHits}, their stream is parallel. Requires a scroll
+     * timeout, aggregations are not supported.
+     */
+    public SearchRequestBuilder setSlices(int slices) {
+        this.slices = slices;
+        return this;
+    }
+
     @Override
     public SearchResponse execute() {
-        try {
-            String url = RequestBuilderUtil.buildUrl(indices, types, "_search");
-            JsonObject body = new JsonObject();
-            if (query != null) {
-                body.add("query", query);
-            }
-            if (fields != null) {
-                body.add("fields", fields);
-            }
-            if (from != null) {
-                body.add("from", new JsonPrimitive(from));
-            }
-            if (size != null) {
-                body.add("size", new JsonPrimitive(size));
-            }
-            if (explain != null) {
-            	body.add("explain", new JsonPrimitive(explain));
-            }
-            if (sorts != null) {
-                body.add("sort", sorts);
-            }
-            if (postFilter != null) {
-                body.add("post_filter", postFilter.build());
-            }
-            if (aggregations != null) {
-                JsonObject jsonObject = new JsonObject();
-                aggregations.stream()
-                        .forEach(a ->
-                                jsonObject.add(a.getName(), a.build()));
-                body.add("aggregations", jsonObject);
-            }
-            HttpRequestBuilder boundRequestBuilder = httpClient
-                    .preparePost(url)
-                    .setBodyEncoding("UTF-8");
-            if (timeoutMillis != null) {
-                boundRequestBuilder.setRequestTimeout(timeoutMillis);
-            }
-            if (scroll != null) {
-                boundRequestBuilder.addQueryParam("scroll", scroll);
-            }
+        if (slices > 1) {
+            return getResult(executeSliced());
+        }
+        return RequestBuilderUtil.execute(prepareRequest(buildBody()),
+                response -> toSearchResponse(response, aggregations));
+    }
 
-            Response response = boundRequestBuilder.setBody(gson.toJson(body))
-                    .execute()
-                    .get();
+    @Override
+    public CompletableFuture<SearchResponse> executeAsync() {
+        if (slices > 1) {
+            return executeSliced();
+        }
+        return RequestBuilderUtil.executeAsync(prepareRequest(buildBody()),
+                response -> toSearchResponse(response, aggregations));
+    }
 
-            //Did not find an entry
-            if (response.getStatusCode() == 404) {
-                return emptyResponse();
+    private CompletableFuture<SearchResponse> executeSliced() {
+        if (scroll == null) {
+            throw new IllegalStateException("Sliced scrolling requires a scroll timeout");
+        }
+        if (aggregations != null) {
+            throw new IllegalStateException("Aggregations are not supported in sliced scrolls");
+        }
+        List<CompletableFuture<SearchResponse>> futures = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            JsonObject body = buildBody();
+            body.add("slice", object("id", new JsonPrimitive(i), "max", new JsonPrimitive(slices)));
+            futures.add(RequestBuilderUtil.executeAsync(prepareRequest(body),
+                    response -> toSearchResponse(response, null)));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(v -> {
+            long tookInMillis = 0;
+            List<SearchHits> hits = new ArrayList<>(slices);
+            for (CompletableFuture<SearchResponse> future : futures) {
+                SearchResponse slice = future.join();
+                tookInMillis = Math.max(tookInMillis, slice.getTookInMillis());
+                hits.add(slice.getHits());
             }
+            return SearchResponse.builder()
+                    .setTookInMillis(tookInMillis)
+                    .setHits(new SlicedSearchHits(hits))
+                    .build();
+        });
+    }
 
-            //Server Error
-            if (response.getStatusCode() >= 300) {
-                throw toHttpServerErrorException(response);
-            }
+    private SearchResponse toSearchResponse(Response response, List<AggregationBuilder> aggregations) throws IOException {
+        //Did not find an entry
+        if (response.getStatusCode() == 404) {
+            return emptyResponse();
+        }
 
-            JsonObject jsonResponse = gson.fromJson(response.getResponseBody(), JsonObject.class);
-            SearchResponse.Builder searchResponse = parseResponse(jsonResponse, scroll, httpClient);
+        //Server Error
+        if (response.getStatusCode() >= 300) {
+            throw toHttpServerErrorException(response);
+        }
 
-            JsonElement aggregationsJsonElement = jsonResponse.get("aggregations");
-            if (aggregationsJsonElement != null) {
-                final JsonObject aggregationsJsonObject = aggregationsJsonElement.getAsJsonObject();
+        SearchResponse.Builder searchResponse = parseResponse(response, scroll, httpClient, aggregations, prefetch);
+        return searchResponse.build();
+    }
 
-                aggregations.forEach(a -> {
-                    JsonElement aggreagationElement = aggregationsJsonObject.get(a.getName());
-                    if (aggreagationElement != null) {
-                        AggregationResult aggregation = a.parseResponse(aggreagationElement.getAsJsonObject());
-                        searchResponse.addAggregation(a.getName(), aggregation);
+    private JsonObject buildBody() {
+        JsonObject body = new JsonObject();
+        if (query != null) {
+            body.add("query", query);
+        }
+        if (fields != null) {
+            body.add("fields", fields);
+        }
+        if (from != null) {
+            body.add("from", new JsonPrimitive(from));
+        }
+        if (size != null) {
+            body.add("size", new JsonPrimitive(size));
+        }
+        if (explain != null) {
+        	body.add("explain", new JsonPrimitive(explain));
+        }
+        if (sorts != null) {
+            body.add("sort", sorts);
+        }
+        if (postFilter != null) {
+            body.add("post_filter", postFilter.build());
+        }
+        if (aggregations != null) {
+            JsonObject jsonObject = new JsonObject();
+            aggregations.stream()
+                    .forEach(a ->
+                            jsonObject.add(a.getName(), a.build()));
+            body.add("aggregations", jsonObject);
+        }
+        return body;
+    }
+
+    private HttpRequestBuilder prepareRequest(JsonObject body) {
+        String url = RequestBuilderUtil.buildUrl(indices, types, "_search");
+        HttpRequestBuilder boundRequestBuilder = httpClient
+                .preparePost(url)
+                .setBodyEncoding("UTF-8");
+        if (timeoutMillis != null) {
+            boundRequestBuilder.setRequestTimeout(timeoutMillis);
+        }
+        if (scroll != null) {
+            boundRequestBuilder.addQueryParam("scroll", scroll);
+        }
+        return boundRequestBuilder.setBody(gson.toJson(body));
+    }
+
+    /**
+     * Parses the search response directly from the response body stream. Only the fields used by
+     * {@link SearchResponse} are read, everything else (e.g. _shards, highlight, explanation) is skipped
+     * without being materialized. Aggregations are only parsed if they were requested.
+     */
+    static SearchResponse.Builder parseResponse(Response response, String scroll, HttpClientWrapper client, List<AggregationBuilder> aggregations, boolean prefetch) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(response.getResponseBodyAsStream(), StandardCharsets.UTF_8))) {
+            return parseResponse(reader, scroll, client, aggregations, prefetch);
+        }
+    }
+
+    public static SearchResponse.Builder parseResponse(JsonReader reader, String scroll, HttpClientWrapper client, List<AggregationBuilder> aggregations) throws IOException {
+        return parseResponse(reader, scroll, client, aggregations, false);
+    }
+
+    public static SearchResponse.Builder parseResponse(JsonReader reader, String scroll, HttpClientWrapper client, List<AggregationBuilder> aggregations, boolean prefetch) throws IOException {
+        SearchResponse.Builder searchResponse = SearchResponse.builder();
+        String scrollId = null;
+        long totalHits = 0;
+        Float maxScore = null;
+        List<SearchHit> searchHitsCurrentPage = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "took":
+                    searchResponse.setTookInMillis(reader.nextLong());
+                    break;
+                case "_scroll_id":
+                    scrollId = reader.nextString();
+                    searchResponse.setScrollId(scrollId);
+                    break;
+                case "hits":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "total":
+                                totalHits = reader.nextLong();
+                                break;
+                            case "max_score":
+                                maxScore = nextFloat(reader);
+                                break;
+                            case "hits":
+                                reader.beginArray();
+                                while (reader.hasNext()) {
+                                    searchHitsCurrentPage.add(parseHit(reader));
+                                }
+                                reader.endArray();
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
                     }
-                });
+                    reader.endObject();
+                    break;
+                case "aggregations":
+                    parseAggregations(reader, aggregations, searchResponse);
+                    break;
+                default:
+                    reader.skipValue();
             }
-            return searchResponse.build();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
         }
+        reader.endObject();
+
+        if(scroll!=null) {
+            searchResponse.setHits(new ScrollingSearchHits(totalHits, maxScore, scrollId, scroll, searchHitsCurrentPage, client, prefetch));
+        } else {
+            searchResponse.setHits(new SimpleSearchHits(totalHits, maxScore, searchHitsCurrentPage));
+        }
+        return searchResponse;
+    }
+
+    private static SearchHit parseHit(JsonReader reader) throws IOException {
+        String id = null;
+        String type = null;
+        String index = null;
+        Float score = null;
+        JsonObject source = null;
+        JsonObject hitFields = EMPTY_JSON_OBJECT;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "_id":
+                    id = reader.nextString();
+                    break;
+                case "_type":
+                    type = reader.nextString();
+                    break;
+                case "_index":
+                    index = reader.nextString();
+                    break;
+                case "_score":
+                    score = nextFloat(reader);
+                    break;
+                case "_source":
+                    source = nextObject(reader);
+                    break;
+                case "fields":
+                    JsonObject fieldsObject = nextObject(reader);
+                    hitFields = fieldsObject != null ? fieldsObject : EMPTY_JSON_OBJECT;
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new SearchHit(id, source, hitFields, score, type, index);
+    }
+
+    private static void parseAggregations(JsonReader reader, List<AggregationBuilder> aggregations, SearchResponse.Builder searchResponse) throws IOException {
+        if (aggregations == null) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            AggregationBuilder aggregationBuilder = null;
+            for (AggregationBuilder a : aggregations) {
+                if (a.getName().equals(name)) {
+                    aggregationBuilder = a;
+                    break;
+                }
+            }
+            if (aggregationBuilder == null) {
+                reader.skipValue();
+                continue;
+            }
+            AggregationResult aggregation = aggregationBuilder.parseResponse(nextObject(reader));
+            searchResponse.addAggregation(name, aggregation);
+        }
+        reader.endObject();
+    }
+
+    private static Float nextFloat(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return (float) reader.nextDouble();
+    }
+
+    private static JsonObject nextObject(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return JSON_PARSER.parse(reader).getAsJsonObject();
     }
 
     public static SearchResponse.Builder parseResponse(JsonObject jsonObject, String scroll, HttpClientWrapper client) {
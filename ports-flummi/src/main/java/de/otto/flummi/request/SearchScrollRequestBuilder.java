@@ -6,13 +6,13 @@ import static de.otto.flummi.request.SearchRequestBuilder.parseResponse;
 import static de.otto.flummi.response.SearchResponse.emptyResponse;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.ning.http.client.Response;
 
+import de.otto.flummi.RequestBuilderUtil;
 import de.otto.flummi.response.SearchResponse;
 import de.otto.flummi.util.HttpClientWrapper;
 
@@ -39,35 +39,36 @@ public class SearchScrollRequestBuilder implements RequestBuilder<SearchResponse
 
     @Override
     public SearchResponse execute() {
+        return RequestBuilderUtil.execute(prepareRequest(), this::toSearchResponse);
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> executeAsync() {
+        return RequestBuilderUtil.executeAsync(prepareRequest(), this::toSearchResponse);
+    }
+
+    private HttpRequestBuilder prepareRequest() {
         JsonObject requestBody = object(
                 "scroll_id", scrollId,
                 "scroll", scroll
         );
-        try {
-            Response response = httpClient.preparePost("/_search/scroll")
-                    .setBody(gson.toJson(requestBody))
-                    .execute()
-                    .get();
-
-            //Did not find an entry
-            if (response.getStatusCode() == 404) {
-                return emptyResponse();
-            }
-
-            //Server Error
-            if (response.getStatusCode() >= 300) {
-                throw toHttpServerErrorException(response);
-            }
+        return httpClient.preparePost("/_search/scroll")
+                .setBody(gson.toJson(requestBody));
+    }
 
-            JsonObject jsonResponse = gson.fromJson(response.getResponseBody(), JsonObject.class);
-            SearchResponse.Builder searchResponse = parseResponse(jsonResponse, null, null);
+    private SearchResponse toSearchResponse(Response response) throws IOException {
+        //Did not find an entry
+        if (response.getStatusCode() == 404) {
+            return emptyResponse();
+        }
 
-            return searchResponse.build();
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        //Server Error
+        if (response.getStatusCode() >= 300) {
+            throw toHttpServerErrorException(response);
         }
 
+        SearchResponse.Builder searchResponse = parseResponse(response, null, null, null, false);
+
+        return searchResponse.build();
     }
 }
@@ -3,6 +3,8 @@ package de.otto.flummi.response;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -14,25 +16,34 @@ import de.otto.flummi.util.HttpClientWrapper;
 /**
  * Auto-scrolling implementation of SearchHits. Contains a page of search results
  * and automatically fetches more pages from the server as you iterate or stream over the search result.
+ * If prefetching is enabled, the next page is requested as soon as a page is available, so fetching
+ * the next page overlaps with the processing of the current page.
  */
 public class ScrollingSearchHits implements SearchHits {
     private final long totalHits;
     private final Float maxScore;
-    private final String scrollId;
     private final String scroll;
     private final HttpClientWrapper client;
+    private final boolean prefetch;
+    private String scrollId;
     private List<SearchHit> hitsCurrentPage;
+    private CompletableFuture<SearchResponse> nextPage;
     private boolean dirty;
     public static final Log LOG = Log.getLog(ScrollingSearchHits.class);
 
 
     public ScrollingSearchHits(long totalHits, Float maxScore, String scrollId, String scroll, List<SearchHit> hitsCurrentPage, HttpClientWrapper client) {
+        this(totalHits, maxScore, scrollId, scroll, hitsCurrentPage, client, false);
+    }
+
+    public ScrollingSearchHits(long totalHits, Float maxScore, String scrollId, String scroll, List<SearchHit> hitsCurrentPage, HttpClientWrapper client, boolean prefetch) {
         this.totalHits = totalHits;
         this.maxScore = maxScore;
         this.scrollId = scrollId;
         this.scroll = scroll;
         this.hitsCurrentPage = hitsCurrentPage;
         this.client = client;
+        this.prefetch = prefetch;
     }
 
 
@@ -49,6 +60,7 @@ public class ScrollingSearchHits implements SearchHits {
     @Override
     public Iterator<SearchHit> iterator() {
         assertNotDirty();
+        prefetchNextPage();
         return new Iterator<SearchHit>() {
             int currentPageIdx = 0;
 
@@ -84,16 +96,44 @@ public class ScrollingSearchHits implements SearchHits {
 
     private void fetchNextPage() {
         dirty = true;
-        SearchResponse response = new SearchScrollRequestBuilder(client)
-                .setScroll(scroll)
-                .setScrollId(scrollId)
-                .execute();
+        SearchResponse response;
+        if (nextPage != null) {
+            try {
+                response = nextPage.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            } finally {
+                nextPage = null;
+            }
+        } else {
+            response = prepareScroll().execute();
+        }
+        if (response.getScrollId() != null) {
+            this.scrollId = response.getScrollId();
+        }
         this.hitsCurrentPage = ((SimpleSearchHits)response.getHits()).getHits();
+        prefetchNextPage();
+    }
+
+    private void prefetchNextPage() {
+        if (prefetch && nextPage == null && !hitsCurrentPage.isEmpty()) {
+            nextPage = prepareScroll().executeAsync();
+        }
+    }
+
+    private SearchScrollRequestBuilder prepareScroll() {
+        return new SearchScrollRequestBuilder(client)
+                .setScroll(scroll)
+                .setScrollId(scrollId);
     }
 
     @Override
     public void forEach(Consumer<? super SearchHit> action) {
         assertNotDirty();
+        prefetchNextPage();
         while(!hitsCurrentPage.isEmpty()) {
             hitsCurrentPage.forEach(action);
             fetchNextPage();
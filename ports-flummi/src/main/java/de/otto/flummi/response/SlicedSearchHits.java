@@ -0,0 +1,155 @@
+package de.otto.flummi.response;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * SearchHits of a sliced scroll. Every slice is scrolled independently, usually by a
+ * {@link ScrollingSearchHits}. The spliterator splits along the slices, so {@link #stream()}
+ * returns a parallel stream that scrolls the slices concurrently.
+ */
+public class SlicedSearchHits implements SearchHits {
+    private final List<SearchHits> slices;
+
+    public SlicedSearchHits(List<SearchHits> slices) {
+        this.slices = slices;
+    }
+
+    @Override
+    public long getTotalHits() {
+        long totalHits = 0;
+        for (SearchHits slice : slices) {
+            totalHits += slice.getTotalHits();
+        }
+        return totalHits;
+    }
+
+    @Override
+    public Float getMaxScore() {
+        Float maxScore = null;
+        for (SearchHits slice : slices) {
+            Float score = slice.getMaxScore();
+            if (score != null && (maxScore == null || score > maxScore)) {
+                maxScore = score;
+            }
+        }
+        return maxScore;
+    }
+
+    public List<SearchHits> getSlices() {
+        return slices;
+    }
+
+    @Override
+    public Iterator<SearchHit> iterator() {
+        return new Iterator<SearchHit>() {
+            int sliceIdx = 0;
+            Iterator<SearchHit> current;
+
+            @Override
+            public boolean hasNext() {
+                while (current == null || !current.hasNext()) {
+                    if (sliceIdx == slices.size()) {
+                        return false;
+                    }
+                    current = slices.get(sliceIdx++).iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public SearchHit next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super SearchHit> action) {
+        slices.forEach(slice -> slice.forEach(action));
+    }
+
+    @Override
+    public Spliterator<SearchHit> spliterator() {
+        return new SliceSpliterator(0, slices.size());
+    }
+
+    /**
+     * @return a parallel stream over all slices.
+     */
+    @Override
+    public Stream<SearchHit> stream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class SliceSpliterator implements Spliterator<SearchHit> {
+        private int sliceIdx;
+        private final int end;
+        private Spliterator<SearchHit> current;
+
+        SliceSpliterator(int sliceIdx, int end) {
+            this.sliceIdx = sliceIdx;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super SearchHit> action) {
+            while (true) {
+                if (current != null && current.tryAdvance(action)) {
+                    return true;
+                }
+                if (sliceIdx == end) {
+                    return false;
+                }
+                current = slices.get(sliceIdx++).spliterator();
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super SearchHit> action) {
+            if (current != null) {
+                current.forEachRemaining(action);
+            }
+            while (sliceIdx < end) {
+                slices.get(sliceIdx++).forEach(action);
+            }
+        }
+
+        @Override
+        public Spliterator<SearchHit> trySplit() {
+            int remaining = end - sliceIdx;
+            if (current == null && remaining > 1) {
+                int mid = sliceIdx + remaining / 2;
+                Spliterator<SearchHit> prefix = new SliceSpliterator(sliceIdx, mid);
+                sliceIdx = mid;
+                return prefix;
+            }
+            if (current == null && remaining == 1) {
+                current = slices.get(sliceIdx++).spliterator();
+            }
+            return current != null ? current.trySplit() : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = current != null ? current.estimateSize() : 0;
+            for (int i = sliceIdx; i < end; i++) {
+                size += slices.get(i).getTotalHits();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -7,30 +7,48 @@ import de.otto.flummi.request.HttpRequestBuilder;
 public class HttpClientWrapper {
 
     private final AsyncHttpClient asyncHttpClient;
-    private final String baseUrl;
+    private final NodeSet nodes;
 
     public HttpClientWrapper(AsyncHttpClient asyncHttpClient, String baseUrl) {
+        this(asyncHttpClient, new NodeSet(baseUrl));
+    }
+
+    /**
+     * Creates a wrapper that distributes the requests over the given nodes. Starts pinging and sniffing the nodes,
+     * if enabled.
+     */
+    public HttpClientWrapper(AsyncHttpClient asyncHttpClient, NodeSet nodes) {
         this.asyncHttpClient = asyncHttpClient;
-        this.baseUrl = baseUrl;
+        this.nodes = nodes;
+        nodes.start(asyncHttpClient);
+    }
+
+    public NodeSet getNodes() {
+        return nodes;
     }
 
     public HttpRequestBuilder prepareGet(String url) {
-        return new HttpRequestBuilder( asyncHttpClient.prepareGet(baseUrl + url) );
+        NodeSet.Node node = nodes.select();
+        return new HttpRequestBuilder( asyncHttpClient.prepareGet(node.getBaseUrl() + url), node );
     }
 
     public HttpRequestBuilder preparePost(String url) {
-        return new HttpRequestBuilder( asyncHttpClient.preparePost(baseUrl + url) );
+        NodeSet.Node node = nodes.select();
+        return new HttpRequestBuilder( asyncHttpClient.preparePost(node.getBaseUrl() + url), node );
     }
 
     public HttpRequestBuilder preparePut(String url) {
-        return new HttpRequestBuilder( asyncHttpClient.preparePut(baseUrl + url) );
+        NodeSet.Node node = nodes.select();
+        return new HttpRequestBuilder( asyncHttpClient.preparePut(node.getBaseUrl() + url), node );
     }
 
     public HttpRequestBuilder prepareDelete(String url) {
-        return new HttpRequestBuilder( asyncHttpClient.prepareDelete(baseUrl + url) );
+        NodeSet.Node node = nodes.select();
+        return new HttpRequestBuilder( asyncHttpClient.prepareDelete(node.getBaseUrl() + url), node );
     }
 
     public HttpRequestBuilder prepareHead(String url) {
-        return new HttpRequestBuilder( asyncHttpClient.prepareHead(baseUrl + url) );
+        NodeSet.Node node = nodes.select();
+        return new HttpRequestBuilder( asyncHttpClient.prepareHead(node.getBaseUrl() + url), node );
     }
 }
@@ -0,0 +1,367 @@
+package de.otto.flummi.util;
+
+import java.io.Closeable;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.Response;
+
+import de.mhus.lib.core.logging.Log;
+import de.otto.flummi.request.HttpRequestBuilder;
+import de.otto.flummi.request.PingBuilder;
+
+/**
+ * The Elasticsearch nodes used by a {@link HttpClientWrapper}. Every request is sent to one of the nodes that are
+ * alive, selected round-robin or by the least number of outstanding requests.
+ * <p>
+ * A node that fails (connection errors, timeouts and the status codes 502, 503 and 504) is marked dead. Dead nodes
+ * are not used until their backoff has passed. The backoff doubles with every failure in a row. If a ping interval
+ * is set, dead nodes are pinged in the background once their backoff has passed and are only used again after a
+ * successful ping. If all nodes are dead, the node whose backoff ends first is used. A set with a single node never
+ * marks it dead.
+ * <p>
+ * If a sniff interval is set, the nodes are replaced by the HTTP nodes of the cluster (<code>/_nodes/http</code>)
+ * periodically.
+ */
+public class NodeSet implements Closeable {
+
+    public enum Strategy {
+        ROUND_ROBIN,
+        LEAST_OUTSTANDING_REQUESTS
+    }
+
+    public static final Log LOG = Log.getLog(NodeSet.class);
+
+    private final Strategy strategy;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long pingIntervalMillis;
+    private final long sniffIntervalMillis;
+    private final String scheme;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<Node> nodes;
+    private AsyncHttpClient asyncHttpClient;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a node set with a single node, without pinging and sniffing.
+     */
+    public NodeSet(String baseUrl) {
+        this(new Builder(baseUrl));
+    }
+
+    private NodeSet(Builder builder) {
+        this.strategy = builder.strategy;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.pingIntervalMillis = builder.pingIntervalMillis;
+        this.sniffIntervalMillis = builder.sniffIntervalMillis;
+        String first = builder.baseUrls.get(0);
+        this.scheme = first.contains("://") ? first.substring(0, first.indexOf("://")) : "http";
+        List<Node> nodes = new ArrayList<>();
+        for (String baseUrl : builder.baseUrls) {
+            nodes.add(new Node(baseUrl));
+        }
+        this.nodes = Collections.unmodifiableList(nodes);
+    }
+
+    public static Builder builder(String... baseUrls) {
+        return new Builder(baseUrls);
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the node for the next request.
+     */
+    public Node select() {
+        List<Node> nodes = this.nodes;
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+        long now = System.currentTimeMillis();
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        Node selected = null;
+        Node firstToRevive = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get((start + i) % nodes.size());
+            if (node.isAvailable(now)) {
+                if (strategy == Strategy.ROUND_ROBIN) {
+                    return node;
+                }
+                if (selected == null || node.getOutstandingRequests() < selected.getOutstandingRequests()) {
+                    selected = node;
+                }
+            } else if (firstToRevive == null || node.deadUntil < firstToRevive.deadUntil) {
+                firstToRevive = node;
+            }
+        }
+        return selected != null ? selected : firstToRevive;
+    }
+
+    /**
+     * Starts pinging and sniffing in the background, if enabled. Called by {@link HttpClientWrapper}.
+     */
+    synchronized void start(AsyncHttpClient asyncHttpClient) {
+        if (this.asyncHttpClient != null) {
+            return;
+        }
+        this.asyncHttpClient = asyncHttpClient;
+        if (pingIntervalMillis <= 0 && sniffIntervalMillis <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "flummi-nodes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (pingIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::pingDeadNodes, pingIntervalMillis, pingIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (sniffIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::sniff, 0, sniffIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void pingDeadNodes() {
+        long now = System.currentTimeMillis();
+        for (Node node : nodes) {
+            if (node.deadUntil == 0 || node.deadUntil > now || !node.pinging.compareAndSet(false, true)) {
+                continue;
+            }
+            new PingBuilder(new HttpClientWrapper(asyncHttpClient, node.getBaseUrl()))
+                    .executeAsync()
+                    .whenComplete((response, e) -> {
+                        node.pinging.set(false);
+                        if (e == null) {
+                            node.markAlive();
+                        } else {
+                            node.markDead();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Replaces the nodes by the HTTP nodes of the cluster. Nodes that are already known keep their state.
+     */
+    public void sniff() {
+        Node node = select();
+        try {
+            Response response = new HttpRequestBuilder(asyncHttpClient.prepareGet(node.getBaseUrl() + "/_nodes/http"), node)
+                    .execute()
+                    .get();
+            if (response.getStatusCode() >= 300) {
+                LOG.w("sniffing failed", node.getBaseUrl(), response.getStatusCode(), response.getStatusText());
+                return;
+            }
+            JsonObject jsonObject = new JsonParser().parse(new InputStreamReader(response.getResponseBodyAsStream(), StandardCharsets.UTF_8)).getAsJsonObject();
+            List<String> baseUrls = new ArrayList<>();
+            for (Map.Entry<String, JsonElement> entry : jsonObject.getAsJsonObject("nodes").entrySet()) {
+                JsonObject http = entry.getValue().getAsJsonObject().getAsJsonObject("http");
+                if (http != null && http.has("publish_address")) {
+                    baseUrls.add(toBaseUrl(http.get("publish_address").getAsString()));
+                }
+            }
+            if (!baseUrls.isEmpty()) {
+                setNodes(baseUrls);
+            }
+        } catch (Exception e) {
+            LOG.w("sniffing failed", node.getBaseUrl(), e);
+        }
+    }
+
+    private synchronized void setNodes(List<String> baseUrls) {
+        List<Node> nodes = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            Node node = null;
+            for (Node existing : this.nodes) {
+                if (existing.getBaseUrl().equals(baseUrl)) {
+                    node = existing;
+                    break;
+                }
+            }
+            nodes.add(node != null ? node : new Node(baseUrl));
+        }
+        this.nodes = Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * Converts a publish address (<code>host:port</code>, <code>hostname/ip:port</code> or
+     * <code>inet[hostname/ip:port]</code>) to a base url.
+     */
+    String toBaseUrl(String publishAddress) {
+        String address = publishAddress;
+        if (address.startsWith("inet[") && address.endsWith("]")) {
+            address = address.substring(5, address.length() - 1);
+        }
+        int slash = address.indexOf('/');
+        if (slash >= 0) {
+            String hostname = address.substring(0, slash);
+            address = hostname.isEmpty()
+                    ? address.substring(slash + 1)
+                    : hostname + address.substring(address.lastIndexOf(':'));
+        }
+        return scheme + "://" + address;
+    }
+
+    /**
+     * Returns true if the status code means that the node can't serve requests.
+     */
+    static boolean isNodeFailure(int statusCode) {
+        return statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    public class Node {
+        private final String baseUrl;
+        private final AtomicInteger outstandingRequests = new AtomicInteger();
+        private final AtomicBoolean pinging = new AtomicBoolean();
+        private volatile long deadUntil;
+        private int failures;
+
+        Node(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public int getOutstandingRequests() {
+            return outstandingRequests.get();
+        }
+
+        public boolean isDead() {
+            return deadUntil != 0;
+        }
+
+        boolean isAvailable(long now) {
+            long deadUntil = this.deadUntil;
+            return deadUntil == 0 || (pingIntervalMillis <= 0 && deadUntil <= now);
+        }
+
+        /**
+         * Called by {@link HttpRequestBuilder} when a request to this node has been sent.
+         */
+        public void requestStarted() {
+            outstandingRequests.incrementAndGet();
+        }
+
+        /**
+         * Called by {@link HttpRequestBuilder} when a request to this node has completed. The only node of a set is
+         * never marked dead, as it is used for every request anyway.
+         */
+        public void requestFinished(Response response, Throwable failure) {
+            outstandingRequests.decrementAndGet();
+            if (nodes.size() == 1) {
+                return;
+            }
+            if (failure != null || isNodeFailure(response.getStatusCode())) {
+                markDead();
+            } else {
+                markAlive();
+            }
+        }
+
+        synchronized void markDead() {
+            failures++;
+            long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(failures - 1, 30));
+            deadUntil = System.currentTimeMillis() + backoff;
+            LOG.w("node is dead", baseUrl, "failures", failures, "backoff", backoff);
+        }
+
+        void markAlive() {
+            if (deadUntil == 0) {
+                return;
+            }
+            synchronized (this) {
+                failures = 0;
+                deadUntil = 0;
+            }
+            LOG.i("node is alive", baseUrl);
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl + (isDead() ? " (dead)" : "");
+        }
+    }
+
+    public static class Builder {
+        private final List<String> baseUrls;
+        private Strategy strategy = Strategy.ROUND_ROBIN;
+        private long initialBackoffMillis = 1000;
+        private long maxBackoffMillis = 30 * 60 * 1000;
+        private long pingIntervalMillis;
+        private long sniffIntervalMillis;
+
+        public Builder(String... baseUrls) {
+            if (baseUrls.length == 0) {
+                throw new IllegalArgumentException("At least one node is required");
+            }
+            this.baseUrls = Arrays.asList(baseUrls);
+        }
+
+        /**
+         * Sets how requests are distributed over the nodes. Defaults to round-robin.
+         */
+        public Builder setStrategy(Strategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Sets how long a node is not used after it failed. The backoff is doubled for every failure in a row, up to
+         * the maximum. Defaults to 1 second and 30 minutes.
+         */
+        public Builder setBackoff(long initialBackoff, long maxBackoff, TimeUnit unit) {
+            this.initialBackoffMillis = Math.max(1, unit.toMillis(initialBackoff));
+            this.maxBackoffMillis = Math.max(initialBackoffMillis, unit.toMillis(maxBackoff));
+            return this;
+        }
+
+        /**
+         * Sets the interval in which dead nodes are pinged. Disabled by default.
+         */
+        public Builder setPingInterval(long interval, TimeUnit unit) {
+            this.pingIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Sets the interval in which the nodes are sniffed from the cluster. Disabled by default.
+         */
+        public Builder setSniffInterval(long interval, TimeUnit unit) {
+            this.sniffIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        public NodeSet build() {
+            return new NodeSet(this);
+        }
+    }
+}
@@ -5,9 +5,11 @@ import com.ning.http.client.Response;
 import com.ning.http.client.cookie.Cookie;
 import com.ning.http.client.uri.Uri;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static java.util.Collections.emptyList;
@@ -54,7 +56,7 @@ public class MockResponse implements Response {
 
     @Override
     public InputStream getResponseBodyAsStream() throws IOException {
-        throw new IllegalStateException("Stream not implemented");
+        return new ByteArrayInputStream(responseBody.getBytes(StandardCharsets.UTF_8));
     }
 
     @Override
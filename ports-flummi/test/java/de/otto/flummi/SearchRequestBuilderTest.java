@@ -12,6 +12,7 @@ import de.otto.flummi.response.AggregationResult;
 import de.otto.flummi.response.ScrollingSearchHits;
 import de.otto.flummi.response.SearchHit;
 import de.otto.flummi.response.SearchResponse;
+import de.otto.flummi.response.SlicedSearchHits;
 import de.otto.flummi.util.HttpClientWrapper;
 import de.otto.flummi.SortOrder;
 import org.testng.annotations.BeforeMethod;
@@ -21,6 +22,7 @@ import static de.otto.flummi.SortOrder.ASC;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
@@ -61,6 +63,17 @@ public class SearchRequestBuilderTest {
             PRODUCT_JSON +
             "}" +
             "]}}";
+    public static final String SEARCH_RESPONSE_WITH_FIELDS = "{\"took\":3," +
+            "\"timed_out\":false," +
+            "\"_shards\":{\"total\":5,\"successful\":5,\"failed\":0}," +
+            "\"hits\":{\"total\":1,\"max_score\":null,\"hits\":[" +
+            "{\"_index\":\"product_1460618266743\",\"_type\":\"product\",\"_id\":\"P0\",\"_score\":null," +
+            "\"fields\":{\"brand\":[\"adidas\"]}," +
+            "\"highlight\":{\"brand\":[\"<em>adidas</em>\"]}," +
+            "\"sort\":[\"adidas\"]}" +
+            "]}," +
+            "\"aggregations\":{" +
+            "\"not_requested\":{\"doc_count\":2}}}";
     SearchRequestBuilder searchRequestBuilder;
     HttpClientWrapper httpClient;
 
@@ -143,6 +156,31 @@ public class SearchRequestBuilderTest {
         assertThat(categoriesAggregation.getNestedAggregations().get("categories_unique_id_distinct").getBuckets(), hasSize(2));
     }
 
+    @Test
+    public void shouldParseSearchResponseWithFieldsAndSkipUnknownElements() throws Exception {
+        // given
+        HttpRequest boundRequestBuilderMock = mock(HttpRequest.class);
+        when(httpClient.preparePost("/some-index/_search")).thenReturn(boundRequestBuilderMock);
+        when(boundRequestBuilderMock.setBody(any(String.class))).thenReturn(boundRequestBuilderMock);
+        when(boundRequestBuilderMock.setBodyEncoding(anyString())).thenReturn(boundRequestBuilderMock);
+        when(boundRequestBuilderMock.execute()).thenReturn(new CompletedFuture<>(new MockResponse(200, "ok", SEARCH_RESPONSE_WITH_FIELDS)));
+
+        // when
+        SearchResponse response = searchRequestBuilder.setQuery(createSampleQuery()).execute();
+
+        //then
+        assertThat(response.getTookInMillis(), is(3L));
+        assertThat(response.getHits().getMaxScore(), is(nullValue()));
+        assertThat(response.getHits().getTotalHits(), is(1L));
+        assertThat(response.getAggregations().size(), is(0));
+        SearchHit firstHit = response.getHits().iterator().next();
+        assertThat(firstHit.getId(), is("P0"));
+        assertThat(firstHit.getType(), is("product"));
+        assertThat(firstHit.getScore(), is(nullValue()));
+        assertThat(firstHit.getSource(), is(nullValue()));
+        assertThat(firstHit.getFields().get("brand").getAsJsonArray().get(0).getAsString(), is("adidas"));
+    }
+
     @Test
     public void shouldBuilderQueryWithFromAndSize() throws Exception {
         // given
@@ -323,6 +361,31 @@ public class SearchRequestBuilderTest {
         assertThat(response.getHits().getClass().getName(), is(ScrollingSearchHits.class.getName()));
     }
 
+    @Test
+    public void shouldScrollSlices() throws Exception {
+        // given
+        HttpRequest boundRequestBuilderMock = mock(HttpRequest.class);
+        when(httpClient.preparePost("/some-index/_search")).thenReturn(boundRequestBuilderMock);
+        when(boundRequestBuilderMock.setBody(any(String.class))).thenReturn(boundRequestBuilderMock);
+        when(boundRequestBuilderMock.setBodyEncoding(anyString())).thenReturn(boundRequestBuilderMock);
+        when(boundRequestBuilderMock.execute()).thenReturn(
+                new CompletedFuture<>(new MockResponse(200, "ok", SEARCH_RESPONSE_WITH_SCROLL_ID)),
+                new CompletedFuture<>(new MockResponse(200, "ok", SEARCH_RESPONSE_WITH_ONE_HIT)));
+
+        // when
+        SearchResponse response = searchRequestBuilder.setQuery(createSampleQuery())
+                .setScroll("1m")
+                .setSlices(2)
+                .execute();
+
+        //then
+        verify(boundRequestBuilderMock).setBody("{\"query\":{\"term\":{\"someField\":\"someValue\"}},\"slice\":{\"id\":0,\"max\":2}}");
+        verify(boundRequestBuilderMock).setBody("{\"query\":{\"term\":{\"someField\":\"someValue\"}},\"slice\":{\"id\":1,\"max\":2}}");
+        assertThat(response.getHits().getClass().getName(), is(SlicedSearchHits.class.getName()));
+        assertThat(response.getHits().getTotalHits(), is(11L));
+        assertThat(((SlicedSearchHits) response.getHits()).getSlices(), hasSize(2));
+    }
+
     private JsonObject createSampleQuery() {
         return QueryBuilders.termQuery("someField", "someValue").build();
     }
@@ -0,0 +1,151 @@
+package de.otto.flummi.request;
+
+import com.google.gson.JsonElement;
+import de.otto.flummi.CompletedFuture;
+import de.otto.flummi.MockResponse;
+import de.otto.flummi.bulkactions.BulkActionBuilder;
+import de.otto.flummi.bulkactions.IndexActionBuilder;
+import de.otto.flummi.bulkactions.IndexOpType;
+import de.otto.flummi.response.HttpServerErrorException;
+import de.otto.flummi.util.HttpClientWrapper;
+import org.mockito.Mock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.otto.flummi.request.GsonHelper.object;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class BulkProcessorTest {
+
+    private static final String ACTION_1 = "{\"index\":{\"_index\":\"someIndex\",\"_type\":\"Flutschfinger\",\"_id\":\"1\"}}\n{\"Eis\":\"am Stiel\"}\n";
+    private static final String ACTION_2 = "{\"index\":{\"_index\":\"someIndex\",\"_type\":\"Flutschfinger\",\"_id\":\"2\"}}\n{\"Eis\":\"am Stiel\"}\n";
+
+    @Mock
+    HttpClientWrapper httpClient;
+
+    @Mock
+    HttpRequestBuilder requestBuilder;
+
+    @Mock
+    BulkProcessor.Listener listener;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        initMocks(this);
+        when(httpClient.preparePost("/_bulk")).thenReturn(requestBuilder);
+        when(requestBuilder.setBody(anyString())).thenReturn(requestBuilder);
+        when(requestBuilder.setBodyEncoding("UTF-8")).thenReturn(requestBuilder);
+    }
+
+    @Test
+    public void shouldSendBulkRequestWhenActionLimitIsReached() throws Exception {
+        // given
+        when(requestBuilder.execute()).thenReturn(new CompletedFuture(new MockResponse(200, "ok", "{\"errors\":false}")));
+        BulkProcessor testee = new BulkProcessor.Builder(httpClient).setBulkActions(2).setListener(listener).build();
+
+        // when
+        testee.add(action("1"));
+        testee.add(action("2"));
+        testee.add(action("1"));
+
+        // then
+        verify(requestBuilder).setBody(ACTION_1 + ACTION_2);
+        verify(listener).afterBulk(1, 2, 0);
+        assertThat(testee.size(), is(1));
+    }
+
+    @Test
+    public void shouldSendRemainingActionsOnClose() throws Exception {
+        // given
+        when(requestBuilder.execute()).thenReturn(new CompletedFuture(new MockResponse(200, "ok", "{\"errors\":false}")));
+        BulkProcessor testee = new BulkProcessor.Builder(httpClient).setListener(listener).build();
+        testee.add(action("1"));
+
+        // when
+        testee.close();
+
+        // then
+        verify(requestBuilder).setBody(ACTION_1);
+        verify(listener).afterBulk(1, 1, 0);
+    }
+
+    @Test
+    public void shouldRetryRejectedActionsOnly() throws Exception {
+        // given
+        when(requestBuilder.execute()).thenReturn(
+                new CompletedFuture(new MockResponse(200, "ok", "{\"errors\":true,\"items\":[{\"index\":{\"status\":429,\"error\":{\"type\":\"es_rejected_execution_exception\"}}},{\"index\":{\"status\":201}}]}")),
+                new CompletedFuture(new MockResponse(200, "ok", "{\"errors\":false}")));
+        BulkProcessor testee = new BulkProcessor.Builder(httpClient).setListener(listener).setBackoff(3, 1, TimeUnit.MILLISECONDS).build();
+        testee.add(action("1"));
+        testee.add(action("2"));
+
+        // when
+        assertThat(testee.awaitClose(10, TimeUnit.SECONDS), is(true));
+
+        // then
+        verify(requestBuilder).setBody(ACTION_1 + ACTION_2);
+        verify(requestBuilder).setBody(ACTION_1);
+        verify(listener).afterBulk(1, 2, 0);
+        verify(listener, never()).onFailure(any(BulkActionBuilder.class), anyInt(), any(JsonElement.class));
+    }
+
+    @Test
+    public void shouldReportFailedActionsToListener() throws Exception {
+        // given
+        when(requestBuilder.execute()).thenReturn(new CompletedFuture(new MockResponse(200, "ok", "{\"errors\":true,\"items\":[{\"index\":{\"status\":201}},{\"index\":{\"status\":400,\"error\":\"someError\"}}]}")));
+        BulkProcessor testee = new BulkProcessor.Builder(httpClient).setListener(listener).build();
+        BulkActionBuilder failing = action("2");
+        testee.add(action("1"));
+        testee.add(failing);
+
+        // when
+        testee.close();
+
+        // then
+        verify(listener).onFailure(eq(failing), eq(400), any(JsonElement.class));
+        verify(listener).afterBulk(1, 2, 1);
+    }
+
+    @Test
+    public void shouldNotReportUpdatesOfMissingDocuments() throws Exception {
+        // given
+        when(requestBuilder.execute()).thenReturn(new CompletedFuture(new MockResponse(200, "ok", "{\"errors\":true,\"items\":[{\"update\":{\"status\":404,\"error\":\"someError\"}}]}")));
+        BulkProcessor testee = new BulkProcessor.Builder(httpClient).setListener(listener).build();
+        testee.add(action("1"));
+
+        // when
+        testee.close();
+
+        // then
+        verify(listener, never()).onFailure(any(BulkActionBuilder.class), anyInt(), any(JsonElement.class));
+        verify(listener).afterBulk(1, 1, 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReportHttpErrorsToListener() throws Exception {
+        // given
+        when(requestBuilder.execute()).thenReturn(new CompletedFuture(new MockResponse(400, "not ok", "{\"errors\":false}")));
+        BulkProcessor testee = new BulkProcessor.Builder(httpClient).setListener(listener).build();
+        testee.add(action("1"));
+
+        // when
+        testee.close();
+
+        // then
+        verify(listener).onError(any(List.class), any(HttpServerErrorException.class));
+    }
+
+    private static BulkActionBuilder action(String id) {
+        return new IndexActionBuilder("someIndex").setOpType(IndexOpType.INDEX).setType("Flutschfinger").setId(id).setSource(object("Eis", "am Stiel"));
+    }
+}
@@ -12,11 +12,15 @@ import org.mockito.Mock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.fail;
 
 public class GetRequestBuilderTest {
 
@@ -79,4 +83,38 @@ public class GetRequestBuilderTest {
         }
         // then
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldExecuteAsync() throws Exception {
+        // given
+        when(httpClient.prepareGet("/someIndex/someType/someId")).thenReturn(boundRequestBuilder);
+        when(boundRequestBuilder.execute()).thenReturn(new CompletedFuture(new MockResponse(200, "ok",
+                "{\"_id\":\"someId\",\"found\":true,\"_source\":{\"someField\":\"someValue\"}}")));
+        // when
+        CompletableFuture<GetResponse> future = new GetRequestBuilder(httpClient, "someIndex", "someType", "someId").executeAsync();
+
+        // then
+        assertThat(future.isDone(), is(true));
+        assertThat(future.get().isExists(), is(true));
+        assertThat(future.get().getSource().get("someField").getAsString(), is("someValue"));
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyIfHttpStatusIsNotOk() throws Exception {
+        // given
+        when(httpClient.prepareGet("/someIndex/someType/someId")).thenReturn(boundRequestBuilder);
+        when(boundRequestBuilder.execute()).thenReturn(new CompletedFuture(new MockResponse(400, "not ok",
+                "{}")));
+        // when
+        CompletableFuture<GetResponse> future = new GetRequestBuilder(httpClient, "someIndex", "someType", "someId").executeAsync();
+
+        // then
+        try {
+            future.get();
+            fail("expected an exception");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof HttpServerErrorException, is(true));
+            assertThat(((HttpServerErrorException) e.getCause()).getStatusCode(), is(400));
+        }
+    }
+}
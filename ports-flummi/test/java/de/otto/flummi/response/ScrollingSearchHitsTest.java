@@ -114,6 +114,23 @@ public class ScrollingSearchHitsTest {
         verifyNoMoreInteractions(httpClient);
     }
 
+    @Test
+    public void shouldPrefetchNextPage() throws Exception {
+        when(requestBuilder.execute()).thenReturn(new CompletedFuture(new MockResponse(200, "OK", NEXT_PAGE)), new CompletedFuture(new MockResponse(200, "OK", EMPTY_PAGE)));
+        ScrollingSearchHits testee = new ScrollingSearchHits(100, 1F, "someScrollId", "1m", someSearchHits("P0", "P1"), httpClient, true);
+        when(httpClient.preparePost(anyString())).thenReturn(requestBuilder);
+
+        Iterator<SearchHit> iterator = testee.iterator();
+        verify(requestBuilder).execute();
+        assertThat(iterator.next().getId(), is("P0"));
+        assertThat(iterator.next().getId(), is("P1"));
+        assertThat(iterator.next().getId(), is("P2"));
+        verify(requestBuilder, times(2)).execute();
+        assertThat(iterator.next().getId(), is("P3"));
+        assertThat(iterator.hasNext(), is(false));
+        verify(requestBuilder, times(2)).execute();
+    }
+
     private List<SearchHit> someSearchHits(String... ids) {
         return Arrays.stream(ids).map(id -> new SearchHit(id, object(), null, 1F, null, null)).collect(toList());
     }
@@ -0,0 +1,61 @@
+package de.otto.flummi.response;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+
+import static de.otto.flummi.request.GsonHelper.object;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class SlicedSearchHitsTest {
+
+    @Test
+    public void shouldIterateAllSlices() throws Exception {
+        SlicedSearchHits testee = new SlicedSearchHits(Arrays.asList(
+                slice("P0", "P1"), slice(), slice("P2")));
+
+        Iterator<SearchHit> iterator = testee.iterator();
+        assertThat(iterator.next().getId(), is("P0"));
+        assertThat(iterator.next().getId(), is("P1"));
+        assertThat(iterator.next().getId(), is("P2"));
+        assertThat(iterator.hasNext(), is(false));
+        assertThat(testee.getTotalHits(), is(3L));
+    }
+
+    @Test
+    public void shouldStreamSlicesInParallel() throws Exception {
+        SlicedSearchHits testee = new SlicedSearchHits(Arrays.asList(
+                slice("P0", "P1"), slice("P2"), slice("P3", "P4"), slice("P5")));
+
+        Set<String> ids = testee.stream().map(SearchHit::getId).collect(toSet());
+
+        assertThat(testee.stream().isParallel(), is(true));
+        assertThat(ids, is(Arrays.stream(new String[]{"P0", "P1", "P2", "P3", "P4", "P5"}).collect(toSet())));
+    }
+
+    @Test
+    public void shouldSplitAlongSlices() throws Exception {
+        SlicedSearchHits testee = new SlicedSearchHits(Arrays.asList(slice("P0"), slice("P1")));
+
+        Spliterator<SearchHit> suffix = testee.spliterator();
+        Spliterator<SearchHit> prefix = suffix.trySplit();
+
+        prefix.tryAdvance(hit -> assertThat(hit.getId(), is("P0")));
+        suffix.tryAdvance(hit -> assertThat(hit.getId(), is("P1")));
+        assertThat(prefix.tryAdvance(hit -> {}), is(false));
+        assertThat(suffix.tryAdvance(hit -> {}), is(false));
+    }
+
+    private SearchHits slice(String... ids) {
+        List<SearchHit> hits = ids.length == 0 ? emptyList() : Arrays.stream(ids).map(id -> new SearchHit(id, object(), null, 1F, null, null)).collect(toList());
+        return new SimpleSearchHits(hits.size(), 1F, hits);
+    }
+}
@@ -0,0 +1,221 @@
+package de.otto.flummi.util;
+
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.Response;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.testng.Assert.fail;
+
+public class NodeSetTest {
+
+    private static final String PING_RESPONSE = "{\"name\":\"node\",\"cluster_name\":\"elasticsearch\",\"version\":{\"number\":\"2.3.1\",\"build_hash\":\"bd980929010aef404e7cb0843e61d0665269fc39\",\"build_timestamp\":\"2016-04-04T12:25:05Z\",\"build_snapshot\":false,\"lucene_version\":\"5.5.0\"},\"tagline\":\"You Know, for Search\"}";
+
+    private AsyncHttpClient asyncHttpClient;
+    private List<HttpServer> servers;
+    private List<AtomicInteger> requests;
+
+    @BeforeMethod
+    public void setUp() {
+        asyncHttpClient = new AsyncHttpClient();
+        servers = new ArrayList<>();
+        requests = new ArrayList<>();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        servers.forEach(server -> server.stop(0));
+        asyncHttpClient.close();
+    }
+
+    @Test
+    public void shouldDistributeRequestsRoundRobin() throws Exception {
+        // given
+        NodeSet nodes = NodeSet.builder(startServer(200, "{}"), startServer(200, "{}")).build();
+        HttpClientWrapper testee = new HttpClientWrapper(asyncHttpClient, nodes);
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            testee.prepareGet("/someIndex").execute().get();
+        }
+
+        // then
+        assertThat(requests.get(0).get(), is(2));
+        assertThat(requests.get(1).get(), is(2));
+    }
+
+    @Test
+    public void shouldSelectNodeWithLeastOutstandingRequests() throws Exception {
+        // given
+        NodeSet testee = NodeSet.builder("http://node1:9200", "http://node2:9200", "http://node3:9200")
+                .setStrategy(NodeSet.Strategy.LEAST_OUTSTANDING_REQUESTS)
+                .build();
+        testee.getNodes().get(0).requestStarted();
+        testee.getNodes().get(1).requestStarted();
+        testee.getNodes().get(1).requestStarted();
+
+        // when
+        NodeSet.Node node = testee.select();
+
+        // then
+        assertThat(node.getBaseUrl(), is("http://node3:9200"));
+    }
+
+    @Test
+    public void shouldSkipDeadNodeUntilBackoffHasPassed() throws Exception {
+        // given
+        String deadNode = "http://localhost:" + freePort();
+        NodeSet nodes = NodeSet.builder(deadNode, startServer(200, "{}"))
+                .setBackoff(1, 1, TimeUnit.HOURS)
+                .build();
+        HttpClientWrapper testee = new HttpClientWrapper(asyncHttpClient, nodes);
+        try {
+            testee.prepareGet("/someIndex").execute().get();
+            fail("expected request to dead node to fail");
+        } catch (ExecutionException e) {
+            // expected
+        }
+        await(() -> nodes.getNodes().get(0).isDead());
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            testee.prepareGet("/someIndex").execute().get();
+        }
+
+        // then
+        assertThat(nodes.getNodes().get(0).isDead(), is(true));
+        assertThat(requests.get(0).get(), is(3));
+    }
+
+    @Test
+    public void shouldMarkNodeDeadOnServiceUnavailable() throws Exception {
+        // given
+        NodeSet nodes = NodeSet.builder(startServer(503, "{}"), startServer(200, "{}")).build();
+        HttpClientWrapper testee = new HttpClientWrapper(asyncHttpClient, nodes);
+
+        // when
+        Response response = testee.prepareGet("/someIndex").execute().get();
+
+        // then
+        assertThat(response.getStatusCode(), is(503));
+        assertThat(await(() -> nodes.getNodes().get(0).isDead()), is(true));
+        assertThat(nodes.getNodes().get(1).isDead(), is(false));
+    }
+
+    @Test
+    public void shouldNotMarkSingleNodeDead() throws Exception {
+        // given
+        NodeSet.Node testee = new NodeSet("http://node1:9200").getNodes().get(0);
+
+        // when
+        testee.requestStarted();
+        testee.requestFinished(null, new IOException("connection refused"));
+
+        // then
+        assertThat(testee.isDead(), is(false));
+        assertThat(testee.getOutstandingRequests(), is(0));
+    }
+
+    @Test
+    public void shouldReviveDeadNodeAfterSuccessfulPing() throws Exception {
+        // given
+        NodeSet nodes = NodeSet.builder(startServer(200, PING_RESPONSE), startServer(200, PING_RESPONSE))
+                .setBackoff(10, 10, TimeUnit.MILLISECONDS)
+                .setPingInterval(10, TimeUnit.MILLISECONDS)
+                .build();
+        new HttpClientWrapper(asyncHttpClient, nodes);
+        NodeSet.Node node = nodes.getNodes().get(0);
+
+        // when
+        node.markDead();
+
+        // then
+        assertThat(await(() -> !node.isDead()), is(true));
+        nodes.close();
+        assertThat(requests.get(0).get() > 0, is(true));
+    }
+
+    @Test
+    public void shouldSniffNodes() throws Exception {
+        // given
+        String seed = startServer(200, "{\"cluster_name\":\"elasticsearch\",\"nodes\":{"
+                + "\"n1\":{\"name\":\"node1\",\"http\":{\"publish_address\":\"10.0.0.1:9200\"}},"
+                + "\"n2\":{\"name\":\"node2\",\"http\":{\"publish_address\":\"inet[es2.local/10.0.0.2:9201]\"}},"
+                + "\"n3\":{\"name\":\"node3\",\"http\":{\"publish_address\":\"/10.0.0.3:9202\"}},"
+                + "\"n4\":{\"name\":\"client\"}}}");
+        NodeSet testee = NodeSet.builder(seed).build();
+        new HttpClientWrapper(asyncHttpClient, testee);
+
+        // when
+        testee.sniff();
+
+        // then
+        assertThat(testee.getNodes().size(), is(3));
+        assertThat(testee.getNodes().get(0).getBaseUrl(), is("http://10.0.0.1:9200"));
+        assertThat(testee.getNodes().get(1).getBaseUrl(), is("http://es2.local:9201"));
+        assertThat(testee.getNodes().get(2).getBaseUrl(), is("http://10.0.0.3:9202"));
+    }
+
+    @Test
+    public void shouldKeepNodesIfSniffingFails() throws Exception {
+        // given
+        String seed = startServer(500, "{}");
+        NodeSet testee = NodeSet.builder(seed).build();
+        new HttpClientWrapper(asyncHttpClient, testee);
+
+        // when
+        testee.sniff();
+
+        // then
+        assertThat(testee.getNodes().size(), is(1));
+        assertThat(testee.getNodes().get(0).getBaseUrl(), is(seed));
+    }
+
+    private String startServer(int status, String body) throws IOException {
+        AtomicInteger counter = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            counter.incrementAndGet();
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        servers.add(server);
+        requests.add(counter);
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package javaxt.http;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mhus.lib.core.MLog;
+
+//******************************************************************************
+//**  BufferPool
+//******************************************************************************
+/**
+ * Pool of direct ByteBuffers used by the server to read requests, wrap and
+ * unwrap SSL/TLS records and write responses. Buffers are grouped into size
+ * classes (powers of two between 512 bytes and 64KB). Each thread keeps a few
+ * buffers per size class in a local cache. Other buffers are shared through a
+ * global queue per size class. Requests for more than 64KB are allocated on
+ * demand and not pooled.
+ *
+ * Buffers returned by acquire() have a limit set to the requested size. Note
+ * that the capacity of the buffer may be larger. Buffers must be returned to
+ * the pool exactly once via release(). In debug mode, the pool records where
+ * each buffer was acquired to find buffers that are never released, and
+ * rejects buffers that were not acquired from the pool.
+ *
+ ******************************************************************************/
+
+public class BufferPool extends MLog {
+
+	private static final BufferPool defaultPool = new BufferPool();
+
+	private static final int MIN_SHIFT = 9; // 512 bytes
+	private static final int MAX_SHIFT = 16; // 64KB
+
+	private final ConcurrentLinkedQueue<ByteBuffer>[] pools;
+	private final AtomicInteger[] poolSizes;
+	private final ThreadLocal<ByteBuffer[][]> threadCache;
+	private volatile int maxPooledBuffers = 256;
+	private volatile int threadCacheSize = 4;
+
+	private final AtomicLong allocated = new AtomicLong();
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong released = new AtomicLong();
+	private final AtomicLong threadCacheHits = new AtomicLong();
+	private final AtomicLong poolHits = new AtomicLong();
+	private final AtomicLong unpooled = new AtomicLong();
+
+	private volatile boolean debug = false;
+	private final Map<ByteBuffer, Throwable> outstanding = Collections
+	        .synchronizedMap(new IdentityHashMap<ByteBuffer, Throwable>());
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public BufferPool() {
+		int classes = MAX_SHIFT - MIN_SHIFT + 1;
+		pools = new ConcurrentLinkedQueue[classes];
+		poolSizes = new AtomicInteger[classes];
+		for (int i = 0; i < classes; i++) {
+			pools[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+			poolSizes[i] = new AtomicInteger();
+		}
+		threadCache = new ThreadLocal<ByteBuffer[][]>() {
+			@Override
+			protected ByteBuffer[][] initialValue() {
+				return new ByteBuffer[pools.length][];
+			}
+		};
+	}
+
+	// **************************************************************************
+	// ** getDefault
+	// **************************************************************************
+	/** Returns the pool shared by all servers in this JVM. */
+	public static BufferPool getDefault() {
+		return defaultPool;
+	}
+
+	// **************************************************************************
+	// ** acquire
+	// **************************************************************************
+	/**
+	 * Returns a cleared direct ByteBuffer with a limit of the given size.
+	 */
+	public ByteBuffer acquire(int size) {
+		acquired.incrementAndGet();
+
+		ByteBuffer buf = null;
+		int index = getSizeClass(size);
+		if (index < 0) {
+			unpooled.incrementAndGet();
+			allocated.incrementAndGet();
+			buf = ByteBuffer.allocateDirect(size);
+		} else {
+
+			// Try the thread local cache first
+			ByteBuffer[] cache = threadCache.get()[index];
+			if (cache != null) {
+				for (int i = 0; i < cache.length; i++) {
+					if (cache[i] != null) {
+						buf = cache[i];
+						cache[i] = null;
+						threadCacheHits.incrementAndGet();
+						break;
+					}
+				}
+			}
+
+			// Try the global pool
+			if (buf == null) {
+				buf = pools[index].poll();
+				if (buf != null) {
+					poolSizes[index].decrementAndGet();
+					poolHits.incrementAndGet();
+				}
+			}
+
+			// Allocate a new buffer
+			if (buf == null) {
+				allocated.incrementAndGet();
+				buf = ByteBuffer.allocateDirect(1 << (index + MIN_SHIFT));
+			}
+		}
+
+		buf.clear();
+		buf.limit(size);
+
+		if (debug)
+			outstanding.put(buf, new Throwable("Buffer acquired by " + Thread.currentThread().getName()));
+
+		return buf;
+	}
+
+	// **************************************************************************
+	// ** release
+	// **************************************************************************
+	/**
+	 * Returns a buffer to the pool. The buffer must not be used after it has
+	 * been released. Null values, heap buffers, read-only buffers and buffers
+	 * whose capacity doesn't match a size class are ignored. Ownership is only
+	 * checked in debug mode. Otherwise any other direct buffer is added to the
+	 * pool, even if it was allocated elsewhere, so only buffers returned by
+	 * acquire() or grow() may be released.
+	 */
+	public void release(ByteBuffer buf) {
+		if (buf == null)
+			return;
+
+		if (debug && outstanding.remove(buf) == null) {
+			log().w("Buffer was released twice or was not acquired from this pool",
+			        new Throwable("Buffer released by " + Thread.currentThread().getName()));
+			return;
+		}
+		released.incrementAndGet();
+
+		if (!buf.isDirect() || buf.isReadOnly())
+			return;
+		int capacity = buf.capacity();
+		if (Integer.bitCount(capacity) != 1)
+			return;
+		int index = getSizeClass(capacity);
+		if (index < 0)
+			return;
+
+		// Return the buffer to the thread local cache
+		int size = threadCacheSize;
+		if (size > 0) {
+			ByteBuffer[][] caches = threadCache.get();
+			ByteBuffer[] cache = caches[index];
+			if (cache == null || cache.length != size) {
+				cache = new ByteBuffer[size];
+				caches[index] = cache;
+			}
+			for (int i = 0; i < cache.length; i++) {
+				if (cache[i] == null) {
+					cache[i] = buf;
+					return;
+				}
+			}
+		}
+
+		// Return the buffer to the global pool
+		if (poolSizes[index].incrementAndGet() <= maxPooledBuffers) {
+			pools[index].offer(buf);
+		} else {
+			poolSizes[index].decrementAndGet();
+		}
+	}
+
+	// **************************************************************************
+	// ** grow
+	// **************************************************************************
+	/**
+	 * Returns a buffer with a limit of at least the given size that contains
+	 * the bytes between 0 and the position of the given buffer. The position
+	 * is kept. The given buffer is released.
+	 */
+	public ByteBuffer grow(ByteBuffer buf, int size) {
+		if (size < buf.position())
+			size = buf.position();
+		ByteBuffer newBuf = acquire(size);
+		buf.flip();
+		newBuf.put(buf);
+		release(buf);
+		return newBuf;
+	}
+
+	// **************************************************************************
+	// ** getSizeClass
+	// **************************************************************************
+	/**
+	 * Returns the index of the smallest size class that can hold the given
+	 * number of bytes. Returns -1 if the size is too large to be pooled.
+	 */
+	private static int getSizeClass(int size) {
+		if (size <= (1 << MIN_SHIFT))
+			return 0;
+		if (size > (1 << MAX_SHIFT))
+			return -1;
+		int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+		return shift - MIN_SHIFT;
+	}
+
+	// **************************************************************************
+	// ** setDebug
+	// **************************************************************************
+	/**
+	 * Used to enable leak detection. If true, the pool keeps track of all
+	 * buffers that have been acquired but not yet released, including the
+	 * stack trace of the caller.
+	 */
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+		if (!debug)
+			outstanding.clear();
+	}
+
+	public boolean isDebug() {
+		return debug;
+	}
+
+	// **************************************************************************
+	// ** getLeaks
+	// **************************************************************************
+	/**
+	 * Returns the stack traces of buffers that have been acquired but not
+	 * released. Only available in debug mode.
+	 */
+	public List<Throwable> getLeaks() {
+		synchronized (outstanding) {
+			return new ArrayList<Throwable>(outstanding.values());
+		}
+	}
+
+	/**
+	 * Sets the maximum number of buffers kept in the global pool per size
+	 * class.
+	 */
+	public void setMaxPooledBuffers(int maxPooledBuffers) {
+		this.maxPooledBuffers = maxPooledBuffers;
+	}
+
+	public int getMaxPooledBuffers() {
+		return maxPooledBuffers;
+	}
+
+	/**
+	 * Sets the number of buffers each thread keeps per size class. Consider
+	 * setting this to 0 if requests are processed by short lived threads
+	 * (e.g. virtual threads).
+	 */
+	public void setThreadCacheSize(int threadCacheSize) {
+		this.threadCacheSize = threadCacheSize;
+	}
+
+	public int getThreadCacheSize() {
+		return threadCacheSize;
+	}
+
+	/** Returns the number of direct buffers allocated by the pool. */
+	public long getAllocatedBuffers() {
+		return allocated.get();
+	}
+
+	/** Returns the number of buffers that have been acquired. */
+	public long getAcquiredBuffers() {
+		return acquired.get();
+	}
+
+	/** Returns the number of buffers that have been released. */
+	public long getReleasedBuffers() {
+		return released.get();
+	}
+
+	/** Returns the number of buffers that are currently in use. */
+	public long getBuffersInUse() {
+		return acquired.get() - released.get();
+	}
+
+	/** Returns the number of buffers served from a thread local cache. */
+	public long getThreadCacheHits() {
+		return threadCacheHits.get();
+	}
+
+	/** Returns the number of buffers served from the global pool. */
+	public long getPoolHits() {
+		return poolHits.get();
+	}
+
+	/** Returns the number of buffers that were too large to be pooled. */
+	public long getUnpooledBuffers() {
+		return unpooled.get();
+	}
+
+	/** Returns the number of buffers waiting in the global pool. */
+	public int getPooledBuffers() {
+		int count = 0;
+		for (AtomicInteger size : poolSizes)
+			count += size.get();
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "BufferPool[allocated=" + getAllocatedBuffers() + ", inUse=" + getBuffersInUse() + ", pooled="
+		        + getPooledBuffers() + ", threadCacheHits=" + getThreadCacheHits() + ", poolHits=" + getPoolHits()
+		        + ", unpooled=" + getUnpooledBuffers() + "]";
+	}
+}
@@ -0,0 +1,109 @@
+package javaxt.http;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+//******************************************************************************
+//**  DeflaterPool
+//******************************************************************************
+/**
+ * Pool of Deflater instances used to compress http responses. Each Deflater
+ * holds native memory that is only freed when end() is called or the object
+ * is garbage collected. Reusing Deflaters across requests avoids allocating
+ * and freeing this memory for every compressed response.
+ *
+ * All Deflaters in the pool produce raw deflate data (i.e. "nowrap"). Callers
+ * are responsible for writing the gzip or zlib header and trailer.
+ *
+ ******************************************************************************/
+
+public class DeflaterPool {
+
+	private static final DeflaterPool defaultPool = new DeflaterPool();
+
+	private final ConcurrentLinkedQueue<Deflater> pool = new ConcurrentLinkedQueue<Deflater>();
+	private final AtomicInteger poolSize = new AtomicInteger();
+	private volatile int maxPooledDeflaters = 64;
+
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong reused = new AtomicLong();
+
+	// **************************************************************************
+	// ** getDefault
+	// **************************************************************************
+	/** Returns the pool shared by all responses in this JVM. */
+	public static DeflaterPool getDefault() {
+		return defaultPool;
+	}
+
+	// **************************************************************************
+	// ** acquire
+	// **************************************************************************
+	/**
+	 * Returns a Deflater with the given compression level (0-9 or -1 for the
+	 * default level). The Deflater should be returned to the pool via
+	 * release() once the compressed stream is finished.
+	 */
+	public Deflater acquire(int level) {
+		Deflater deflater = pool.poll();
+		if (deflater == null) {
+			created.incrementAndGet();
+			return new Deflater(level, true);
+		}
+		poolSize.decrementAndGet();
+		reused.incrementAndGet();
+		deflater.setLevel(level);
+		return deflater;
+	}
+
+	// **************************************************************************
+	// ** release
+	// **************************************************************************
+	/**
+	 * Resets the given Deflater and returns it to the pool. If the pool is
+	 * full, the native resources of the Deflater are released instead.
+	 */
+	public void release(Deflater deflater) {
+		if (deflater == null)
+			return;
+		deflater.reset();
+		if (poolSize.incrementAndGet() <= maxPooledDeflaters) {
+			pool.offer(deflater);
+		} else {
+			poolSize.decrementAndGet();
+			deflater.end();
+		}
+	}
+
+	/** Sets the maximum number of idle Deflaters kept in the pool. */
+	public void setMaxPooledDeflaters(int maxPooledDeflaters) {
+		this.maxPooledDeflaters = maxPooledDeflaters;
+	}
+
+	public int getMaxPooledDeflaters() {
+		return maxPooledDeflaters;
+	}
+
+	/** Returns the number of Deflaters created by the pool. */
+	public long getCreatedDeflaters() {
+		return created.get();
+	}
+
+	/** Returns the number of Deflaters that were served from the pool. */
+	public long getReusedDeflaters() {
+		return reused.get();
+	}
+
+	/** Returns the number of idle Deflaters in the pool. */
+	public int getPooledDeflaters() {
+		return poolSize.get();
+	}
+
+	@Override
+	public String toString() {
+		return "DeflaterPool[created=" + getCreatedDeflaters() + ", reused=" + getReusedDeflaters() + ", pooled="
+		        + getPooledDeflaters() + "]";
+	}
+}
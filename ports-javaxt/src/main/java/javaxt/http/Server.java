@@ -4,13 +4,22 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
@@ -46,17 +55,99 @@ public class Server extends MLog {
 	/** Maximum time that socket connections can remain idle. */
 	private int maxIdleTime = 2 * 60000; // 2 minutes
 
+	/** Maximum time that persistent connections can wait for a new request. */
+	private int keepAliveTimeout = 15000; // 15 seconds
+
+	/** Maximum number of requests per persistent connection. */
+	private int maxKeepAliveRequests = 0;
+
 	private boolean running = true;
 
-	private List<SocketConnection> requestProcessorConnections = new LinkedList<SocketConnection>();
+	/** Pool of direct buffers used to read requests and write responses. */
+	private BufferPool bufferPool = BufferPool.getDefault();
+
+	/**
+	 * Executor used to process requests. Ready connections are handed over by
+	 * the SocketListener. If no executor is set, a fixed pool of numThreads
+	 * platform threads (or one virtual thread per request) is created on start.
+	 */
+	private ExecutorService executor;
+	private boolean shutdownExecutor = false;
+	private boolean useVirtualThreads = false;
+
+	/**
+	 * Maximum number of requests that are queued or processed by the executor
+	 * at the same time. Zero or less means unlimited.
+	 */
+	private int maxPendingRequests = 0;
+	private final AtomicInteger pendingRequests = new AtomicInteger();
+	private final ConcurrentLinkedQueue<SocketConnection> deferredConnections = new ConcurrentLinkedQueue<SocketConnection>();
 
+	/**
+	 * Called by the SocketListener if a connection is ready to be processed. If
+	 * the maximum number of pending requests is reached, the connection stops
+	 * reading from the socket until a worker becomes available.
+	 */
 	private void addRequestProcessor(SocketConnection connection) {
-		synchronized (requestProcessorConnections) {
-			requestProcessorConnections.add(connection);
-			requestProcessorConnections.notifyAll();
+		if (tryAcquireRequestSlot()) {
+			dispatch(connection);
+			return;
+		}
+		connection.suspendReading();
+		deferredConnections.add(connection);
+		// a worker may have finished while the connection was deferred
+		dispatchDeferred();
+	}
+
+	private boolean tryAcquireRequestSlot() {
+		if (maxPendingRequests <= 0) {
+			pendingRequests.incrementAndGet();
+			return true;
+		}
+		while (true) {
+			int current = pendingRequests.get();
+			if (current >= maxPendingRequests)
+				return false;
+			if (pendingRequests.compareAndSet(current, current + 1))
+				return true;
 		}
 	}
 
+	private void dispatch(SocketConnection connection) {
+		try {
+			executor.execute(new RequestProcessor(connection));
+		} catch (RejectedExecutionException e) {
+			pendingRequests.decrementAndGet();
+			log().w("Request rejected by executor", connection.getRemoteSocketAddress(), e);
+			try {
+				connection.close();
+			} catch (IOException ex) {
+			}
+		}
+	}
+
+	private void dispatchDeferred() {
+		while (!deferredConnections.isEmpty() && tryAcquireRequestSlot()) {
+			SocketConnection connection = deferredConnections.poll();
+			if (connection == null) {
+				pendingRequests.decrementAndGet();
+				return;
+			}
+			if (!connection.isOpen()) {
+				pendingRequests.decrementAndGet();
+				continue;
+			}
+			connection.resumeReading();
+			dispatch(connection);
+		}
+	}
+
+	/** Called by the RequestProcessor once a request is done. */
+	private void onRequestProcessed() {
+		pendingRequests.decrementAndGet();
+		dispatchDeferred();
+	}
+
 	private List<SocketConnection> socketMonitorConnections = new LinkedList<SocketConnection>();
 	private boolean allowKeepAlive = false;
 	public List<SocketListener> sockets = new LinkedList<>();
@@ -83,16 +174,17 @@ public class Server extends MLog {
 						e.printStackTrace();
 					}
 		}
-		synchronized (requestProcessorConnections) {
-			requestProcessorConnections.notifyAll();
-			for (SocketConnection con : requestProcessorConnections)
-				if (con.isOpen())
-					try {
-						con.close();
-					} catch (IOException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
+		SocketConnection deferred;
+		while ((deferred = deferredConnections.poll()) != null) {
+			if (deferred.isOpen())
+				try {
+					deferred.close();
+				} catch (IOException e) {
+				}
+		}
+		if (executor != null && shutdownExecutor) {
+			executor.shutdownNow();
+			executor = null;
 		}
 		MThread.sleep(500);
 		for (SocketListener socket : sockets) {
@@ -264,14 +356,19 @@ public class Server extends MLog {
 	 */
 	public void start() {
 
-		// Create Thread Pool
-		for (int i = 0; i < numThreads; i++) {
-			addThread(new Thread(new RequestProcessor())).start();
+		// Create the executor used to process requests
+		if (executor == null) {
+			if (useVirtualThreads)
+				executor = newVirtualThreadExecutor();
+			if (executor == null)
+				executor = newPlatformExecutor(numThreads);
+			shutdownExecutor = true;
 		}
 
 		// Set up timer task to shutdown idle connections
 		java.util.Timer timer = new java.util.Timer();
-		timer.scheduleAtFixedRate(new SocketMonitor(), maxIdleTime, maxIdleTime);
+		long period = Math.max(1000, Math.min(maxIdleTime, keepAliveTimeout) / 2);
+		timer.scheduleAtFixedRate(new SocketMonitor(), period, period);
 
 		// Create a new SocketListener for each port/address
 		for (InetSocketAddress address : addresses) {
@@ -292,6 +389,42 @@ public class Server extends MLog {
 		return thread;
 	}
 
+	// **************************************************************************
+	// ** newPlatformExecutor
+	// **************************************************************************
+	/**
+	 * Returns a fixed size pool of platform threads with an unbounded queue.
+	 * Use setMaxPendingRequests() to limit the queue depth.
+	 */
+	public static ExecutorService newPlatformExecutor(int numThreads) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadPoolExecutor(numThreads, numThreads, 60L, TimeUnit.SECONDS,
+		        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			        @Override
+			        public Thread newThread(Runnable r) {
+				        Thread thread = new Thread(r, "javaxt-http-" + count.incrementAndGet());
+				        thread.setDaemon(true);
+				        return thread;
+			        }
+		        });
+	}
+
+	// **************************************************************************
+	// ** newVirtualThreadExecutor
+	// **************************************************************************
+	/**
+	 * Returns an executor that starts a new virtual thread for each request.
+	 * Returns null if the JVM does not support virtual threads (Java 21+).
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) java.util.concurrent.Executors.class
+			        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
 	// **************************************************************************
 	// ** SocketListener
 	// **************************************************************************
@@ -370,7 +503,7 @@ public class Server extends MLog {
 							ServerSocketChannel s = (ServerSocketChannel) key.channel();
 							SocketChannel client = s.accept();
 							client.configureBlocking(false);
-							SocketConnection connection = new SocketConnection(client, selector);
+							SocketConnection connection = new SocketConnection(client, selector, bufferPool);
 
 							// Add the new connection to the list of active
 							// connections
@@ -386,10 +519,11 @@ public class Server extends MLog {
 
 							SocketConnection connection = (SocketConnection) key.attachment();
 							synchronized (connection) {
-								if (connection.isIdle.get()) {
+								if (connection.isIdle.get() && !connection.upgraded) {
 									connection.isIdle.set(false);
 									addRequestProcessor(connection);
 								} else {
+									connection.lastEvent = System.currentTimeMillis();
 									connection.onReadable();
 								}
 							}
@@ -440,103 +574,140 @@ public class Server extends MLog {
 	// ** RequestProcessor
 	// **************************************************************************
 	/**
-	 * Thread used to process HTTP Requests and send responses back to the
-	 * client. As new HTTP requests come in they are added to a queue. Requests
-	 * in the queue are processed by instances of this class via the run method.
+	 * Task used to process an HTTP Request and send a response back to the
+	 * client. As new HTTP requests come in, the SocketListener submits an
+	 * instance of this class to the executor.
 	 */
 	private class RequestProcessor implements Runnable {
 
-		public RequestProcessor() {
+		private final SocketConnection connection;
+
+		public RequestProcessor(SocketConnection connection) {
+			this.connection = connection;
 		}
 
 		@Override
 		public void run() {
-			while (running) {
+			try {
+				// Pipelined requests that are already buffered by the
+				// connection are processed right away. All other requests on
+				// a persistent connection are picked up by the SocketListener.
+				// The SocketListener may report a read event for bytes that
+				// were already consumed by the previous request. In this case
+				// the connection is marked idle again without blocking a
+				// thread until the next request arrives.
+				if (connection.requestCount == 0 || connection.hasPendingData() || connection.readAhead()) {
+					boolean isKeepAlive;
+					do {
+						isKeepAlive = process();
+					} while (isKeepAlive && connection.hasPendingData());
+				}
 
-				// Wait for new requests to be added to the pool
-				SocketConnection connection;
-				synchronized (requestProcessorConnections) {
-					while (requestProcessorConnections.isEmpty()) {
-						try {
-							requestProcessorConnections.wait();
-						} catch (InterruptedException e) {
-							return;
-						}
-					}
-					connection = requestProcessorConnections.remove(0);
+				// Mark the connection as inactive. Upgraded connections are
+				// never idle. Read events are passed to the listeners.
+				synchronized (connection) {
+					connection.lastEvent = System.currentTimeMillis();
+					connection.isIdle.set(!connection.upgraded);
 				}
+			} finally {
+				onRequestProcessed();
+			}
+		}
 
-				// Process request and send a response back to the client
-				HttpServletRequest request = null;
-				HttpServletResponse response = null;
-				try {
-					if (servlet != null) {
-						request = new HttpServletRequest(connection, servlet);
-						response = new HttpServletResponse(request, connection);
-						connection.onWritable();
-						servlet.service(request, response);
-					}
-				} catch (ServletException e) {
-					log().w(e);
-					if (request != null) {
-						response = new HttpServletResponse(request, connection);
-						response.setStatus(e.getStatusCode(), e.getMessage());
-					} else {
-						// TODO: Need to propgate error to the client!
+		/**
+		 * Processes a single request. Returns true if the connection was kept
+		 * open for the next request.
+		 */
+		private boolean process() {
 
-					}
-				} catch (java.lang.OutOfMemoryError e) {
-					log().e(e.toString());
-					return;
-				} catch (Throwable e) {
-					log().d(e);
+			// Process request and send a response back to the client
+			HttpServletRequest request = null;
+			HttpServletResponse response = null;
+			try {
+				if (servlet != null) {
+					request = new HttpServletRequest(connection, servlet);
+					response = new HttpServletResponse(request, connection);
+					connection.requestCount++;
+					if (!isAllowKeepAlive() || (maxKeepAliveRequests > 0 && connection.requestCount >= maxKeepAliveRequests))
+						response.setHeader("Connection", "Close");
+					connection.onWritable();
+					servlet.service(request, response);
 				}
+			} catch (ServletException e) {
+				log().w(e);
+				if (request != null) {
+					response = new HttpServletResponse(request, connection);
+					response.setStatus(e.getStatusCode(), e.getMessage());
+				} else {
+					// TODO: Need to propgate error to the client!
 
-				// Flush the response
-				if (response != null) {
-					response.flushBuffer();
-					response.closeBuffer();
 				}
-
-				// Check whether the channel is registered for write events. If
-				// so
-				// notify the channel that we are no longer interested in write
-				// events. Otherwise the selector will loop indefinately.
-				if (connection.opWrite) {
-					try {
-						connection.socketChannel.register(connection.selector, SelectionKey.OP_READ, connection);
-					} catch (Exception e) {
-					}
+			} catch (java.lang.OutOfMemoryError e) {
+				log().e(e.toString());
+				try {
+					connection.close();
+				} catch (java.io.IOException ex) {
 				}
+				return false;
+			} catch (Throwable e) {
+				log().d(e);
+			}
 
-				// Close the socket connection (as needed)
-				boolean isKeepAlive = (request != null ? request.isKeepAlive() : false);
-				if (!isAllowKeepAlive())
-					isKeepAlive = false; // TODO currently not working without
-					                     // closeing the connection...
-				if (!isKeepAlive) {
-					try {
-						connection.close();
-					} catch (java.io.IOException e) {
-					}
-				}
+			// Flush the response
+			if (response != null) {
+				response.flushBuffer();
+				response.closeBuffer();
+			}
 
-				// Mark the connection as inactive
-				synchronized (connection) {
-					connection.isIdle.set(true);
+			// Check whether the channel is registered for write events. If
+			// so
+			// notify the channel that we are no longer interested in write
+			// events. Otherwise the selector will loop indefinately.
+			if (connection.opWrite) {
+				try {
+					connection.socketChannel.register(connection.selector, SelectionKey.OP_READ, connection);
+					connection.opWrite = false;
+				} catch (Exception e) {
 				}
+			}
 
-				// Destroy the request and response objects
-				if (request != null) {
-					request.clear();
-					request = null;
+			// Connections that were upgraded to another protocol (e.g.
+			// WebSocket) stay open. The request and response objects are
+			// owned by the protocol handler.
+			if (connection.upgraded) {
+				return false;
+			}
+
+			// Keep the connection open if both, the request and the response
+			// allow it. Unread bytes of the request body are discarded so the
+			// next request starts at the right position.
+			boolean isKeepAlive = isAllowKeepAlive() && request != null && response != null && request.isKeepAlive()
+			        && response.isKeepAlive() && connection.isOpen();
+			if (isKeepAlive) {
+				try {
+					request.skipBody();
+				} catch (Throwable e) {
+					log().d(e);
+					isKeepAlive = false;
 				}
-				if (response != null) {
-					response.reset();
-					response = null;
+			}
+			if (!isKeepAlive) {
+				try {
+					connection.close();
+				} catch (java.io.IOException e) {
 				}
+			}
 
+			// Destroy the request and response objects
+			if (request != null) {
+				request.clear();
+				request = null;
+			}
+			if (response != null) {
+				response.reset();
+				response = null;
 			}
+			return isKeepAlive;
 		}
 	}
 
@@ -544,7 +715,10 @@ public class Server extends MLog {
 	// ** SocketMonitor
 	// **************************************************************************
 	/**
-	 * TimerTask used to find and close idle connections.
+	 * TimerTask used to find and close idle connections. Connections that are
+	 * waiting for the next request on a persistent connection are closed after
+	 * the keep-alive timeout, busy and upgraded connections after the max idle
+	 * time.
 	 */
 	private class SocketMonitor extends java.util.TimerTask {
 
@@ -558,7 +732,13 @@ public class Server extends MLog {
 				java.util.ListIterator<SocketConnection> it = socketMonitorConnections.listIterator();
 				while (it.hasNext()) {
 					SocketConnection connection = it.next();
-					if (currTime - connection.lastEvent > maxIdleTime) {
+					if (!connection.isOpen()) {
+						it.remove();
+						continue;
+					}
+					long timeout = connection.isIdle.get() && connection.requestCount > 0 ? keepAliveTimeout
+					        : maxIdleTime;
+					if (currTime - connection.lastEvent > timeout) {
 						if (connection.isOpen()) {
 							try {
 								connection.close();
@@ -583,7 +763,7 @@ public class Server extends MLog {
 	public static class SocketConnection {
 
 		private final long startTime;
-		private Long lastEvent;
+		private volatile long lastEvent;
 		private SocketChannel socketChannel;
 		private Selector selector;
 		private javax.net.ssl.SSLEngine sslEngine;
@@ -596,11 +776,17 @@ public class Server extends MLog {
 		private final List<Long> write = new LinkedList<Long>();
 		private final AtomicBoolean isIdle = new AtomicBoolean(true);
 		private boolean opWrite = false;
+		private volatile boolean upgraded = false;
+		private int requestCount = 0;
+		private ByteBuffer pendingData;
+		private ByteBuffer readAhead;
+		private final BufferPool bufferPool;
 
-		private SocketConnection(SocketChannel socketChannel, Selector selector) {
+		private SocketConnection(SocketChannel socketChannel, Selector selector, BufferPool bufferPool) {
 
 			this.socketChannel = socketChannel;
 			this.selector = selector;
+			this.bufferPool = bufferPool;
 			startTime = new java.util.Date().getTime();
 			lastEvent = startTime;
 
@@ -660,6 +846,28 @@ public class Server extends MLog {
 			}
 		}
 
+		/**
+		 * Called by the SocketListener to stop listening for read events while
+		 * the connection waits for a free request slot.
+		 */
+		private void suspendReading() {
+			SelectionKey key = socketChannel == null ? null : socketChannel.keyFor(selector);
+			if (key != null && key.isValid())
+				key.interestOps(0);
+		}
+
+		/**
+		 * Called by the Server to resume listening for read events once the
+		 * connection is handed to the executor.
+		 */
+		private void resumeReading() {
+			SelectionKey key = socketChannel == null ? null : socketChannel.keyFor(selector);
+			if (key != null && key.isValid()) {
+				key.interestOps(SelectionKey.OP_READ);
+				selector.wakeup();
+			}
+		}
+
 		/**
 		 * Called by the SocketListener to notify users that the socket is being
 		 * closed.
@@ -690,6 +898,23 @@ public class Server extends MLog {
 			}
 		}
 
+		/**
+		 * Called when the connection is handed over to another protocol
+		 * (e.g. WebSocket). The server stops parsing HTTP requests from the
+		 * connection and passes read events to the listeners instead. The
+		 * connection is not closed when the servlet returns. It is closed by
+		 * the idle connection monitor if nothing was read or written for the
+		 * max idle time.
+		 */
+		public void upgrade() {
+			upgraded = true;
+		}
+
+		/** Returns true if the connection was upgraded to another protocol. */
+		public boolean isUpgraded() {
+			return upgraded;
+		}
+
 		/** SocketConnection Listener class */
 		public static class Listener {
 			public void onReadable() {
@@ -747,6 +972,26 @@ public class Server extends MLog {
 
 			int numBytesRead;
 			synchronized (read) {
+				if (readAhead != null) {
+					// Return the bytes read by readAhead() first, followed
+					// by any bytes that are available from the socket
+					numBytesRead = 0;
+					while (readAhead.hasRemaining() && buffer.hasRemaining()) {
+						buffer.put(readAhead.get());
+						numBytesRead++;
+					}
+					if (!readAhead.hasRemaining())
+						readAhead = null;
+					if (buffer.hasRemaining()) {
+						int x = socketChannel.read(buffer);
+						if (x > 0)
+							numBytesRead += x;
+					}
+					read.clear();
+					lastEvent = System.currentTimeMillis();
+					return numBytesRead;
+				}
+
 				numBytesRead = socketChannel.read(buffer);
 				read.clear();
 				if (numBytesRead == 0) {
@@ -771,6 +1016,39 @@ public class Server extends MLog {
 			return numBytesRead;
 		}
 
+		/**
+		 * Used to check whether a connection that is waiting for the next
+		 * request has bytes to read, without waiting for them. The byte that
+		 * is read is returned by the next call to read(). Returns false if no
+		 * bytes are available or if the connection was closed.
+		 */
+		private boolean readAhead() {
+			synchronized (read) {
+				if (readAhead != null)
+					return true;
+				if (!isOpen())
+					return false;
+				try {
+					ByteBuffer buffer = ByteBuffer.allocate(1);
+					int numBytesRead = socketChannel.read(buffer);
+					if (numBytesRead > 0) {
+						buffer.flip();
+						readAhead = buffer;
+						lastEvent = System.currentTimeMillis();
+						return true;
+					}
+					if (numBytesRead == -1)
+						close();
+				} catch (java.io.IOException e) {
+					try {
+						close();
+					} catch (java.io.IOException ex) {
+					}
+				}
+				return false;
+			}
+		}
+
 		/**
 		 * Used to write data to the SocketChannel. Note that a SocketChannel in
 		 * non-blocking mode cannot write any more bytes than are free in the
@@ -810,6 +1088,7 @@ public class Server extends MLog {
 					try {
 						socketChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, this);
 						opWrite = true;
+						selector.wakeup();
 					} catch (Exception e) {
 					}
 				}
@@ -847,6 +1126,63 @@ public class Server extends MLog {
 			return numBytesWrite;
 		}
 
+		/**
+		 * Used to transfer bytes from a file directly to the SocketChannel
+		 * using FileChannel.transferTo(). Like the write() method, this method
+		 * waits until the connection becomes writable if the socket's output
+		 * buffer is full and returns only after all the bytes have been sent.
+		 * Note that the bytes are sent as-is. Do not use this method for
+		 * SSL/TLS connections.
+		 *
+		 * @param position
+		 *            Position in the file of the first byte to send.
+		 * @param count
+		 *            Number of bytes to send.
+		 */
+		public long transferFrom(java.nio.channels.FileChannel file, long position, long count)
+		        throws java.io.IOException {
+			if (!isOpen())
+				throw new java.io.IOException("SocketConnection is closed!");
+
+			long numBytesWrite = 0;
+			while (numBytesWrite < count) {
+				long x = file.transferTo(position + numBytesWrite, count - numBytesWrite, socketChannel);
+				if (x > 0) {
+					numBytesWrite += x;
+					lastEvent = System.currentTimeMillis();
+					continue;
+				}
+				if (position + numBytesWrite >= file.size())
+					throw new java.io.IOException("Unexpected end of file.");
+
+				// The socket's output buffer is full. Register for write events
+				// and wait until the connection becomes writable.
+				synchronized (write) {
+					write.clear();
+					if (!opWrite) {
+						try {
+							socketChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, this);
+							opWrite = true;
+							selector.wakeup();
+						} catch (Exception e) {
+						}
+					}
+					while (write.isEmpty()) {
+						try {
+							write.wait();
+						} catch (InterruptedException e) {
+							throw new java.io.InterruptedIOException();
+						}
+					}
+					write.clear();
+				}
+				if (!isOpen())
+					throw new java.io.IOException("Socket is closed.");
+			}
+
+			return numBytesWrite;
+		}
+
 		/** Used to close the socketChannel and update any listeners. */
 		public void close() throws java.io.IOException {
 			if (socketChannel != null) {
@@ -854,6 +1190,7 @@ public class Server extends MLog {
 			}
 			socketChannel = null;
 			sslEngine = null;
+			bufferPool.release(removePendingData());
 			onClose();
 		}
 
@@ -869,6 +1206,36 @@ public class Server extends MLog {
 			return socketChannel;
 		}
 
+		/**
+		 * Used to store (decrypted) bytes that were read from the socket but
+		 * belong to the next request on this connection.
+		 */
+		public synchronized void setPendingData(ByteBuffer pendingData) {
+			this.pendingData = pendingData;
+		}
+
+		/** Returns and removes the buffered bytes of the next request. */
+		public synchronized ByteBuffer removePendingData() {
+			ByteBuffer data = pendingData;
+			pendingData = null;
+			return data;
+		}
+
+		/** Returns true if bytes of the next request are already buffered. */
+		public synchronized boolean hasPendingData() {
+			return pendingData != null && isOpen();
+		}
+
+		/** Returns the pool used to allocate buffers for this connection. */
+		public BufferPool getBufferPool() {
+			return bufferPool;
+		}
+
+		/** Returns the number of requests processed on this connection. */
+		public int getRequestCount() {
+			return requestCount;
+		}
+
 	}
 
 	// **************************************************************************
@@ -1049,6 +1416,106 @@ public class Server extends MLog {
 	// else return i+"";
 	// }
 
+	/**
+	 * Used to set the executor that processes requests. Has to be called before
+	 * start(). The executor is not shut down when the server is stopped.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+		this.shutdownExecutor = false;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * If true, the server processes each request in its own virtual thread
+	 * instead of a pool of numThreads platform threads. Falls back to the
+	 * platform pool if the JVM does not support virtual threads.
+	 */
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		this.useVirtualThreads = useVirtualThreads;
+	}
+
+	public boolean isUseVirtualThreads() {
+		return useVirtualThreads;
+	}
+
+	/**
+	 * Used to limit the number of requests waiting for or being processed by
+	 * the executor. If the limit is reached, further connections are not read
+	 * until a request is done. Zero or less means unlimited.
+	 */
+	public void setMaxPendingRequests(int maxPendingRequests) {
+		this.maxPendingRequests = maxPendingRequests;
+	}
+
+	public int getMaxPendingRequests() {
+		return maxPendingRequests;
+	}
+
+	/** Returns the number of requests queued or processed by the executor. */
+	public int getPendingRequests() {
+		return pendingRequests.get();
+	}
+
+	/** Returns the number of connections waiting for a free request slot. */
+	public int getDeferredRequests() {
+		return deferredConnections.size();
+	}
+
+	/**
+	 * Used to set the maximum time (in milliseconds) that a persistent
+	 * connection can wait for the next request before it is closed.
+	 */
+	public void setKeepAliveTimeout(int keepAliveTimeout) {
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+
+	public int getKeepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	/**
+	 * Used to set the maximum number of requests per persistent connection.
+	 * Zero or less means unlimited.
+	 */
+	public void setMaxKeepAliveRequests(int maxKeepAliveRequests) {
+		this.maxKeepAliveRequests = maxKeepAliveRequests;
+	}
+
+	public int getMaxKeepAliveRequests() {
+		return maxKeepAliveRequests;
+	}
+
+	/**
+	 * Used to set the maximum time (in milliseconds) that a connection can
+	 * remain idle while a request is processed. Also applies to connections
+	 * that were upgraded to another protocol (e.g. WebSocket).
+	 */
+	public void setMaxIdleTime(int maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	public int getMaxIdleTime() {
+		return maxIdleTime;
+	}
+
+	/**
+	 * Used to set the pool of direct buffers used to read requests and write
+	 * responses. Has to be called before start(). By default, all servers
+	 * share BufferPool.getDefault().
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
+	/** Returns the buffer pool, e.g. to monitor pool statistics. */
+	public BufferPool getBufferPool() {
+		return bufferPool;
+	}
+
 	public boolean isAllowKeepAlive() {
 		return allowKeepAlive;
 	}
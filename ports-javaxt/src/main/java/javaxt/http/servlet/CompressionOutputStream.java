@@ -0,0 +1,168 @@
+package javaxt.http.servlet;
+
+import java.io.IOException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+import javaxt.http.DeflaterPool;
+
+//******************************************************************************
+//**  CompressionOutputStream
+//******************************************************************************
+/**
+ * OutputStream used to compress the body of an http response using either
+ * the "gzip" or "deflate" (zlib) content encoding. Unlike the
+ * java.util.zip.GZIPOutputStream, this class borrows its Deflater from the
+ * DeflaterPool and returns it when the stream is finished. Calling flush()
+ * sends all the data compressed so far to the underlying stream so clients
+ * can start decompressing before the response is complete.
+ *
+ ******************************************************************************/
+
+class CompressionOutputStream extends java.io.OutputStream {
+
+	private static final byte[] GZIP_HEADER = new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+	        0 };
+	private static final byte[] ZLIB_HEADER = new byte[] { 0x78, (byte) 0x9c };
+
+	private java.io.OutputStream out;
+	private boolean gzip;
+	private Deflater deflater;
+	private Checksum checksum;
+	private byte[] buf;
+	private byte[] oneByte = new byte[1];
+	private long size = 0;
+	private boolean finished = false;
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	/**
+	 * @param encoding
+	 *            Content encoding. Either "gzip" or "deflate".
+	 * @param level
+	 *            Compression level (0-9 or -1 for the default level).
+	 * @param bufferSize
+	 *            Size of the buffer used to collect compressed bytes before
+	 *            they are written to the underlying stream.
+	 */
+	public CompressionOutputStream(java.io.OutputStream out, String encoding, int level, int bufferSize)
+	        throws IOException {
+		this.out = out;
+		this.gzip = !encoding.equalsIgnoreCase("deflate");
+		this.checksum = (gzip ? new CRC32() : new Adler32());
+		this.buf = new byte[bufferSize];
+		this.deflater = DeflaterPool.getDefault().acquire(level);
+		out.write(gzip ? GZIP_HEADER : ZLIB_HEADER);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		oneByte[0] = (byte) b;
+		write(oneByte, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (finished)
+			throw new IOException("Stream is finished.");
+		if (len == 0)
+			return;
+
+		checksum.update(b, off, len);
+		size += len;
+		deflater.setInput(b, off, len);
+		while (!deflater.needsInput()) {
+			deflate(Deflater.NO_FLUSH);
+		}
+	}
+
+	// **************************************************************************
+	// ** flush
+	// **************************************************************************
+	/**
+	 * Compresses all pending input and writes the compressed bytes to the
+	 * underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (!finished) {
+			while (deflate(Deflater.SYNC_FLUSH) == buf.length) {
+			}
+		}
+		out.flush();
+	}
+
+	// **************************************************************************
+	// ** finish
+	// **************************************************************************
+	/**
+	 * Writes the remaining compressed data and the trailer to the underlying
+	 * stream without closing it. Returns the Deflater to the pool.
+	 */
+	public void finish() throws IOException {
+		if (finished)
+			return;
+		finished = true;
+		try {
+			deflater.finish();
+			while (!deflater.finished()) {
+				deflate(Deflater.NO_FLUSH);
+			}
+
+			long value = checksum.getValue();
+			if (gzip) {
+				writeInt((int) value, true);
+				writeInt((int) size, true);
+			} else {
+				writeInt((int) value, false);
+			}
+		} finally {
+			DeflaterPool.getDefault().release(deflater);
+			deflater = null;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		out.close();
+	}
+
+	private int deflate(int flush) throws IOException {
+		int len = deflater.deflate(buf, 0, buf.length, flush);
+		if (len > 0)
+			out.write(buf, 0, len);
+		return len;
+	}
+
+	private void writeInt(int i, boolean littleEndian) throws IOException {
+		if (littleEndian) {
+			buf[0] = (byte) i;
+			buf[1] = (byte) (i >> 8);
+			buf[2] = (byte) (i >> 16);
+			buf[3] = (byte) (i >> 24);
+		} else {
+			buf[0] = (byte) (i >> 24);
+			buf[1] = (byte) (i >> 16);
+			buf[2] = (byte) (i >> 8);
+			buf[3] = (byte) i;
+		}
+		out.write(buf, 0, 4);
+	}
+
+	// **************************************************************************
+	// ** compress
+	// **************************************************************************
+	/** Returns a compressed copy of the given byte array. */
+	public static byte[] compress(byte[] bytes, String encoding, int level) throws IOException {
+		java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream(bytes.length / 2 + 32);
+		CompressionOutputStream out = new CompressionOutputStream(bos, encoding, level,
+		        Math.max(64, Math.min(bytes.length, 8192)));
+		out.write(bytes, 0, bytes.length);
+		out.close();
+		return bos.toByteArray();
+	}
+}
@@ -0,0 +1,363 @@
+package javaxt.http.servlet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+//******************************************************************************
+//**  HeaderParser
+//******************************************************************************
+/**
+ * Incremental parser for the request line and headers of an http request.
+ * Bytes are consumed directly from the buffer that was filled by the socket
+ * connection. If the buffer ends in the middle of the header, the parser keeps
+ * its state and continues with the next buffer. Bytes that follow the header
+ * (e.g. the request body or the next pipelined request) are left in the
+ * buffer.
+ * <p/>
+ * Common header names are mapped to shared String constants so no Strings are
+ * created for them. Header values are decoded as ISO-8859-1.
+ *
+ ******************************************************************************/
+
+class HeaderParser {
+
+	private static final int maxHeaderSize = 8192; // 8KB
+	private static final int maxLineLength = 2048;
+	private static final int maxHeaders = 30;
+	private static final String[] methods = new String[] { "GET", "POST", "HEAD", "PUT", "OPTIONS", "TRACE", "DELETE" };
+	private static final int mx = "OPTIONS".length() + 1;
+
+	private static final String[] commonHeaders = new String[] { "Accept", "Accept-Charset", "Accept-Encoding",
+	        "Accept-Language", "Authorization", "Cache-Control", "Connection", "Content-Encoding", "Content-Length",
+	        "Content-Type", "Cookie", "DNT", "Expect", "Host", "If-Match", "If-Modified-Since", "If-None-Match",
+	        "If-Range", "If-Unmodified-Since", "Keep-Alive", "Origin", "Pragma", "Range", "Referer",
+	        "Sec-WebSocket-Extensions", "Sec-WebSocket-Key", "Sec-WebSocket-Protocol", "Sec-WebSocket-Version",
+	        "TE", "Transfer-Encoding", "Upgrade", "Upgrade-Insecure-Requests", "User-Agent", "Via",
+	        "X-Forwarded-For", "X-Forwarded-Host", "X-Forwarded-Proto", "X-Requested-With" };
+	private static final String[] nameTable = new String[256];
+
+	static {
+		for (String name : commonHeaders) {
+			int i = hash(name) & (nameTable.length - 1);
+			while (nameTable[i] != null)
+				i = (i + 1) & (nameTable.length - 1);
+			nameTable[i] = name;
+		}
+	}
+
+	private byte[] line = new byte[256];
+	private int lineLength = 0;
+	private boolean cr = false;
+	private int totalBytesRead = 0;
+	private boolean isComplete = false;
+
+	private String method;
+	private String path;
+	private String version;
+	private String requestLine;
+	private String[] names = new String[16];
+	private String[] values = new String[16];
+	private int count = 0;
+
+	// **************************************************************************
+	// ** parse
+	// **************************************************************************
+	/**
+	 * Consumes bytes from the given buffer, starting at the current position.
+	 * Returns true once the empty line at the end of the header was found. In
+	 * this case, the position of the buffer is set to the first byte after the
+	 * header. Returns false if more bytes are needed. In this case all the
+	 * remaining bytes in the buffer have been consumed.
+	 */
+	public boolean parse(ByteBuffer buf) throws ServletException {
+		if (isComplete)
+			return true;
+
+		while (buf.hasRemaining()) {
+			byte b = buf.get();
+			totalBytesRead++;
+			if (totalBytesRead > maxHeaderSize)
+				throw new ServletException("Header is too big.");
+
+			if (cr) {
+				cr = false;
+				if (b == '\n') {
+					if (endOfLine()) {
+						isComplete = true;
+						return true;
+					}
+					continue;
+				}
+				append((byte) '\r');
+			}
+
+			if (b == '\r') {
+				cr = true;
+			} else if (b == '\n') {
+				if (endOfLine()) {
+					isComplete = true;
+					return true;
+				}
+			} else {
+				append(b);
+			}
+		}
+		return false;
+	}
+
+	// **************************************************************************
+	// ** append
+	// **************************************************************************
+	private void append(byte b) throws ServletException {
+		if (lineLength == line.length) {
+			if (lineLength >= maxLineLength)
+				throw new ServletException("Line " + count + " is too long.");
+			byte[] arr = new byte[Math.min(line.length * 2, maxLineLength)];
+			System.arraycopy(line, 0, arr, 0, lineLength);
+			line = arr;
+		}
+		line[lineLength++] = b;
+
+		// Check the first few characters to see if this is a valid HTTP
+		// request.
+		if (requestLine == null && lineLength == mx && getMethod(line, lineLength) == null)
+			throw new ServletException("Bad Request: " + new String(line, 0, lineLength, StandardCharsets.ISO_8859_1));
+	}
+
+	// **************************************************************************
+	// ** endOfLine
+	// **************************************************************************
+	/**
+	 * Called when a line break is found. Returns true if the line was the empty
+	 * line at the end of the header.
+	 */
+	private boolean endOfLine() throws ServletException {
+		int length = lineLength;
+		lineLength = 0;
+
+		if (requestLine == null) {
+			if (length == 0)
+				return false; // <-- Ignore empty lines before the request line
+			parseRequestLine(length);
+			return false;
+		}
+
+		if (length == 0)
+			return true;
+
+		// Lines starting with a space or tab continue the previous header
+		if ((line[0] == ' ' || line[0] == '\t') && count > 0) {
+			int start = skipWhitespace(0, length);
+			int end = trimWhitespace(start, length);
+			if (end > start)
+				values[count - 1] = values[count - 1] + " " + toString(start, end);
+			return false;
+		}
+
+		int colon = -1;
+		for (int i = 0; i < length; i++) {
+			if (line[i] == ':') {
+				colon = i;
+				break;
+			}
+		}
+		if (colon < 1)
+			return false; // <-- Ignore lines without a header name
+
+		if (count == maxHeaders)
+			throw new ServletException("Too many rows.");
+		if (count == names.length) {
+			String[] arr = new String[names.length * 2];
+			System.arraycopy(names, 0, arr, 0, count);
+			names = arr;
+			arr = new String[values.length * 2];
+			System.arraycopy(values, 0, arr, 0, count);
+			values = arr;
+		}
+
+		int start = skipWhitespace(colon + 1, length);
+		names[count] = getName(trimWhitespace(0, colon));
+		values[count] = toString(start, trimWhitespace(start, length));
+		count++;
+		return false;
+	}
+
+	// **************************************************************************
+	// ** parseRequestLine
+	// **************************************************************************
+	/**
+	 * Used to parse the first line of the header to get the method, path, and
+	 * version (e.g. "GET /index.html HTTP/1.1").
+	 */
+	private void parseRequestLine(int length) throws ServletException {
+		requestLine = toString(0, length);
+
+		method = getMethod(line, length);
+		if (method == null)
+			throw new ServletException("Bad Request: " + requestLine);
+
+		int start = skipWhitespace(method.length(), length);
+		int end = nextWhitespace(start, length);
+		if (start == end)
+			throw new ServletException("Bad Request: " + requestLine);
+		path = toString(start, end);
+
+		start = skipWhitespace(end, length);
+		end = nextWhitespace(start, length);
+		if (start == end)
+			throw new ServletException("Bad Request: " + requestLine);
+		if (end - start == 8 && matches(start, "HTTP/1.1")) {
+			version = "1.1";
+		} else if (end - start == 8 && matches(start, "HTTP/1.0")) {
+			version = "1.0";
+		} else {
+			String protocol = toString(start, end).toUpperCase();
+			if (protocol.contains("/"))
+				version = protocol.substring(protocol.indexOf("/") + 1);
+		}
+	}
+
+	// **************************************************************************
+	// ** getMethod
+	// **************************************************************************
+	/**
+	 * Returns the method at the start of the given line if it is followed by a
+	 * space. Returns null if the line doesn't start with a supported method.
+	 */
+	private static String getMethod(byte[] line, int length) {
+		for (String method : methods) {
+			int len = method.length();
+			if (length > len && line[len] == ' ') {
+				boolean match = true;
+				for (int i = 0; i < len; i++) {
+					if (line[i] != method.charAt(i)) {
+						match = false;
+						break;
+					}
+				}
+				if (match)
+					return method;
+			}
+		}
+		return null;
+	}
+
+	// **************************************************************************
+	// ** getName
+	// **************************************************************************
+	/**
+	 * Returns the header name in the first bytes of the current line. Common
+	 * header names are looked up in a table of constants. The lookup is case
+	 * insensitive.
+	 */
+	private String getName(int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++)
+			h = 31 * h + toLowerCase(line[i]);
+
+		int i = h & (nameTable.length - 1);
+		String name;
+		while ((name = nameTable[i]) != null) {
+			if (name.length() == length) {
+				boolean match = true;
+				for (int j = 0; j < length; j++) {
+					if (toLowerCase(line[j]) != toLowerCase((byte) name.charAt(j))) {
+						match = false;
+						break;
+					}
+				}
+				if (match)
+					return name;
+			}
+			i = (i + 1) & (nameTable.length - 1);
+		}
+		return toString(0, length);
+	}
+
+	private static int hash(String name) {
+		int h = 0;
+		for (int i = 0; i < name.length(); i++)
+			h = 31 * h + toLowerCase((byte) name.charAt(i));
+		return h;
+	}
+
+	private static int toLowerCase(byte b) {
+		return (b >= 'A' && b <= 'Z') ? b + 32 : b;
+	}
+
+	private boolean matches(int offset, String str) {
+		for (int i = 0; i < str.length(); i++) {
+			if (line[offset + i] != str.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private int skipWhitespace(int i, int length) {
+		while (i < length && (line[i] == ' ' || line[i] == '\t'))
+			i++;
+		return i;
+	}
+
+	private int nextWhitespace(int i, int length) {
+		while (i < length && line[i] != ' ' && line[i] != '\t')
+			i++;
+		return i;
+	}
+
+	private int trimWhitespace(int start, int end) {
+		while (end > start && (line[end - 1] == ' ' || line[end - 1] == '\t'))
+			end--;
+		return end;
+	}
+
+	private String toString(int start, int end) {
+		return new String(line, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	/** Returns true if the end of the header has been reached. */
+	public boolean isComplete() {
+		return isComplete;
+	}
+
+	/** Returns the method of the request (e.g. "GET"). */
+	public String getMethod() {
+		return method;
+	}
+
+	/** Returns the path as it appears in the request line. */
+	public String getPath() {
+		return path;
+	}
+
+	/** Returns the HTTP version of the request (e.g. "1.1"). */
+	public String getVersion() {
+		return version;
+	}
+
+	/** Returns the first line of the request. */
+	public String getRequestLine() {
+		return requestLine;
+	}
+
+	/** Returns the number of headers found in the request. */
+	public int getHeaderCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the header names. Only the first getHeaderCount() entries are
+	 * used.
+	 */
+	public String[] getHeaderNames() {
+		return names;
+	}
+
+	/**
+	 * Returns the header values. Only the first getHeaderCount() entries are
+	 * used.
+	 */
+	public String[] getHeaderValues() {
+		return values;
+	}
+}
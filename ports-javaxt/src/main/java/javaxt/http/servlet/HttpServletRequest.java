@@ -21,6 +21,7 @@ import javax.servlet.http.HttpUtils;
 import javax.servlet.http.Part;
 
 import de.mhus.lib.core.MLog;
+import javaxt.http.BufferPool;
 import javaxt.http.Server.SocketConnection;
 
 //******************************************************************************
@@ -36,27 +37,29 @@ import javaxt.http.Server.SocketConnection;
 
 public class HttpServletRequest extends MLog implements javax.servlet.http.HttpServletRequest {
 
-	private String[] header;
+	private String requestLine;
+	private String[] headerNames;
+	private String[] headerValues;
+	private int headerCount;
 	private java.net.URL url;
 	private String version;
 	private String method;
 	private HashMap<String, List<String>> parameters;
 	private SocketConnection connection;
 	private java.net.InetSocketAddress remoteSocketAddress;
-	private static final int maxHeaderSize = 8192; // 8KB
-	private static final String[] methods = new String[] { "GET", "POST", "HEAD", "PUT", "OPTIONS", "TRACE", "DELETE" };
-	private static final int mx = "OPTIONS".length() + 1;
+	private static final int inputBufferSize = 4096;
 	private HttpSession session = null;
 	private java.util.ArrayList<Cookie> cookies = null;
 	private Boolean isKeepAlive;
 	private Boolean isWebSocket;
-	private static final int maxRecordSize = 33049;
 	private SSLEngine sslEngine;
-	private ByteBuffer appData;
+	private BufferPool bufferPool;
+	private ByteBuffer appData; // <-- Unread (decrypted) bytes from the socket
 	private ByteBuffer recordHeader;
 	private ServletInputStream inputStream;
 	private Integer contentLength = null;
-	private java.nio.ByteBuffer oneByte = java.nio.ByteBuffer.allocateDirect(1);
+	private boolean bodyConsumed = false;
+	private java.nio.ByteBuffer oneByte;
 
 	// The following variables are used for authentication
 	private Authenticator authenticator;
@@ -79,7 +82,7 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	// Servlet spec. I frankly don't use these variables or methods but perhaps
 	// someone will find them useful...
 	private String charset;
-	private java.util.Enumeration<Locale> locales;
+	private java.util.List<Locale> locales;
 	private HashMap<String, Object> attributes;
 	private String servletPath;
 	private ServletContext servletContext;
@@ -95,31 +98,32 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 
 		this.remoteSocketAddress = connection.getRemoteSocketAddress();
 		this.connection = connection;
+		this.bufferPool = connection.getBufferPool();
+		this.oneByte = bufferPool.acquire(1);
 		this.attributes = new HashMap<String, Object>();
 		this.servletPath = servlet.servletPath;
 		this.servletContext = servlet.getServletContext();
 
-		int totalBytesRead = 0;
-		String[] header = new String[30]; // <--max header length is set to 30
-		                                  // lines
-		char[] row = new char[2048]; // <--max row length is set to 2048
-		                             // characters
-		int i = 0;
-		int j = 0;
 		boolean decrypt = false;
+		HeaderParser parser = new HeaderParser();
+
+		// If the previous request on this connection left bytes behind (e.g.
+		// pipelined requests), continue with these bytes instead of reading
+		// from the socket.
+		ByteBuffer pendingData = connection.removePendingData();
+		if (pendingData != null) {
+			sslEngine = connection.getSSLEngine();
+			appData = pendingData;
+			decrypt = (sslEngine != null);
+		} else {
 
-		// Extract the http header from the input stream, one byte at a time
-		while (true) {
-
-			byte a = nextByte(decrypt);
-			totalBytesRead++;
-
-			// If this is the first byte, check whether the request is SSL
-			if (totalBytesRead == 1 && ((a > 19 && a < 25) || a == -128)) {
+			// Read the first byte and check whether the request is SSL
+			byte a = nextByte(false);
+			if ((a > 19 && a < 25) || a == -128) {
 
 				// Read the next 4 bytes from the socket channel. This, plus the
 				// first byte should contain TLS record information.
-				recordHeader = ByteBuffer.allocateDirect(5);
+				recordHeader = bufferPool.acquire(5);
 				recordHeader.put(a);
 				for (int x = 0; x < 4; x++) {
 					recordHeader.put(nextByte(false));
@@ -155,70 +159,26 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 
 				// Update flag to decrypt all subsequent bytes from the socket
 				decrypt = true;
-
-				// Read the next byte
-				a = nextByte(decrypt);
-			}
-
-			if (a == '\r') {
-
-				byte b = nextByte(decrypt);
-				totalBytesRead++;
-
-				if (b == '\n') {
-
-					if (j == 0)
-						break;
-					header[i] = new String(row, 0, j);
-					j = 0;
-					i++;
-				} else if (b > -1) {
-					row[j] = (char) a;
-					j++;
-					row[j] = (char) b;
-					j++;
-				}
-			} else if (a > -1) {
-				row[j] = (char) a;
-				j++;
-			}
-
-			// Check row length, row count, and overall header length.
-			if (j > row.length)
-				throw new ServletException("Line " + i + " is too long.");
-			if (i > header.length)
-				throw new ServletException("Too many rows.");
-			if (totalBytesRead > maxHeaderSize)
-				throw new ServletException("Header is too big.");
-
-			// Check the first few characters to see if this is a valid HTTP
-			// request.
-			if (totalBytesRead == mx) {
-				boolean isValid = false;
-				String str = new String(row, 0, j);
-				for (String method : methods) {
-					if (str.startsWith(method + " ")) {
-						isValid = true;
-						break;
-					}
-				}
-				if (!isValid)
-					throw new ServletException("Bad Request: " + str);
+			} else {
+				parser.parse(oneByte);
 			}
 		}
 
-		row = null;
-
-		if (totalBytesRead < mx) {
-			throw new ServletException("Bad Request");
+		// Parse the http header. The parser consumes bytes directly from the
+		// input buffer and resumes whenever more bytes are read from the
+		// socket. Bytes following the header remain in the input buffer.
+		while (appData == null || !parser.parse(appData)) {
+			fill(decrypt);
 		}
 
-		// Prune the header array
-		this.header = new String[i];
-		System.arraycopy(header, 0, this.header, 0, i);
-		header = null;
+		this.requestLine = parser.getRequestLine();
+		this.method = parser.getMethod();
+		this.version = parser.getVersion();
+		this.headerNames = parser.getHeaderNames();
+		this.headerValues = parser.getHeaderValues();
+		this.headerCount = parser.getHeaderCount();
 
-		parseHeader();
+		parseHeader(parser.getPath());
 
 		// Instantiate the authenticator
 		try {
@@ -233,15 +193,13 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	// ** parseHeader
 	// **************************************************************************
 	/**
-	 * Used to parse the HTTP request header.
+	 * Used to assemble the requested url from the path in the first line of
+	 * the header and the Host header. Note that the query string is parsed
+	 * when a parameter is requested for the first time.
 	 */
-	private void parseHeader() throws IOException {
+	private void parseHeader(String path) throws IOException {
 
-		// Parse the first line of the header to get the method, path, and
-		// version
 		String host = getHeader("Host");
-		String path = null;
-		String protocol = null;
 
 		if (host == null) {
 			host = getLocalName();
@@ -249,18 +207,6 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 			host += (port != 80 ? ":" + port : "");
 		}
 
-		java.util.StringTokenizer st = new java.util.StringTokenizer(header[0]);
-		if (st.hasMoreTokens())
-			method = st.nextToken().trim().toUpperCase();
-		if (st.hasMoreTokens())
-			path = st.nextToken().trim();
-		if (st.hasMoreTokens())
-			protocol = st.nextToken().trim().toUpperCase();
-
-		if (protocol.contains("/")) {
-			version = protocol.substring(protocol.indexOf("/") + 1);
-		}
-
 		// Assemble requested url
 		if (path.toLowerCase().startsWith("http://" + host.toLowerCase())
 		        || path.toLowerCase().startsWith("https://" + host.toLowerCase())) {
@@ -268,9 +214,6 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 		} else {
 			url = new java.net.URL((isEncrypted() ? "https" : "http") + "://" + host + path);
 		}
-
-		// Parse query string
-		parameters = parseQueryString(url.getQuery());
 	}
 
 	// **************************************************************************
@@ -333,14 +276,10 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	 */
 	@Override
 	public String getHeader(String name) {
-		for (String entry : header) {
-			if (entry != null) {
-				if (entry.contains(":")) {
-					String key = entry.substring(0, entry.indexOf(":"));
-					if (key.equalsIgnoreCase(name)) {
-						return entry.substring(entry.indexOf(":") + 1).trim();
-					}
-				}
+		for (int i = 0; i < headerCount; i++) {
+			String key = headerNames[i];
+			if (key == name || key.equalsIgnoreCase(name)) {
+				return headerValues[i];
 			}
 		}
 		return null;
@@ -350,24 +289,26 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	// ** setHeader
 	// **************************************************************************
 	public void setHeader(String name, String value) {
-		for (int i = 0; i < header.length; i++) {
-			String entry = header[i];
-			if (entry != null) {
-				if (entry.contains(":")) {
-					String key = entry.substring(0, entry.indexOf(":"));
-					if (key.equalsIgnoreCase(name)) {
-						header[i] = name + ": " + value;
-						return;
-					}
-				}
+		for (int i = 0; i < headerCount; i++) {
+			if (headerNames[i].equalsIgnoreCase(name)) {
+				headerNames[i] = name;
+				headerValues[i] = value;
+				return;
 			}
 		}
 
-		// If we're still here, simply add an entry to the end of the array
-		String[] header = new String[this.header.length + 1];
-		System.arraycopy(this.header, 0, header, 0, this.header.length);
-		header[header.length - 1] = name + ": " + value;
-		this.header = header;
+		// If we're still here, simply add an entry to the end of the arrays
+		if (headerCount == headerNames.length) {
+			String[] arr = new String[headerCount + 1];
+			System.arraycopy(headerNames, 0, arr, 0, headerCount);
+			headerNames = arr;
+			arr = new String[headerCount + 1];
+			System.arraycopy(headerValues, 0, arr, 0, headerCount);
+			headerValues = arr;
+		}
+		headerNames[headerCount] = name;
+		headerValues[headerCount] = value;
+		headerCount++;
 	}
 
 	// **************************************************************************
@@ -385,14 +326,10 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	@Override
 	public java.util.Enumeration<String> getHeaders(String name) {
 		java.util.ArrayList<String> headers = new java.util.ArrayList<String>();
-		for (String entry : header) {
-			if (entry != null) {
-				if (entry.contains(":")) {
-					String key = entry.substring(0, entry.indexOf(":"));
-					if (key.equalsIgnoreCase(name)) {
-						headers.add(entry.substring(entry.indexOf(":") + 1).trim());
-					}
-				}
+		for (int i = 0; i < headerCount; i++) {
+			String key = headerNames[i];
+			if (key == name || key.equalsIgnoreCase(name)) {
+				headers.add(headerValues[i]);
 			}
 		}
 		return java.util.Collections.enumeration(headers);
@@ -408,13 +345,8 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	@Override
 	public java.util.Enumeration<String> getHeaderNames() {
 		java.util.ArrayList<String> headers = new java.util.ArrayList<String>();
-		for (String entry : header) {
-			if (entry != null) {
-				if (entry.contains(":")) {
-					String key = entry.substring(0, entry.indexOf(":"));
-					headers.add(key);
-				}
-			}
+		for (int i = 0; i < headerCount; i++) {
+			headers.add(headerNames[i]);
 		}
 		return java.util.Collections.enumeration(headers);
 	}
@@ -558,7 +490,7 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	@Override
 	public java.util.Enumeration<Locale> getLocales() {
 		if (locales != null)
-			return locales;
+			return java.util.Collections.enumeration(locales);
 
 		java.util.HashMap<Locale, Double> locales = new java.util.HashMap<Locale, Double>();
 		java.util.Enumeration<String> headers = getHeaders("Accept-Language");
@@ -609,8 +541,8 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 		java.util.ArrayList<Locale> sortedLocales = new java.util.ArrayList<Locale>(locales.keySet());
 		java.util.Collections.sort(sortedLocales, new LocaleComparer(locales));
 
-		this.locales = java.util.Collections.enumeration(sortedLocales);
-		return this.locales;
+		this.locales = sortedLocales;
+		return java.util.Collections.enumeration(sortedLocales);
 	}
 
 	private static class LocaleComparer implements java.util.Comparator<Locale> {
@@ -802,12 +734,23 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	// ** isKeepAlive
 	// **************************************************************************
 	/**
-	 * Used to determine whether the Connection attribute is set to Keep-Alive.
+	 * Used to determine whether the client wants to keep the connection open
+	 * after the response. HTTP/1.1 connections are persistent unless the
+	 * Connection header is set to "close". HTTP/1.0 clients have to send a
+	 * "Keep-Alive" Connection header. WebSocket requests and requests with a
+	 * chunked body are never kept alive.
 	 */
 	public boolean isKeepAlive() {
 		if (isKeepAlive == null) {
 			String connType = getHeader("Connection");
-			isKeepAlive = (connType == null ? false : connType.toUpperCase().contains("KEEP-ALIVE"));
+			if (connType != null)
+				connType = connType.toUpperCase();
+			if (isWebSocket() || getHeader("Transfer-Encoding") != null)
+				isKeepAlive = false;
+			else if ("1.1".equals(version))
+				isKeepAlive = (connType == null || !connType.contains("CLOSE"));
+			else
+				isKeepAlive = (connType != null && connType.contains("KEEP-ALIVE"));
 		}
 		return isKeepAlive;
 	}
@@ -1003,7 +946,7 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	@Override
 	public String getParameter(String key) {
 		StringBuffer str = new StringBuffer();
-		List<String> values = parameters.get(key.toLowerCase());
+		List<String> values = getParameters().get(key.toLowerCase());
 		if (values != null) {
 			for (int i = 0; i < values.size(); i++) {
 				str.append(values.get(i));
@@ -1029,7 +972,7 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	 */
 	@Override
 	public java.util.Enumeration<String> getParameterNames() {
-		return java.util.Collections.enumeration(parameters.keySet());
+		return java.util.Collections.enumeration(getParameters().keySet());
 	}
 
 	// **************************************************************************
@@ -1044,7 +987,7 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	 */
 	@Override
 	public String[] getParameterValues(String name) {
-		List<String> values = parameters.get(name.toLowerCase());
+		List<String> values = getParameters().get(name.toLowerCase());
 		if (values != null) {
 			return values.toArray(new String[values.size()]);
 		}
@@ -1065,7 +1008,7 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	@Override
 	public java.util.Map<String, String[]> getParameterMap() {
 		HashMap<String, String[]> map = new HashMap<String, String[]>();
-		java.util.Iterator<String> it = parameters.keySet().iterator();
+		java.util.Iterator<String> it = getParameters().keySet().iterator();
 		while (it.hasNext()) {
 			String key = it.next();
 			map.put(key, getParameterValues(key));
@@ -1073,13 +1016,26 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 		return map;
 	}
 
+	// **************************************************************************
+	// ** getParameters
+	// **************************************************************************
+	/**
+	 * Returns the parameters found in the query string. The query string is
+	 * parsed on first access.
+	 */
+	private HashMap<String, List<String>> getParameters() {
+		if (parameters == null)
+			parameters = parseQueryString(url.getQuery());
+		return parameters;
+	}
+
 	// **************************************************************************
 	// ** parseQueryString
 	// **************************************************************************
 	/**
 	 * Used to parse a url query string and create a list of name/value pairs.
-	 * This method is called in the constructor to parse the querystring found
-	 * in the request URL.
+	 * This method is called the first time a parameter is requested to parse
+	 * the querystring found in the request URL.
 	 */
 	private HashMap<String, List<String>> parseQueryString(String query) {
 
@@ -1199,45 +1155,46 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 		int contentLength = getContentLength();
 		if (contentLength < 1)
 			return new byte[0];
+		bodyConsumed = true;
 
 		// Set initial buffer size and buffer
 		int bufferSize = 24576; // 24kb
 		if (contentLength > 0 && contentLength < bufferSize)
 			bufferSize = contentLength;
-		ByteBuffer buf = ByteBuffer.allocateDirect(bufferSize);
+		ByteBuffer buf = bufferPool.acquire(bufferSize);
 		java.io.ByteArrayOutputStream bas = new java.io.ByteArrayOutputStream();
+		byte[] b = new byte[bufferSize];
 
 		boolean decrypt = isEncrypted();
-		while (true) {
+		try {
+			while (true) {
 
-			// Update the buffer size as needed. This will help avoid a 15
-			// second
-			// wait period when reading bytes from the socket.
-			if (contentLength > 0) {
-				int remaining = contentLength - bas.size();
-				if (remaining < bufferSize)
-					buf = ByteBuffer.allocateDirect(remaining);
-			}
+				// Update the buffer size as needed. This will help avoid a 15
+				// second wait period when reading bytes from the socket.
+				if (contentLength > 0) {
+					int remaining = contentLength - bas.size();
+					if (remaining < bufferSize)
+						buf.limit(remaining);
+				}
 
-			// Try to fill the buffer with bytes from the socket
-			int numBytesRead = read(buf, decrypt);
-			if (numBytesRead > 0) {
-				byte[] b = new byte[numBytesRead];
-				buf.get(b, 0, numBytesRead);
-				bas.write(b);
-				if (contentLength < 0 && numBytesRead != bufferSize)
-					break; // <-- Is this a valid use case? Can Content-Length
-					       // be undefined?
-				if (bas.size() == contentLength)
+				// Try to fill the buffer with bytes from the socket
+				int numBytesRead = read(buf, decrypt);
+				if (numBytesRead > 0) {
+					buf.get(b, 0, numBytesRead);
+					bas.write(b, 0, numBytesRead);
+					if (contentLength < 0 && numBytesRead != bufferSize)
+						break; // <-- Is this a valid use case? Can Content-Length
+						       // be undefined?
+					if (bas.size() == contentLength)
+						break;
+				} else {
 					break;
-			} else {
-				break;
+				}
 			}
+		} finally {
+			bufferPool.release(buf);
 		}
 
-		buf.clear();
-		buf = null;
-
 		return bas.toByteArray();
 	}
 
@@ -1882,14 +1839,13 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	@Override
 	public String toString() {
 		StringBuffer out = new StringBuffer();
-		for (String entry : header) {
-			if (entry != null) {
-				entry = entry.trim();
-				if (entry.length() > 0) {
-					out.append(entry);
-					out.append("\r\n");
-				}
-			}
+		out.append(requestLine);
+		out.append("\r\n");
+		for (int i = 0; i < headerCount; i++) {
+			out.append(headerNames[i]);
+			out.append(": ");
+			out.append(headerValues[i]);
+			out.append("\r\n");
 		}
 		out.append("\r\n");
 		return out.toString();
@@ -1910,11 +1866,46 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 			parameters = null;
 		}
 
-		header = null;
+		requestLine = null;
+		headerNames = headerValues = null;
+		headerCount = 0;
 		url = null;
 		version = null;
 		method = null;
 		remoteSocketAddress = null;
+
+		// Return buffers to the pool
+		if (bufferPool != null) {
+			bufferPool.release(oneByte);
+			bufferPool.release(appData);
+			bufferPool.release(recordHeader);
+		}
+		oneByte = appData = recordHeader = null;
+	}
+
+	// **************************************************************************
+	// ** skipBody
+	// **************************************************************************
+	/**
+	 * Reads and discards any part of the request body that was not consumed by
+	 * the servlet and hands buffered bytes that belong to the next request
+	 * back to the connection. This method is called automatically before a
+	 * persistent connection is reused. Do not call this method from your
+	 * application.
+	 */
+	public void skipBody() throws IOException {
+
+		if (!bodyConsumed && getContentLength() > 0) {
+			ServletInputStream is = getInputStream();
+			while (is.read() != -1) {
+			}
+			bodyConsumed = true;
+		}
+
+		if (appData != null && appData.hasRemaining()) {
+			connection.setPendingData(appData);
+			appData = null;
+		}
 	}
 
 	protected SocketConnection getConnection() {
@@ -1925,16 +1916,16 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	// ** getApplicationData
 	// **************************************************************************
 	/**
-	 * Returns the next available TLS application data record as a byte array.
-	 * Note that the bytes are automatically decrypted (unwrapped).
+	 * Returns the next available TLS application data record. Note that the
+	 * bytes are automatically decrypted (unwrapped). The returned buffer is
+	 * taken from the buffer pool.
 	 */
-	private byte[] getApplicationData() throws IOException {
+	private ByteBuffer getApplicationData() throws IOException {
 
 		// Read the next 5 bytes from the socket channel. This should contain
-		// TLS
-		// record information.
+		// TLS record information.
 		if (recordHeader == null) {
-			recordHeader = ByteBuffer.allocateDirect(5);
+			recordHeader = bufferPool.acquire(5);
 			read(recordHeader, false);
 		}
 
@@ -1950,37 +1941,23 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 		int recordLength = Integer.parseInt(getHex(recordHeader) + getHex(recordHeader), 16);
 		recordHeader.rewind();
 
-		// Read the TLS record
-		ByteBuffer recordData = ByteBuffer.allocateDirect(recordLength);
-		int ttl = read(recordData, false);
-		if (ttl < recordLength) {
-			while (ttl < recordLength) {
-				recordData.position(ttl);
-				ByteBuffer tmp = ByteBuffer.allocateDirect(recordLength - ttl);
-				ttl += read(tmp, false);
-				recordData.put(tmp);
+		// Read the TLS header and record into a single buffer
+		ByteBuffer tlsRecord = bufferPool.acquire(recordLength + recordHeader.limit());
+		try {
+			tlsRecord.put(recordHeader);
+			while (tlsRecord.hasRemaining()) {
+				connection.read(tlsRecord);
 			}
-			recordData.rewind();
-		}
-
-		// Merge the TLS header and record data into a single buffer
-		ByteBuffer tlsRecord = ByteBuffer.allocateDirect(recordLength + recordHeader.capacity());
-		tlsRecord.put(recordHeader);
-		tlsRecord.put(recordData);
-		tlsRecord.rewind();
-
-		// Decrypt the application data
-		byte[] arr = decrypt(tlsRecord);
-
-		// Clean up
-		recordHeader.clear();
-		recordData.clear();
-		tlsRecord.clear();
+			tlsRecord.flip();
 
-		recordHeader = recordData = tlsRecord = null;
+			// Decrypt the application data
+			return unwrap(tlsRecord);
 
-		// Return array
-		return arr;
+		} finally {
+			bufferPool.release(tlsRecord);
+			bufferPool.release(recordHeader);
+			recordHeader = null;
+		}
 	}
 
 	// **************************************************************************
@@ -1990,20 +1967,40 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 	 * Used to decrypt a TLS record.
 	 */
 	public byte[] decrypt(ByteBuffer tlsRecord) throws IOException {
-		ByteBuffer output = ByteBuffer.allocateDirect(tlsRecord.capacity());
-		SSLEngineResult serverResult = sslEngine.unwrap(tlsRecord, output);
-		runDelegatedTasks(serverResult, sslEngine);
-
-		byte[] arr = new byte[output.position()];
-		output.rewind();
+		ByteBuffer output = unwrap(tlsRecord);
+		byte[] arr = new byte[output.remaining()];
 		output.get(arr);
-
-		output.clear();
-		output = null;
-
+		bufferPool.release(output);
 		return arr;
 	}
 
+	// **************************************************************************
+	// ** unwrap
+	// **************************************************************************
+	/**
+	 * Used to decrypt one or more TLS records. Returns a buffer from the buffer
+	 * pool with the decrypted bytes between position and limit. The buffer
+	 * grows if the decrypted data does not fit.
+	 */
+	private ByteBuffer unwrap(ByteBuffer tlsRecord) throws IOException {
+		ByteBuffer output = bufferPool.acquire(Math.max(tlsRecord.remaining(), 512));
+		while (true) {
+			SSLEngineResult serverResult = sslEngine.unwrap(tlsRecord, output);
+			runDelegatedTasks(serverResult, sslEngine);
+			if (serverResult.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+				int size = Math.max(output.limit() * 2, sslEngine.getSession().getApplicationBufferSize());
+				output = bufferPool.grow(output, size);
+				continue;
+			}
+			if (serverResult.getStatus() == SSLEngineResult.Status.OK && tlsRecord.hasRemaining()
+			        && serverResult.bytesConsumed() > 0)
+				continue;
+			break;
+		}
+		output.flip();
+		return output;
+	}
+
 	// **************************************************************************
 	// ** printTLS
 	// **************************************************************************
@@ -2194,33 +2191,32 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 		if (decrypt) {
 
 			// Fill appData with the next TLS record
-			if (appData == null || (appData != null && (appData.position() == appData.capacity()))) {
-				byte[] arr = getApplicationData();
-				appData = ByteBuffer.allocateDirect(arr.length);
-				appData.put(arr);
-				appData.rewind();
+			if (appData == null || !appData.hasRemaining()) {
+				bufferPool.release(appData);
+				appData = null;
+				appData = getApplicationData();
 			}
 
-			if (buf.capacity() <= appData.remaining()) {
-				byte[] arr = new byte[buf.capacity()];
-				appData.get(arr);
-				buf.put(arr);
-				numBytesRead = arr.length;
-				arr = null;
+			if (buf.limit() <= appData.remaining()) {
+				int limit = appData.limit();
+				appData.limit(appData.position() + buf.limit());
+				buf.put(appData);
+				appData.limit(limit);
+				numBytesRead = buf.limit();
 			} else {
 
 				buf.put(appData);
-				while (buf.position() < buf.capacity()) {
+				while (buf.hasRemaining()) {
 
-					byte[] arr = getApplicationData();
-					appData = ByteBuffer.allocateDirect(arr.length);
-					appData.put(arr);
-					appData.rewind();
+					bufferPool.release(appData);
+					appData = null;
+					appData = getApplicationData();
 
 					if (buf.remaining() < appData.remaining()) {
-						arr = new byte[buf.remaining()];
-						appData.get(arr);
-						buf.put(arr);
+						int limit = appData.limit();
+						appData.limit(appData.position() + buf.remaining());
+						buf.put(appData);
+						appData.limit(limit);
 					} else {
 						buf.put(appData);
 					}
@@ -2229,7 +2225,18 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 				numBytesRead = buf.position();
 			}
 
+		} else if (appData != null && appData.hasRemaining()) {
+
+			// Return bytes that were read together with the header
+			numBytesRead = Math.min(buf.limit(), appData.remaining());
+			int limit = appData.limit();
+			appData.limit(appData.position() + numBytesRead);
+			buf.put(appData);
+			appData.limit(limit);
+
 		} else {
+			bufferPool.release(appData);
+			appData = null;
 			numBytesRead = connection.read(buf);
 		}
 
@@ -2237,6 +2244,27 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 		return numBytesRead;
 	}
 
+	// **************************************************************************
+	// ** fill
+	// **************************************************************************
+	/**
+	 * Used to replace the content of the input buffer (appData) with the next
+	 * bytes from the client. Waits until at least one byte is available.
+	 */
+	private void fill(boolean decrypt) throws IOException {
+		if (decrypt) {
+			bufferPool.release(appData);
+			appData = null;
+			appData = getApplicationData();
+		} else {
+			if (appData == null)
+				appData = bufferPool.acquire(inputBufferSize);
+			appData.clear();
+			connection.read(appData);
+			appData.flip();
+		}
+	}
+
 	// **************************************************************************
 	// ** nextByte
 	// **************************************************************************
@@ -2270,40 +2298,58 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 		 * encrypted data and handshake information. This buffer is filled with
 		 * data read from the socket and emptied by SSLEngine.unwrap()
 		 */
-		ByteBuffer inNetData = ByteBuffer.allocate(maxRecordSize);
+		recordHeader.position(3);
+		int recordLength = Integer.parseInt(getHex(recordHeader) + getHex(recordHeader), 16);
+		recordHeader.rewind();
+		int packetSize = sslEngine.getSession().getPacketBufferSize();
+		int appSize = sslEngine.getSession().getApplicationBufferSize();
+		ByteBuffer inNetData = bufferPool.acquire(Math.max(packetSize, recordLength + 5));
 
 		/**
 		 * Stores decrypted data received from the peer. This buffer is filled
 		 * by SSLEngine.unwrap() with decrypted application data and emptied by
 		 * the application.
 		 */
-		ByteBuffer inAppData = ByteBuffer.allocate(maxRecordSize);
+		ByteBuffer inAppData = bufferPool.acquire(appSize);
 
 		/**
 		 * Stores decrypted application data that is to be sent to the other
 		 * peer. The application fills this buffer, which is then emptied by
 		 * SSLEngine.wrap().
 		 */
-		ByteBuffer outAppData = ByteBuffer.allocate(maxRecordSize);
+		ByteBuffer outAppData = bufferPool.acquire(appSize);
 
 		/**
 		 * Stores data that is to be sent to the network, including handshake
 		 * and encrypted application data. This buffer is filled by
 		 * SSLEngine.wrap() and emptied by writing it to the network.
 		 */
-		ByteBuffer outNetData = ByteBuffer.allocate(maxRecordSize);
+		ByteBuffer outNetData = bufferPool.acquire(packetSize);
+
+		try {
+			handshake(recordLength, inNetData, inAppData, outAppData, outNetData);
+		} finally {
+			bufferPool.release(inNetData);
+			bufferPool.release(inAppData);
+			bufferPool.release(outAppData);
+			bufferPool.release(outNetData);
+		}
+	}
+
+	private void handshake(int recordLength, ByteBuffer inNetData, ByteBuffer inAppData, ByteBuffer outAppData,
+	        ByteBuffer outNetData) throws ServletException, IOException {
 
 		// Fill the inNetData buffer with client data from the socket. Remember
 		// that the first 5 bytes has already been read in the constructor.
 		inNetData.put(recordHeader);
-		recordHeader.position(3);
-		int recordLength = Integer.parseInt(getHex(recordHeader) + getHex(recordHeader), 16);
-		ByteBuffer temp = ByteBuffer.allocateDirect(recordLength);
+		ByteBuffer temp = bufferPool.acquire(recordLength);
 		read(temp, false);
 		temp.rewind();
 		inNetData.put(temp);
+		bufferPool.release(temp);
 		int inNetDataLength = inNetData.position();
-		inNetData.rewind();
+		inNetData.flip();
+		bufferPool.release(recordHeader);
 		recordHeader = null; // <--Null this out so we can process application
 		                     // data!
 
@@ -2321,7 +2367,8 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 			if (serverResult != null) {
 				inNetData.clear();
 				inNetDataLength = read(inNetData, false);
-				inNetData.rewind();
+				inNetData.position(inNetDataLength);
+				inNetData.flip();
 			}
 
 			printTLS(inNetData);
@@ -2337,7 +2384,8 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 				if ((status == HandshakeStatus.NEED_UNWRAP) && (inNetDataLength == inNetData.position())) {
 					inNetData.clear();
 					inNetDataLength = read(inNetData, false);
-					inNetData.rewind();
+					inNetData.position(inNetDataLength);
+					inNetData.flip();
 				}
 			}
 
@@ -2352,17 +2400,10 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 
 				printTLS(outNetData);
 
-				byte[] arr = new byte[len];
-				outNetData.rewind();
-				outNetData.get(arr);
+				outNetData.flip();
+				connection.write(outNetData, len);
 				outNetData.clear();
 
-				temp.clear();
-				temp = ByteBuffer.allocateDirect(arr.length);
-				temp.put(arr);
-				temp.flip();
-				connection.write(temp, temp.capacity());
-
 			} else {
 				log().t("Nothing to Send?");
 				throw new ServletException();
@@ -2421,23 +2462,30 @@ public class HttpServletRequest extends MLog implements javax.servlet.http.HttpS
 
 		buf.rewind();
 
-		ByteBuffer outNetData = ByteBuffer.allocate(maxRecordSize);
+		int packetSize = sslEngine.getSession().getPacketBufferSize();
+		ByteBuffer outNetData = bufferPool.acquire(packetSize);
 		SSLEngineResult serverResult = null;
 		HandshakeStatus status = HandshakeStatus.NEED_WRAP;
-		while (status == HandshakeStatus.NEED_WRAP) {
+		while (status == HandshakeStatus.NEED_WRAP || buf.hasRemaining()) {
 			serverResult = sslEngine.wrap(buf, outNetData);
 			log().t("server wrap", serverResult);
 			status = runDelegatedTasks(serverResult, sslEngine);
-		}
 
-		byte[] arr = new byte[serverResult.bytesProduced()];
-		outNetData.rewind();
-		outNetData.get(arr);
-		buf = ByteBuffer.allocate(arr.length);
-		buf.put(arr);
+			// Grow the output buffer if the record doesn't fit. The buffer may
+			// also hold several records if the input is larger than the
+			// maximum TLS record size.
+			if (serverResult.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+				outNetData = bufferPool.grow(outNetData, outNetData.limit() + packetSize);
+			} else if (serverResult.getStatus() == SSLEngineResult.Status.CLOSED) {
+				bufferPool.release(outNetData);
+				throw new IOException("SSLEngine is closed");
+			} else if (buf.hasRemaining() && outNetData.remaining() < packetSize) {
+				outNetData = bufferPool.grow(outNetData, outNetData.limit() + packetSize);
+			}
+		}
 
-		buf.rewind();
-		return buf;
+		outNetData.flip();
+		return outNetData;
 	}
 
 	// private void log(String str, SSLEngineResult result) {
@@ -8,6 +8,11 @@ import java.nio.ByteBuffer;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 import javaxt.http.Server.SocketConnection;
@@ -36,12 +41,15 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 	private static final String z = "GMT";
 	private static final TimeZone tz = TimeZone.getTimeZone(z);
 
-	private static final ByteBuffer CRLF = getCRLF();
+	private static final byte[] CRLF_BYTES = new byte[] { '\r', '\n' };
 	private String charSet = "UTF-8";
 	private java.util.Locale locale = java.util.Locale.getDefault();
 	private java.util.ArrayList<Cookie> cookies = new java.util.ArrayList<Cookie>();
 	private Long startRange, endRange;
 	private ServletOutputStream servletOutputStream;
+	private java.util.ArrayList<ByteBuffer> buffers = new java.util.ArrayList<ByteBuffer>();
+	private static volatile int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	private static volatile int minCompressionSize = 50;
 
 	// **************************************************************************
 	// ** Constructor
@@ -614,17 +622,12 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 			return;
 
 		// Check whether we can/should compress the output
-		boolean gzip = false;
-		if (compressOutput && bytes.length > 50) {
-			String acceptEncoding = request.getHeader("Accept-Encoding");
-			if (acceptEncoding != null) {
-				if (acceptEncoding.toLowerCase().contains("gzip")) {
-					gzip = true;
-				}
-			}
+		String encoding = null;
+		if (compressOutput && bytes.length > minCompressionSize) {
+			encoding = getCompressionType();
 		}
 
-		if (gzip) {
+		if (encoding != null) {
 
 			// If the input byte array is smaller than the bufferSize we can
 			// compress the entire array in a single step. Otherwise, we will
@@ -632,17 +635,7 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 			if (bytes.length <= bufferSize) {
 
 				// Compress the byte array
-				ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length);
-				GZIPOutputStream out = new GZIPOutputStream(bos, bytes.length);
-				out.write(bytes);
-				out.finish();
-				out.close();
-
-				bytes = bos.toByteArray();
-
-				bos.reset();
-				bos = null;
-				out = null;
+				bytes = CompressionOutputStream.compress(bytes, encoding, compressionLevel);
 
 				// Set content length. This is extremely important for
 				// persistant
@@ -651,42 +644,26 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 
 				// Ensure that the Content Encoding is correct and write the
 				// header
-				setHeader("Content-Encoding", "gzip");
+				setHeader("Content-Encoding", encoding);
+				setHeader("Vary", "Accept-Encoding");
 				writeHeader();
 
 				// Write the body
-				ByteBuffer output = ByteBuffer.allocateDirect(bytes.length);
-				output.put(bytes);
-				output.flip();
-				write(output, output.capacity());
-
-				output.clear();
-				output = null;
+				ByteBuffer output = getBufferPool().acquire(bytes.length);
+				try {
+					output.put(bytes);
+					output.flip();
+					write(output, bytes.length);
+				} finally {
+					getBufferPool().release(output);
+				}
 
 			} else { // Chunk the output
 
-				// Write header before sending the file contents. Ensure that
-				// the output is chunked and the content encoding is correct.
-				setHeader("Transfer-Encoding", "chunked");
-				setHeader("Content-Encoding", "gzip");
-				writeHeader();
-
 				// Incrementally compress the byte array and chunk the output
-				GZIPOutputStream out = new GZIPOutputStream(new ConnectionOutputStream(), bufferSize);
-				java.io.InputStream inputStream = new ByteArrayInputStream(bytes);
-				byte[] b = new byte[bufferSize];
-				int x = 0;
-				while ((x = inputStream.read(b)) != -1) {
-					out.write(b, 0, x);
-				}
-				inputStream.close();
-
-				out.finish();
+				CompressedResponseStream out = new CompressedResponseStream(encoding, 0);
+				out.write(bytes, 0, bytes.length);
 				out.close();
-
-				out = null;
-				b = null;
-
 			}
 		} else { // no compression
 
@@ -749,8 +726,8 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 	// **************************************************************************
 	/**
 	 * Used to write contents of a file into the response body. Automatically
-	 * compresses the file content if the client supports gzip compression. You
-	 * should only call this method once.
+	 * compresses the file content if the client supports gzip or deflate
+	 * compression. You should only call this method once.
 	 * 
 	 * @param fileName
 	 *            Optional file name used in the "Content-Disposition" header.
@@ -836,66 +813,445 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 			return;
 		}
 
-		// Check whether to compress the response
-		boolean gzip = false;
-		String acceptEncoding = request.getHeader("Accept-Encoding");
-		if (acceptEncoding != null) {
-			if (acceptEncoding.toLowerCase().contains("gzip")) {
-				gzip = true;
+		// Check whether to compress the response. Range requests are always
+		// served from the uncompressed file.
+		String encoding = null;
+		if (startRange == null && fileSize > minCompressionSize) {
+			encoding = getCompressionType();
+		}
+
+		// Use a pre-compressed version of the file if available
+		if ("gzip".equals(encoding)) {
+			java.io.File gzipFile = getCompressedFile(file);
+			if (gzipFile != null) {
+				setHeader("Content-Encoding", "gzip");
+				setHeader("Vary", "Accept-Encoding");
+				writeFile(gzipFile, gzipFile.length());
+				return;
 			}
 		}
 
 		// Dump file contents to servlet output stream
-		if (gzip) {
-
-			// Write header before sending the file contents. Ensure that the
-			// output is chunked and the content encoding is correct.
-			setHeader("Transfer-Encoding", "chunked");
-			setHeader("Content-Encoding", "gzip");
-			writeHeader();
+		if (encoding != null) {
 
-			GZIPOutputStream out = new GZIPOutputStream(new ConnectionOutputStream(), bufferSize);
+			CompressedResponseStream out = new CompressedResponseStream(encoding, 0);
 			java.io.InputStream inputStream = new java.io.FileInputStream(file);
-			byte[] b = new byte[bufferSize];
-			int x = 0;
-			while ((x = inputStream.read(b)) != -1) {
-				out.write(b, 0, x);
+			try {
+				byte[] b = new byte[bufferSize];
+				int x = 0;
+				while ((x = inputStream.read(b)) != -1) {
+					out.write(b, 0, x);
+				}
+			} finally {
+				inputStream.close();
 			}
-			inputStream.close();
-
-			out.finish();
 			out.close();
 
-			out = null;
-			b = null;
-
 		} else {
+			writeFile(file, fileSize);
+		}
+	}
 
-			// Write header before sending the file contents.
-			setContentLength(fileSize);
-			writeHeader();
+	// **************************************************************************
+	// ** writeFile
+	// **************************************************************************
+	/**
+	 * Used to send the contents of a file to the client, including the header.
+	 * Honors range requests (206 Partial Content). For unencrypted connections
+	 * the bytes are transferred from the file to the socket using
+	 * FileChannel.transferTo() without copying them into the heap.
+	 */
+	private void writeFile(java.io.File file, long fileSize) throws IOException {
 
-			// Send the contents of a file to the client
-			java.io.FileInputStream is = new java.io.FileInputStream(file);
-			java.nio.channels.FileChannel inputStream = is.getChannel();
+		// Write header before sending the file contents. The header is used to
+		// validate the requested range and to update the status code.
+		setContentLength(fileSize);
+		writeHeader();
+		if (getStatus() == 416 || request.getMethod().equals("HEAD"))
+			return;
 
-			ByteBuffer buf = ByteBuffer.allocateDirect(bufferSize);
+		long position = 0;
+		long count = fileSize;
+		if (startRange != null) {
+			position = startRange;
+			if (endRange != null)
+				count = (endRange + 1) - startRange;
+			else
+				count = fileSize - startRange;
 
-			while (inputStream.read(buf) > -1) {
-				writeChunk(buf);
-				buf.clear();
-				buf.rewind();
-			}
+			// The range is handled here. Don't apply it again in write().
+			startRange = endRange = null;
+		}
 
+		java.io.FileInputStream is = new java.io.FileInputStream(file);
+		java.nio.channels.FileChannel inputStream = is.getChannel();
+		try {
+			if (!request.isEncrypted()) {
+				connection.transferFrom(inputStream, position, count);
+			} else {
+				ByteBuffer buf = getBufferPool().acquire(bufferSize);
+				try {
+					inputStream.position(position);
+					while (count > 0) {
+						buf.clear();
+						buf.limit((int) Math.min(count, bufferSize));
+						int x = inputStream.read(buf);
+						if (x < 0)
+							break;
+						count -= x;
+						buf.flip();
+						write(buf, x);
+					}
+				} finally {
+					getBufferPool().release(buf);
+				}
+			}
+		} finally {
 			inputStream.close();
 			is.close();
+		}
+	}
 
-			inputStream = null;
-			is = null;
+	/** Directory used to cache gzip compressed files. Disabled by default. */
+	private static java.io.File compressionCacheDirectory;
+
+	// **************************************************************************
+	// ** setCompressionCacheDirectory
+	// **************************************************************************
+	/**
+	 * Used to set the directory where gzip compressed versions of static files
+	 * are cached. The cache is disabled by default, or if the directory is
+	 * null. Files are compressed once, in the background, and reused until the
+	 * modification date or size of the source file changes. Until then,
+	 * responses are compressed on the fly.
+	 * <p>
+	 * The cached files are sent to clients as-is so the directory must not be
+	 * writable by other users. If the directory doesn't exist, it is created
+	 * with read/write access for the owner only. On file systems with POSIX
+	 * permissions, the cache is not used if the directory is owned by another
+	 * user or if other users can write to it.
+	 */
+	public static synchronized void setCompressionCacheDirectory(java.io.File dir) {
+		compressionCacheDirectory = dir;
+		checkedCacheDirectory = null;
+	}
+
+	public static java.io.File getCompressionCacheDirectory() {
+		return compressionCacheDirectory;
+	}
 
+	// **************************************************************************
+	// ** setCompressionLevel
+	// **************************************************************************
+	/**
+	 * Used to set the compression level (0-9) used to compress response
+	 * bodies. Lower levels are faster, higher levels produce smaller output.
+	 * The default is -1 (Deflater.DEFAULT_COMPRESSION).
+	 */
+	public static void setCompressionLevel(int level) {
+		if (level < -1 || level > 9)
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		compressionLevel = level;
+	}
+
+	public static int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	// **************************************************************************
+	// ** setMinCompressionSize
+	// **************************************************************************
+	/**
+	 * Used to set the minimum size of a response body, in bytes, before it is
+	 * compressed. Smaller responses are sent uncompressed. The default is 50
+	 * bytes.
+	 */
+	public static void setMinCompressionSize(int size) {
+		minCompressionSize = size;
+	}
+
+	public static int getMinCompressionSize() {
+		return minCompressionSize;
+	}
+
+	// **************************************************************************
+	// ** getCompressionType
+	// **************************************************************************
+	/**
+	 * Returns the content encoding used to compress the response body. Returns
+	 * "gzip" or "deflate", depending on the "Accept-Encoding" request header.
+	 * Returns null if the client doesn't support compression.
+	 */
+	private String getCompressionType() {
+		String acceptEncoding = request.getHeader("Accept-Encoding");
+		if (acceptEncoding == null)
+			return null;
+
+		boolean deflate = false;
+		for (String str : acceptEncoding.split(",")) {
+			String[] arr = str.split(";");
+			String encoding = arr[0].trim().toLowerCase();
+
+			// Skip encodings the client has explicitly disabled (q=0)
+			boolean disabled = false;
+			for (int i = 1; i < arr.length; i++) {
+				String s = arr[i].trim();
+				if (s.startsWith("q=")) {
+					try {
+						disabled = Double.parseDouble(s.substring(2).trim()) <= 0;
+					} catch (NumberFormatException e) {
+					}
+				}
+			}
+			if (disabled)
+				continue;
+
+			if (encoding.equals("gzip") || encoding.equals("x-gzip"))
+				return "gzip";
+			if (encoding.equals("deflate"))
+				deflate = true;
+		}
+		return deflate ? "deflate" : null;
+	}
+
+	// **************************************************************************
+	// ** getCompressedFile
+	// **************************************************************************
+	/**
+	 * Returns a gzip compressed version of the given file. Uses a ".gz" file
+	 * next to the file if it is newer than the file itself. Otherwise the file
+	 * is looked up in the compression cache directory. Files that are not in
+	 * the cache yet are compressed in the background so the request thread
+	 * doesn't have to wait. Returns null if no compressed version is available
+	 * (yet).
+	 */
+	private static java.io.File getCompressedFile(java.io.File file) {
+
+		java.io.File gzipFile = new java.io.File(file.getPath() + ".gz");
+		if (gzipFile.isFile() && gzipFile.lastModified() >= file.lastModified())
+			return gzipFile;
+
+		java.io.File dir = compressionCacheDirectory;
+		if (dir == null || !isPrivateDirectory(dir))
+			return null;
+
+		try {
+
+			// Cached files are keyed on the path, size and date of the file
+			String prefix = getHash(file.getAbsolutePath()) + "-";
+			String name = prefix + file.length() + "-" + file.lastModified() + ".gz";
+			gzipFile = new java.io.File(dir, name);
+			if (gzipFile.isFile())
+				return gzipFile;
+
+			// Compress the file in the background, unless it is already
+			// being compressed
+			if (pendingCompressions.putIfAbsent(gzipFile, Boolean.TRUE) == null) {
+				try {
+					getCompressionExecutor().execute(new Compression(file, gzipFile, prefix));
+				} catch (RuntimeException e) {
+					pendingCompressions.remove(gzipFile);
+				}
+			}
+			return null;
+
+		} catch (Exception e) {
+			return null;
 		}
 	}
 
+	// **************************************************************************
+	// ** isPrivateDirectory
+	// **************************************************************************
+	/**
+	 * Used to check whether the compression cache directory can be trusted.
+	 * Creates the directory, with access for the owner only, if it doesn't
+	 * exist. Returns false if the path is not a directory (e.g. a symbolic
+	 * link), is owned by another user, or is writable by the group or other
+	 * users. The result is remembered until the directory changes.
+	 */
+	private static synchronized boolean isPrivateDirectory(java.io.File dir) {
+		if (dir.equals(checkedCacheDirectory))
+			return isCacheDirectoryPrivate;
+
+		boolean isPrivate = false;
+		try {
+			java.nio.file.Path path = dir.toPath();
+			boolean posix = path.getFileSystem().supportedFileAttributeViews().contains("posix");
+			if (!java.nio.file.Files.exists(path, java.nio.file.LinkOption.NOFOLLOW_LINKS)) {
+				if (posix) {
+					java.nio.file.Files.createDirectories(path, java.nio.file.attribute.PosixFilePermissions
+					        .asFileAttribute(java.nio.file.attribute.PosixFilePermissions.fromString("rwx------")));
+				} else {
+					java.nio.file.Files.createDirectories(path);
+				}
+			}
+
+			if (java.nio.file.Files.isDirectory(path, java.nio.file.LinkOption.NOFOLLOW_LINKS)) {
+				if (posix) {
+					String owner = java.nio.file.Files.getOwner(path, java.nio.file.LinkOption.NOFOLLOW_LINKS).getName();
+					java.util.Set<java.nio.file.attribute.PosixFilePermission> permissions = java.nio.file.Files
+					        .getPosixFilePermissions(path, java.nio.file.LinkOption.NOFOLLOW_LINKS);
+					isPrivate = owner.equals(System.getProperty("user.name"))
+					        && !permissions.contains(java.nio.file.attribute.PosixFilePermission.GROUP_WRITE)
+					        && !permissions.contains(java.nio.file.attribute.PosixFilePermission.OTHERS_WRITE);
+				} else {
+					isPrivate = true;
+				}
+			}
+		} catch (Exception e) {
+		}
+
+		checkedCacheDirectory = dir;
+		isCacheDirectoryPrivate = isPrivate;
+		return isPrivate;
+	}
+
+	private static java.io.File checkedCacheDirectory;
+	private static boolean isCacheDirectoryPrivate;
+
+	/** Files that are currently compressed into the compression cache. */
+	private static final ConcurrentHashMap<java.io.File, Boolean> pendingCompressions = new ConcurrentHashMap<java.io.File, Boolean>();
+
+	/**
+	 * Names of the files in the compression cache, keyed on the hash of the
+	 * source path. Guarded by the map. Loaded from the cache directory once.
+	 */
+	private static final java.util.HashMap<String, String> cachedFiles = new java.util.HashMap<String, String>();
+	private static java.io.File cachedFilesDirectory;
+
+	private static ExecutorService compressionExecutor;
+
+	private static synchronized ExecutorService getCompressionExecutor() {
+		if (compressionExecutor == null) {
+			compressionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "javaxt-gzip-cache");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return compressionExecutor;
+	}
+
+	// **************************************************************************
+	// ** Compression
+	// **************************************************************************
+	/**
+	 * Used to compress a file into the compression cache. Outdated versions of
+	 * the file are removed from the cache.
+	 */
+	private static class Compression implements Runnable {
+
+		private final java.io.File file;
+		private final java.io.File gzipFile;
+		private final String prefix;
+
+		private Compression(java.io.File file, java.io.File gzipFile, String prefix) {
+			this.file = file;
+			this.gzipFile = gzipFile;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public void run() {
+			try {
+				java.io.File dir = gzipFile.getParentFile();
+				if (!dir.isDirectory() && !dir.mkdirs())
+					return;
+
+				// Compress the file into a temp file and move it into place
+				java.io.File tmp = java.io.File.createTempFile(prefix, ".tmp", dir);
+				try {
+					java.io.InputStream inputStream = new java.io.FileInputStream(file);
+					GZIPOutputStream out = new GZIPOutputStream(new java.io.FileOutputStream(tmp), 8192);
+					try {
+						byte[] b = new byte[8192];
+						int x = 0;
+						while ((x = inputStream.read(b)) != -1) {
+							out.write(b, 0, x);
+						}
+						out.finish();
+					} finally {
+						inputStream.close();
+						out.close();
+					}
+					if (!tmp.renameTo(gzipFile) && !gzipFile.isFile())
+						return;
+				} finally {
+					tmp.delete();
+				}
+
+				// Remove the outdated version of the file
+				String previous;
+				synchronized (cachedFiles) {
+					loadCachedFiles(dir);
+					previous = cachedFiles.put(prefix, gzipFile.getName());
+				}
+				if (previous != null && !previous.equals(gzipFile.getName()))
+					new java.io.File(dir, previous).delete();
+
+			} catch (Exception e) {
+			} finally {
+				pendingCompressions.remove(gzipFile);
+			}
+		}
+	}
+
+	// **************************************************************************
+	// ** loadCachedFiles
+	// **************************************************************************
+	/**
+	 * Used to read the names of the files in the compression cache directory.
+	 * The directory is only listed once (or when the directory changes).
+	 * Afterwards the entries are tracked as files are added to the cache. If a
+	 * directory contains several versions of a file, only the newest one is
+	 * kept. Called while holding the lock on cachedFiles.
+	 */
+	private static void loadCachedFiles(java.io.File dir) {
+		if (dir.equals(cachedFilesDirectory))
+			return;
+
+		cachedFiles.clear();
+		cachedFilesDirectory = dir;
+		java.io.File[] files = dir.listFiles();
+		if (files == null)
+			return;
+
+		for (java.io.File f : files) {
+			String name = f.getName();
+			int idx = name.indexOf('-');
+			if (idx < 0 || !name.endsWith(".gz"))
+				continue;
+
+			String key = name.substring(0, idx + 1);
+			String previous = cachedFiles.get(key);
+			if (previous == null) {
+				cachedFiles.put(key, name);
+			} else {
+				java.io.File p = new java.io.File(dir, previous);
+				if (f.lastModified() > p.lastModified()) {
+					cachedFiles.put(key, name);
+					p.delete();
+				} else {
+					f.delete();
+				}
+			}
+		}
+	}
+
+	private static String getHash(String str) throws Exception {
+		java.security.MessageDigest md = java.security.MessageDigest.getInstance("SHA-1");
+		byte[] digest = md.digest(str.getBytes("UTF-8"));
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
 	// **************************************************************************
 	// ** write
 	// **************************************************************************
@@ -915,28 +1271,22 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 			return;
 
 		// Check whether we can/should compress the output
-		boolean gzip = false;
+		String encoding = null;
 		if (compressOutput) {
-			String acceptEncoding = request.getHeader("Accept-Encoding");
-			if (acceptEncoding != null) {
-				if (acceptEncoding.toLowerCase().contains("gzip")) {
-					gzip = true;
-				}
-			}
+			encoding = getCompressionType();
 		}
 
-		// Write header before sending the file contents.
-		setHeader("Transfer-Encoding", "chunked");
-		if (gzip)
-			setHeader("Content-Encoding", "gzip");
-		writeHeader();
-
-		// Write body. Compress as needed.
+		// Write body. Compress as needed. Note that the compressed stream
+		// writes the header once it knows whether the body is big enough to
+		// be compressed.
 		java.io.OutputStream out;
-		if (gzip)
-			out = new GZIPOutputStream(new ConnectionOutputStream(), bufferSize);
-		else
+		if (encoding != null) {
+			out = new CompressedResponseStream(encoding, minCompressionSize);
+		} else {
+			setHeader("Transfer-Encoding", "chunked");
+			writeHeader();
 			out = new ConnectionOutputStream();
+		}
 		byte[] b = new byte[bufferSize];
 		int x = 0;
 		while ((x = inputStream.read(b)) != -1) {
@@ -983,12 +1333,36 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 	 */
 	@Override
 	public ServletOutputStream getOutputStream() throws IOException {
-		writeHeader();
-		if (servletOutputStream == null)
+		if (servletOutputStream == null) {
+			writeHeader();
 			servletOutputStream = new ServletOutputStream(new ConnectionOutputStream());
+		}
 		return servletOutputStream;
 	}
 
+	// **************************************************************************
+	// ** getOutputStream
+	// **************************************************************************
+	/**
+	 * Returns an output stream for writing the body of an http response. If
+	 * compressOutput is true and the client supports gzip or deflate
+	 * compression, the bytes are compressed as they are written and sent to
+	 * the client using chunked transfer encoding. Responses smaller than the
+	 * minimum compression size are sent uncompressed. Call flush() to send the
+	 * bytes compressed so far to the client.
+	 */
+	public ServletOutputStream getOutputStream(boolean compressOutput) throws IOException {
+		if (servletOutputStream == null && compressOutput && !isCommitted()) {
+			String encoding = getCompressionType();
+			if (encoding != null) {
+				servletOutputStream = new ServletOutputStream(
+				        new CompressedResponseStream(encoding, minCompressionSize));
+				return servletOutputStream;
+			}
+		}
+		return getOutputStream();
+	}
+
 	// **************************************************************************
 	// ** getWriter
 	// **************************************************************************
@@ -1000,6 +1374,17 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 		return new java.io.PrintWriter(this.getOutputStream());
 	}
 
+	// **************************************************************************
+	// ** getWriter
+	// **************************************************************************
+	/**
+	 * Returns a PrintWriter object that can send character text to the client.
+	 * See getOutputStream(boolean) for details on the compressOutput option.
+	 */
+	public java.io.PrintWriter getWriter(boolean compressOutput) throws IOException {
+		return new java.io.PrintWriter(this.getOutputStream(compressOutput));
+	}
+
 	// **************************************************************************
 	// ** ConnectionOutputStream
 	// **************************************************************************
@@ -1009,135 +1394,243 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 	 * support incremental GZIP compression but is used in other places as well.
 	 */
 	protected class ConnectionOutputStream extends java.io.OutputStream {
-		private ByteBuffer buf = ByteBuffer.allocateDirect(bufferSize);
+		private ByteBuffer buf = getBufferPool().acquire(bufferSize);
 
 		public ConnectionOutputStream() {
+			buffers.add(buf);
 		}
 
+		private boolean closed = false;
+
 		@Override
 		public void write(int b) throws IOException {
 
 			buf.put((byte) b);
-			buf.position(buf.position());
 
-			if (buf.position() == buf.capacity()) {
-				writeChunk(buf);
+			if (!buf.hasRemaining()) {
+				writeChunk(buf, false);
 				buf.clear();
-				buf.rewind();
 			}
 		}
 
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				int n = Math.min(len, buf.remaining());
+				buf.put(b, off, n);
+				off += n;
+				len -= n;
+
+				if (!buf.hasRemaining()) {
+					writeChunk(buf, false);
+					buf.clear();
+				}
+			}
+		}
+
+		/**
+		 * Sends the buffered bytes to the client. If the output is chunked,
+		 * the bytes are sent as a chunk without ending the response.
+		 */
 		@Override
 		public void flush() throws IOException {
-			close();
+			if (buf.position() > 0) {
+				writeChunk(buf, false);
+				buf.clear();
+			}
 		}
 
+		/**
+		 * Sends the buffered bytes to the client. If the output is chunked,
+		 * the last chunk is sent as well.
+		 */
 		@Override
 		public void close() throws IOException {
-			if (buf.position() > 0) {
-				writeChunk(buf);
+			if (closed)
+				return;
+			closed = true;
+			if (buf.position() > 0 || isChunked()) {
+				writeChunk(buf, true);
 				buf.clear();
-				buf.rewind();
 			}
 		}
 	}
 
 	// **************************************************************************
-	// ** writeChunk
+	// ** CompressedResponseStream
 	// **************************************************************************
 	/**
-	 * Writes a "chunk" of data to the client. Transparently wraps the bytes
-	 * into "chunked" transfer format as needed.
+	 * OutputStream used to compress the response body as it is written. The
+	 * response header is written as soon as the number of bytes written to the
+	 * stream exceeds the given minimum size. If the stream is closed before,
+	 * the bytes are sent uncompressed with a "Content-Length" header instead.
 	 */
-	private void writeChunk(ByteBuffer buf) throws IOException {
+	protected class CompressedResponseStream extends java.io.OutputStream {
+		private String encoding;
+		private int minSize;
+		private ByteArrayOutputStream head;
+		private CompressionOutputStream out;
+		private byte[] oneByte = new byte[1];
+		private boolean closed = false;
 
-		// Late check to see if we should chunk the output
-		if (chunked == null) {
-			String TransferEncoding = getHeader("Transfer-Encoding");
-			chunked = (TransferEncoding != null ? TransferEncoding.equalsIgnoreCase("chunked") : false);
+		public CompressedResponseStream(String encoding, int minSize) throws IOException {
+			this.encoding = encoding;
+			this.minSize = minSize;
+			setHeader("Vary", "Accept-Encoding");
+			if (minSize > 0)
+				head = new ByteArrayOutputStream(minSize + 1);
+			else
+				start();
 		}
 
-		if (buf.position() == buf.capacity()) { // Send all the bytes to the
-		                                        // client
+		private void start() throws IOException {
+			setHeader("Content-Length", null);
+			setHeader("Transfer-Encoding", "chunked");
+			setHeader("Content-Encoding", encoding);
+			writeHeader();
+			out = new CompressionOutputStream(new ConnectionOutputStream(), encoding, compressionLevel, bufferSize);
+			if (head != null) {
+				head.writeTo(out);
+				head = null;
+			}
+		}
 
-			if (chunked) {
+		@Override
+		public void write(int b) throws IOException {
+			oneByte[0] = (byte) b;
+			write(oneByte, 0, 1);
+		}
 
-				// Create new byte buffer and insert chunk header
-				ByteBuffer sz = getBuffer(buf.position());
-				int len = sz.capacity() + 2 + buf.capacity() + 2;
-				ByteBuffer b = ByteBuffer.allocateDirect(len);
-				b.put(sz);
-				b.put(CRLF);
-				CRLF.rewind();
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed)
+				throw new IOException("Stream is closed.");
+			if (out == null) {
+				head.write(b, off, len);
+				if (head.size() > minSize)
+					start();
+			} else {
+				out.write(b, off, len);
+			}
+		}
 
-				// Insert bytes
-				buf.rewind();
-				b.put(buf);
+		@Override
+		public void flush() throws IOException {
+			if (closed)
+				return;
+			if (out == null) {
+				if (head.size() == 0)
+					return;
+				start();
+			}
+			out.flush();
+		}
 
-				// Insert chunk delimitor
-				b.put(CRLF);
-				CRLF.rewind();
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
 
-				// Send buffer to client
-				b.rewind();
-				write(b, b.capacity());
-				b.clear();
+			if (out == null) {
 
+				// Not enough bytes to compress. Send the bytes as is.
+				byte[] bytes = head.toByteArray();
+				head = null;
+				setContentLength(bytes.length);
+				writeHeader();
+				ConnectionOutputStream out = new ConnectionOutputStream();
+				out.write(bytes, 0, bytes.length);
+				out.close();
 			} else {
-				buf.rewind();
-				write(buf, buf.capacity());
+				out.close();
 			}
-		} else { // Buffer is only partially filled. This is our queue that
-		         // we're
-		         // done sending bytes to the client.
+		}
+	}
 
-			// Trim the byte buffer
-			byte[] arr = new byte[buf.position()];
-			buf.rewind();
-			buf.get(arr);
-			buf = ByteBuffer.allocateDirect(arr.length);
-			buf.put(arr);
-			arr = null;
-
-			if (chunked) {
-
-				// Create new byte buffer and insert chunk header
-				ByteBuffer sz = getBuffer(buf.position());
-				ByteBuffer z = getBuffer(0);
-				int len = sz.capacity() + 2 + buf.capacity() + 2 + z.capacity() + 4;
-				ByteBuffer b = ByteBuffer.allocateDirect(len);
+	// **************************************************************************
+	// ** writeChunk
+	// **************************************************************************
+	/**
+	 * Writes a "chunk" of data to the client. Transparently wraps the bytes
+	 * into "chunked" transfer format as needed.
+	 *
+	 * @param isLastChunk
+	 *            If true, the zero-length chunk that marks the end of the body
+	 *            is sent after the bytes.
+	 */
+	private void writeChunk(ByteBuffer buf, boolean isLastChunk) throws IOException {
+
+		int length = buf.position();
+		buf.flip();
+
+		if (isChunked()) {
+
+			// Send the terminating chunk only
+			if (length == 0) {
+				if (isLastChunk) {
+					ByteBuffer b = getBufferPool().acquire(5);
+					try {
+						b.put((byte) '0');
+						b.put(CRLF_BYTES);
+						b.put(CRLF_BYTES);
+						b.flip();
+						write(b, 5);
+					} finally {
+						getBufferPool().release(b);
+					}
+					chunked = null;
+				}
+				return;
+			}
+
+			// Create new byte buffer and insert chunk header
+			byte[] sz = Integer.toHexString(length).getBytes();
+			int len = sz.length + 2 + length + 2 + (isLastChunk ? 5 : 0);
+			ByteBuffer b = getBufferPool().acquire(len);
+			try {
 				b.put(sz);
-				sz.clear();
-				b.put(CRLF);
-				CRLF.rewind();
+				b.put(CRLF_BYTES);
 
 				// Insert bytes
-				buf.rewind();
 				b.put(buf);
 
-				// Insert chunk delimitor and a zero-length last chunk: "0\r\n"
-				// and the final "\r\n".
-				b.put(CRLF);
-				CRLF.rewind();
-				b.put(z);
-				z.clear();
-				b.put(CRLF);
-				CRLF.rewind();
-				b.put(CRLF);
-				CRLF.rewind();
+				// Insert chunk delimitor. If this is the last chunk, add a
+				// zero-length last chunk: "0\r\n" and the final "\r\n".
+				b.put(CRLF_BYTES);
+				if (isLastChunk) {
+					b.put((byte) '0');
+					b.put(CRLF_BYTES);
+					b.put(CRLF_BYTES);
+				}
 
 				// Send buffer to client
-				b.rewind();
-				write(b, b.capacity());
-				b.clear();
-			} else {
-				buf.rewind();
-				write(buf, buf.capacity());
+				b.flip();
+				write(b, len);
+			} finally {
+				getBufferPool().release(b);
 			}
 
+		} else {
+			write(buf, length);
+		}
+
+		if (isLastChunk)
 			chunked = null;
+	}
 
+	// **************************************************************************
+	// ** isChunked
+	// **************************************************************************
+	/**
+	 * Late check to see if we should chunk the output.
+	 */
+	private boolean isChunked() {
+		if (chunked == null) {
+			String TransferEncoding = getHeader("Transfer-Encoding");
+			chunked = (TransferEncoding != null ? TransferEncoding.equalsIgnoreCase("chunked") : false);
 		}
+		return chunked;
 	}
 
 	/** Total bytes processed before writing the response body. */
@@ -1211,42 +1704,19 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 		}
 
 		if (request.isEncrypted()) {
-			buf = request.wrap(buf);
-			length = buf.capacity();
+			ByteBuffer output = request.wrap(buf);
+			try {
+				connection.write(output, output.limit());
+			} finally {
+				getBufferPool().release(output);
+			}
+			return;
 		}
 		connection.write(buf, length);
 	}
 
-	// **************************************************************************
-	// ** getBuffer
-	// **************************************************************************
-	/**
-	 * Converts an integer into a ByteBuffer.
-	 */
-	private ByteBuffer getBuffer(int i) throws IOException {
-		char[] chars = Integer.toHexString(i).toCharArray();
-		ByteBuffer buf = ByteBuffer.allocateDirect(chars.length);
-		for (char c : chars) {
-			buf.put((byte) c);
-			buf.position(buf.position());
-		}
-		buf.rewind();
-		chars = null;
-		return buf;
-	}
-
-	// **************************************************************************
-	// ** getCRLF
-	// **************************************************************************
-	/**
-	 * Used to create and fill a ByteBuffer with a Carriage Return (CR) and Line
-	 * Feed (LF).
-	 */
-	private static ByteBuffer getCRLF() {
-		ByteBuffer buf = ByteBuffer.allocateDirect(2);
-		buf.put("\r\n".getBytes());
-		buf.rewind();
-		return buf;
+	private javaxt.http.BufferPool getBufferPool() {
+		return connection.getBufferPool();
 	}
 
 	// **************************************************************************
@@ -1273,12 +1743,14 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 		else {
 
 			byte[] header = getHeader().getBytes(charSet);
-			ByteBuffer output = ByteBuffer.allocateDirect(header.length);
-			output.put(header);
-			output.flip();
-			write(output, output.capacity());
-			output.clear();
-			output = null;
+			ByteBuffer output = getBufferPool().acquire(header.length);
+			try {
+				output.put(header);
+				output.flip();
+				write(output, header.length);
+			} finally {
+				getBufferPool().release(output);
+			}
 
 			writeHeader = false;
 		}
@@ -1384,6 +1856,22 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 		return header.toString();
 	}
 
+	// **************************************************************************
+	// ** isKeepAlive
+	// **************************************************************************
+	/**
+	 * Returns true if the response header allows the client to reuse the
+	 * connection. Note that the "Connection" header is set to "Close" when the
+	 * header is written without a "Content-Length" and chunked output is not
+	 * used.
+	 */
+	public boolean isKeepAlive() {
+		if (headers == null)
+			return false;
+		String connType = getHeader("Connection");
+		return (connType != null ? connType.equalsIgnoreCase("Keep-Alive") : false);
+	}
+
 	// **************************************************************************
 	// ** toString
 	// **************************************************************************
@@ -1522,6 +2010,12 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 			request.clear();
 			request = null;
 		}
+
+		// Return buffers used by output streams to the pool
+		for (ByteBuffer buf : buffers) {
+			getBufferPool().release(buf);
+		}
+		buffers.clear();
 	}
 
 	// **************************************************************************
@@ -1532,11 +2026,13 @@ public class HttpServletResponse implements javax.servlet.http.HttpServletRespon
 	 * this method automatically commits the response, meaning the status code
 	 * and headers will be written. This method is called automatically after
 	 * each http request to free up server resources. You do not need to call
-	 * this method explicitly from your application.
+	 * this method explicitly from your application. If an output stream is
+	 * open, the header is left to the stream. A compressed stream may still
+	 * hold the body and writes the header when it is closed.
 	 */
 	@Override
 	public void flushBuffer() {
-		if (writeHeader && headers != null) {
+		if (writeHeader && headers != null && servletOutputStream == null) {
 			try {
 				setContentLength(0);
 				writeHeader();
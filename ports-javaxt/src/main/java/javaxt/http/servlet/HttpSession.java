@@ -1,5 +1,6 @@
 package javaxt.http.servlet;
 
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -13,42 +14,94 @@ import javax.servlet.http.HttpSessionContext;
  * multiple page requests/visits.
  *
  * Note that this server uses cookies to manage sessions.
+ * <p/>
+ * Sessions are kept in a SessionStore. By default, sessions are kept in memory
+ * and are removed after 30 minutes of inactivity (see MemorySessionStore).
  *
  ******************************************************************************/
 
-public class HttpSession implements javax.servlet.http.HttpSession {
+public class HttpSession implements javax.servlet.http.HttpSession, java.io.Serializable {
 
-	private static final ConcurrentHashMap<String, HttpSession> sessions = new ConcurrentHashMap<String, HttpSession>();
+	private static final long serialVersionUID = 1L;
 
-	private static final ConcurrentHashMap<String, Object> map = new ConcurrentHashMap<String, Object>();
+	private static final java.security.SecureRandom random = new java.security.SecureRandom();
+	private static volatile SessionStore store;
+	private static volatile int defaultMaxInactiveInterval = 30 * 60; // 30 minutes
+
+	private final ConcurrentHashMap<String, Object> map = new ConcurrentHashMap<String, Object>();
 
 	private String sessionID;
-	private long lastAccessTime = -1;
+	private volatile long lastAccessTime = -1;
 	private long creationTime;
+	private volatile int maxInactiveInterval = defaultMaxInactiveInterval;
 
 	// **************************************************************************
 	// ** Constructor
 	// **************************************************************************
 	/**
-	 * Creates a new session and adds it to the list of active sessions.
+	 * Creates a new session and adds it to the session store.
 	 */
 	protected HttpSession() {
-
-		// Create new session and add it to the list of active sessions
-		while (true) {
+		SessionStore store = getSessionStore();
+		creationTime = System.currentTimeMillis();
+		do {
 			sessionID = CreateID(28);
-			synchronized (sessions) {
-				if (sessions.get(sessionID) == null) {
-					creationTime = new java.util.Date().getTime();
-					sessions.put(sessionID, this);
-					sessions.notifyAll();
-					break;
+		} while (!store.add(this));
+	}
+
+	// **************************************************************************
+	// ** setSessionStore
+	// **************************************************************************
+	/**
+	 * Used to replace the store used to keep track of sessions (e.g. with an
+	 * off-heap or file-backed store). The current store is closed. Sessions in
+	 * the current store are not copied to the new store.
+	 */
+	public static void setSessionStore(SessionStore sessionStore) {
+		SessionStore prevStore;
+		synchronized (HttpSession.class) {
+			prevStore = store;
+			store = sessionStore;
+		}
+		if (prevStore != null && prevStore != sessionStore)
+			prevStore.close();
+	}
+
+	// **************************************************************************
+	// ** getSessionStore
+	// **************************************************************************
+	/**
+	 * Returns the store used to keep track of sessions. Creates a
+	 * MemorySessionStore if no store has been set.
+	 */
+	public static SessionStore getSessionStore() {
+		SessionStore s = store;
+		if (s == null) {
+			synchronized (HttpSession.class) {
+				s = store;
+				if (s == null) {
+					s = new MemorySessionStore();
+					store = s;
 				}
 			}
 		}
+		return s;
+	}
 
-		// TODO: Create timer task to periodically clean up old sessions
+	// **************************************************************************
+	// ** setDefaultMaxInactiveInterval
+	// **************************************************************************
+	/**
+	 * Used to set the max inactive interval, in seconds, of new sessions. A
+	 * value of 0 or less means that sessions never expire. The default is 30
+	 * minutes.
+	 */
+	public static void setDefaultMaxInactiveInterval(int interval) {
+		defaultMaxInactiveInterval = interval;
+	}
 
+	public static int getDefaultMaxInactiveInterval() {
+		return defaultMaxInactiveInterval;
 	}
 
 	// **************************************************************************
@@ -118,11 +171,7 @@ public class HttpSession implements javax.servlet.http.HttpSession {
 	 */
 	@Override
 	public Object getAttribute(String name) {
-		Object val = null;
-		synchronized (map) {
-			val = map.get(name);
-		}
-		return val;
+		return map.get(name);
 	}
 
 	// **************************************************************************
@@ -133,10 +182,12 @@ public class HttpSession implements javax.servlet.http.HttpSession {
 	 */
 	@Override
 	public void setAttribute(String name, Object value) {
-		synchronized (map) {
-			map.put(name, value);
-			map.notifyAll();
+		if (value == null) {
+			removeAttribute(name);
+			return;
 		}
+		map.put(name, value);
+		getSessionStore().update(this);
 	}
 
 	// **************************************************************************
@@ -145,10 +196,8 @@ public class HttpSession implements javax.servlet.http.HttpSession {
 	/** Removes the attribute with the given name from the servlet context. */
 	@Override
 	public void removeAttribute(String name) {
-		synchronized (map) {
-			map.remove(name);
-			map.notifyAll();
-		}
+		if (map.remove(name) != null)
+			getSessionStore().update(this);
 	}
 
 	// **************************************************************************
@@ -159,34 +208,47 @@ public class HttpSession implements javax.servlet.http.HttpSession {
 	 */
 	@Override
 	public void invalidate() {
-		synchronized (sessions) {
-			sessions.remove(sessionID);
-			sessions.notifyAll();
-		}
-		synchronized (map) {
-			map.clear();
-			map.notifyAll();
-		}
+		getSessionStore().remove(sessionID);
+		map.clear();
+	}
+
+	// **************************************************************************
+	// ** isExpired
+	// **************************************************************************
+	/**
+	 * Returns true if the session has not been accessed within the max
+	 * inactive interval.
+	 */
+	public boolean isExpired() {
+		return isExpired(System.currentTimeMillis());
+	}
+
+	protected boolean isExpired(long currTime) {
+		long interval = maxInactiveInterval * 1000L;
+		return interval > 0 && currTime - getLastActivityTime() > interval;
+	}
+
+	/**
+	 * Returns the time when this session was last accessed or created.
+	 */
+	protected long getLastActivityTime() {
+		return Math.max(creationTime, lastAccessTime);
 	}
 
 	/** Returns a session associated with a given session ID. */
 	protected static final HttpSession get(String sessionID) {
-		HttpSession session;
-		synchronized (sessions) {
-			session = sessions.get(sessionID);
-			if (session != null)
-				session.lastAccessTime = new java.util.Date().getTime();
-		}
+		HttpSession session = getSessionStore().get(sessionID);
+		if (session != null)
+			session.lastAccessTime = System.currentTimeMillis();
 		return session;
 	}
 
 	/** Generates a random sequence of alpha-numeric characters. */
 	private static final String CreateID(int len) {
-		StringBuffer str = new StringBuffer(len);
+		StringBuilder str = new StringBuilder(len);
 		final String strValid = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
 		for (int i = 1; i <= len; i++) {
-			int x = new java.util.Random().nextInt(strValid.length());
-			str.append(strValid.substring(x, x + 1));
+			str.append(strValid.charAt(random.nextInt(strValid.length())));
 		}
 		return str.toString();
 	}
@@ -198,20 +260,26 @@ public class HttpSession implements javax.servlet.http.HttpSession {
 
 	@Override
 	public String getId() {
-		// TODO Auto-generated method stub
-		return null;
+		return sessionID;
 	}
 
+	// **************************************************************************
+	// ** setMaxInactiveInterval
+	// **************************************************************************
+	/**
+	 * Specifies the time, in seconds, between client requests before the
+	 * session is invalidated. A value of 0 or less means that the session
+	 * never expires.
+	 */
 	@Override
 	public void setMaxInactiveInterval(int interval) {
-		// TODO Auto-generated method stub
-
+		maxInactiveInterval = interval;
+		getSessionStore().update(this);
 	}
 
 	@Override
 	public int getMaxInactiveInterval() {
-		// TODO Auto-generated method stub
-		return 0;
+		return maxInactiveInterval;
 	}
 
 	@Override
@@ -228,8 +296,7 @@ public class HttpSession implements javax.servlet.http.HttpSession {
 
 	@Override
 	public Enumeration<String> getAttributeNames() {
-		// TODO Auto-generated method stub
-		return null;
+		return Collections.enumeration(map.keySet());
 	}
 
 	@Override
@@ -0,0 +1,323 @@
+package javaxt.http.servlet;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//******************************************************************************
+//**  MemorySessionStore
+//******************************************************************************
+/**
+ * Default SessionStore. Keeps sessions in a ConcurrentHashMap so lookups don't
+ * require a lock. Idle sessions are removed using a timing wheel: sessions are
+ * placed in a slot according to the time they expire and a timer task
+ * processes one slot per tick. Session lookups only update the last access
+ * time of the session. Sessions that were accessed after they were placed in
+ * the wheel are moved to a later slot when their slot is processed.
+ * <p/>
+ * The number of sessions can be limited via setMaxSessions(). If the limit is
+ * reached, the least recently used sessions are evicted.
+ *
+ ******************************************************************************/
+
+public class MemorySessionStore implements SessionStore {
+
+	private final ConcurrentHashMap<String, HttpSession> sessions = new ConcurrentHashMap<String, HttpSession>();
+
+	/** Timing wheel. Guarded by the wheel array. */
+	private final ArrayDeque<HttpSession>[] wheel;
+	private final long tickDuration;
+	private long currentTick;
+
+	private volatile int maxSessions;
+	private final AtomicLong expired = new AtomicLong();
+	private final AtomicLong evicted = new AtomicLong();
+
+	private java.util.Timer timer;
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	/**
+	 * Creates a store for up to 100,000 sessions with a 1 second timer
+	 * resolution. The wheel has 2048 slots which covers the default max
+	 * inactive interval of 30 minutes.
+	 */
+	public MemorySessionStore() {
+		this(100000, 1000, 2048);
+	}
+
+	/**
+	 * @param maxSessions
+	 *            Maximum number of sessions. Use 0 for an unlimited number of
+	 *            sessions.
+	 * @param tickDuration
+	 *            Resolution of the timing wheel, in milliseconds. Sessions are
+	 *            removed within this time after they expire.
+	 * @param ticksPerWheel
+	 *            Number of slots in the timing wheel. Sessions that expire
+	 *            after more than tickDuration * ticksPerWheel are checked once
+	 *            per revolution of the wheel.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public MemorySessionStore(int maxSessions, long tickDuration, int ticksPerWheel) {
+		this.maxSessions = maxSessions;
+		this.tickDuration = Math.max(1, tickDuration);
+		this.wheel = new ArrayDeque[Math.max(2, ticksPerWheel)];
+		for (int i = 0; i < wheel.length; i++) {
+			wheel[i] = new ArrayDeque<HttpSession>();
+		}
+		currentTick = getTick(System.currentTimeMillis());
+	}
+
+	// **************************************************************************
+	// ** get
+	// **************************************************************************
+	/**
+	 * Returns the session with the given ID. Returns null if the session does
+	 * not exist or has expired.
+	 */
+	@Override
+	public HttpSession get(String sessionID) {
+		if (sessionID == null)
+			return null;
+		HttpSession session = sessions.get(sessionID);
+		if (session != null && session.isExpired(System.currentTimeMillis())) {
+			if (sessions.remove(sessionID, session)) {
+				expired.incrementAndGet();
+				session.invalidate();
+			}
+			return null;
+		}
+		return session;
+	}
+
+	// **************************************************************************
+	// ** add
+	// **************************************************************************
+	/**
+	 * Adds a new session to the store. Evicts sessions if the store is full.
+	 */
+	@Override
+	public boolean add(HttpSession session) {
+		if (sessions.putIfAbsent(session.getID(), session) != null)
+			return false;
+
+		synchronized (wheel) {
+			if (timer == null) {
+				timer = new java.util.Timer("HttpSession-Expiration", true);
+				timer.schedule(new Expiration(), tickDuration, tickDuration);
+			}
+			schedule(session, currentTick);
+
+			int max = maxSessions;
+			if (max > 0 && sessions.size() > max) {
+				evict(max);
+			}
+		}
+		return true;
+	}
+
+	// **************************************************************************
+	// ** update
+	// **************************************************************************
+	/**
+	 * Sessions are kept in memory so there's nothing to update.
+	 */
+	@Override
+	public void update(HttpSession session) {
+	}
+
+	// **************************************************************************
+	// ** remove
+	// **************************************************************************
+	/**
+	 * Removes the session from the store. The session is removed from the
+	 * timing wheel when its slot is processed.
+	 */
+	@Override
+	public void remove(String sessionID) {
+		if (sessionID != null)
+			sessions.remove(sessionID);
+	}
+
+	@Override
+	public int size() {
+		return sessions.size();
+	}
+
+	// **************************************************************************
+	// ** close
+	// **************************************************************************
+	/** Stops the timer and removes all sessions from the store. */
+	@Override
+	public void close() {
+		synchronized (wheel) {
+			if (timer != null) {
+				timer.cancel();
+				timer = null;
+			}
+			for (ArrayDeque<HttpSession> slot : wheel) {
+				slot.clear();
+			}
+		}
+		sessions.clear();
+	}
+
+	// **************************************************************************
+	// ** setMaxSessions
+	// **************************************************************************
+	/**
+	 * Used to set the maximum number of sessions. Use 0 for an unlimited number
+	 * of sessions. The default is 100,000 sessions.
+	 */
+	public void setMaxSessions(int maxSessions) {
+		this.maxSessions = maxSessions;
+	}
+
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	/** Returns the number of sessions that were removed because they expired. */
+	public long getExpiredSessions() {
+		return expired.get();
+	}
+
+	/**
+	 * Returns the number of sessions that were removed because the store was
+	 * full.
+	 */
+	public long getEvictedSessions() {
+		return evicted.get();
+	}
+
+	@Override
+	public String toString() {
+		return "MemorySessionStore[sessions=" + size() + ", maxSessions=" + maxSessions + ", expired="
+		        + getExpiredSessions() + ", evicted=" + getEvictedSessions() + "]";
+	}
+
+	// **************************************************************************
+	// ** Expiration
+	// **************************************************************************
+	/**
+	 * TimerTask used to process the slots of the timing wheel.
+	 */
+	private class Expiration extends java.util.TimerTask {
+
+		@Override
+		public void run() {
+			long tick = getTick(System.currentTimeMillis());
+			synchronized (wheel) {
+
+				// Process all the slots since the last run (e.g. if the timer
+				// was delayed). There is no need to process a slot twice.
+				long first = Math.max(currentTick, tick - wheel.length + 1);
+				for (long t = first; t <= tick; t++) {
+					process(t);
+				}
+				currentTick = tick + 1;
+			}
+		}
+	}
+
+	// **************************************************************************
+	// ** evict
+	// **************************************************************************
+	/**
+	 * Used to remove the least recently used sessions. To avoid scanning all
+	 * the sessions whenever a new session is added, the store is trimmed to
+	 * 95% of the max number of sessions.
+	 */
+	private void evict(int max) {
+		int count = sessions.size() - max * 95 / 100;
+		if (count <= 0)
+			return;
+
+		// Find the sessions with the oldest last access time
+		PriorityQueue<HttpSession> oldest = new PriorityQueue<HttpSession>(count, new Comparator<HttpSession>() {
+			@Override
+			public int compare(HttpSession s1, HttpSession s2) {
+				return Long.compare(s2.getLastActivityTime(), s1.getLastActivityTime());
+			}
+		});
+		for (HttpSession session : sessions.values()) {
+			if (oldest.size() < count) {
+				oldest.add(session);
+			} else if (session.getLastActivityTime() < oldest.peek().getLastActivityTime()) {
+				oldest.poll();
+				oldest.add(session);
+			}
+		}
+
+		// Remove sessions. The sessions are removed from the timing wheel
+		// when their slot is processed.
+		for (HttpSession session : oldest) {
+			if (sessions.remove(session.getID(), session)) {
+				evicted.incrementAndGet();
+				session.invalidate();
+			}
+		}
+	}
+
+	// **************************************************************************
+	// ** process
+	// **************************************************************************
+	/**
+	 * Used to process the sessions in the slot of the given tick. Sessions
+	 * that have been invalidated are dropped and expired sessions are
+	 * removed. All other sessions are moved to the slot in which they expire.
+	 */
+	private void process(long tick) {
+		long now = System.currentTimeMillis();
+		ArrayDeque<HttpSession> slot = wheel[(int) (tick % wheel.length)];
+		for (int i = slot.size(); i > 0; i--) {
+			HttpSession session = slot.poll();
+			if (sessions.get(session.getID()) != session)
+				continue;
+
+			if (session.isExpired(now)) {
+				if (sessions.remove(session.getID(), session)) {
+					expired.incrementAndGet();
+					session.invalidate();
+				}
+				continue;
+			}
+			schedule(session, tick + 1);
+		}
+	}
+
+	// **************************************************************************
+	// ** schedule
+	// **************************************************************************
+	/**
+	 * Adds the session to the slot in which it expires. The given tick is the
+	 * first tick that has not been processed yet.
+	 */
+	private void schedule(HttpSession session, long tick) {
+		wheel[(int) (Math.max(tick, getExpirationTick(session, tick)) % wheel.length)].add(session);
+	}
+
+	/**
+	 * Returns the tick in which the session expires. Sessions that expire
+	 * after the last slot of the wheel (or never) are placed in the last slot
+	 * and checked again when the slot is processed.
+	 *
+	 * @param base
+	 *            First tick of the wheel.
+	 */
+	private long getExpirationTick(HttpSession session, long base) {
+		long maxTick = base + wheel.length - 1;
+		long interval = session.getMaxInactiveInterval() * 1000L;
+		if (interval <= 0)
+			return maxTick;
+		return Math.min(maxTick, getTick(session.getLastActivityTime() + interval));
+	}
+
+	private long getTick(long time) {
+		return time / tickDuration;
+	}
+}
@@ -19,17 +19,26 @@ import javaxt.http.servlet.HttpServletResponse.ConnectionOutputStream;
 
 public class ServletOutputStream extends javax.servlet.ServletOutputStream {
 
-	private ConnectionOutputStream out;
+	private java.io.OutputStream out;
 
 	public ServletOutputStream(ConnectionOutputStream out) {
 		this.out = out;
 	}
 
+	protected ServletOutputStream(java.io.OutputStream out) {
+		this.out = out;
+	}
+
 	@Override
 	public void write(int b) throws IOException {
 		out.write(b);
 	}
 
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+	}
+
 	@Override
 	public void flush() throws IOException {
 		out.flush();
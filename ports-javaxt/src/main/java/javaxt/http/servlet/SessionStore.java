@@ -0,0 +1,50 @@
+package javaxt.http.servlet;
+
+//******************************************************************************
+//**  SessionStore
+//******************************************************************************
+/**
+ * Used to store HttpSessions. The default store keeps sessions in memory (see
+ * MemorySessionStore). Custom stores (e.g. off-heap or file-backed stores) can
+ * be installed via HttpSession.setSessionStore(). Sessions are serializable,
+ * provided that all session attributes are serializable.
+ * <p/>
+ * Stores that keep copies of sessions (e.g. serialized sessions) are notified
+ * via update() whenever a session attribute changes. Such stores are also
+ * responsible for removing expired sessions (see
+ * HttpSession.getMaxInactiveInterval() and HttpSession.isExpired()).
+ *
+ ******************************************************************************/
+
+public interface SessionStore {
+
+	/**
+	 * Returns the session with the given ID or null if the session does not
+	 * exist or has expired. This method is called for every request with a
+	 * session cookie and should not block.
+	 */
+	public HttpSession get(String sessionID);
+
+	/**
+	 * Adds a new session to the store. Returns false if a session with the
+	 * same ID already exists.
+	 */
+	public boolean add(HttpSession session);
+
+	/**
+	 * Called after a session attribute was added, changed or removed.
+	 */
+	public void update(HttpSession session);
+
+	/** Removes the session with the given ID from the store. */
+	public void remove(String sessionID);
+
+	/** Returns the number of sessions in the store. */
+	public int size();
+
+	/**
+	 * Called when the store is replaced by another store. Used to release
+	 * resources (e.g. timers or files).
+	 */
+	public void close();
+}
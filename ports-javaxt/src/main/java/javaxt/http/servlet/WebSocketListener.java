@@ -2,12 +2,17 @@ package javaxt.http.servlet;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.mhus.lib.core.MLog;
+import javaxt.http.BufferPool;
 import javaxt.http.Server;
 import javaxt.websocket.Frame;
 import javaxt.websocket.Frame.CloseFrame;
@@ -51,14 +56,32 @@ import javaxt.websocket.UTF8;
  * }
  * </pre>
  *
+ * The constructor returns as soon as the connection is upgraded. Incoming
+ * bytes are read by the server's selector thread and the frames are decoded
+ * by a small pool of threads shared by all WebSocket connections, so idle
+ * connections don't hold a thread. Events for a given connection are always
+ * processed one at a time and in order. The connection is closed by the
+ * server if nothing was read or written for the server's max idle time, so
+ * clients that want to keep a quiet connection open should send pings.
+ *
  ******************************************************************************/
 
 public class WebSocketListener extends MLog {
 
+	private static final int readBufferSize = 8192;
+	private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+	private static volatile ExecutorService executor;
+
 	private Server.SocketConnection connection;
 	private HttpServletRequest request;
+	private BufferPool bufferPool;
 	private boolean debug = true;
-	private List<String> events = new LinkedList<String>();
+
+	/** Buffers read from the socket that have not been processed yet. */
+	private final ConcurrentLinkedQueue<ByteBuffer> inbox = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicBoolean scheduled = new AtomicBoolean(true);
+	private final Object writeLock = new Object();
+	private volatile boolean eof = false;
 
 	private enum READYSTATE {
 		NOT_YET_CONNECTED, CONNECTING, OPEN, CLOSING, CLOSED
@@ -68,11 +91,11 @@ public class WebSocketListener extends MLog {
 		NONE, ONEWAY, TWOWAY
 	}
 
-	private READYSTATE readystate = READYSTATE.NOT_YET_CONNECTED;
+	private volatile READYSTATE readystate = READYSTATE.NOT_YET_CONNECTED;
 	private Frame current_continuous_frame;
-	private List<ByteBuffer> byteBufferList;
 	private boolean roleIsServer;
 	private ByteBuffer incompleteframe;
+	private ByteBuffer tlsData; // <-- Encrypted bytes of incomplete TLS records
 
 	// **************************************************************************
 	// ** Constructor
@@ -87,8 +110,8 @@ public class WebSocketListener extends MLog {
 		// Set local variables
 		this.request = request;
 		this.connection = request.getConnection();
+		this.bufferPool = connection.getBufferPool();
 		roleIsServer = true;
-		byteBufferList = new ArrayList<ByteBuffer>();
 
 		log().d("New WebSocketListener");
 
@@ -122,152 +145,284 @@ public class WebSocketListener extends MLog {
 
 		log().t("Upgraded Request!");
 
+		// Take over the connection. Start monitoring the SocketConnection for
+		// "readable" events. Do this after the SSL/TLS handshaking is
+		// completed by the HttpServletRequest class. Bytes that arrive before
+		// onConnect() returns are queued.
+		connection.upgrade();
+		connection.addListener(new Server.SocketConnection.Listener() {
+			@Override
+			public void onReadable() {
+				read();
+			}
+
+			@Override
+			public void onClose() {
+				eof = true;
+				inbox.add(EOF);
+				schedule();
+			}
+		});
+
 		// Update readystate and notify listener
 		readystate = READYSTATE.OPEN;
-		onConnect();
+		try {
+			onConnect();
+		} finally {
 
-		// Destroy the response object. We'll be handling the response from here
-		// on out...
-		response.reset();
+			// Destroy the response object. We'll be handling the response
+			// from here on out...
+			response.reset();
 
-		// Spawn thread and wait for "READ" events from the client
-		try {
-			Thread thread = new Thread(new EventProcessor());
-			thread.start();
-			thread.join();
-		} catch (Throwable t) {
-			// Throw servlet exception?
+			// Process events received while connecting
+			scheduled.set(false);
+			if (!inbox.isEmpty())
+				schedule();
 		}
 	}
 
 	// **************************************************************************
-	// ** addEvent
+	// ** setExecutor
 	// **************************************************************************
 	/**
-	 * Used to add an event to the event queue (e.g. "READ" or "CLOSE").
+	 * Used to set the executor used to decode frames and call the event
+	 * listeners (e.g. onText) of all WebSocket connections. By default, a
+	 * fixed pool with one daemon thread per processor is used.
 	 */
-	private void addEvent(String event) {
-		synchronized (events) {
-			events.add(event);
-			events.notify();
+	public static void setExecutor(ExecutorService executorService) {
+		executor = executorService;
+	}
+
+	private static ExecutorService getExecutor() {
+		ExecutorService e = executor;
+		if (e == null) {
+			synchronized (WebSocketListener.class) {
+				e = executor;
+				if (e == null) {
+					final AtomicInteger count = new AtomicInteger();
+					int numThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+					e = new ThreadPoolExecutor(numThreads, numThreads, 60L, TimeUnit.SECONDS,
+					        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						        @Override
+						        public Thread newThread(Runnable r) {
+							        Thread thread = new Thread(r, "javaxt-websocket-" + count.incrementAndGet());
+							        thread.setDaemon(true);
+							        return thread;
+						        }
+					        });
+					executor = e;
+				}
+			}
 		}
+		return e;
 	}
 
 	// **************************************************************************
-	// ** EventProcessor
+	// ** read
 	// **************************************************************************
 	/**
-	 * Thread used to wait for new events (e.g. "READ" events).
+	 * Called by the selector thread when the socket is readable. Reads all
+	 * available bytes into buffers from the buffer pool and schedules the
+	 * EventProcessor. Reading here, instead of in a worker thread, prevents
+	 * the selector from reporting the same read event over and over again.
 	 */
-	private class EventProcessor implements Runnable {
-
-		public EventProcessor() {
-			// Start monitoring the SocketConnection for "readable" events.
-			// Do this after the SSL/TLS handshaking is completed by the
-			// HttpServletRequest class.
-			connection.addListener(new Server.SocketConnection.Listener() {
-				@Override
-				public void onReadable() {
-					log().t("onReadable!");
-					addEvent("READ");
+	private void read() {
+		if (eof)
+			return;
+		try {
+			for (int i = 0; i < 8; i++) {
+				ByteBuffer buf = bufferPool.acquire(readBufferSize);
+				int numBytesRead;
+				try {
+					numBytesRead = connection.getChannel().read(buf);
+				} catch (IOException e) {
+					bufferPool.release(buf);
+					throw e;
 				}
-			});
+				if (numBytesRead <= 0) {
+					bufferPool.release(buf);
+					if (numBytesRead < 0)
+						throw new IOException("Received -1 bytes. Socket is closed.");
+					break;
+				}
+				buf.flip();
+				inbox.add(buf);
+				if (numBytesRead < readBufferSize)
+					break;
+			}
+		} catch (Exception e) {
+			// Stop reading. The EventProcessor closes the connection.
+			eof = true;
+			inbox.add(EOF);
 		}
+		schedule();
+	}
 
+	// **************************************************************************
+	// ** schedule
+	// **************************************************************************
+	/**
+	 * Submits the EventProcessor to the executor unless it is already
+	 * scheduled or running.
+	 */
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			try {
+				getExecutor().execute(eventProcessor);
+			} catch (Exception e) {
+				scheduled.set(false);
+				onError(e);
+			}
+		}
+	}
+
+	// **************************************************************************
+	// ** EventProcessor
+	// **************************************************************************
+	/**
+	 * Task used to process the bytes in the inbox. Only one instance of this
+	 * task runs at a time for a given connection.
+	 */
+	private final Runnable eventProcessor = new Runnable() {
 		@Override
 		public void run() {
-
 			while (true) {
-
-				String event = null;
-				synchronized (events) {
-					while (events.isEmpty()) {
+				ByteBuffer buf;
+				while ((buf = inbox.poll()) != null) {
+					if (buf == EOF) {
+						processClose();
+					} else {
 						try {
-							events.wait();
-						} catch (InterruptedException e) {
-							return;
+							process(buf);
+						} finally {
+							bufferPool.release(buf);
 						}
 					}
-					event = events.remove(0);
-					events.notifyAll();
 				}
 
-				if (event.equals("READ")) {
-					try {
+				// Check whether new bytes arrived after the inbox was drained
+				scheduled.set(false);
+				if (inbox.isEmpty() || !scheduled.compareAndSet(false, true))
+					return;
+			}
+		}
+	};
 
-						// Read bytes from the socket
-						int bufferSize = 1024;
-						ByteBuffer buf = ByteBuffer.allocateDirect(bufferSize);
-						int numBytesRead = connection.getChannel().read(buf); // request.read(buf);
-						if (numBytesRead > 0) {
-							buf.rewind();
-
-							// If the buffer is filled to capacity, chances are
-							// that there are more bytes to read from the socket
-							if (numBytesRead == bufferSize) {
-								java.io.ByteArrayOutputStream bas = new java.io.ByteArrayOutputStream();
-
-								byte[] b = new byte[numBytesRead];
-								buf.get(b, 0, numBytesRead);
-								bas.write(b);
-
-								while (true) {
-									buf.clear();
-									numBytesRead = connection.getChannel().read(buf); // request.read(buf);
-
-									b = new byte[numBytesRead];
-									buf.get(b, 0, numBytesRead);
-									bas.write(b);
-
-									if (numBytesRead < bufferSize) {
-										break;
-									}
-								}
-
-								buf = ByteBuffer.allocateDirect(bas.size());
-								buf.put(bas.toByteArray());
-								buf.rewind();
-							}
-
-							// Decrypt the buffer as needed
-							if (request.isEncrypted()) {
-								byte[] arr = request.decrypt(buf);
-								buf = ByteBuffer.allocateDirect(arr.length);
-								buf.put(arr);
-								buf.rewind();
-							}
-
-							// Decode frames
-							List<Frame> frames = decodeFrames(buf);
-							for (Frame frame : frames) {
-								log().t("read frame", frame);
-								processFrame(frame);
-							}
-						}
-					} catch (FrameException e) {
-						onError(e);
-						close(e.getCloseCode(), e.getMessage(), false);
-					} catch (Exception e) {
-						if (readystate == READYSTATE.OPEN) {
-							onError(e);
-							onDisconnect(CloseFrame.ABNORMAL_CLOSE, "", false);
-						}
-						try {
-							log().t("Closing connection!");
-							connection.close();
-						} catch (IOException ex) {
-						}
-						return;
-					}
-				} else {
-					try {
-						log().t("Closing connection!");
-						connection.close();
-					} catch (Exception e) {
-					}
+	// **************************************************************************
+	// ** process
+	// **************************************************************************
+	/**
+	 * Used to decrypt and decode bytes read from the socket.
+	 */
+	private void process(ByteBuffer buf) {
+		if (readystate == READYSTATE.CLOSED)
+			return;
+		try {
+
+			// Decrypt the buffer as needed
+			if (request.isEncrypted()) {
+				buf = decrypt(buf);
+				if (buf == null)
 					return;
-				}
 			}
+
+			// Decode frames
+			decodeFrames(buf);
+
+		} catch (FrameException e) {
+			onError(e);
+			close(e.getCloseCode(), e.getMessage(), false);
+		} catch (Exception e) {
+			if (readystate == READYSTATE.OPEN) {
+				onError(e);
+				readystate = READYSTATE.CLOSED;
+				onDisconnect(CloseFrame.ABNORMAL_CLOSE, "", false);
+			}
+			closeConnection();
+		}
+	}
+
+	// **************************************************************************
+	// ** decrypt
+	// **************************************************************************
+	/**
+	 * Used to decrypt the TLS records read from the socket. A record can be
+	 * larger than a read buffer or span several reads so the encrypted bytes
+	 * are collected and only complete records are decrypted. The bytes of an
+	 * incomplete record are kept until the rest of the record arrives. Returns
+	 * null if no record is complete.
+	 */
+	private ByteBuffer decrypt(ByteBuffer buf) throws IOException {
+
+		// Append the bytes to the bytes left over from previous reads
+		if (tlsData == null) {
+			tlsData = bufferPool.acquire(Math.max(buf.remaining(), readBufferSize));
+		} else if (tlsData.remaining() < buf.remaining()) {
+			tlsData = bufferPool.grow(tlsData, tlsData.position() + buf.remaining());
+		}
+		tlsData.put(buf);
+		tlsData.flip();
+
+		// Find the end of the last complete record. Every record starts with a
+		// 5 byte header. The last 2 bytes of the header contain the length of
+		// the record.
+		int end = 0;
+		while (tlsData.limit() - end >= 5) {
+			int length = ((tlsData.get(end + 3) & 0xff) << 8) | (tlsData.get(end + 4) & 0xff);
+			if (tlsData.limit() - end < 5 + length)
+				break;
+			end += 5 + length;
+		}
+
+		// Decrypt the complete records and keep the rest
+		byte[] arr = null;
+		if (end > 0) {
+			int limit = tlsData.limit();
+			tlsData.limit(end);
+			arr = request.decrypt(tlsData);
+			tlsData.limit(limit);
+			tlsData.position(end);
+		}
+		if (tlsData.hasRemaining()) {
+			tlsData.compact();
+		} else {
+			bufferPool.release(tlsData);
+			tlsData = null;
+		}
+		return arr == null ? null : ByteBuffer.wrap(arr);
+	}
+
+	// **************************************************************************
+	// ** processClose
+	// **************************************************************************
+	/**
+	 * Called when the socket was closed by the client or the server.
+	 */
+	private void processClose() {
+		incompleteframe = null;
+		bufferPool.release(tlsData);
+		tlsData = null;
+		current_continuous_frame = null;
+		if (readystate == READYSTATE.OPEN) {
+			readystate = READYSTATE.CLOSED;
+			onDisconnect(CloseFrame.ABNORMAL_CLOSE, "", true);
+		}
+		readystate = READYSTATE.CLOSED;
+		closeConnection();
+		ByteBuffer buf;
+		while ((buf = inbox.poll()) != null) {
+			if (buf != EOF)
+				bufferPool.release(buf);
+		}
+	}
+
+	private void closeConnection() {
+		try {
+			if (connection.isOpen()) {
+				log().t("Closing connection!");
+				connection.close();
+			}
+		} catch (Exception e) {
 		}
 	}
 
@@ -414,11 +569,10 @@ public class WebSocketListener extends MLog {
 			}
 		}
 
-		addEvent("CLOSE");
-		onDisconnect(code, message, remote);
-
 		incompleteframe = null;
 		readystate = READYSTATE.CLOSED;
+		onDisconnect(code, message, remote);
+		closeConnection();
 	}
 
 	// **************************************************************************
@@ -429,86 +583,77 @@ public class WebSocketListener extends MLog {
 	 * HttpServletRequest class.
 	 */
 	private void write(ByteBuffer buf, int length) throws IOException {
-		if (request.isEncrypted()) {
-			buf = request.wrap(buf);
-			length = buf.capacity();
+		synchronized (writeLock) {
+			if (request.isEncrypted()) {
+				ByteBuffer output = request.wrap(buf);
+				try {
+					connection.write(output, output.limit());
+				} finally {
+					connection.getBufferPool().release(output);
+				}
+				return;
+			}
+			connection.write(buf, length);
 		}
-		connection.write(buf, length);
 	}
 
 	// **************************************************************************
 	// ** decodeFrames
 	// **************************************************************************
 	/**
-	 * Decodes raw bytes into a list of Frames.
+	 * Decodes raw bytes into Frames and processes them. Bytes of an incomplete
+	 * frame are kept in a buffer that is large enough for the entire frame so
+	 * the bytes of a large frame are copied only once.
 	 */
-	private List<Frame> decodeFrames(ByteBuffer buffer) throws FrameException {
-		while (true) {
-			List<Frame> frames = new LinkedList<Frame>();
-			Frame cur;
-
-			if (incompleteframe != null) {
-				// complete an incomplete frame
-				try {
-					buffer.mark();
-					int available_next_byte_count = buffer.remaining();// The
-					                                                   // number
-					                                                   // of
-					                                                   // bytes
-					                                                   // received
-					int expected_next_byte_count = incompleteframe.remaining();// The
-					                                                           // number
-					                                                           // of
-					                                                           // bytes
-					                                                           // to
-					                                                           // complete
-					                                                           // the
-					                                                           // incomplete
-					                                                           // frame
-
-					if (expected_next_byte_count > available_next_byte_count) {
-						// did not receive enough bytes to complete the frame
-						incompleteframe.put(buffer.array(), buffer.position(), available_next_byte_count);
-						buffer.position(buffer.position() + available_next_byte_count);
-						return Collections.emptyList();
-					}
-					incompleteframe.put(buffer.array(), buffer.position(), expected_next_byte_count);
-					buffer.position(buffer.position() + expected_next_byte_count);
-					cur = Frame.translateSingleFrame((ByteBuffer) incompleteframe.duplicate().position(0));
-					frames.add(cur);
-					incompleteframe = null;
-				} catch (IncompleteFrameException e) {
-					// extending as much as suggested
-					ByteBuffer extendedframe = ByteBuffer.allocate(checkAlloc(e.getPreferredSize()));
-					assert (extendedframe.limit() > incompleteframe.limit());
-					incompleteframe.rewind();
-					extendedframe.put(incompleteframe);
-					incompleteframe = extendedframe;
-					continue;
-				}
+	private void decodeFrames(ByteBuffer buffer) throws FrameException, IOException {
+		if (incompleteframe != null) {
+			if (incompleteframe.remaining() < buffer.remaining()) {
+				incompleteframe = extend(incompleteframe, incompleteframe.position() + buffer.remaining());
 			}
+			incompleteframe.put(buffer);
+			incompleteframe.flip();
+			buffer = incompleteframe;
+		}
 
-			while (buffer.hasRemaining()) {// Read as much as possible full
-			                               // frames
-				buffer.mark();
-				try {
-					cur = Frame.translateSingleFrame(buffer);
-					if (cur == null)
-						return frames;
-					frames.add(cur);
-				} catch (IncompleteFrameException e) {
-					// remember the incomplete data
-					buffer.reset();
-					int pref = e.getPreferredSize();
-					incompleteframe = ByteBuffer.allocate(checkAlloc(pref));
+		while (buffer.hasRemaining() && readystate != READYSTATE.CLOSED) {
+			buffer.mark();
+			Frame frame;
+			try {
+				frame = Frame.translateSingleFrame(buffer);
+			} catch (IncompleteFrameException e) {
+
+				// Remember the incomplete data
+				buffer.reset();
+				int size = Math.max(checkAlloc(e.getPreferredSize()), buffer.remaining());
+				if (buffer == incompleteframe) {
+					incompleteframe.compact();
+					if (incompleteframe.capacity() < size)
+						incompleteframe = extend(incompleteframe, size);
+				} else {
+					incompleteframe = ByteBuffer.allocate(size);
 					incompleteframe.put(buffer);
-					break;
 				}
+				return;
 			}
-			return frames;
+			log().t("read frame", frame);
+			processFrame(frame);
+		}
+		if (buffer == incompleteframe) {
+			incompleteframe = null;
 		}
 	}
 
+	/**
+	 * Returns a buffer with the given capacity that contains the bytes between
+	 * 0 and the position of the given buffer.
+	 */
+	private static ByteBuffer extend(ByteBuffer buf, int size) {
+		ByteBuffer extendedframe = ByteBuffer.allocate(Math.max(size, buf.capacity() * 2));
+		buf.flip();
+		extendedframe.put(buf);
+		return extendedframe;
+	}
+
 	// **************************************************************************
 	// ** processFrame
 	// **************************************************************************
@@ -540,13 +685,11 @@ public class WebSocketListener extends MLog {
 					throw new FrameException(CloseFrame.PROTOCOL_ERROR,
 					        "Previous continuous frame sequence not completed.");
 				current_continuous_frame = frame;
-				byteBufferList.add(frame.getPayloadData());
 			} else if (frame.isFin()) {
 				if (current_continuous_frame == null)
 					throw new FrameException(CloseFrame.PROTOCOL_ERROR, "Continuous frame sequence was not started.");
-				byteBufferList.add(frame.getPayloadData());
+				current_continuous_frame.append(frame);
 				if (current_continuous_frame.getOpcode() == Frame.Opcode.TEXT) {
-					current_continuous_frame.setPayload(getPayloadFromByteBufferList());
 					current_continuous_frame.isValid();
 					try {
 						onText(UTF8.decode(current_continuous_frame.getPayloadData()));
@@ -554,7 +697,6 @@ public class WebSocketListener extends MLog {
 						onError(e);
 					}
 				} else if (current_continuous_frame.getOpcode() == Frame.Opcode.BINARY) {
-					current_continuous_frame.setPayload(getPayloadFromByteBufferList());
 					current_continuous_frame.isValid();
 					try {
 						onBinary(current_continuous_frame.getPayloadData());
@@ -563,7 +705,6 @@ public class WebSocketListener extends MLog {
 					}
 				}
 				current_continuous_frame = null;
-				byteBufferList.clear();
 			} else if (current_continuous_frame == null) {
 				throw new FrameException(CloseFrame.PROTOCOL_ERROR, "Continuous frame sequence was not started.");
 			}
@@ -576,10 +717,10 @@ public class WebSocketListener extends MLog {
 				}
 			}
 
-			// Checking if the current continous frame contains a correct
-			// payload with the other frames combined
+			// Append the payload to the current continous frame. The
+			// fragments are joined once the last frame is received.
 			if (curop == Frame.Opcode.CONTINUOUS && current_continuous_frame != null) {
-				byteBufferList.add(frame.getPayloadData());
+				current_continuous_frame.append(frame);
 			}
 		} else if (current_continuous_frame != null) {
 			throw new FrameException(CloseFrame.PROTOCOL_ERROR, "Continuous frame sequence not completed.");
@@ -600,29 +741,6 @@ public class WebSocketListener extends MLog {
 		}
 	}
 
-	// **************************************************************************
-	// ** getPayloadFromByteBufferList
-	// **************************************************************************
-	/**
-	 * Method to generate a full bytebuffer out of all the fragmented frame
-	 * payload.
-	 */
-	private ByteBuffer getPayloadFromByteBufferList() throws FrameException {
-		long totalSize = 0;
-		for (ByteBuffer buffer : byteBufferList) {
-			totalSize += buffer.limit();
-		}
-		if (totalSize > Integer.MAX_VALUE) {
-			throw new FrameException("Payloadsize is to big...");
-		}
-		ByteBuffer resultingByteBuffer = ByteBuffer.allocate((int) totalSize);
-		for (ByteBuffer buffer : byteBufferList) {
-			resultingByteBuffer.put(buffer);
-		}
-		resultingByteBuffer.flip();
-		return resultingByteBuffer;
-	}
-
 	// **************************************************************************
 	// ** checkAlloc
 	// **************************************************************************
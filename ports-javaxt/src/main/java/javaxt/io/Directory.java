@@ -5,10 +5,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.ConcurrentHashMap;
 
 import de.mhus.lib.core.MLog;
 
@@ -36,6 +34,7 @@ public class Directory implements Comparable {
 
 	// private boolean useCache = false;
 	private FileSystemWatcher FileSystemWatcher;
+	private List<DirectorySearch> searches;
 	private File.FileAttributes attr;
 	private long lastAttrUpdate = 0;
 
@@ -1096,36 +1095,20 @@ public class Directory implements Comparable {
 			if (RecursiveSearch) {
 
 				// Create list to store items found in the directory
-				List items = new LinkedList();
-
-				// Create a file filter
-				FileFilter fileFilter = new FileFilter(filter);
-
-				// Spawn threads used to crawl through the file system
-				long directoryID = Long
-				        .valueOf(java.util.Calendar.getInstance().getTimeInMillis() + "" + new Random().nextInt(100000))
-				        .longValue();
-				int numThreads = 20; // <-- this should be set dynamically and
-				                     // self tuning
-				DirectorySearch.deleteCache();
-				DirectorySearch search = new DirectorySearch(fileFilter, items, directoryID, numThreads);
-				for (int i = 0; i < numThreads; i++) {
-					Thread t = new Thread(search);
-					t.setName("DirectorySearch_" + directoryID + "-" + i);
-					t.start();
-				}
+				List<Object> items = new LinkedList<Object>();
 
-				// Initiate search
-				DirectorySearch.updatePool(this);
+				// Start crawling through the file system
+				DirectorySearch search = startSearch(new FileFilter(filter), items,
+				        DirectorySearch.getParallelism(this));
 
 				if (wait) {
 
 					synchronized (items) {
-						while (!items.contains(null)) {
+						while (!search.isDone()) {
 							try {
 								items.wait();
 							} catch (InterruptedException e) {
-								DirectorySearch.stop();
+								search.cancel();
 								Thread.currentThread().interrupt();
 								return items;
 							}
@@ -1143,7 +1126,7 @@ public class Directory implements Comparable {
 
 			} // end recursive search
 			else {
-				List results = new LinkedList();
+				List<Object> results = new LinkedList<Object>();
 				Object[] files = listFiles(new FileFilter(filter));
 				if (files == null) {
 					if (!wait)
@@ -1186,13 +1169,85 @@ public class Directory implements Comparable {
 			}
 		} else {
 			// Directory does not exist, return an empty list
-			List list = new LinkedList();
+			List<Object> list = new LinkedList<Object>();
 			if (!wait)
 				list.add(null);
 			return list;
 		}
 	}
 
+	// **************************************************************************
+	// ** search
+	// **************************************************************************
+	/**
+	 * Used to find files and folders in this directory, including any
+	 * subdirectories. Returns an iterator that returns items as soon as they
+	 * are found. The items are not sorted. Subdirectories are listed in
+	 * parallel using a number of threads based on the number of processors.
+	 *
+	 * @param filter
+	 *            A file filter. You can pass in a java.io.FileFilter, a String
+	 *            (e.g. "*.txt"), or an array of Strings (e.g. String[]{"*.txt",
+	 *            "*.doc"}). Wildcard filters are supported. Note that the
+	 *            filter is only applied to files, not directories.
+	 */
+	public DirectorySearch search(Object filter) {
+		return search(filter, DirectorySearch.getParallelism(this));
+	}
+
+	// **************************************************************************
+	// ** search
+	// **************************************************************************
+	/**
+	 * Used to find files and folders in this directory, including any
+	 * subdirectories.
+	 *
+	 * @param parallelism
+	 *            Maximum number of directories to list at the same time. Use 1
+	 *            for slow devices (e.g. spinning disks) where parallel reads
+	 *            are counterproductive.
+	 */
+	public DirectorySearch search(Object filter, int parallelism) {
+		return startSearch(new FileFilter(filter), null, parallelism);
+	}
+
+	// **************************************************************************
+	// ** getFileStream
+	// **************************************************************************
+	/**
+	 * Returns a stream of files found in this directory, including any
+	 * subdirectories. Files are returned as soon as they are found. Closing
+	 * the stream stops the search.
+	 */
+	public java.util.stream.Stream<File> getFileStream(Object filter) {
+		return search(filter).stream().filter(new java.util.function.Predicate<Object>() {
+			@Override
+			public boolean test(Object obj) {
+				return obj instanceof File;
+			}
+		}).map(new java.util.function.Function<Object, File>() {
+			@Override
+			public File apply(Object obj) {
+				return (File) obj;
+			}
+		});
+	}
+
+	private DirectorySearch startSearch(FileFilter filter, List<Object> items, int parallelism) {
+		DirectorySearch search = new DirectorySearch(this, filter, items, parallelism);
+		synchronized (this) {
+			if (searches == null)
+				searches = new LinkedList<DirectorySearch>();
+			java.util.Iterator<DirectorySearch> it = searches.iterator();
+			while (it.hasNext()) {
+				if (it.next().isDone())
+					it.remove();
+			}
+			searches.add(search);
+		}
+		return search;
+	}
+
 	// **************************************************************************
 	// ** getSharedDrives
 	// **************************************************************************
@@ -1755,10 +1810,12 @@ public class Directory implements Comparable {
 		if (FileSystemWatcher != null)
 			FileSystemWatcher.stop();
 
-		try {
-			// for (int i=0; i<20; i++)
-			DirectorySearch.stop();
-		} catch (Exception e) {
+		synchronized (this) {
+			if (searches != null) {
+				for (DirectorySearch search : searches)
+					search.cancel();
+				searches = null;
+			}
 		}
 	}
 
@@ -1943,7 +2000,7 @@ public class Directory implements Comparable {
 	 * Used to sort a list containing files/folders in alphabetical order. Note
 	 * that directories are listed first.
 	 */
-	private class FileComparer implements Comparator {
+	private class FileComparer implements Comparator<Object> {
 
 		private int z;
 
@@ -1996,668 +2053,6 @@ public class Directory implements Comparable {
 
 } // End Directory Class
 
-// ******************************************************************************
-// ** FileFilter
-// ******************************************************************************
-/**
- * Used to filter files and file names using regular expressions or java.io
- * FileFilters. Note that directories are always returned.
- *
- ******************************************************************************/
-
-class FileFilter {
-
-	private java.io.FileFilter fileFilter = null;
-	private List<java.util.regex.Pattern> regex = null;
-
-	public FileFilter(Object filter) {
-
-		if (filter == null) {
-			filter = "*";
-		}
-
-		if (filter instanceof java.io.FileFilter) {
-			fileFilter = (java.io.FileFilter) filter;
-		}
-
-		if (filter instanceof String) {
-			filter = new String[] { (String) filter };
-		}
-
-		if (filter instanceof String[]) {
-			regex = new ArrayList<java.util.regex.Pattern>();
-			String[] filters = (String[]) filter;
-
-			for (int i = 0; i < filters.length; i++) {
-				regex.add(java.util.regex.Pattern.compile(getRegEx(filters[i]),
-				        java.util.regex.Pattern.CASE_INSENSITIVE));
-			}
-		}
-	}
-
-	public boolean accept(String file) {
-		if (fileFilter != null) {
-			return accept(new java.io.File(file));
-		} else {
-			file = file.replace("\\", "/");
-			if (file.endsWith("/")) { // then we're dealing with a directory
-				return true;
-			} else {
-				file = file.substring(file.lastIndexOf("/") + 1);
-			}
-
-			for (int i = 0; i < regex.size(); i++) {
-				java.util.regex.Matcher matcher = regex.get(i).matcher(file);
-				if (matcher.find()) {
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-
-	public boolean accept(java.io.File file) {
-		if (file.isDirectory()) {
-			return true;
-		} else {
-			if (fileFilter != null) {
-				return (fileFilter.accept(file));
-			} else {
-				return accept(file.toString());
-			}
-		}
-	}
-
-	// **************************************************************************
-	// ** usesIOFilter
-	// **************************************************************************
-	/**
-	 * Used to indicate whether this filter relies on a java.io.FileFilter
-	 */
-	public boolean usesIOFilter() {
-		return (fileFilter != null);
-	}
-
-	// **************************************************************************
-	// ** getRegEx
-	// **************************************************************************
-	/**
-	 * Used to convert a wildcard (e.g. "*.txt") into a regular expression.
-	 */
-	private String getRegEx(String wildcardSearch) {
-		String regex = wildcardSearch.trim();
-		// if (!regex.startsWith("*")) regex = "^" + regex;
-		if (!regex.endsWith("*"))
-			regex += "$";
-
-		if (regex.endsWith("*")) {
-			// regex = regex.substring(0, regex.length()-1) + "/";
-			regex = regex.substring(0, regex.length() - 1) + ")";
-			if (regex.contains("*")) {
-				regex = regex.substring(0, regex.lastIndexOf("*") + 1) + "("
-				        + regex.substring(regex.lastIndexOf("*") + 1);
-			} else {
-				regex = "(" + regex;
-			}
-		}
-
-		regex = regex.replace(".", "\\.");
-		regex = regex.replace("*", ".*");
-		// System.out.println(regex);
-		return regex;
-	}
-
-}// End FileFilter Class
-
-// ******************************************************************************
-// ** Directory Search
-// ******************************************************************************
-/**
- * Thread used crawl through a file system and find files/folders. This is a
- * recursive search and may take some time to complete.
- *
- ******************************************************************************/
-
-class DirectorySearch implements Runnable {
-
-	private static java.util.concurrent.ConcurrentHashMap map;
-	private static java.util.concurrent.ConcurrentHashMap lut;
-
-	// **************************************************************************
-	// ** Constructor
-	// **************************************************************************
-	/**
-	 * Creates a new instance of DirectorySearch. Note that this thread needs to
-	 * be named! Unfortunately, this has to happen outside of this class.
-	 * Example:
-	 *
-	 * <pre>
-	 * Thread t = new Thread(new DirectorySearch(filter, files));
-	 * t.setName("DirectorySearch-" + id);
-	 * t.start();
-	 * </pre>
-	 *
-	 * @param filter
-	 *            A file filter. *
-	 * @param items
-	 *            A List (e.g. LinkedList) used to store items found in this
-	 *            directory.
-	 */
-	public DirectorySearch(FileFilter filter, List items, long directoryID, int numThreads) {
-
-		String parentThread = Thread.currentThread().getName();
-		// System.out.println(parentThread);
-
-		if (map == null) {
-			map = new ConcurrentHashMap();
-		}
-
-		if (getVars() == null) {
-			createVars(filter, items, directoryID, numThreads);
-		}
-
-		if (lut == null)
-			lut = new ConcurrentHashMap();
-		synchronized (lut) {
-			if (lut.get(parentThread) == null)
-				lut.put(parentThread, directoryID);
-			else {
-
-				// System.out.println(parentThread + " entering wait state...");
-				while (!lut.isEmpty()) {
-					try {
-						lut.wait();
-					} catch (InterruptedException e) {
-						// If interrupted, return immediately
-						Thread.currentThread().interrupt();
-						return;
-					}
-				}
-				// System.out.println(parentThread + " exited wait state!");
-
-				createVars(filter, items, directoryID, numThreads);
-
-				lut.put(parentThread, directoryID);
-				lut.notifyAll();
-			}
-		}
-
-		// System.out.println(parentThread + " " + lut.get(parentThread) + " vs
-		// " + directoryID);
-	}
-
-	// **************************************************************************
-	// ** createVars
-	// **************************************************************************
-	/**
-	 * Used to instantiate local variables used by this thread and it's
-	 * siblings. The variables are all stored in a hashmap and accessed via a
-	 * directoryID.
-	 */
-	private static void createVars(FileFilter filter, List items, long directoryID, int numThreads) {
-		synchronized (map) {
-			ConcurrentHashMap vars = new ConcurrentHashMap();
-			vars.put("items", items);
-			vars.put("filter", filter);
-			vars.put("pool", new java.util.LinkedList());
-			vars.put("path", new java.util.LinkedList());
-			vars.put("status", new java.util.LinkedList());
-			vars.put("threads", new LinkedList()); // <--list of active threads
-			vars.put("activatedThreads", new ConcurrentHashMap());
-			vars.put("numThreads", numThreads);
-			map.put(directoryID, vars);
-		}
-	}
-
-	// **************************************************************************
-	// ** getVars
-	// **************************************************************************
-	/**
-	 * Used to retrieve variables associated with this thread.
-	 */
-	private static ConcurrentHashMap getVars() {
-
-		String currentThread = Thread.currentThread().getName();
-		if (currentThread.startsWith("DirectorySearch_")) {
-			Long directoryID = getDirectoryID();
-			return (ConcurrentHashMap) map.get(directoryID);
-		} else {
-
-			if (lut == null)
-				return null;
-
-			Long directoryID = null;
-			synchronized (lut) {
-				directoryID = (Long) lut.get(currentThread);
-			}
-
-			// System.out.println(currentThread + " vs " + directoryID);
-
-			if (directoryID == null)
-				return null;
-			else
-				return (ConcurrentHashMap) map.get(directoryID);
-		}
-	}
-
-	// **************************************************************************
-	// ** deleteCache
-	// **************************************************************************
-
-	public static void deleteCache() {
-
-		if (map != null) {
-			ConcurrentHashMap vars = getVars();
-			if (vars != null) {
-				synchronized (vars) {
-					List path = (List) vars.get("path");
-					List items = (List) vars.get("items");
-					List status = (List) vars.get("status");
-
-					synchronized (path) {
-						path.clear();
-					}
-					synchronized (items) {
-						items.clear();
-					}
-					synchronized (status) {
-						status.clear();
-					}
-
-					vars.remove("startTime");
-					vars.remove("root");
-				}
-			}
-		}
-	}
-
-	private static Long getDirectoryID() {
-		try {
-			String id = Thread.currentThread().getName();
-			id = id.substring(id.indexOf("_") + 1);
-			id = id.substring(0, id.indexOf("-"));
-			// System.out.println(id + " vs " +
-			// Thread.currentThread().getName());
-			return Long.valueOf(id).longValue();
-		} catch (Exception e) {
-			return 0L;
-		}
-	}
-
-	// **************************************************************************
-	// ** Stop
-	// **************************************************************************
-	/** Used to stop the current thread. */
-
-	public static void stop() {
-		updatePool(null);
-	}
-
-	// **************************************************************************
-	// ** updatePool
-	// **************************************************************************
-	/** Used to add a new directory to the pool. */
-
-	public static void updatePool(Directory directory) {
-
-		ConcurrentHashMap vars = getVars();
-		Long startTime = null;
-		if (vars.get("startTime") != null)
-			startTime = (Long) vars.get("startTime");
-
-		// if start time is null, then this is the first time the pool has been
-		// modified
-		if (startTime == null) {
-			synchronized (vars) {
-				vars.put("startTime", getStartTime());
-				vars.put("root", directory);
-				vars.notifyAll();
-			}
-		}
-
-		boolean updatePool = true;
-		if (directory == null) {
-			if (Thread.currentThread().getName().equalsIgnoreCase("Finalizer")) {
-				updatePool = false;
-			}
-		}
-
-		if (updatePool) {
-			List pool = (List) vars.get("pool");
-			synchronized (pool) {
-				pool.add(directory);
-				pool.notifyAll();
-			}
-		}
-
-	}
-
-	// **************************************************************************
-	// ** Add File
-	// **************************************************************************
-	/** Used to add a file to the list of items found. */
-
-	private static void addFile(File file) {
-
-		ConcurrentHashMap vars = getVars();
-		List items = (List) vars.get("items");
-
-		synchronized (items) {
-			items.add(file);
-			items.notifyAll();
-		}
-	}
-
-	// **************************************************************************
-	// ** Add Directory
-	// **************************************************************************
-	/** Used to add a directory to the list of items found. */
-
-	private static void addDirectory(Directory directory) {
-
-		ConcurrentHashMap vars = getVars();
-		List items = (List) vars.get("items");
-		Directory root = (Directory) vars.get("root");
-
-		synchronized (items) {
-			if (!directory.equals(root)) {
-				items.add(directory);
-				items.notifyAll();
-			}
-		}
-	}
-
-	private static void addPath(Directory directory) {
-		List path = (List) getVars().get("path");
-		synchronized (path) {
-			path.add(directory.toString());
-		}
-	}
-
-	private static void removePath(Directory directory) {
-		List path = (List) getVars().get("path");
-		synchronized (path) {
-			path.remove(directory.toString());
-		}
-	}
-
-	// **************************************************************************
-	// ** Get Status
-	// **************************************************************************
-	/**
-	 * Used to retrieve the status object. The status object is a List that will
-	 * remain empty until all of the threads have completed searching the file
-	 * system. While status.isEmpty() call status.wait();
-	 */
-	public static List getStatus() {
-
-		ConcurrentHashMap vars = getVars();
-		List status = (List) vars.get("status");
-
-		return status;
-	}
-
-	// **************************************************************************
-	// ** Update Status
-	// **************************************************************************
-	/**
-	 * Used to insert an entry into the status object. This is used to notify
-	 * the client that all threads have completed searching the file system.
-	 */
-	private static void updateStatus() {
-
-		ConcurrentHashMap vars = getVars();
-		List status = (List) vars.get("status");
-		List items = (List) vars.get("items");
-		Long startTime = (Long) vars.get("startTime");
-
-		synchronized (status) {
-			status.add("ellapsedTime = " + getEllapsedTime(startTime) + " ms");
-			status.notifyAll();
-			// System.out.println(Thread.currentThread().getName() + " Updated
-			// Status!");
-		}
-		synchronized (items) {
-			items.add(null);
-			items.notifyAll();
-		}
-
-		((List) vars.get("pool")).clear();
-		((List) vars.get("path")).clear();
-		((List) vars.get("threads")).clear();
-		((ConcurrentHashMap) vars.get("activatedThreads")).clear();
-
-		// Update the lut
-		synchronized (lut) {
-			long directoryID = getDirectoryID();
-			java.util.Iterator it = lut.keySet().iterator();
-			while (it.hasNext()) {
-				String parentThread = (String) it.next();
-				if ((Long) lut.get(parentThread) == directoryID) {
-					lut.remove(parentThread);
-					lut.notifyAll();
-					break;
-				}
-			}
-		}
-
-	}
-
-	// **************************************************************************
-	// ** Get Items
-	// **************************************************************************
-	/**
-	 * Used to retrieve a list of files and folders found in this directory.
-	 */
-	public static List getItems() {
-		return (List) getVars().get("items");
-	}
-
-	// **************************************************************************
-	// ** Run
-	// **************************************************************************
-	/** Processes entries in the pool. Waits and add children to the array. */
-
-	@Override
-	public void run() {
-
-		// Get shared variables
-		ConcurrentHashMap vars = getVars();
-		if (vars == null)
-			return; // <--This should never happen!
-
-		List threads = (List) vars.get("threads");
-		ConcurrentHashMap activatedThreads = (ConcurrentHashMap) vars.get("activatedThreads");
-		List path = (List) vars.get("path");
-		List pool = (List) vars.get("pool");
-		FileFilter filter = (FileFilter) vars.get("filter");
-		int numThreads = (Integer) vars.get("numThreads");
-		String threadID = Thread.currentThread().getName();
-
-		while (true) {
-			Directory dir;
-
-			// Wait for new directories to be added to the pool
-			synchronized (pool) {
-				while (pool.isEmpty()) {
-					try {
-						pool.wait();
-					} catch (InterruptedException e) {
-						// If interrupted, return immediately
-						Thread.currentThread().interrupt();
-						return;
-					}
-				}
-
-				// Update the list of active threads
-				synchronized (threads) {
-					threads.add(threadID);
-				}
-				synchronized (activatedThreads) {
-					if (activatedThreads.get(threadID) == null) {
-						activatedThreads.put(threadID, true);
-					}
-				}
-
-				Object obj = pool.get(0);
-				if (obj == null) {
-					// System.out.println("Terminating Thread: " + threadID);
-					synchronized (threads) {
-						threads.remove(threadID);
-					}
-					synchronized (activatedThreads) {
-						activatedThreads.replace(threadID, false);
-						if (activatedThreads.size() == numThreads) {
-							if (!activatedThreads.containsValue(true)) {
-								updateStatus();
-							}
-						}
-					}
-					return;
-				} else {
-					dir = (Directory) obj;
-					pool.remove(obj);
-					pool.notifyAll();
-				}
-			}
-
-			// Process directory
-			if (dir != null) {
-
-				// Notify Path/Status Object of new task
-				addPath(dir);
-
-				// Add subdirectories to the processing pool and insert files
-				// into file array
-				Object[] items = dir.listFiles();
-				if (items != null) {
-					for (int i = 0; i < items.length; i++) {
-						Object obj = items[i];
-						boolean isDirectory = false;
-						boolean accept = false;
-						if (obj instanceof String) {
-							String s = (String) obj;
-							accept = filter.accept(s);
-							isDirectory = s.replace("\\", "/").endsWith("/");
-						} else if (obj instanceof java.io.File) {
-							java.io.File f = (java.io.File) obj;
-							accept = filter.accept(f);
-							isDirectory = f.isDirectory();
-						}
-
-						if (accept) {
-
-							if (isDirectory) {
-
-								// Add directory to the array and update the
-								// pool
-								Directory d = null;
-								if (obj instanceof String) {
-									d = (new Directory((String) obj));
-								} else if (obj instanceof java.io.File) {
-									d = (new Directory((java.io.File) obj));
-								}
-								if (d != null) {
-									addDirectory(d);
-									updatePool(d);
-								}
-							} else {
-
-								// Add File to the array
-								if (obj instanceof String) {
-									addFile(new File((String) obj));
-								} else if (obj instanceof java.io.File) {
-									addFile(new File((java.io.File) obj));
-								}
-
-							}
-						}
-					}
-				}
-
-				// Notify Path/Status Object of task completion
-				removePath(dir);
-
-				synchronized (threads) {
-					threads.remove(threadID);
-				}
-
-				// Check whether we're done processing all the directories and
-				// notify the client
-				synchronized (path) {
-					if (path.isEmpty()) {
-						synchronized (pool) {
-							if (pool.isEmpty()) {
-								synchronized (threads) {
-									if (threads.isEmpty()) {
-										// System.out.println("Terminating
-										// Thread: " + threadID + "*");
-										synchronized (activatedThreads) {
-											activatedThreads.replace(threadID, false);
-										}
-										updatePool(null);
-										return;
-									}
-								}
-							}
-						}
-					}
-				}
-
-			}
-			/*
-			 * else{ //Found null entry. This is our que to stop waiting for new
-			 * directories... //System.out.println("Terminating Thread: " +
-			 * Thread.currentThread().getName());
-			 * 
-			 * 
-			 * 
-			 * 
-			 * synchronized (threads){ String threadID =
-			 * Thread.currentThread().getName(); threads.remove(threadID); }
-			 * 
-			 * 
-			 * synchronized (activatedThreads){
-			 * activatedThreads.replace(Thread.currentThread().getName(),
-			 * false); if (activatedThreads.containsValue(true)){
-			 * updatePool(null); } else{
-			 * 
-			 * if (activatedThreads.size()<numThreads){ updatePool(null); }
-			 * else{ //System.out.println(this.getDirectoryID() + " activated "
-			 * + activatedThreads.size() + " threads"); updateStatus(); } } }
-			 * 
-			 * return; }
-			 */
-
-		} // end while
-
-	} // end run
-
-	// **************************************************************************
-	// ** Get Start Time
-	// **************************************************************************
-	/** Used to set the start time. Returns the current time in milliseconds. */
-
-	private static long getStartTime() {
-		return java.util.Calendar.getInstance().getTimeInMillis();
-	}
-
-	// **************************************************************************
-	// ** Get Ellapsed Time
-	// **************************************************************************
-	/** Used to compute the ellapsed time in milliseconds. */
-
-	private static long getEllapsedTime(long StartTime) {
-		try {
-			long endTime = java.util.Calendar.getInstance().getTimeInMillis();
-			return endTime - StartTime;
-		} catch (Exception e) {
-			return 0;
-		}
-	}
-
-}// End Directory Search
-
 // ******************************************************************************
 // ** FileSystemWatcher Class - By Peter Borissow
 // ******************************************************************************
@@ -2669,8 +2064,10 @@ class DirectorySearch implements Runnable {
  * required and significantly reduces memory consumption. Note that this
  * approach only works on Windows 2000, XP, or later and you need a dynamic link
  * library called javaxt-core.dll. Again, this is just an option. For
- * non-Windows operation systems, the FileWatcher class will periodically scan
- * the file system for updates.
+ * non-Windows operation systems, the FileWatcher class will use a
+ * java.nio.file.WatchService (inotify on Linux). If a WatchService is not
+ * available, the FileWatcher class will periodically scan the file system for
+ * updates.
  *
  ******************************************************************************/
 
@@ -2679,10 +2076,11 @@ class FileSystemWatcher extends MLog implements Runnable {
 	private Directory directory;
 	private Timer timer;
 	private boolean includeSubdirectories = true;
-	private boolean terminationRequested = false;
+	private volatile boolean terminationRequested = false;
 	private Long osHandle = null;
+	private volatile WatchServiceMonitor watchServiceMonitor;
 
-	private List events = new LinkedList();
+	private List<Directory.Event> events = new LinkedList<Directory.Event>();
 	private Directory.Event LastEvent = null;
 
 	// **************************************************************************
@@ -2705,8 +2103,21 @@ class FileSystemWatcher extends MLog implements Runnable {
 	public final void run() {
 
 		if (!File.loadDLL()) {
-			this.timer = new Timer();
-			timer.schedule(new EventMonitor(), new java.util.Date(), 1000);
+			try {
+				watchServiceMonitor = new WatchServiceMonitor();
+			} catch (Exception e) {
+				log().d("WatchService not available", e);
+			}
+
+			if (watchServiceMonitor != null) {
+				if (terminationRequested)
+					watchServiceMonitor.close();
+				else
+					watchServiceMonitor.run();
+			} else {
+				this.timer = new Timer();
+				timer.schedule(new EventMonitor(), new java.util.Date(), 1000);
+			}
 		} else {
 			try {
 				long osWaitHandle = FileSystemWatcherNative.FindFirstChangeNotification(directory.getPath(),
@@ -2833,14 +2244,374 @@ class FileSystemWatcher extends MLog implements Runnable {
 			timer.cancel();
 			timer = null;
 		}
+
+		if (watchServiceMonitor != null) {
+			watchServiceMonitor.close();
+		}
 	}
 
+	// **************************************************************************
+	// ** WatchServiceMonitor
+	// **************************************************************************
+	/**
+	 * Used to monitor changes made to the file system using a
+	 * java.nio.file.WatchService. On Linux, the WatchService is backed by
+	 * inotify so the file system doesn't have to be scanned for changes. Each
+	 * directory is registered with the WatchService. New subdirectories are
+	 * registered as they are created.
+	 * <p/>
+	 * Events are collected for a short period of time and coalesced before
+	 * they are added to the events list. For example, a file that is created
+	 * and modified is reported as a single "Create" event. A "Delete" followed
+	 * by a "Create" in the same directory is reported as a "Rename". If the
+	 * WatchService overflows, the affected directories are rescanned and
+	 * compared to the list of files that were in the directory before.
+	 */
+	private class WatchServiceMonitor {
+
+		private static final long coalesceTime = 50; // ms
+		private static final long maxCoalesceTime = 500; // ms
+
+		private java.nio.file.WatchService watchService;
+		private java.util.HashMap<java.nio.file.WatchKey, java.nio.file.Path> keys = new java.util.HashMap<java.nio.file.WatchKey, java.nio.file.Path>();
+		private java.util.HashMap<java.nio.file.Path, java.util.HashSet<String>> children = new java.util.HashMap<java.nio.file.Path, java.util.HashSet<String>>();
+		private long lastUpdate;
+
+		public WatchServiceMonitor() throws java.io.IOException {
+			java.nio.file.Path root = directory.toFile().toPath();
+			watchService = root.getFileSystem().newWatchService();
+			lastUpdate = System.currentTimeMillis();
+			try {
+				register(root, null);
+			} catch (java.io.IOException e) {
+				watchService.close();
+				throw e;
+			}
+		}
+
+		// ************************************************************************
+		// ** run
+		// ************************************************************************
+		/**
+		 * Used to process events until the FileSystemWatcher is stopped.
+		 */
+		public void run() {
+			try {
+				while (!terminationRequested) {
+					java.nio.file.WatchKey key = watchService.take();
+
+					// Collect events that arrive within the coalesce time
+					java.util.ArrayList<Object[]> rawEvents = new java.util.ArrayList<Object[]>();
+					java.util.LinkedHashSet<java.nio.file.Path> overflow = new java.util.LinkedHashSet<java.nio.file.Path>();
+					long startTime = System.currentTimeMillis();
+					while (key != null) {
+						java.nio.file.Path dir = keys.get(key);
+						for (java.nio.file.WatchEvent<?> event : key.pollEvents()) {
+							if (dir == null)
+								continue;
+							if (event.kind() == java.nio.file.StandardWatchEventKinds.OVERFLOW) {
+								overflow.add(dir);
+							} else {
+								java.nio.file.Path path = dir.resolve((java.nio.file.Path) event.context());
+								rawEvents.add(new Object[] { event.kind(), path });
+							}
+						}
+						if (!key.reset()) {
+							keys.remove(key);
+						}
+
+						if (System.currentTimeMillis() - startTime > maxCoalesceTime)
+							break;
+						key = watchService.poll(coalesceTime, java.util.concurrent.TimeUnit.MILLISECONDS);
+					}
+
+					long time = System.currentTimeMillis();
+					java.util.LinkedHashMap<String, Directory.Event> events = new java.util.LinkedHashMap<String, Directory.Event>();
+					processEvents(rawEvents, events);
+					for (java.nio.file.Path dir : overflow) {
+						rescan(dir, events);
+					}
+					lastUpdate = time;
+
+					if (!events.isEmpty()) {
+						synchronized (FileSystemWatcher.this.events) {
+							FileSystemWatcher.this.events.addAll(events.values());
+							FileSystemWatcher.this.events.notifyAll();
+						}
+					}
+
+					// Stop if the directory has been deleted
+					if (keys.isEmpty())
+						break;
+				}
+			} catch (InterruptedException e) {
+			} catch (java.nio.file.ClosedWatchServiceException e) {
+			} finally {
+				close();
+			}
+		}
+
+		public void close() {
+			try {
+				watchService.close();
+			} catch (java.io.IOException e) {
+			}
+		}
+
+		// ************************************************************************
+		// ** processEvents
+		// ************************************************************************
+		/**
+		 * Used to convert events returned by the WatchService into
+		 * Directory.Events. Consecutive "Delete" and "Create" events in the
+		 * same directory are reported as a "Rename". Multiple events for the
+		 * same file are combined into a single event.
+		 */
+		private void processEvents(java.util.ArrayList<Object[]> rawEvents,
+		        java.util.LinkedHashMap<String, Directory.Event> events) {
+
+			for (int i = 0; i < rawEvents.size(); i++) {
+				java.nio.file.WatchEvent.Kind<?> kind = (java.nio.file.WatchEvent.Kind<?>) rawEvents.get(i)[0];
+				java.nio.file.Path path = (java.nio.file.Path) rawEvents.get(i)[1];
+
+				if (kind == java.nio.file.StandardWatchEventKinds.ENTRY_DELETE) {
+
+					// Check whether the next event creates a file in the same
+					// directory. If so, assume the file was renamed.
+					if (i + 1 < rawEvents.size()) {
+						java.nio.file.WatchEvent.Kind<?> nextKind = (java.nio.file.WatchEvent.Kind<?>) rawEvents
+						        .get(i + 1)[0];
+						java.nio.file.Path nextPath = (java.nio.file.Path) rawEvents.get(i + 1)[1];
+						if (nextKind == java.nio.file.StandardWatchEventKinds.ENTRY_CREATE
+						        && path.getParent().equals(nextPath.getParent())
+						        && !java.nio.file.Files.exists(path, java.nio.file.LinkOption.NOFOLLOW_LINKS)) {
+							rename(path, nextPath, events);
+							i++;
+							continue;
+						}
+					}
+					delete(path, events);
+				} else if (kind == java.nio.file.StandardWatchEventKinds.ENTRY_CREATE) {
+					create(path, events);
+				} else if (kind == java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY) {
+					modify(path, events);
+				}
+			}
+		}
+
+		private void create(java.nio.file.Path path, java.util.LinkedHashMap<String, Directory.Event> events) {
+			addChild(path);
+			String file = path.toString();
+			Directory.Event event = events.get(file);
+			if (event == null) {
+				events.put(file, new Directory.Event("Create", file));
+			} else if (event.getEventID() == Directory.Event.DELETE) {
+				event.setAction("Modify"); // <-- File was replaced
+			}
+
+			// Register new directories and report files that were created
+			// before the directory was registered.
+			if (java.nio.file.Files.isDirectory(path, java.nio.file.LinkOption.NOFOLLOW_LINKS)) {
+				try {
+					register(path, events);
+				} catch (java.io.IOException e) {
+				}
+			}
+		}
+
+		private void modify(java.nio.file.Path path, java.util.LinkedHashMap<String, Directory.Event> events) {
+			if (java.nio.file.Files.isDirectory(path, java.nio.file.LinkOption.NOFOLLOW_LINKS))
+				return;
+			String file = path.toString();
+			if (!events.containsKey(file)) {
+				events.put(file, new Directory.Event("Modify", file));
+			}
+		}
+
+		private void delete(java.nio.file.Path path, java.util.LinkedHashMap<String, Directory.Event> events) {
+			removeChild(path);
+			unregister(path);
+			String file = path.toString();
+			Directory.Event event = events.get(file);
+			if (event == null) {
+				events.put(file, new Directory.Event("Delete", file));
+			} else if (event.getEventID() == Directory.Event.CREATE) {
+				events.remove(file); // <-- File was created and deleted
+			} else if (event.getEventID() == Directory.Event.RENAME) {
+				events.remove(file);
+				delete(java.nio.file.Paths.get(event.getOriginalFile()), events);
+			} else {
+				event.setAction("Delete");
+			}
+		}
+
+		private void rename(java.nio.file.Path orgPath, java.nio.file.Path path,
+		        java.util.LinkedHashMap<String, Directory.Event> events) {
+			removeChild(orgPath);
+			unregister(orgPath);
+			addChild(path);
+
+			String orgFile = orgPath.toString();
+			String file = path.toString();
+			Directory.Event orgEvent = events.remove(orgFile);
+			if (orgEvent != null && orgEvent.getEventID() == Directory.Event.CREATE) {
+				events.put(file, new Directory.Event("Create", file));
+			} else {
+				Directory.Event event = new Directory.Event("Rename", file);
+				event.setOrgFile(orgFile);
+				events.put(file, event);
+			}
+
+			if (java.nio.file.Files.isDirectory(path, java.nio.file.LinkOption.NOFOLLOW_LINKS)) {
+				try {
+					register(path, null);
+				} catch (java.io.IOException e) {
+				}
+			}
+		}
+
+		// ************************************************************************
+		// ** rescan
+		// ************************************************************************
+		/**
+		 * Used to find changes in a directory after the WatchService has
+		 * overflowed. The files in the directory are compared to the files
+		 * found in the directory before. Files that were modified after the
+		 * last update are reported as modified.
+		 */
+		private void rescan(java.nio.file.Path dir, java.util.LinkedHashMap<String, Directory.Event> events) {
+			java.util.HashSet<String> prevNames = children.get(dir);
+			if (prevNames == null)
+				prevNames = new java.util.HashSet<String>();
+			else
+				prevNames = new java.util.HashSet<String>(prevNames);
+
+			java.nio.file.DirectoryStream<java.nio.file.Path> stream = null;
+			try {
+				stream = java.nio.file.Files.newDirectoryStream(dir);
+				for (java.nio.file.Path path : stream) {
+					String name = path.getFileName().toString();
+					if (!prevNames.remove(name)) {
+						create(path, events);
+					} else {
+						try {
+							if (java.nio.file.Files.getLastModifiedTime(path).toMillis() >= lastUpdate)
+								modify(path, events);
+						} catch (java.io.IOException e) {
+						}
+					}
+				}
+			} catch (java.io.IOException e) {
+				// Directory no longer exists
+			} finally {
+				if (stream != null) {
+					try {
+						stream.close();
+					} catch (java.io.IOException e) {
+					}
+				}
+			}
+
+			for (String name : prevNames) {
+				delete(dir.resolve(name), events);
+			}
+		}
+
+		// ************************************************************************
+		// ** register
+		// ************************************************************************
+		/**
+		 * Used to register a directory and all its subdirectories with the
+		 * WatchService. If an events map is given, "Create" events are added
+		 * for all the files and folders found in the directory.
+		 */
+		private void register(final java.nio.file.Path dir,
+		        final java.util.LinkedHashMap<String, Directory.Event> events) throws java.io.IOException {
+
+			java.nio.file.Files.walkFileTree(dir, new java.nio.file.SimpleFileVisitor<java.nio.file.Path>() {
+				@Override
+				public java.nio.file.FileVisitResult preVisitDirectory(java.nio.file.Path path,
+				        java.nio.file.attribute.BasicFileAttributes attrs) throws java.io.IOException {
+					if (!path.equals(dir) && !includeSubdirectories)
+						return java.nio.file.FileVisitResult.SKIP_SUBTREE;
+
+					java.nio.file.WatchKey key = path.register(watchService,
+					        java.nio.file.StandardWatchEventKinds.ENTRY_CREATE,
+					        java.nio.file.StandardWatchEventKinds.ENTRY_DELETE,
+					        java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY);
+					keys.put(key, path);
+					children.put(path, new java.util.HashSet<String>());
+					if (!path.equals(dir))
+						visit(path);
+					return java.nio.file.FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public java.nio.file.FileVisitResult visitFile(java.nio.file.Path path,
+				        java.nio.file.attribute.BasicFileAttributes attrs) {
+					visit(path);
+					return java.nio.file.FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public java.nio.file.FileVisitResult visitFileFailed(java.nio.file.Path path, java.io.IOException e) {
+					return java.nio.file.FileVisitResult.CONTINUE;
+				}
+
+				private void visit(java.nio.file.Path path) {
+					addChild(path);
+					if (events != null) {
+						String file = path.toString();
+						if (!events.containsKey(file))
+							events.put(file, new Directory.Event("Create", file));
+					}
+				}
+			});
+		}
+
+		// ************************************************************************
+		// ** unregister
+		// ************************************************************************
+		/**
+		 * Used to cancel the WatchKeys of a deleted or renamed directory and
+		 * its subdirectories.
+		 */
+		private void unregister(java.nio.file.Path dir) {
+			if (!children.containsKey(dir))
+				return;
+			java.util.Iterator<java.util.Map.Entry<java.nio.file.WatchKey, java.nio.file.Path>> it = keys.entrySet()
+			        .iterator();
+			while (it.hasNext()) {
+				java.util.Map.Entry<java.nio.file.WatchKey, java.nio.file.Path> entry = it.next();
+				if (entry.getValue().startsWith(dir)) {
+					entry.getKey().cancel();
+					children.remove(entry.getValue());
+					it.remove();
+				}
+			}
+		}
+
+		private void addChild(java.nio.file.Path path) {
+			java.util.HashSet<String> names = children.get(path.getParent());
+			if (names != null)
+				names.add(path.getFileName().toString());
+		}
+
+		private void removeChild(java.nio.file.Path path) {
+			java.util.HashSet<String> names = children.get(path.getParent());
+			if (names != null)
+				names.remove(path.getFileName().toString());
+		}
+
+	} // End WatchServiceMonitor Class
+
 	// **************************************************************************
 	// ** EventMonitor
 	// **************************************************************************
 	/**
 	 * Used to periodically check for changes made to the file system. This
-	 * class is only used on non-windows machines.
+	 * class is only used on non-windows machines that don't support a
+	 * WatchService.
 	 */
 	private class EventMonitor extends TimerTask {
 
@@ -0,0 +1,349 @@
+package javaxt.io;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+//******************************************************************************
+//**  DirectorySearch
+//******************************************************************************
+/**
+ * Used to crawl through a directory and find files and folders. This is a
+ * recursive search and may take some time to complete. Subdirectories are
+ * listed in parallel using a fork/join pool that is created for each search
+ * so independent searches don't block each other. Files and folders are
+ * returned as soon as they are found.
+ * <p/>
+ * Example:
+ *
+ * <pre>
+ * DirectorySearch search = directory.search("*.txt");
+ * while (search.hasNext()) {
+ *     Object item = search.next();
+ *     if (item instanceof javaxt.io.File) {
+ *         System.out.println(item);
+ *     }
+ * }
+ * </pre>
+ *
+ * The search can be stopped at any time using the cancel() or close()
+ * methods. If the consumer stops taking items without cancelling the search,
+ * the search is cancelled once the queue is full and no item has been taken
+ * for the time given in setTimeout(). This way the worker threads don't
+ * block forever.
+ *
+ ******************************************************************************/
+
+public class DirectorySearch implements Iterator<Object>, AutoCloseable {
+
+	private static final Object END = new Object();
+	private static final int queueSize = 10000;
+
+	private final FileFilter filter;
+	private final List<Object> items;
+	private final LinkedBlockingQueue<Object> queue;
+	private final ForkJoinPool pool;
+	private volatile boolean cancelled = false;
+	private volatile boolean done = false;
+	private volatile long timeout = 5 * 60000;
+	private volatile long lastAccess = System.currentTimeMillis();
+	private Object nextItem = null;
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	/**
+	 * Creates a new instance of this class and starts the search.
+	 *
+	 * @param items
+	 *            Optional list used to store items as they are found. If a list
+	 *            is given, a null entry is added to the end of the list once
+	 *            the search is complete and the iterator methods can't be used.
+	 * @param parallelism
+	 *            Maximum number of directories listed at the same time.
+	 */
+	protected DirectorySearch(final Directory directory, FileFilter filter, List<Object> items, int parallelism) {
+		this.filter = filter;
+		this.items = items;
+		this.queue = (items == null ? new LinkedBlockingQueue<Object>(queueSize) : null);
+		this.pool = new ForkJoinPool(Math.max(1, parallelism));
+		pool.execute(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				try {
+					new Task(directory).compute();
+				} finally {
+					finish();
+				}
+			}
+		});
+	}
+
+	// **************************************************************************
+	// ** getParallelism
+	// **************************************************************************
+	/**
+	 * Returns the default number of directories that are listed at the same
+	 * time. The number of threads is based on the number of processors. Remote
+	 * directories (e.g. network shares) are listed with more threads because
+	 * most of the time is spent waiting for the server.
+	 */
+	protected static int getParallelism(Directory directory) {
+		int numThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		String path = directory.getPath().replace("\\", "/");
+		if (path.startsWith("//"))
+			numThreads = numThreads * 4;
+		return Math.min(numThreads, 64);
+	}
+
+	// **************************************************************************
+	// ** Task
+	// **************************************************************************
+	/**
+	 * Used to list the contents of a single directory. A new task is created
+	 * for each subdirectory.
+	 */
+	private class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Directory dir;
+
+		private Task(Directory dir) {
+			this.dir = dir;
+		}
+
+		@Override
+		protected void compute() {
+			if (cancelled)
+				return;
+
+			Object[] items = dir.listFiles();
+			if (items == null)
+				return;
+
+			java.util.ArrayList<Task> tasks = new java.util.ArrayList<Task>();
+			for (int i = 0; i < items.length && !cancelled; i++) {
+				Object obj = items[i];
+				boolean isDirectory = false;
+				boolean accept = false;
+				if (obj instanceof String) {
+					String s = (String) obj;
+					accept = filter.accept(s);
+					isDirectory = s.replace("\\", "/").endsWith("/");
+				} else if (obj instanceof java.io.File) {
+					java.io.File f = (java.io.File) obj;
+					accept = filter.accept(f);
+					isDirectory = f.isDirectory();
+				}
+
+				if (accept) {
+					if (isDirectory) {
+
+						// Add directory to the list and search the
+						// subdirectory
+						Directory d = null;
+						if (obj instanceof String) {
+							d = new Directory((String) obj);
+						} else if (obj instanceof java.io.File) {
+							d = new Directory((java.io.File) obj);
+						}
+						if (d != null) {
+							add(d);
+							tasks.add(new Task(d));
+						}
+					} else {
+
+						// Add file to the list
+						if (obj instanceof String) {
+							add(new File((String) obj));
+						} else if (obj instanceof java.io.File) {
+							add(new File((java.io.File) obj));
+						}
+					}
+				}
+			}
+
+			if (!tasks.isEmpty() && !cancelled)
+				invokeAll(tasks);
+		}
+	}
+
+	// **************************************************************************
+	// ** add
+	// **************************************************************************
+	private void add(Object item) {
+		if (items != null) {
+			synchronized (items) {
+				items.add(item);
+				items.notifyAll();
+			}
+		} else {
+			try {
+				while (!cancelled) {
+					if (queue.offer(item, 100, TimeUnit.MILLISECONDS))
+						break;
+
+					// Cancel the search if the consumer went away
+					long t = timeout;
+					if (t > 0 && System.currentTimeMillis() - lastAccess > t)
+						cancel();
+				}
+			} catch (InterruptedException e) {
+				cancelled = true;
+			}
+		}
+	}
+
+	// **************************************************************************
+	// ** finish
+	// **************************************************************************
+	/**
+	 * Called when the search is complete or has been cancelled.
+	 */
+	private void finish() {
+		if (items != null) {
+			synchronized (items) {
+				items.add(null);
+				done = true;
+				items.notifyAll();
+			}
+		} else {
+			done = true;
+			if (cancelled)
+				queue.clear();
+			try {
+				while (!queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+					if (cancelled)
+						queue.clear();
+				}
+			} catch (InterruptedException e) {
+				queue.clear();
+				queue.offer(END);
+			}
+		}
+		pool.shutdown();
+	}
+
+	// **************************************************************************
+	// ** cancel
+	// **************************************************************************
+	/**
+	 * Used to stop the search. Items that have been found so far may still be
+	 * returned by the iterator.
+	 */
+	public void cancel() {
+		cancelled = true;
+		if (queue != null)
+			queue.clear();
+	}
+
+	// **************************************************************************
+	// ** close
+	// **************************************************************************
+	/** Same as cancel(). Allows the search to be used in a try-with-resources. */
+	@Override
+	public void close() {
+		cancel();
+	}
+
+	// **************************************************************************
+	// ** setTimeout
+	// **************************************************************************
+	/**
+	 * Used to set the maximum time, in milliseconds, that the search waits for
+	 * the consumer to take the next item once the queue is full. If no item is
+	 * taken within this time, the search is cancelled. A value of 0 or less
+	 * waits forever. The default is 5 minutes.
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/** Returns true if the search was cancelled. */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/** Returns true if all the directories have been searched. */
+	public boolean isDone() {
+		return done;
+	}
+
+	// **************************************************************************
+	// ** hasNext
+	// **************************************************************************
+	/**
+	 * Returns true if more files or folders were found. Blocks until the next
+	 * item is found or the search is complete. If the thread is interrupted,
+	 * the search is cancelled.
+	 */
+	@Override
+	public boolean hasNext() {
+		if (queue == null)
+			throw new IllegalStateException("Items are added to a list.");
+		lastAccess = System.currentTimeMillis();
+		if (nextItem == null) {
+			try {
+				nextItem = queue.take();
+				lastAccess = System.currentTimeMillis();
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				nextItem = END;
+			}
+		}
+		if (nextItem == END) {
+			queue.offer(END); // <-- In case hasNext is called again
+			nextItem = null;
+			return false;
+		}
+		return true;
+	}
+
+	// **************************************************************************
+	// ** next
+	// **************************************************************************
+	/**
+	 * Returns the next file (javaxt.io.File) or folder (javaxt.io.Directory).
+	 */
+	@Override
+	public Object next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		Object item = nextItem;
+		nextItem = null;
+		return item;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	// **************************************************************************
+	// ** stream
+	// **************************************************************************
+	/**
+	 * Returns the files and folders as a sequential stream. Closing the stream
+	 * cancels the search.
+	 */
+	public java.util.stream.Stream<Object> stream() {
+		java.util.stream.Stream<Object> stream = java.util.stream.StreamSupport.stream(
+		        java.util.Spliterators.spliteratorUnknownSize(this, java.util.Spliterator.NONNULL), false);
+		return stream.onClose(new Runnable() {
+			@Override
+			public void run() {
+				cancel();
+			}
+		});
+	}
+}
@@ -11,9 +11,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
-import java.nio.channels.WritableByteChannel;
 import java.util.Locale;
 
 //******************************************************************************
@@ -562,25 +559,33 @@ public class File implements Comparable {
 		// Create New Path
 		Destination.getParentDirectory().create();
 
-		// Copy File
-		ReadableByteChannel inputChannel = null;
-		WritableByteChannel outputChannel = null;
+		// Copy File. Use transferTo so the OS can copy the bytes without
+		// moving them through the java heap (e.g. sendfile or copy_file_range)
+		java.nio.channels.FileChannel inputChannel = null;
+		java.nio.channels.FileChannel outputChannel = null;
 		try {
-			FileInputStream input = new FileInputStream(File);
-			FileOutputStream output = new FileOutputStream(Destination.toFile());
-			inputChannel = Channels.newChannel(input);
-			outputChannel = Channels.newChannel(output);
-			final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocateDirect(bufferSize);
-
-			while (inputChannel.read(buffer) != -1) {
-				buffer.flip();
-				outputChannel.write(buffer);
-				buffer.compact();
-
-			}
-			buffer.flip();
-			while (buffer.hasRemaining()) {
-				outputChannel.write(buffer);
+			inputChannel = new FileInputStream(File).getChannel();
+			outputChannel = new FileOutputStream(Destination.toFile()).getChannel();
+
+			long size = inputChannel.size();
+			long position = 0;
+			while (position < size) {
+				long count = inputChannel.transferTo(position, size - position, outputChannel);
+				if (count <= 0) {
+					// Some channels don't support transferTo. Fall back to a
+					// buffered copy.
+					java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocateDirect(bufferSize);
+					inputChannel.position(position);
+					while (inputChannel.read(buffer) != -1) {
+						buffer.flip();
+						while (buffer.hasRemaining()) {
+							outputChannel.write(buffer);
+						}
+						buffer.clear();
+					}
+					break;
+				}
+				position += count;
 			}
 
 			inputChannel.close();
@@ -852,9 +857,7 @@ public class File implements Comparable {
 		if (!exists())
 			return -1;
 		try {
-			java.util.zip.CRC32 crc = new java.util.zip.CRC32();
-			crc.update(getBytes().toByteArray());
-			return crc.getValue();
+			return getChecksums("CRC32").getCRC32();
 		} catch (Exception e) {
 			return -1;
 		}
@@ -887,21 +890,195 @@ public class File implements Comparable {
 		if (!exists())
 			return null;
 		try {
-			java.security.MessageDigest md = java.security.MessageDigest.getInstance(algorithm);
-			InputStream input = getInputStream();
-			byte[] buf = new byte[bufferSize];
-			int i = 0;
-			while ((i = input.read(buf)) != -1) {
-				md.update(buf, 0, i);
-			}
-			input.close();
-			return bytesToHex( md.digest()).toLowerCase();
+			return getChecksums(algorithm).get(algorithm);
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
 		}
 	}
 
+	// **************************************************************************
+	// ** getChecksums
+	// **************************************************************************
+	/**
+	 * Used to compute one or more checksums and hashes in a single pass over
+	 * the file. The file is read in chunks using a direct buffer so large
+	 * files are never loaded into memory. Example:
+	 *
+	 * <pre>
+	 * File.Checksums checksums = file.getChecksums("CRC32", "MD5", "SHA-256");
+	 * String md5 = checksums.get("MD5");
+	 * </pre>
+	 *
+	 * @param algorithms
+	 *            "CRC32", "CRC32C" (requires Java 9 or newer), or the name of a
+	 *            MessageDigest algorithm (e.g. "MD5", "SHA-1", "SHA-256").
+	 * @throws IllegalArgumentException
+	 *             if one of the algorithms is not supported.
+	 */
+	public Checksums getChecksums(String... algorithms) throws IOException {
+		Checksums checksums = new Checksums(algorithms);
+		java.nio.channels.FileChannel channel = null;
+		try {
+			channel = new java.io.FileInputStream(getFile()).getChannel();
+			java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocateDirect(bufferSize);
+			long startTime = System.nanoTime();
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				checksums.update(buffer);
+				buffer.clear();
+			}
+			checksums.elapsedTime = System.nanoTime() - startTime;
+			return checksums;
+		} finally {
+			if (channel != null)
+				channel.close();
+		}
+	}
+
+	// **************************************************************************
+	// ** Checksums Class
+	// **************************************************************************
+	/**
+	 * Used to store checksums and hashes computed by the getChecksums() method
+	 * along with the number of bytes read and the time it took to read them.
+	 */
+	public static class Checksums {
+
+		private final java.util.LinkedHashMap<String, Object> digests = new java.util.LinkedHashMap<String, Object>();
+		private final java.util.HashMap<String, String> values = new java.util.HashMap<String, String>();
+		private long size = 0;
+		private long elapsedTime = 0;
+
+		private Checksums(String[] algorithms) {
+			for (String algorithm : algorithms) {
+				String key = algorithm.toUpperCase();
+				if (digests.containsKey(key))
+					continue;
+				if (key.equals("CRC32")) {
+					digests.put(key, new java.util.zip.CRC32());
+				} else if (key.equals("CRC32C")) {
+					if (CRC32C.UPDATE == null)
+						throw new IllegalArgumentException("CRC32C is not supported by this JVM.");
+					try {
+						digests.put(key, CRC32C.UPDATE.getDeclaringClass().newInstance());
+					} catch (Exception e) {
+						throw new IllegalArgumentException("CRC32C is not supported by this JVM.");
+					}
+				} else {
+					try {
+						digests.put(key, java.security.MessageDigest.getInstance(algorithm));
+					} catch (java.security.NoSuchAlgorithmException e) {
+						throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+					}
+				}
+			}
+		}
+
+		private void update(java.nio.ByteBuffer buffer) {
+			int position = buffer.position();
+			for (Object digest : digests.values()) {
+				buffer.position(position);
+				if (digest instanceof java.security.MessageDigest) {
+					((java.security.MessageDigest) digest).update(buffer);
+				} else if (digest instanceof java.util.zip.CRC32) {
+					((java.util.zip.CRC32) digest).update(buffer);
+				} else {
+					update((java.util.zip.Checksum) digest, buffer);
+				}
+			}
+			size += buffer.limit() - position;
+		}
+
+		private static void update(java.util.zip.Checksum checksum, java.nio.ByteBuffer buffer) {
+			try {
+				CRC32C.UPDATE.invoke(checksum, buffer);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		/**
+		 * Holds the update(ByteBuffer) method of java.util.zip.CRC32C, which
+		 * is resolved once instead of for every chunk. The method is null if
+		 * CRC32C is not available (Java 8).
+		 */
+		private static class CRC32C {
+			private static final java.lang.reflect.Method UPDATE = getUpdateMethod();
+
+			private static java.lang.reflect.Method getUpdateMethod() {
+				try {
+					return Class.forName("java.util.zip.CRC32C").getMethod("update", java.nio.ByteBuffer.class);
+				} catch (Exception e) {
+					return null;
+				}
+			}
+		}
+
+		// ************************************************************************
+		// ** get
+		// ************************************************************************
+		/**
+		 * Returns the checksum or hash computed with the given algorithm as a
+		 * lower case hex string. Returns null if the algorithm was not
+		 * requested.
+		 */
+		public String get(String algorithm) {
+			String key = algorithm.toUpperCase();
+			String value = values.get(key);
+			if (value == null) {
+				Object digest = digests.get(key);
+				if (digest == null)
+					return null;
+				if (digest instanceof java.security.MessageDigest) {
+					value = bytesToHex(((java.security.MessageDigest) digest).digest()).toLowerCase();
+				} else {
+					value = String.format("%08x", ((java.util.zip.Checksum) digest).getValue());
+				}
+				values.put(key, value);
+			}
+			return value;
+		}
+
+		/**
+		 * Returns the CRC-32 checksum of the file or -1 if it was not
+		 * requested.
+		 */
+		public long getCRC32() {
+			Object digest = digests.get("CRC32");
+			return digest == null ? -1 : ((java.util.zip.Checksum) digest).getValue();
+		}
+
+		/** Returns the number of bytes read. */
+		public long getSize() {
+			return size;
+		}
+
+		/** Returns the time it took to read the file, in milliseconds. */
+		public long getElapsedTime() {
+			return elapsedTime / 1000000;
+		}
+
+		/** Returns the number of bytes read per second. */
+		public double getThroughput() {
+			return elapsedTime == 0 ? 0 : size * 1000000000.0 / elapsedTime;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder str = new StringBuilder();
+			for (String key : digests.keySet()) {
+				str.append(key);
+				str.append(": ");
+				str.append(get(key));
+				str.append("\r\n");
+			}
+			str.append("Size: " + size + " bytes\r\n");
+			str.append("Throughput: " + Math.round(getThroughput() / (1024 * 1024)) + " MB/s");
+			return str.toString();
+		}
+	}
+
 	private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 	public static String bytesToHex(byte[] bytes) {
 	    char[] hexChars = new char[bytes.length * 2];
@@ -0,0 +1,117 @@
+package javaxt.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//******************************************************************************
+//**  FileFilter
+//******************************************************************************
+/**
+ * Used to filter files and file names using regular expressions or java.io
+ * FileFilters. Note that directories are always returned.
+ *
+ ******************************************************************************/
+
+class FileFilter {
+
+	private java.io.FileFilter fileFilter = null;
+	private List<java.util.regex.Pattern> regex = null;
+
+	public FileFilter(Object filter) {
+
+		if (filter == null) {
+			filter = "*";
+		}
+
+		if (filter instanceof java.io.FileFilter) {
+			fileFilter = (java.io.FileFilter) filter;
+		}
+
+		if (filter instanceof String) {
+			filter = new String[] { (String) filter };
+		}
+
+		if (filter instanceof String[]) {
+			regex = new ArrayList<java.util.regex.Pattern>();
+			String[] filters = (String[]) filter;
+
+			for (int i = 0; i < filters.length; i++) {
+				regex.add(java.util.regex.Pattern.compile(getRegEx(filters[i]),
+				        java.util.regex.Pattern.CASE_INSENSITIVE));
+			}
+		}
+	}
+
+	public boolean accept(String file) {
+		if (fileFilter != null) {
+			return accept(new java.io.File(file));
+		} else {
+			file = file.replace("\\", "/");
+			if (file.endsWith("/")) { // then we're dealing with a directory
+				return true;
+			} else {
+				file = file.substring(file.lastIndexOf("/") + 1);
+			}
+
+			for (int i = 0; i < regex.size(); i++) {
+				java.util.regex.Matcher matcher = regex.get(i).matcher(file);
+				if (matcher.find()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public boolean accept(java.io.File file) {
+		if (file.isDirectory()) {
+			return true;
+		} else {
+			if (fileFilter != null) {
+				return (fileFilter.accept(file));
+			} else {
+				return accept(file.toString());
+			}
+		}
+	}
+
+	// **************************************************************************
+	// ** usesIOFilter
+	// **************************************************************************
+	/**
+	 * Used to indicate whether this filter relies on a java.io.FileFilter
+	 */
+	public boolean usesIOFilter() {
+		return (fileFilter != null);
+	}
+
+	// **************************************************************************
+	// ** getRegEx
+	// **************************************************************************
+	/**
+	 * Used to convert a wildcard (e.g. "*.txt") into a regular expression.
+	 */
+	private String getRegEx(String wildcardSearch) {
+		String regex = wildcardSearch.trim();
+		// if (!regex.startsWith("*")) regex = "^" + regex;
+		if (!regex.endsWith("*"))
+			regex += "$";
+
+		if (regex.endsWith("*")) {
+			// regex = regex.substring(0, regex.length()-1) + "/";
+			regex = regex.substring(0, regex.length() - 1) + ")";
+			if (regex.contains("*")) {
+				regex = regex.substring(0, regex.lastIndexOf("*") + 1) + "("
+				        + regex.substring(regex.lastIndexOf("*") + 1);
+			} else {
+				regex = "(" + regex;
+			}
+		}
+
+		regex = regex.replace(".", "\\.");
+		regex = regex.replace("*", ".*");
+		// System.out.println(regex);
+		return regex;
+	}
+
+}
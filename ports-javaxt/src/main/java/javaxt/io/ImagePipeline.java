@@ -0,0 +1,775 @@
+package javaxt.io;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+//******************************************************************************
+//**  ImagePipeline
+//******************************************************************************
+/**
+ * Used to resize, sharpen, desaturate and rotate an image in a single pass.
+ * Unlike the methods in the Image class, operations are not applied one at a
+ * time to a full size copy of the image. Instead, the operations are recorded
+ * and applied when the output image is requested. A resize and the sharpen
+ * and desaturate operations that follow it are fused and applied to
+ * horizontal bands (tiles) of the output image. Tiles are processed in
+ * parallel using a fork/join pool and no intermediate full size images are
+ * created (rotations are the exception).
+ * <p/>
+ * When the source is a file, stream or byte array and the image is reduced by
+ * a factor of 4 or more, the image is decoded with source subsampling (see
+ * javax.imageio.ImageReadParam). Large photos, especially JPEGs, are never
+ * fully decoded which greatly reduces the time and memory needed to create
+ * thumbnails. The subsampled image is at least twice the size of the output
+ * image so the quality of the resize is not affected.
+ * <p/>
+ * Example:
+ *
+ * <pre>
+ * Image thumbnail = new ImagePipeline(file).resize(200, 200, true).sharpen().getImage();
+ * </pre>
+ *
+ ******************************************************************************/
+
+public class ImagePipeline {
+
+	private static final int RESIZE = 0;
+	private static final int SET_WIDTH = 1;
+	private static final int SET_HEIGHT = 2;
+	private static final int SHARPEN = 3;
+	private static final int DESATURATE = 4;
+	private static final int ROTATE = 5;
+
+	private static final int tileHeight = 64;
+
+	private BufferedImage bufferedImage;
+	private Object input;
+	private final ArrayList<Operation> operations = new ArrayList<Operation>();
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private boolean subsampling = true;
+
+	private static class Operation {
+		private final int type;
+		private int width;
+		private int height;
+		private boolean maintainRatio;
+		private double value;
+
+		private Operation(int type) {
+			this.type = type;
+		}
+
+		private boolean isResize() {
+			return type == RESIZE || type == SET_WIDTH || type == SET_HEIGHT;
+		}
+
+		private boolean isFilter() {
+			return type == SHARPEN || type == DESATURATE;
+		}
+
+		/** Returns the size of the image after the resize. */
+		private int[] getSize(int width, int height) {
+			if (type == SET_WIDTH) {
+				double ratio = (double) this.width / (double) width;
+				return new int[] { (int) Math.round(width * ratio), (int) Math.round(height * ratio) };
+			} else if (type == SET_HEIGHT) {
+				double ratio = (double) this.height / (double) height;
+				return new int[] { (int) Math.round(width * ratio), (int) Math.round(height * ratio) };
+			}
+
+			int outputWidth = this.width;
+			int outputHeight = this.height;
+			if (maintainRatio) {
+				double ratio;
+				if (width > height) {
+					ratio = (double) this.width / (double) width;
+				} else {
+					ratio = (double) this.height / (double) height;
+				}
+				outputWidth = (int) Math.round(width * ratio);
+				outputHeight = (int) Math.round(height * ratio);
+				if (outputWidth > width || outputHeight > height) {
+					outputWidth = width;
+					outputHeight = height;
+				}
+			}
+			return new int[] { Math.max(1, outputWidth), Math.max(1, outputHeight) };
+		}
+	}
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	/**
+	 * Creates a new pipeline for the given image file. The file is read when
+	 * the output image is requested.
+	 */
+	public ImagePipeline(String PathToImageFile) {
+		this(new java.io.File(PathToImageFile));
+	}
+
+	public ImagePipeline(java.io.File file) {
+		this.input = file;
+	}
+
+	/**
+	 * Creates a new pipeline for an image stream. The stream is read and
+	 * closed when the output image is requested so the pipeline can only be
+	 * used once.
+	 */
+	public ImagePipeline(java.io.InputStream InputStream) {
+		this.input = InputStream;
+	}
+
+	public ImagePipeline(byte[] byteArray) {
+		this.input = byteArray;
+	}
+
+	public ImagePipeline(BufferedImage bufferedImage) {
+		this.bufferedImage = bufferedImage;
+	}
+
+	public ImagePipeline(Image image) {
+		this(image.getBufferedImage());
+	}
+
+	// **************************************************************************
+	// ** setForkJoinPool
+	// **************************************************************************
+	/**
+	 * Used to set the pool used to process tiles. By default, tiles are
+	 * processed using the common fork/join pool.
+	 */
+	public ImagePipeline setForkJoinPool(ForkJoinPool pool) {
+		this.pool = (pool == null ? ForkJoinPool.commonPool() : pool);
+		return this;
+	}
+
+	// **************************************************************************
+	// ** setSubsampling
+	// **************************************************************************
+	/**
+	 * Used to enable or disable subsampled decoding of large images. Enabled
+	 * by default.
+	 */
+	public ImagePipeline setSubsampling(boolean subsampling) {
+		this.subsampling = subsampling;
+		return this;
+	}
+
+	// **************************************************************************
+	// ** resize
+	// **************************************************************************
+	/**
+	 * Used to resize the image. Provides the option to maintain the original
+	 * aspect ratio. Same as Image.resize().
+	 */
+	public ImagePipeline resize(int width, int height, boolean maintainRatio) {
+		Operation op = new Operation(RESIZE);
+		op.width = width;
+		op.height = height;
+		op.maintainRatio = maintainRatio;
+		operations.add(op);
+		return this;
+	}
+
+	public ImagePipeline resize(int width, int height) {
+		return resize(width, height, false);
+	}
+
+	// **************************************************************************
+	// ** setWidth
+	// **************************************************************************
+	/**
+	 * Resizes the image to a given width. The original aspect ratio is
+	 * maintained.
+	 */
+	public ImagePipeline setWidth(int width) {
+		Operation op = new Operation(SET_WIDTH);
+		op.width = width;
+		operations.add(op);
+		return this;
+	}
+
+	// **************************************************************************
+	// ** setHeight
+	// **************************************************************************
+	/**
+	 * Resizes the image to a given height. The original aspect ratio is
+	 * maintained.
+	 */
+	public ImagePipeline setHeight(int height) {
+		Operation op = new Operation(SET_HEIGHT);
+		op.height = height;
+		operations.add(op);
+		return this;
+	}
+
+	// **************************************************************************
+	// ** sharpen
+	// **************************************************************************
+	/** Used to sharpen the image using the same 3x3 kernel as Image.sharpen() */
+
+	public ImagePipeline sharpen() {
+		operations.add(new Operation(SHARPEN));
+		return this;
+	}
+
+	// **************************************************************************
+	// ** desaturate
+	// **************************************************************************
+	/**
+	 * Used to completely desaturate the image (creates a gray-scale image).
+	 * Pixels are replaced with their luminance.
+	 */
+
+	public ImagePipeline desaturate() {
+		return desaturate(1);
+	}
+
+	/**
+	 * Used to desaturate the image by a specified percentage. Valid ranges are
+	 * from 0-1.
+	 */
+	public ImagePipeline desaturate(double percent) {
+		Operation op = new Operation(DESATURATE);
+		op.value = Math.max(0, Math.min(1, percent));
+		operations.add(op);
+		return this;
+	}
+
+	// **************************************************************************
+	// ** rotate
+	// **************************************************************************
+	/**
+	 * Used to rotate the image (clockwise). Rotations are not tiled. The image
+	 * is rotated using Image.rotate().
+	 */
+	public ImagePipeline rotate(double degrees) {
+		Operation op = new Operation(ROTATE);
+		op.value = degrees;
+		operations.add(op);
+		return this;
+	}
+
+	// **************************************************************************
+	// ** getImage
+	// **************************************************************************
+	/**
+	 * Applies all the operations and returns the output image. Returns null if
+	 * the source image can't be read.
+	 */
+	public Image getImage() {
+		BufferedImage bi = getBufferedImage();
+		return bi == null ? null : new Image(bi);
+	}
+
+	// **************************************************************************
+	// ** getBufferedImage
+	// **************************************************************************
+	/**
+	 * Applies all the operations and returns the output image. Returns null if
+	 * the source image can't be read.
+	 */
+	public BufferedImage getBufferedImage() {
+
+		// Get source image and its logical size. The logical size is the size
+		// of the original image (before subsampling) and is used to compute
+		// the output size of resize operations.
+		BufferedImage src = bufferedImage;
+		int width, height;
+		if (src == null) {
+			int[] size = new int[2];
+			src = read(size);
+			if (src == null)
+				return null;
+			width = size[0];
+			height = size[1];
+		} else {
+			width = src.getWidth();
+			height = src.getHeight();
+		}
+
+		int i = 0;
+		int n = operations.size();
+		while (i < n) {
+			Operation op = operations.get(i);
+			if (op.type == ROTATE) {
+				Image image = new Image(src);
+				image.rotate(op.value);
+				src = image.getBufferedImage();
+				width = src.getWidth();
+				height = src.getHeight();
+				i++;
+				continue;
+			}
+
+			// Consecutive resizes are collapsed into a single resize
+			while (i < n && operations.get(i).isResize()) {
+				int[] size = operations.get(i).getSize(width, height);
+				width = size[0];
+				height = size[1];
+				i++;
+			}
+
+			// Collect filters that follow the resize
+			ArrayList<Operation> filters = new ArrayList<Operation>();
+			while (i < n && operations.get(i).isFilter()) {
+				filters.add(operations.get(i));
+				i++;
+			}
+
+			src = process(src, width, height, filters.toArray(new Operation[filters.size()]));
+		}
+
+		return src;
+	}
+
+	// **************************************************************************
+	// ** read
+	// **************************************************************************
+	/**
+	 * Used to decode the source image. Uses source subsampling if the image is
+	 * significantly reduced by the first resize. The size of the original
+	 * image is returned in the given array.
+	 */
+	private BufferedImage read(int[] size) {
+		java.io.InputStream in = null;
+		try {
+			if (input instanceof java.io.File) {
+				in = new FileInputStream((java.io.File) input);
+			} else if (input instanceof byte[]) {
+				in = new ByteArrayInputStream((byte[]) input);
+			} else {
+				in = (java.io.InputStream) input;
+			}
+
+			ImageInputStream stream = ImageIO.createImageInputStream(in);
+			Iterator<ImageReader> iter = ImageIO.getImageReaders(stream);
+			if (!iter.hasNext()) {
+				stream.close();
+				return null;
+			}
+
+			ImageReader reader = iter.next();
+			reader.setInput(stream, true, true);
+			try {
+				size[0] = reader.getWidth(0);
+				size[1] = reader.getHeight(0);
+
+				ImageReadParam param = reader.getDefaultReadParam();
+				int s = getSubsampling(size[0], size[1]);
+				if (s > 1) {
+					param.setSourceSubsampling(s, s, 0, 0);
+				}
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+				stream.close();
+			}
+		} catch (Exception e) {
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (Exception e) {
+				}
+			}
+		}
+	}
+
+	// **************************************************************************
+	// ** getSubsampling
+	// **************************************************************************
+	/**
+	 * Returns the subsampling factor used to decode an image of the given
+	 * size. Only resizes at the start of the pipeline are considered. The
+	 * subsampled image is at least twice the size of the resized image.
+	 */
+	private int getSubsampling(int width, int height) {
+		if (!subsampling)
+			return 1;
+
+		int w = width;
+		int h = height;
+		boolean resize = false;
+		for (Operation op : operations) {
+			if (!op.isResize())
+				break;
+			int[] size = op.getSize(w, h);
+			w = size[0];
+			h = size[1];
+			resize = true;
+		}
+		if (!resize)
+			return 1;
+
+		double scale = Math.min((double) width / w, (double) height / h);
+		return Math.max(1, (int) (scale / 2));
+	}
+
+	// **************************************************************************
+	// ** process
+	// **************************************************************************
+	/**
+	 * Resizes the given image and applies the filters. The output image is
+	 * divided into horizontal bands that are processed in parallel.
+	 */
+	private BufferedImage process(BufferedImage src, int width, int height, Operation[] filters) {
+
+		int type = src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		BufferedImage out = new BufferedImage(width, height, type);
+
+		// Number of rows needed above and below a band to apply the filters
+		int halo = 0;
+		for (Operation op : filters) {
+			if (op.type == SHARPEN)
+				halo++;
+		}
+
+		// Limit the number of source rows read for each band
+		double yscale = (double) src.getHeight() / height;
+		int rows = Math.max(8, (int) (tileHeight / Math.max(1, yscale)));
+
+		Resampler resampler = null;
+		if (width != src.getWidth() || height != src.getHeight()) {
+			resampler = new Resampler(src.getWidth(), src.getHeight(), width, height);
+		}
+
+		pool.invoke(new Tile(src, out, resampler, filters, halo, rows, 0, height));
+		return out;
+	}
+
+	// **************************************************************************
+	// ** Tile
+	// **************************************************************************
+	/**
+	 * Used to process a range of rows in the output image. Large ranges are
+	 * split in two until the range is smaller than the tile height.
+	 */
+	private static class Tile extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final BufferedImage src;
+		private final BufferedImage out;
+		private final Resampler resampler;
+		private final Operation[] filters;
+		private final int halo;
+		private final int rows;
+		private final int y0;
+		private final int y1;
+
+		private Tile(BufferedImage src, BufferedImage out, Resampler resampler, Operation[] filters, int halo,
+		        int rows, int y0, int y1) {
+			this.src = src;
+			this.out = out;
+			this.resampler = resampler;
+			this.filters = filters;
+			this.halo = halo;
+			this.rows = rows;
+			this.y0 = y0;
+			this.y1 = y1;
+		}
+
+		@Override
+		protected void compute() {
+			if (y1 - y0 > rows) {
+				int mid = y0 + (y1 - y0) / 2;
+				invokeAll(new Tile(src, out, resampler, filters, halo, rows, y0, mid),
+				        new Tile(src, out, resampler, filters, halo, rows, mid, y1));
+				return;
+			}
+
+			int width = out.getWidth();
+			int height = out.getHeight();
+
+			// Get the rows of the band, including the rows needed by the
+			// filters, in the output size
+			int a = Math.max(0, y0 - halo);
+			int b = Math.min(height, y1 + halo);
+			int[] pixels;
+			if (resampler == null) {
+				pixels = getRGB(src, a, b - a);
+			} else {
+				pixels = resampler.resample(src, a, b);
+			}
+
+			// Apply filters. Every sharpen invalidates the outer rows of the
+			// band unless the row is at the edge of the image.
+			int top = a;
+			int bottom = b;
+			for (Operation op : filters) {
+				if (op.type == SHARPEN) {
+					pixels = sharpen(pixels, width, height, a, top, bottom);
+					if (top > 0)
+						top++;
+					if (bottom < height)
+						bottom--;
+				} else if (op.type == DESATURATE) {
+					desaturate(pixels, (top - a) * width, (bottom - a) * width, (float) op.value);
+				}
+			}
+
+			// Update output image
+			int offset = (y0 - a) * width;
+			int length = (y1 - y0) * width;
+			if (offset != 0 || length != pixels.length) {
+				int[] arr = new int[length];
+				System.arraycopy(pixels, offset, arr, 0, length);
+				pixels = arr;
+			}
+			out.getRaster().setDataElements(0, y0, width, y1 - y0, pixels);
+		}
+	}
+
+	// **************************************************************************
+	// ** getRGB
+	// **************************************************************************
+	/**
+	 * Returns ARGB pixels for the given rows. Common image types are copied
+	 * directly from the raster.
+	 */
+	private static int[] getRGB(BufferedImage src, int y, int rows) {
+		int width = src.getWidth();
+		int type = src.getType();
+		if (type == BufferedImage.TYPE_INT_ARGB) {
+			return (int[]) src.getRaster().getDataElements(0, y, width, rows, null);
+		} else if (type == BufferedImage.TYPE_INT_RGB) {
+			int[] pixels = (int[]) src.getRaster().getDataElements(0, y, width, rows, null);
+			for (int i = 0; i < pixels.length; i++) {
+				pixels[i] |= 0xff000000;
+			}
+			return pixels;
+		} else if (type == BufferedImage.TYPE_3BYTE_BGR) {
+			byte[] data = (byte[]) src.getRaster().getDataElements(0, y, width, rows, null);
+			int[] pixels = new int[width * rows];
+			for (int i = 0, j = 0; i < pixels.length; i++, j += 3) {
+				pixels[i] = 0xff000000 | ((data[j] & 0xff) << 16) | ((data[j + 1] & 0xff) << 8) | (data[j + 2] & 0xff);
+			}
+			return pixels;
+		} else if (type == BufferedImage.TYPE_BYTE_GRAY) {
+			byte[] data = (byte[]) src.getRaster().getDataElements(0, y, width, rows, null);
+			int[] pixels = new int[width * rows];
+			for (int i = 0; i < pixels.length; i++) {
+				int g = data[i] & 0xff;
+				pixels[i] = 0xff000000 | (g << 16) | (g << 8) | g;
+			}
+			return pixels;
+		}
+		return src.getRGB(0, y, width, rows, null, 0, width);
+	}
+
+	// **************************************************************************
+	// ** sharpen
+	// **************************************************************************
+	/**
+	 * Applies a 3x3 sharpen kernel to the rows between top and bottom. Pixels
+	 * at the edge of the image are not changed.
+	 *
+	 * @param a
+	 *            Index of the first row in the pixel array.
+	 */
+	private static int[] sharpen(int[] pixels, int width, int height, int a, int top, int bottom) {
+		int[] out = pixels.clone();
+		int first = (top > 0 ? top + 1 : 1);
+		int last = (bottom < height ? bottom - 1 : height - 1);
+		for (int y = first; y < last; y++) {
+			int row = (y - a) * width;
+			for (int x = 1; x < width - 1; x++) {
+				int i = row + x;
+				int c = pixels[i];
+				int n = pixels[i - width];
+				int s = pixels[i + width];
+				int w = pixels[i - 1];
+				int e = pixels[i + 1];
+				int value = 0;
+				for (int shift = 0; shift < 32; shift += 8) {
+					float v = 1.8f * ((c >>> shift) & 0xff) - 0.2f * (((n >>> shift) & 0xff) + ((s >>> shift) & 0xff)
+					        + ((w >>> shift) & 0xff) + ((e >>> shift) & 0xff));
+					value |= clamp(v) << shift;
+				}
+				out[i] = value;
+			}
+		}
+		return out;
+	}
+
+	// **************************************************************************
+	// ** desaturate
+	// **************************************************************************
+	/**
+	 * Blends the pixels in the given range with their luminance (Rec. 601
+	 * luma). Note that Image.desaturate() uses a ColorConvertOp instead which
+	 * yields slightly lighter grays.
+	 */
+	private static void desaturate(int[] pixels, int start, int end, float percent) {
+		for (int i = start; i < end; i++) {
+			int p = pixels[i];
+			int r = (p >> 16) & 0xff;
+			int g = (p >> 8) & 0xff;
+			int b = p & 0xff;
+			float gray = 0.299f * r + 0.587f * g + 0.114f * b;
+			r = clamp(r + (gray - r) * percent);
+			g = clamp(g + (gray - g) * percent);
+			b = clamp(b + (gray - b) * percent);
+			pixels[i] = (p & 0xff000000) | (r << 16) | (g << 8) | b;
+		}
+	}
+
+	private static int clamp(float v) {
+		int i = (int) (v + 0.5f);
+		return i < 0 ? 0 : (i > 255 ? 255 : i);
+	}
+
+	// **************************************************************************
+	// ** Resampler
+	// **************************************************************************
+	/**
+	 * Used to resize bands of an image. Images are reduced using area
+	 * averaging (similar to Image.SCALE_AREA_AVERAGING) and enlarged using
+	 * bilinear interpolation. Color channels are weighted by alpha so
+	 * transparent pixels don't bleed into their neighbors.
+	 */
+	private static class Resampler {
+		private final Weights xweights;
+		private final Weights yweights;
+
+		private Resampler(int srcWidth, int srcHeight, int width, int height) {
+			xweights = new Weights(srcWidth, width);
+			yweights = new Weights(srcHeight, height);
+		}
+
+		/** Returns ARGB pixels for rows a to b of the resized image. */
+		private int[] resample(BufferedImage src, int a, int b) {
+			int width = xweights.start.length;
+			int sy0 = yweights.start[a];
+			int sy1 = yweights.start[b - 1] + yweights.count[b - 1];
+			int srcWidth = src.getWidth();
+			int[] rgb = getRGB(src, sy0, sy1 - sy0);
+
+			// Horizontal pass: premultiplied ARGB for each source row
+			float[] h = new float[(sy1 - sy0) * width * 4];
+			for (int y = 0; y < sy1 - sy0; y++) {
+				int srcRow = y * srcWidth;
+				int row = y * width * 4;
+				for (int x = 0; x < width; x++) {
+					float fa = 0, fr = 0, fg = 0, fb = 0;
+					int start = xweights.start[x];
+					int count = xweights.count[x];
+					int w = x * xweights.stride;
+					for (int k = 0; k < count; k++) {
+						int p = rgb[srcRow + start + k];
+						float alpha = ((p >>> 24) & 0xff) * xweights.weights[w + k];
+						fa += alpha;
+						fr += ((p >> 16) & 0xff) * alpha;
+						fg += ((p >> 8) & 0xff) * alpha;
+						fb += (p & 0xff) * alpha;
+					}
+					int i = row + x * 4;
+					h[i] = fa;
+					h[i + 1] = fr;
+					h[i + 2] = fg;
+					h[i + 3] = fb;
+				}
+			}
+
+			// Vertical pass
+			int[] pixels = new int[(b - a) * width];
+			for (int y = a; y < b; y++) {
+				int start = yweights.start[y] - sy0;
+				int count = yweights.count[y];
+				int w = y * yweights.stride;
+				int row = (y - a) * width;
+				for (int x = 0; x < width; x++) {
+					float fa = 0, fr = 0, fg = 0, fb = 0;
+					for (int k = 0; k < count; k++) {
+						float weight = yweights.weights[w + k];
+						int i = ((start + k) * width + x) * 4;
+						fa += h[i] * weight;
+						fr += h[i + 1] * weight;
+						fg += h[i + 2] * weight;
+						fb += h[i + 3] * weight;
+					}
+					if (fa <= 0) {
+						pixels[row + x] = 0;
+					} else {
+						pixels[row + x] = (clamp(fa) << 24) | (clamp(fr / fa) << 16) | (clamp(fg / fa) << 8)
+						        | clamp(fb / fa);
+					}
+				}
+			}
+			return pixels;
+		}
+	}
+
+	// **************************************************************************
+	// ** Weights
+	// **************************************************************************
+	/**
+	 * Source pixels and weights for each pixel along one axis of the resized
+	 * image.
+	 */
+	private static class Weights {
+		private final int[] start;
+		private final int[] count;
+		private final float[] weights;
+		private final int stride;
+
+		private Weights(int srcSize, int size) {
+			start = new int[size];
+			count = new int[size];
+			double scale = (double) srcSize / size;
+			if (scale > 1) {
+
+				// Area averaging
+				stride = (int) Math.ceil(scale) + 1;
+				weights = new float[size * stride];
+				for (int i = 0; i < size; i++) {
+					double left = i * scale;
+					double right = Math.min(srcSize, (i + 1) * scale);
+					int s0 = (int) Math.floor(left);
+					int s1 = Math.min(srcSize, (int) Math.ceil(right));
+					start[i] = s0;
+					count[i] = s1 - s0;
+					for (int j = s0; j < s1; j++) {
+						double overlap = Math.min(right, j + 1) - Math.max(left, j);
+						weights[i * stride + j - s0] = (float) (overlap / scale);
+					}
+				}
+			} else {
+
+				// Bilinear interpolation
+				stride = 2;
+				weights = new float[size * stride];
+				for (int i = 0; i < size; i++) {
+					double x = (i + 0.5) * scale - 0.5;
+					int s0 = (int) Math.floor(x);
+					double f = x - s0;
+					if (s0 < 0) {
+						s0 = 0;
+						f = 0;
+					}
+					if (s0 >= srcSize - 1) {
+						s0 = srcSize - 1;
+						f = 0;
+					}
+					start[i] = s0;
+					count[i] = (f > 0 ? 2 : 1);
+					weights[i * stride] = (float) (1 - f);
+					weights[i * stride + 1] = (float) f;
+				}
+			}
+		}
+	}
+}
@@ -366,7 +366,7 @@ public class JSONObject {
 	 *            types: Boolean, Double, Integer, JSONArray, JSONObject, Long,
 	 *            or String.
 	 */
-	private void put(String key, Object value) throws JSONException {
+	void put(String key, Object value) throws JSONException {
 		if (key == null) {
 			throw new NullPointerException("Null key.");
 		}
@@ -466,6 +466,11 @@ public class JSONObject {
 	        throws JSONException, IOException {
 		if (value == null || value.equals(null)) {
 			writer.write("null");
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short
+		        || value instanceof Byte) {
+			writer.write(value.toString());
+		} else if (value instanceof String) {
+			quote((String) value, writer);
 		} else if (value instanceof Number) {
 			// not all Numbers may match actual JSON Numbers. i.e. fractions or
 			// Imaginary
@@ -516,7 +521,7 @@ public class JSONObject {
 			if (length == 1) {
 				final Entry<String, ?> entry = this.entrySet().iterator().next();
 				final String key = entry.getKey();
-				writer.write(quote(key));
+				quote(key, writer);
 				writer.write(':');
 				if (indentFactor > 0) {
 					writer.write(' ');
@@ -537,7 +542,7 @@ public class JSONObject {
 					}
 					indent(writer, newindent);
 					final String key = entry.getKey();
-					writer.write(quote(key));
+					quote(key, writer);
 					writer.write(':');
 					if (indentFactor > 0) {
 						writer.write(' ');
@@ -631,7 +636,7 @@ public class JSONObject {
 		}
 	}
 
-	private static Writer quote(String string, Writer w) throws IOException {
+	static Writer quote(String string, Writer w) throws IOException {
 		if (string == null || string.length() == 0) {
 			w.write("\"\"");
 			return w;
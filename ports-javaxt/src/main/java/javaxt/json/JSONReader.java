@@ -0,0 +1,668 @@
+package javaxt.json;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javaxt.utils.Value;
+
+//******************************************************************************
+//**  JSONReader
+//******************************************************************************
+/**
+ * Used to parse large JSON documents from a stream. Unlike the JSONObject and
+ * JSONArray constructors, the JSONReader does not require the entire document
+ * in memory. Instead, the document is read one token at a time. Example:
+ *
+ * <pre>
+ * JSONReader reader = new JSONReader(inputStream);
+ * reader.next(); // START_ARRAY
+ * while (reader.next() == JSONReader.Token.START_OBJECT) {
+ * 	JSONObject record = reader.readObject();
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * Numbers and booleans can be read via getInt(), getLong(), getDouble(), and
+ * getBoolean() without creating any objects. Individual values, including
+ * nested objects and arrays, can be converted into javaxt.utils.Values via
+ * getValue() and unwanted values can be skipped via skipValue().
+ *
+ ******************************************************************************/
+
+public class JSONReader implements java.io.Closeable {
+
+	/** Tokens returned by the next() method. */
+	public static enum Token {
+		START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+	}
+
+	// Scopes
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	private static final int OBJECT = 3;
+	private static final int OBJECT_VALUE = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int ARRAY = 6;
+
+	private final Reader reader;
+	private final char[] buffer = new char[8192];
+	private int pos;
+	private int limit;
+	private long offset;
+
+	private int[] stack = new int[32];
+	private int depth;
+
+	private Token token;
+	private String string;
+	private char[] number = new char[32];
+	private int numberLength;
+	private boolean isDecimal;
+	private boolean bool;
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	public JSONReader(Reader reader) {
+		if (reader == null)
+			throw new NullPointerException("Reader is null.");
+		this.reader = reader;
+		stack[depth++] = EMPTY_DOCUMENT;
+	}
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	/** Used to parse a UTF-8 encoded JSON document from a stream. */
+	public JSONReader(java.io.InputStream inputStream) {
+		this(new java.io.InputStreamReader(inputStream, java.nio.charset.StandardCharsets.UTF_8));
+	}
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	/**
+	 * Used to parse a UTF-8 encoded JSON document from a ByteBuffer. The
+	 * position of the buffer is not changed.
+	 */
+	public JSONReader(java.nio.ByteBuffer buffer) {
+		this(new ByteBufferInputStream(buffer.duplicate()));
+	}
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	public JSONReader(String json) {
+		this(new java.io.StringReader(json));
+	}
+
+	// **************************************************************************
+	// ** next
+	// **************************************************************************
+	/**
+	 * Used to advance to the next token in the document. Returns END_DOCUMENT
+	 * once the end of the document is reached.
+	 */
+	public Token next() throws JSONException {
+		int c;
+		switch (stack[depth - 1]) {
+		case EMPTY_DOCUMENT:
+			c = nextClean();
+			if (c == -1)
+				return token = Token.END_DOCUMENT;
+			stack[depth - 1] = NONEMPTY_DOCUMENT;
+			return readValue(c);
+
+		case NONEMPTY_DOCUMENT:
+			if (nextClean() != -1)
+				throw syntaxError("Unexpected text after the end of the document");
+			return token = Token.END_DOCUMENT;
+
+		case EMPTY_OBJECT:
+		case OBJECT:
+			c = nextClean();
+			if (c == '}') {
+				depth--;
+				return token = Token.END_OBJECT;
+			}
+			if (stack[depth - 1] == OBJECT) {
+				if (c != ',')
+					throw syntaxError("Expected a ',' or '}'");
+				c = nextClean();
+			}
+			if (c != '"')
+				throw syntaxError("Expected a key");
+			string = readString();
+			if (nextClean() != ':')
+				throw syntaxError("Expected a ':' after a key");
+			stack[depth - 1] = OBJECT_VALUE;
+			return token = Token.NAME;
+
+		case OBJECT_VALUE:
+			stack[depth - 1] = OBJECT;
+			return readValue(nextClean());
+
+		default: // EMPTY_ARRAY or ARRAY
+			c = nextClean();
+			if (c == ']') {
+				depth--;
+				return token = Token.END_ARRAY;
+			}
+			if (stack[depth - 1] == ARRAY) {
+				if (c != ',')
+					throw syntaxError("Expected a ',' or ']'");
+				c = nextClean();
+			}
+			stack[depth - 1] = ARRAY;
+			return readValue(c);
+		}
+	}
+
+	// **************************************************************************
+	// ** getToken
+	// **************************************************************************
+	/**
+	 * Returns the current token (i.e. the token returned by the last call to
+	 * next). Returns null if next() has not been called.
+	 */
+	public Token getToken() {
+		return token;
+	}
+
+	// **************************************************************************
+	// ** getDepth
+	// **************************************************************************
+	/**
+	 * Returns the number of objects and arrays that enclose the current token.
+	 */
+	public int getDepth() {
+		return depth - 1;
+	}
+
+	// **************************************************************************
+	// ** getName
+	// **************************************************************************
+	/** Returns the key if the current token is a NAME. Otherwise, null. */
+	public String getName() {
+		return token == Token.NAME ? string : null;
+	}
+
+	// **************************************************************************
+	// ** getString
+	// **************************************************************************
+	/**
+	 * Returns the current token as a String. Returns null if the current token
+	 * is not a NAME, STRING, NUMBER, or BOOLEAN.
+	 */
+	public String getString() {
+		if (token == null)
+			return null;
+		switch (token) {
+		case NAME:
+		case STRING:
+			return string;
+		case NUMBER:
+			return new String(number, 0, numberLength);
+		case BOOLEAN:
+			return bool ? "true" : "false";
+		default:
+			return null;
+		}
+	}
+
+	// **************************************************************************
+	// ** getBoolean
+	// **************************************************************************
+	/** Returns the value of the current BOOLEAN token. */
+	public boolean getBoolean() throws JSONException {
+		if (token != Token.BOOLEAN)
+			throw new JSONException("Expected a BOOLEAN but was " + token);
+		return bool;
+	}
+
+	// **************************************************************************
+	// ** getInt
+	// **************************************************************************
+	/** Returns the value of the current NUMBER token as an int. */
+	public int getInt() throws JSONException {
+		return (int) getLong();
+	}
+
+	// **************************************************************************
+	// ** getLong
+	// **************************************************************************
+	/**
+	 * Returns the value of the current NUMBER token as a long. Decimal values
+	 * are truncated.
+	 */
+	public long getLong() throws JSONException {
+		if (token != Token.NUMBER)
+			throw new JSONException("Expected a NUMBER but was " + token);
+		if (isDecimal)
+			return (long) getDouble();
+		if (numberLength > 18) {
+			try {
+				return Long.parseLong(getString());
+			} catch (NumberFormatException e) {
+				return (long) getDouble();
+			}
+		}
+		return parseLong();
+	}
+
+	// **************************************************************************
+	// ** getDouble
+	// **************************************************************************
+	/** Returns the value of the current NUMBER token as a double. */
+	public double getDouble() throws JSONException {
+		if (token != Token.NUMBER)
+			throw new JSONException("Expected a NUMBER but was " + token);
+
+		// Integers with up to 15 digits can be represented exactly
+		if (!isDecimal && numberLength <= 15)
+			return parseLong();
+		return Double.parseDouble(new String(number, 0, numberLength));
+	}
+
+	// **************************************************************************
+	// ** getValue
+	// **************************************************************************
+	/**
+	 * Returns the current value. Numbers are returned as Integers, Longs, or
+	 * Doubles, like the JSONObject and JSONArray constructors. If the current
+	 * token is START_OBJECT or START_ARRAY, the entire object or array is read
+	 * and returned as a JSONObject or JSONArray.
+	 */
+	public Value getValue() throws JSONException {
+		return new Value(readCurrent());
+	}
+
+	// **************************************************************************
+	// ** readObject
+	// **************************************************************************
+	/**
+	 * Reads the current object and returns it as a JSONObject. After this
+	 * method returns, the current token is the END_OBJECT token of the object.
+	 * If next() has not been called yet, the first token is read.
+	 */
+	public JSONObject readObject() throws JSONException {
+		if (token == null)
+			next();
+		if (token != Token.START_OBJECT)
+			throw new JSONException("Expected a START_OBJECT but was " + token);
+
+		JSONObject json = new JSONObject();
+		while (next() != Token.END_OBJECT) {
+			String key = string;
+			if (json.has(key))
+				throw syntaxError("Duplicate key \"" + key + "\"");
+			next();
+			Object value = readCurrent();
+			if (value != null)
+				json.put(key, value);
+		}
+		return json;
+	}
+
+	// **************************************************************************
+	// ** readArray
+	// **************************************************************************
+	/**
+	 * Reads the current array and returns it as a JSONArray. After this method
+	 * returns, the current token is the END_ARRAY token of the array. If next()
+	 * has not been called yet, the first token is read.
+	 */
+	public JSONArray readArray() throws JSONException {
+		if (token == null)
+			next();
+		if (token != Token.START_ARRAY)
+			throw new JSONException("Expected a START_ARRAY but was " + token);
+
+		JSONArray arr = new JSONArray();
+		while (next() != Token.END_ARRAY) {
+			arr.add(readCurrent());
+		}
+		return arr;
+	}
+
+	// **************************************************************************
+	// ** skipValue
+	// **************************************************************************
+	/**
+	 * Used to skip the current value. If the current token is a NAME, the
+	 * value associated with the name is skipped. If the current token is
+	 * START_OBJECT or START_ARRAY, all the tokens up to and including the
+	 * matching END_OBJECT or END_ARRAY are skipped.
+	 */
+	public void skipValue() throws JSONException {
+		if (token == Token.NAME)
+			next();
+		if (token == Token.START_OBJECT || token == Token.START_ARRAY) {
+			int d = depth - 1;
+			while (depth > d) {
+				if (next() == Token.END_DOCUMENT)
+					throw syntaxError("Unexpected end of the document");
+			}
+		}
+	}
+
+	// **************************************************************************
+	// ** close
+	// **************************************************************************
+	@Override
+	public void close() {
+		try {
+			reader.close();
+		} catch (IOException e) {
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "JSONReader" + getLocation();
+	}
+
+	// **************************************************************************
+	// ** readCurrent
+	// **************************************************************************
+	/** Returns the value of the current token. */
+	private Object readCurrent() throws JSONException {
+		switch (token) {
+		case START_OBJECT:
+			return readObject();
+		case START_ARRAY:
+			return readArray();
+		case STRING:
+			return string;
+		case BOOLEAN:
+			return bool ? Boolean.TRUE : Boolean.FALSE;
+		case NULL:
+			return null;
+		case NUMBER:
+			if (isDecimal) {
+				Double d = Double.valueOf(getString());
+				if (d.isInfinite())
+					return getString();
+				return d;
+			}
+			long l;
+			if (numberLength > 18) {
+				try {
+					l = Long.parseLong(getString());
+				} catch (NumberFormatException e) {
+					return getString(); // Integer is too big for a long
+				}
+			} else {
+				l = parseLong();
+			}
+			if (l == (int) l)
+				return Integer.valueOf((int) l);
+			return Long.valueOf(l);
+		default:
+			throw new JSONException("Expected a value but was " + token);
+		}
+	}
+
+	// **************************************************************************
+	// ** readValue
+	// **************************************************************************
+	/** Used to read a value starting with the given character. */
+	private Token readValue(int c) throws JSONException {
+		switch (c) {
+		case '{':
+			push(EMPTY_OBJECT);
+			return token = Token.START_OBJECT;
+		case '[':
+			push(EMPTY_ARRAY);
+			return token = Token.START_ARRAY;
+		case '"':
+			string = readString();
+			return token = Token.STRING;
+		case 't':
+			readLiteral("rue");
+			bool = true;
+			return token = Token.BOOLEAN;
+		case 'f':
+			readLiteral("alse");
+			bool = false;
+			return token = Token.BOOLEAN;
+		case 'n':
+			readLiteral("ull");
+			return token = Token.NULL;
+		case -1:
+			throw syntaxError("Unexpected end of the document");
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				readNumber((char) c);
+				return token = Token.NUMBER;
+			}
+			throw syntaxError("Unexpected character '" + (char) c + "'");
+		}
+	}
+
+	private void push(int scope) {
+		if (depth == stack.length) {
+			stack = java.util.Arrays.copyOf(stack, depth * 2);
+		}
+		stack[depth++] = scope;
+	}
+
+	// **************************************************************************
+	// ** readString
+	// **************************************************************************
+	/**
+	 * Returns the characters up to the next quote. Strings without escape
+	 * sequences are created directly from the buffer.
+	 */
+	private String readString() throws JSONException {
+		StringBuilder sb = null;
+		for (;;) {
+			int start = pos;
+			while (pos < limit) {
+				char c = buffer[pos++];
+				if (c == '"') {
+					if (sb == null)
+						return new String(buffer, start, pos - start - 1);
+					sb.append(buffer, start, pos - start - 1);
+					return sb.toString();
+				} else if (c == '\\') {
+					if (sb == null)
+						sb = new StringBuilder();
+					sb.append(buffer, start, pos - start - 1);
+					sb.append(readEscape());
+					start = pos;
+				} else if (c == '\n' || c == '\r') {
+					throw syntaxError("Unterminated string");
+				}
+			}
+			if (sb == null)
+				sb = new StringBuilder();
+			sb.append(buffer, start, pos - start);
+			if (!fill())
+				throw syntaxError("Unterminated string");
+		}
+	}
+
+	private char readEscape() throws JSONException {
+		int c = read();
+		switch (c) {
+		case 'b':
+			return '\b';
+		case 't':
+			return '\t';
+		case 'n':
+			return '\n';
+		case 'f':
+			return '\f';
+		case 'r':
+			return '\r';
+		case 'u':
+			int val = 0;
+			for (int i = 0; i < 4; i++) {
+				int d = Character.digit(read(), 16);
+				if (d < 0)
+					throw syntaxError("Illegal escape.");
+				val = (val << 4) | d;
+			}
+			return (char) val;
+		case '"':
+		case '\'':
+		case '\\':
+		case '/':
+			return (char) c;
+		default:
+			throw syntaxError("Illegal escape.");
+		}
+	}
+
+	// **************************************************************************
+	// ** readNumber
+	// **************************************************************************
+	/**
+	 * Used to read a number into the number buffer. The number is validated
+	 * but not converted.
+	 */
+	private void readNumber(char first) throws JSONException {
+		numberLength = 0;
+		isDecimal = false;
+		appendNumber(first);
+
+		int digits = first == '-' ? 0 : 1;
+		int exponent = -1; // Number of exponent digits or -1 if no exponent
+		int fraction = -1; // Number of fraction digits or -1 if no fraction
+		for (;;) {
+			if (pos == limit && !fill())
+				break;
+			char c = buffer[pos];
+			if (c >= '0' && c <= '9') {
+				if (exponent >= 0)
+					exponent++;
+				else if (fraction >= 0)
+					fraction++;
+				else
+					digits++;
+			} else if (c == '.' && fraction < 0 && exponent < 0) {
+				fraction = 0;
+				isDecimal = true;
+			} else if ((c == 'e' || c == 'E') && exponent < 0) {
+				exponent = 0;
+				isDecimal = true;
+			} else if ((c == '+' || c == '-') && exponent == 0
+			        && (number[numberLength - 1] == 'e' || number[numberLength - 1] == 'E')) {
+			} else {
+				break;
+			}
+			appendNumber(c);
+			pos++;
+		}
+		if (digits == 0 || fraction == 0 || exponent == 0)
+			throw syntaxError("Invalid number");
+		if (numberLength == 2 && first == '-' && number[1] == '0')
+			isDecimal = true; // "-0"
+	}
+
+	private void appendNumber(char c) {
+		if (numberLength == number.length) {
+			number = java.util.Arrays.copyOf(number, numberLength * 2);
+		}
+		number[numberLength++] = c;
+	}
+
+	/** Returns the value of an integer with 18 digits or less. */
+	private long parseLong() {
+		boolean negative = number[0] == '-';
+		long val = 0;
+		for (int i = negative ? 1 : 0; i < numberLength; i++) {
+			val = val * 10 + (number[i] - '0');
+		}
+		return negative ? -val : val;
+	}
+
+	private void readLiteral(String literal) throws JSONException {
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i))
+				throw syntaxError("Unexpected character");
+		}
+	}
+
+	// **************************************************************************
+	// ** nextClean
+	// **************************************************************************
+	/** Returns the next non-whitespace character or -1 at the end of input. */
+	private int nextClean() throws JSONException {
+		for (;;) {
+			if (pos == limit && !fill())
+				return -1;
+			char c = buffer[pos++];
+			if (c > ' ')
+				return c;
+		}
+	}
+
+	/** Returns the next character or -1 at the end of input. */
+	private int read() throws JSONException {
+		if (pos == limit && !fill())
+			return -1;
+		return buffer[pos++];
+	}
+
+	/** Used to read more characters into the buffer. */
+	private boolean fill() throws JSONException {
+		offset += limit;
+		pos = 0;
+		limit = 0;
+		try {
+			int n;
+			do {
+				n = reader.read(buffer, 0, buffer.length);
+			} while (n == 0);
+			if (n < 0)
+				return false;
+			limit = n;
+			return true;
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	private JSONException syntaxError(String message) {
+		return new JSONException(message + getLocation());
+	}
+
+	private String getLocation() {
+		return " at " + (offset + pos);
+	}
+
+	// **************************************************************************
+	// ** ByteBufferInputStream
+	// **************************************************************************
+	/** InputStream used to read bytes from a ByteBuffer. */
+	private static class ByteBufferInputStream extends java.io.InputStream {
+
+		private final java.nio.ByteBuffer buffer;
+
+		private ByteBufferInputStream(java.nio.ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!buffer.hasRemaining())
+				return -1;
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package javaxt.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+//******************************************************************************
+//**  JSONWriter
+//******************************************************************************
+/**
+ * Used to write JSON documents to a stream. JSONObjects and JSONArrays are
+ * written directly to the stream without creating an intermediate String.
+ * Large documents can be written one value at a time. Example:
+ *
+ * <pre>
+ * JSONWriter writer = new JSONWriter(outputStream);
+ * writer.beginArray();
+ * for (JSONObject record : records) {
+ * 	writer.value(record);
+ * }
+ * writer.endArray();
+ * writer.close();
+ * </pre>
+ *
+ ******************************************************************************/
+
+public class JSONWriter implements java.io.Closeable, java.io.Flushable {
+
+	// Scopes
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	private static final int OBJECT = 3;
+	private static final int OBJECT_VALUE = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int ARRAY = 6;
+
+	private final Writer writer;
+	private int[] stack = new int[32];
+	private int depth;
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	/**
+	 * Used to write JSON to a Writer. The writer should be buffered.
+	 */
+	public JSONWriter(Writer writer) {
+		if (writer == null)
+			throw new NullPointerException("Writer is null.");
+		this.writer = writer;
+		stack[depth++] = EMPTY_DOCUMENT;
+	}
+
+	// **************************************************************************
+	// ** Constructor
+	// **************************************************************************
+	/** Used to write UTF-8 encoded JSON to an OutputStream. */
+	public JSONWriter(java.io.OutputStream outputStream) {
+		this(new java.io.BufferedWriter(
+		        new java.io.OutputStreamWriter(outputStream, java.nio.charset.StandardCharsets.UTF_8), 8192));
+	}
+
+	// **************************************************************************
+	// ** beginObject
+	// **************************************************************************
+	/** Used to start a new object. */
+	public JSONWriter beginObject() throws JSONException {
+		beforeValue();
+		push(EMPTY_OBJECT);
+		return write('{');
+	}
+
+	// **************************************************************************
+	// ** endObject
+	// **************************************************************************
+	/** Used to end the current object. */
+	public JSONWriter endObject() throws JSONException {
+		int scope = stack[depth - 1];
+		if (scope != EMPTY_OBJECT && scope != OBJECT)
+			throw new JSONException("Misplaced endObject.");
+		depth--;
+		return write('}');
+	}
+
+	// **************************************************************************
+	// ** beginArray
+	// **************************************************************************
+	/** Used to start a new array. */
+	public JSONWriter beginArray() throws JSONException {
+		beforeValue();
+		push(EMPTY_ARRAY);
+		return write('[');
+	}
+
+	// **************************************************************************
+	// ** endArray
+	// **************************************************************************
+	/** Used to end the current array. */
+	public JSONWriter endArray() throws JSONException {
+		int scope = stack[depth - 1];
+		if (scope != EMPTY_ARRAY && scope != ARRAY)
+			throw new JSONException("Misplaced endArray.");
+		depth--;
+		return write(']');
+	}
+
+	// **************************************************************************
+	// ** name
+	// **************************************************************************
+	/**
+	 * Used to write a key in the current object. The key must be followed by a
+	 * value.
+	 */
+	public JSONWriter name(String name) throws JSONException {
+		if (name == null)
+			throw new NullPointerException("Null key.");
+		int scope = stack[depth - 1];
+		if (scope != EMPTY_OBJECT && scope != OBJECT)
+			throw new JSONException("Misplaced key.");
+		try {
+			if (scope == OBJECT)
+				writer.write(',');
+			JSONObject.quote(name, writer);
+			writer.write(':');
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+		stack[depth - 1] = OBJECT_VALUE;
+		return this;
+	}
+
+	// **************************************************************************
+	// ** value
+	// **************************************************************************
+	/** Used to write a string. Null values are written as null. */
+	public JSONWriter value(String value) throws JSONException {
+		beforeValue();
+		try {
+			if (value == null)
+				writer.write("null");
+			else
+				JSONObject.quote(value, writer);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+		return this;
+	}
+
+	// **************************************************************************
+	// ** value
+	// **************************************************************************
+	public JSONWriter value(boolean value) throws JSONException {
+		beforeValue();
+		return write(value ? "true" : "false");
+	}
+
+	// **************************************************************************
+	// ** value
+	// **************************************************************************
+	public JSONWriter value(long value) throws JSONException {
+		beforeValue();
+		return write(Long.toString(value));
+	}
+
+	// **************************************************************************
+	// ** value
+	// **************************************************************************
+	public JSONWriter value(double value) throws JSONException {
+		if (Double.isInfinite(value) || Double.isNaN(value))
+			throw new JSONException("JSON does not allow non-finite numbers.");
+		beforeValue();
+		if (value == (long) value)
+			return write(Long.toString((long) value));
+		return write(Double.toString(value));
+	}
+
+	// **************************************************************************
+	// ** value
+	// **************************************************************************
+	/**
+	 * Used to write a value. The value can be a Boolean, Number, String,
+	 * JSONObject, JSONArray, or javaxt.utils.Value. JSONObjects and JSONArrays
+	 * are written directly to the stream.
+	 */
+	public JSONWriter value(Object value) throws JSONException {
+		if (value instanceof javaxt.utils.Value)
+			value = ((javaxt.utils.Value) value).toObject();
+		beforeValue();
+		try {
+			JSONObject.writeValue(writer, value, 0, 0);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+		return this;
+	}
+
+	// **************************************************************************
+	// ** nullValue
+	// **************************************************************************
+	public JSONWriter nullValue() throws JSONException {
+		beforeValue();
+		return write("null");
+	}
+
+	// **************************************************************************
+	// ** flush
+	// **************************************************************************
+	@Override
+	public void flush() throws JSONException {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	// **************************************************************************
+	// ** close
+	// **************************************************************************
+	/**
+	 * Used to flush and close the underlying stream. Throws an exception if an
+	 * object or array has not been closed.
+	 */
+	@Override
+	public void close() throws JSONException {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+		if (depth > 1)
+			throw new JSONException("Incomplete document.");
+	}
+
+	// **************************************************************************
+	// ** beforeValue
+	// **************************************************************************
+	/** Used to update the current scope and write a comma, if needed. */
+	private void beforeValue() throws JSONException {
+		switch (stack[depth - 1]) {
+		case EMPTY_DOCUMENT:
+			stack[depth - 1] = NONEMPTY_DOCUMENT;
+			break;
+		case OBJECT_VALUE:
+			stack[depth - 1] = OBJECT;
+			break;
+		case EMPTY_ARRAY:
+			stack[depth - 1] = ARRAY;
+			break;
+		case ARRAY:
+			write(',');
+			break;
+		case NONEMPTY_DOCUMENT:
+			throw new JSONException("JSON must have only one top-level value.");
+		default:
+			throw new JSONException("Missing key.");
+		}
+	}
+
+	private void push(int scope) {
+		if (depth == stack.length) {
+			stack = java.util.Arrays.copyOf(stack, depth * 2);
+		}
+		stack[depth++] = scope;
+	}
+
+	private JSONWriter write(char c) throws JSONException {
+		try {
+			writer.write(c);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+		return this;
+	}
+
+	private JSONWriter write(String str) throws JSONException {
+		try {
+			writer.write(str);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+		return this;
+	}
+}
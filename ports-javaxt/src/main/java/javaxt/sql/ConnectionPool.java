@@ -3,9 +3,13 @@ package javaxt.sql;
 import java.io.PrintWriter;
 //import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
@@ -39,6 +43,14 @@ public class ConnectionPool extends MLog {
 	// - Added getMaxConnections method
 	// - Renamed dispose method to close
 	// - Minor code formatting
+	// - Replaced the synchronized LinkedList of recycled connections with a
+	// lock-free list of pool entries and a thread-local fast path
+	// - Added background validation, idle eviction and wait/usage statistics
+
+	private static final int IDLE = 0;
+	private static final int IN_USE = 1;
+	private static final int RESERVED = 2; // <-- used by the housekeeper
+	private static final int REMOVED = 3;
 
 	private ConnectionPoolDataSource dataSource;
 	private int maxConnections;
@@ -47,21 +59,34 @@ public class ConnectionPool extends MLog {
 	private Semaphore semaphore;
 	private PoolConnectionEventListener poolConnectionEventListener;
 
-	// The following variables must only be accessed within synchronized blocks.
-	// @GuardedBy("this") could by used in the future.
-	private LinkedList<PooledConnection> recycledConnections; // list of
-	                                                          // inactive
-	                                                          // PooledConnections
-	private int activeConnections; // number of active (open) connections of
-	                               // this pool
-	private boolean isDisposed; // true if this connection pool has been
-	                            // disposed
-	private boolean doPurgeConnection; // flag to purge the connection currently
-	                                   // beeing closed instead of recycling it
-	private PooledConnection connectionInTransition; // a PooledConnection which
-	                                                 // is currently within a
-	                                                 // PooledConnection.getConnection()
-	                                                 // call, or null
+	// All physical connections of this pool. Entries are claimed by changing
+	// their state from IDLE to IN_USE so borrowing and returning connections
+	// doesn't require a lock.
+	private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<PoolEntry>();
+	private final ConcurrentHashMap<PooledConnection, PoolEntry> entryMap = new ConcurrentHashMap<PooledConnection, PoolEntry>();
+	private final ThreadLocal<java.lang.ref.WeakReference<PoolEntry>> lastEntry = new ThreadLocal<java.lang.ref.WeakReference<PoolEntry>>();
+	private final AtomicInteger activeConnections = new AtomicInteger(); // number
+	                                                                     // of
+	                                                                     // active
+	                                                                     // (open)
+	                                                                     // connections
+	private volatile boolean isDisposed; // true if this connection pool has
+	                                     // been disposed
+
+	// Housekeeping
+	private long validationIntervalMs = 30000;
+	private long idleTimeoutMs = 10 * 60000;
+	private java.util.Timer timer;
+	// Notified whenever the housekeeper releases a reserved entry
+	private final Object housekeeping = new Object();
+
+	// Statistics
+	private final Histogram waitTime = new Histogram();
+	private final Histogram usageTime = new Histogram();
+	private final AtomicLong createdConnections = new AtomicLong();
+	private final AtomicLong closedConnections = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong threadLocalHits = new AtomicLong();
 
 	/**
 	 * Thrown in {@link #getConnection()} or {@link #getValidConnection()} when
@@ -133,26 +158,34 @@ public class ConnectionPool extends MLog {
 			throw new IllegalArgumentException("Invalid maxConnections value.");
 		}
 		semaphore = new Semaphore(maxConnections, true);
-		recycledConnections = new LinkedList<PooledConnection>();
 		poolConnectionEventListener = new PoolConnectionEventListener();
+		startHousekeeper();
 	}
 
 	/**
 	 * Closes all unused pooled connections.
 	 */
-	public synchronized void close() throws SQLException {
-		if (isDisposed) {
-			return;
+	public void close() throws SQLException {
+		synchronized (this) {
+			if (isDisposed) {
+				return;
+			}
+			isDisposed = true;
+			if (timer != null) {
+				timer.cancel();
+				timer = null;
+			}
 		}
-		isDisposed = true;
 		SQLException e = null;
-		while (!recycledConnections.isEmpty()) {
-			PooledConnection pconn = recycledConnections.remove();
-			try {
-				pconn.close();
-			} catch (SQLException e2) {
-				if (e == null) {
-					e = e2;
+		for (PoolEntry entry : entries) {
+			if (entry.state.compareAndSet(IDLE, REMOVED)) {
+				removeEntry(entry);
+				try {
+					entry.pconn.close();
+				} catch (SQLException e2) {
+					if (e == null) {
+						e = e2;
+					}
 				}
 			}
 		}
@@ -176,29 +209,32 @@ public class ConnectionPool extends MLog {
 	 *             <code>timeout</code> seconds.
 	 */
 	public Connection getConnection() throws SQLException {
-		return new Connection(getConnection2(timeoutMs));
+		return new Connection(getConnection2(timeoutMs).conn);
 	}
 
-	private java.sql.Connection getConnection2(long timeoutMs) throws SQLException {
-		// This routine is unsynchronized, because semaphore.tryAcquire() may
-		// block.
-		synchronized (this) {
-			if (isDisposed) {
-				throw new IllegalStateException("Connection pool has been disposed.");
-			}
+	private PoolEntry getConnection2(long timeoutMs) throws SQLException {
+		if (isDisposed) {
+			throw new IllegalStateException("Connection pool has been disposed.");
 		}
+
+		// The semaphore limits the number of active connections and hands out
+		// permits in the order in which threads started waiting.
+		long startTime = System.nanoTime();
 		try {
 			if (!semaphore.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+				timeouts.incrementAndGet();
 				throw new TimeoutException();
 			}
 		} catch (InterruptedException e) {
 			throw new RuntimeException("Interrupted while waiting for a database connection.", e);
 		}
+		waitTime.add((System.nanoTime() - startTime) / 1000);
+
 		boolean ok = false;
 		try {
-			java.sql.Connection conn = getConnection3();
+			PoolEntry entry = getConnection3();
 			ok = true;
-			return conn;
+			return entry;
 		} finally {
 			if (!ok) {
 				semaphore.release();
@@ -206,32 +242,96 @@ public class ConnectionPool extends MLog {
 		}
 	}
 
-	private synchronized java.sql.Connection getConnection3() throws SQLException {
-		if (isDisposed) { // test again within synchronized lock
+	private PoolEntry getConnection3() throws SQLException {
+		if (isDisposed) { // test again after acquiring the permit
 			throw new IllegalStateException("Connection pool has been disposed.");
 		}
-		PooledConnection pconn;
-		if (!recycledConnections.isEmpty()) {
-			pconn = recycledConnections.remove();
-		} else {
-			pconn = dataSource.getPooledConnection();
+
+		PoolEntry entry = claimEntry();
+		if (entry == null) {
+			PooledConnection pconn = dataSource.getPooledConnection();
+			entry = new PoolEntry(pconn);
+			createdConnections.incrementAndGet();
+			entryMap.put(pconn, entry);
+			entries.add(entry);
 			pconn.addConnectionEventListener(poolConnectionEventListener);
 		}
-		java.sql.Connection conn;
+
 		try {
 			// The JDBC driver may call
 			// ConnectionEventListener.connectionErrorOccurred()
 			// from within PooledConnection.getConnection(). To detect this
-			// within
-			// disposeConnection(), we temporarily set connectionInTransition.
-			connectionInTransition = pconn;
-			conn = pconn.getConnection();
+			// within disposeConnection(), we temporarily set inTransition.
+			entry.inTransition = true;
+			entry.conn = entry.pconn.getConnection();
+		} catch (SQLException e) {
+			if (entry.state.compareAndSet(IN_USE, REMOVED)) {
+				removeEntry(entry);
+				closeConnectionAndIgnoreException(entry.pconn);
+			}
+			throw e;
 		} finally {
-			connectionInTransition = null;
+			entry.inTransition = false;
+		}
+		entry.borrowTime = System.nanoTime();
+		activeConnections.incrementAndGet();
+		return entry;
+	}
+
+	// **************************************************************************
+	// ** claimEntry
+	// **************************************************************************
+	/**
+	 * Returns an idle entry that has been marked as IN_USE. Tries the
+	 * connection last returned by the current thread first. Returns null if
+	 * there are no idle connections.
+	 */
+	private PoolEntry claimEntry() {
+		java.lang.ref.WeakReference<PoolEntry> ref = lastEntry.get();
+		if (ref != null) {
+			PoolEntry entry = ref.get();
+			if (entry != null && entry.state.compareAndSet(IDLE, IN_USE)) {
+				threadLocalHits.incrementAndGet();
+				return entry;
+			}
+		}
+
+		while (true) {
+			boolean reserved = false;
+			for (PoolEntry entry : entries) {
+				int state = entry.state.get();
+				if (state == IDLE && entry.state.compareAndSet(IDLE, IN_USE)) {
+					return entry;
+				}
+				if (state == RESERVED)
+					reserved = true;
+			}
+
+			// If the housekeeper is validating an idle connection and the pool
+			// is full, wait for the housekeeper instead of opening a new
+			// connection. The housekeeper notifies waiting threads whenever
+			// it releases an entry.
+			if (!reserved || entries.size() < maxConnections)
+				return null;
+			synchronized (housekeeping) {
+				if (hasReservedEntries()) {
+					try {
+						housekeeping.wait(1000);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RuntimeException("Interrupted while waiting for a database connection.", e);
+					}
+				}
+			}
 		}
-		activeConnections++;
-		assertInnerState();
-		return conn;
+	}
+
+	private boolean hasReservedEntries() {
+		for (PoolEntry entry : entries) {
+			if (entry.state.get() == RESERVED)
+				return true;
+		}
+		return false;
 	}
 
 	/**
@@ -244,15 +344,15 @@ public class ConnectionPool extends MLog {
 	 *
 	 * <p>
 	 * Pooled connections may become invalid when e.g. the database server is
-	 * restarted.
-	 *
-	 * <p>
-	 * This method is slower than {@link #getConnection()} because the JDBC
-	 * driver has to send an extra command to the database server to test the
-	 * connection.
+	 * restarted. Idle connections are validated in the background (see
+	 * {@link #setValidationInterval(int)}). Connections that were validated or
+	 * returned to the pool within the validation interval are not tested
+	 * again.
 	 *
 	 * <p>
-	 * This method requires Java 1.6 or newer.
+	 * This method is slower than {@link #getConnection()} if the connection
+	 * has to be tested because the JDBC driver has to send an extra command to
+	 * the database server.
 	 *
 	 * @throws TimeoutException
 	 *             when no valid connection becomes available within
@@ -285,16 +385,25 @@ public class ConnectionPool extends MLog {
 
 	private java.sql.Connection getValidConnection2(long time, long timeoutTime) {
 		long rtime = Math.max(1, timeoutTime - time);
-		java.sql.Connection conn;
+		PoolEntry entry;
 		try {
-			conn = getConnection2(rtime);
+			entry = getConnection2(rtime);
 		} catch (SQLException e) {
 			return null;
 		}
-		rtime = timeoutTime - System.currentTimeMillis();
+		java.sql.Connection conn = entry.conn;
+
+		// Skip the test if the connection was used or validated recently
+		long now = System.currentTimeMillis();
+		if (validationIntervalMs > 0 && now - entry.lastValidated < validationIntervalMs) {
+			return conn;
+		}
+
+		rtime = timeoutTime - now;
 		int rtimeSecs = Math.max(1, (int) ((rtime + 999) / 1000));
 		try {
 			if (conn.isValid(rtimeSecs)) {
+				entry.lastValidated = System.currentTimeMillis();
 				return conn;
 			}
 		} catch (SQLException e) {
@@ -311,61 +420,73 @@ public class ConnectionPool extends MLog {
 		// called.
 		// But to be sure that this works even with a faulty JDBC driver, we
 		// call purgeConnection().
-		purgeConnection(conn);
+		purgeConnection(entry);
 		return null;
 	}
 
-	// Purges the PooledConnection associated with the passed Connection from
-	// the connection pool.
-	private synchronized void purgeConnection(java.sql.Connection conn) {
+	// Purges the PooledConnection associated with the passed entry from the
+	// connection pool.
+	private void purgeConnection(PoolEntry entry) {
 		try {
-			doPurgeConnection = true;
+			entry.purge = true;
 			// (A potential problem of this program logic is that setting the
-			// doPurgeConnection flag
-			// has an effect only if the JDBC driver calls connectionClosed()
-			// synchronously within
-			// Connection.close().)
-			conn.close();
+			// purge flag has an effect only if the JDBC driver calls
+			// connectionClosed() synchronously within Connection.close().)
+			entry.conn.close();
 		} catch (SQLException e) {
 		}
 		// ignore exception from close()
 		finally {
-			doPurgeConnection = false;
+			entry.purge = false;
 		}
 	}
 
-	private synchronized void recycleConnection(PooledConnection pconn) {
-		if (isDisposed || doPurgeConnection) {
-			disposeConnection(pconn);
+	private void recycleConnection(PooledConnection pconn) {
+		PoolEntry entry = entryMap.get(pconn);
+		if (entry == null || entry.state.get() != IN_USE) {
 			return;
 		}
-		if (activeConnections <= 0) {
-			throw new AssertionError();
+		if (isDisposed || entry.purge) {
+			disposeConnection(pconn);
+			return;
 		}
-		activeConnections--;
+
+		long now = System.nanoTime();
+		usageTime.add((now - entry.borrowTime) / 1000);
+		entry.conn = null;
+		entry.lastUsed = entry.lastValidated = System.currentTimeMillis();
+		activeConnections.decrementAndGet();
+		entry.state.set(IDLE);
+		lastEntry.set(new java.lang.ref.WeakReference<PoolEntry>(entry));
 		semaphore.release();
-		recycledConnections.add(pconn);
-		assertInnerState();
 	}
 
-	private synchronized void disposeConnection(PooledConnection pconn) {
+	private void disposeConnection(PooledConnection pconn) {
 		pconn.removeConnectionEventListener(poolConnectionEventListener);
-		if (!recycledConnections.remove(pconn) && pconn != connectionInTransition) {
-			// If the PooledConnection is not in the recycledConnections list
-			// and is not currently within a PooledConnection.getConnection()
-			// call,
-			// we assume that the connection was active.
-			if (activeConnections <= 0) {
-				throw new AssertionError();
+		PoolEntry entry = entryMap.get(pconn);
+		if (entry != null) {
+			int state = entry.state.getAndSet(REMOVED);
+			removeEntry(entry);
+			if (state == IN_USE && !entry.inTransition) {
+				// If the PooledConnection was not idle and is not currently
+				// within a PooledConnection.getConnection() call, we assume
+				// that the connection was active.
+				activeConnections.decrementAndGet();
+				semaphore.release();
 			}
-			activeConnections--;
-			semaphore.release();
+			if (state == REMOVED)
+				return;
 		}
 		closeConnectionAndIgnoreException(pconn);
-		assertInnerState();
+	}
+
+	private void removeEntry(PoolEntry entry) {
+		entries.remove(entry);
+		entryMap.remove(entry.pconn);
 	}
 
 	private void closeConnectionAndIgnoreException(PooledConnection pconn) {
+		closedConnections.incrementAndGet();
 		try {
 			pconn.close();
 		} catch (SQLException e) {
@@ -385,18 +506,6 @@ public class ConnectionPool extends MLog {
 		}
 	}
 
-	private synchronized void assertInnerState() {
-		if (activeConnections < 0) {
-			throw new AssertionError();
-		}
-		if (activeConnections + recycledConnections.size() > maxConnections) {
-			throw new AssertionError();
-		}
-		if (activeConnections + semaphore.availablePermits() > maxConnections) {
-			throw new AssertionError();
-		}
-	}
-
 	private class PoolConnectionEventListener implements ConnectionEventListener {
 		@Override
 		public void connectionClosed(ConnectionEvent event) {
@@ -411,6 +520,145 @@ public class ConnectionPool extends MLog {
 		}
 	}
 
+	// **************************************************************************
+	// ** PoolEntry
+	// **************************************************************************
+	/**
+	 * Physical connection managed by the pool.
+	 */
+	private static class PoolEntry {
+		private final PooledConnection pconn;
+		private final AtomicInteger state = new AtomicInteger(IN_USE);
+		private volatile java.sql.Connection conn;
+		private volatile boolean inTransition;
+		private volatile boolean purge;
+		private volatile long borrowTime;
+		private volatile long lastUsed = System.currentTimeMillis();
+		private volatile long lastValidated = lastUsed;
+
+		private PoolEntry(PooledConnection pconn) {
+			this.pconn = pconn;
+		}
+	}
+
+	// **************************************************************************
+	// ** Housekeeper
+	// **************************************************************************
+	/**
+	 * TimerTask used to validate idle connections and to close connections
+	 * that have not been used for longer than the idle timeout. Connections
+	 * are reserved while they are tested so they can't be borrowed at the same
+	 * time.
+	 */
+	private class Housekeeper extends java.util.TimerTask {
+		@Override
+		public void run() {
+			long now = System.currentTimeMillis();
+			for (PoolEntry entry : entries) {
+				if (isDisposed)
+					return;
+				if (!entry.state.compareAndSet(IDLE, RESERVED))
+					continue;
+
+				try {
+					boolean ok = true;
+					if (idleTimeoutMs > 0 && now - entry.lastUsed >= idleTimeoutMs) {
+						ok = false;
+					} else if (validationIntervalMs > 0 && now - entry.lastValidated >= validationIntervalMs) {
+						ok = isValid(entry);
+					}
+
+					if (ok && entry.state.compareAndSet(RESERVED, IDLE))
+						continue;
+					if (entry.state.compareAndSet(RESERVED, REMOVED)) {
+						entry.pconn.removeConnectionEventListener(poolConnectionEventListener);
+						removeEntry(entry);
+						closeConnectionAndIgnoreException(entry.pconn);
+					}
+				} finally {
+					synchronized (housekeeping) {
+						housekeeping.notifyAll();
+					}
+				}
+			}
+		}
+
+		private boolean isValid(PoolEntry entry) {
+			java.sql.Connection conn = null;
+			try {
+				entry.purge = true; // <-- don't recycle the entry on close()
+				conn = entry.pconn.getConnection();
+				boolean isValid = conn.isValid(Math.max(1, (int) (validationIntervalMs / 2000)));
+				if (isValid)
+					entry.lastValidated = System.currentTimeMillis();
+				return isValid;
+			} catch (Exception e) {
+				return false;
+			} finally {
+				if (conn != null) {
+					try {
+						conn.close();
+					} catch (Exception e) {
+					}
+				}
+				entry.purge = false;
+			}
+		}
+	}
+
+	private synchronized void startHousekeeper() {
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+		if (isDisposed)
+			return;
+		long period = Long.MAX_VALUE;
+		if (validationIntervalMs > 0)
+			period = Math.min(period, validationIntervalMs);
+		if (idleTimeoutMs > 0)
+			period = Math.min(period, idleTimeoutMs / 2);
+		if (period == Long.MAX_VALUE)
+			return;
+		period = Math.max(1000, period);
+		timer = new java.util.Timer("ConnectionPool-Housekeeper", true);
+		timer.schedule(new Housekeeper(), period, period);
+	}
+
+	// **************************************************************************
+	// ** setValidationInterval
+	// **************************************************************************
+	/**
+	 * Used to set the interval, in seconds, in which idle connections are
+	 * tested in the background. Set to 0 to disable background validation. The
+	 * default is 30 seconds.
+	 */
+	public void setValidationInterval(int seconds) {
+		validationIntervalMs = Math.max(0, seconds) * 1000L;
+		startHousekeeper();
+	}
+
+	public int getValidationInterval() {
+		return (int) (validationIntervalMs / 1000);
+	}
+
+	// **************************************************************************
+	// ** setIdleTimeout
+	// **************************************************************************
+	/**
+	 * Used to set the time, in seconds, after which unused connections are
+	 * closed. Set to 0 to keep idle connections open. The default is 10
+	 * minutes.
+	 */
+	public void setIdleTimeout(int seconds) {
+		idleTimeoutMs = Math.max(0, seconds) * 1000L;
+		startHousekeeper();
+	}
+
+	public int getIdleTimeout() {
+		return (int) (idleTimeoutMs / 1000);
+	}
+
 	/**
 	 * Returns the number of active (open) connections of this pool.
 	 *
@@ -421,8 +669,8 @@ public class ConnectionPool extends MLog {
 	 *
 	 * @return the number of active connections.
 	 **/
-	public synchronized int getActiveConnections() {
-		return activeConnections;
+	public int getActiveConnections() {
+		return activeConnections.get();
 	}
 
 	/**
@@ -435,8 +683,13 @@ public class ConnectionPool extends MLog {
 	 *
 	 * @return the number of inactive connections.
 	 **/
-	public synchronized int getInactiveConnections() {
-		return recycledConnections.size();
+	public int getInactiveConnections() {
+		int count = 0;
+		for (PoolEntry entry : entries) {
+			if (entry.state.get() != IN_USE)
+				count++;
+		}
+		return count;
 	}
 
 	public int getMaxConnections() {
@@ -450,4 +703,127 @@ public class ConnectionPool extends MLog {
 	public int getTimeout() {
 		return Math.round(timeoutMs / 1000);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the time threads had to wait for a connection, in microseconds.
+	 */
+	public Histogram getWaitTimeHistogram() {
+		return waitTime;
+	}
+
+	/**
+	 * Returns the time connections were used before they were returned to the
+	 * pool, in microseconds.
+	 */
+	public Histogram getUsageTimeHistogram() {
+		return usageTime;
+	}
+
+	/** Returns the number of physical connections opened by the pool. */
+	public long getCreatedConnections() {
+		return createdConnections.get();
+	}
+
+	/** Returns the number of physical connections closed by the pool. */
+	public long getClosedConnections() {
+		return closedConnections.get();
+	}
+
+	/** Returns the number of requests that timed out waiting for a connection. */
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	/**
+	 * Returns the number of requests that reused the connection last returned
+	 * by the same thread.
+	 */
+	public long getThreadLocalHits() {
+		return threadLocalHits.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool[active=" + getActiveConnections() + ", inactive=" + getInactiveConnections() + ", max="
+		        + maxConnections + ", created=" + getCreatedConnections() + ", closed=" + getClosedConnections()
+		        + ", timeouts=" + getTimeouts() + ", waitTime=" + waitTime + ", usageTime=" + usageTime + "]";
+	}
+
+	// **************************************************************************
+	// ** Histogram
+	// **************************************************************************
+	/**
+	 * Simple lock-free histogram with exponential buckets. Bucket i counts
+	 * values between 2^(i-1) and 2^i - 1 (bucket 0 counts values less than 1).
+	 */
+	public static class Histogram {
+		private static final int BUCKETS = 40;
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		private void add(long value) {
+			if (value < 0)
+				value = 0;
+			int i = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+			buckets.incrementAndGet(i);
+			count.incrementAndGet();
+			sum.addAndGet(value);
+			long m;
+			while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+			}
+		}
+
+		/** Returns the number of recorded values. */
+		public long getCount() {
+			return count.get();
+		}
+
+		/** Returns the average of all recorded values. */
+		public double getMean() {
+			long n = count.get();
+			return n == 0 ? 0 : (double) sum.get() / n;
+		}
+
+		/** Returns the largest recorded value. */
+		public long getMax() {
+			return max.get();
+		}
+
+		/**
+		 * Returns an upper bound for the given percentile (0-100) of the
+		 * recorded values.
+		 */
+		public long getPercentile(double percentile) {
+			long n = count.get();
+			if (n == 0)
+				return 0;
+			long threshold = (long) Math.ceil(n * percentile / 100.0);
+			long total = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				total += buckets.get(i);
+				if (total >= threshold)
+					return Math.min(max.get(), i == 0 ? 0 : (1L << i) - 1);
+			}
+			return max.get();
+		}
+
+		/**
+		 * Returns the number of values in each bucket. Bucket i counts values
+		 * between 2^(i-1) and 2^i - 1.
+		 */
+		public long[] getBuckets() {
+			long[] arr = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++)
+				arr[i] = buckets.get(i);
+			return arr;
+		}
+
+		@Override
+		public String toString() {
+			return "[count=" + getCount() + ", mean=" + Math.round(getMean()) + ", p50=" + getPercentile(50) + ", p99="
+			        + getPercentile(99) + ", max=" + getMax() + "]";
+		}
+	}
+}
@@ -572,22 +572,34 @@ public class Database implements Cloneable {
 	// ** getTables
 	// **************************************************************************
 	/**
-	 * Used to retrieve an array of tables found in this database.
+	 * Used to retrieve an array of tables found in this database. The tables
+	 * are cached in the MetadataCache of the database. The returned tables use
+	 * the given connection to look up columns and keys.
 	 */
 	public static Table[] getTables(Connection conn) {
+		Database database = conn.getDatabase();
+		if (database == null)
+			return MetadataCache.loadTables(conn);
+		return database.getMetadataCache().getTables(conn);
+	}
+
+	// **************************************************************************
+	// ** getMetadataCache
+	// **************************************************************************
+	/**
+	 * Returns the cache used to store tables, columns, and keys found in this
+	 * database. The cache is shared by all Database instances with the same
+	 * url and user.
+	 */
+	public MetadataCache getMetadataCache() {
+		String key;
 		try {
-			java.util.ArrayList<Table> tables = new java.util.ArrayList<Table>();
-			DatabaseMetaData dbmd = conn.getConnection().getMetaData();
-			ResultSet rs = dbmd.getTables(null, null, null, new String[] { "TABLE" });
-			while (rs.next()) {
-				tables.add(new Table(rs, dbmd));
-			}
-			rs.close();
-			rs = null;
-			return tables.toArray(new Table[tables.size()]);
+			key = getURL() + ";user=" + username;
 		} catch (Exception e) {
-			return null;
+			// The url can't be generated without a driver
+			key = String.valueOf(name) + "@" + host + ":" + port + ";user=" + username;
 		}
+		return MetadataCache.getCache(key);
 	}
 
 	// **************************************************************************
@@ -13,6 +13,7 @@ public class Field {
 	private String Name = null;
 	protected String Type = null;
 	protected Value Value = null;
+	private Object RawValue = null; // <-- Value returned by the JDBC driver
 	private String Table = null;
 	private String Schema = null;
 	protected String Class = null;
@@ -103,10 +104,33 @@ public class Field {
 
 	public Value getValue() {
 		if (Value == null)
-			Value = new Value(null);
+			Value = new Value(RawValue);
 		return Value;
 	}
 
+	// **************************************************************************
+	// ** setRawValue
+	// **************************************************************************
+	/**
+	 * Used to set the value returned by the JDBC driver. The Value returned by
+	 * getValue() is only created when it is requested.
+	 */
+	protected void setRawValue(Object value) {
+		RawValue = value;
+		Value = null;
+	}
+
+	// **************************************************************************
+	// ** getRawValue
+	// **************************************************************************
+	/**
+	 * Returns the value of this field without creating a Value.
+	 */
+	protected Object getRawValue() {
+		Value value = Value;
+		return value == null ? RawValue : value.toObject();
+	}
+
 	// **************************************************************************
 	// ** getTable
 	// **************************************************************************
@@ -161,6 +185,7 @@ public class Field {
 		Name = null;
 		Type = null;
 		Value = new Value(null);
+		RawValue = null;
 		Table = null;
 		Schema = null;
 		Class = null;
@@ -0,0 +1,361 @@
+package javaxt.sql;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+//******************************************************************************
+//**  MetadataCache
+//******************************************************************************
+/**
+ * Used to cache tables, columns, and keys found in a database. Querying the
+ * database metadata requires one or more round-trips to the database server
+ * and is relatively slow. The cache is shared by all Database instances that
+ * point to the same database (same url and user) so connections from a
+ * ConnectionPool use the same cache.
+ * <p/>
+ * Cached entries expire after the time to live (see setTimeToLive). Call one
+ * of the invalidate methods after altering the database schema.
+ * <p/>
+ * Cached tables don't keep a reference to the connection that loaded them.
+ * Tables returned by the cache are copies bound to the metadata of the
+ * connection passed in by the caller. Caches that have not been used for
+ * longer than their time to live are removed when a new cache is created.
+ *
+ ******************************************************************************/
+
+public class MetadataCache {
+
+	private static final ConcurrentHashMap<String, MetadataCache> caches = new ConcurrentHashMap<String, MetadataCache>();
+
+	private volatile long timeToLive = 5 * 60000; // 5 minutes
+	private volatile long lastAccess = System.currentTimeMillis();
+	private volatile Table[] tables;
+	private volatile long tablesLoaded;
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	private static class Entry {
+		private final long lastUpdate = System.currentTimeMillis();
+		private volatile Key[] primaryKeys;
+		private volatile Key[] foreignKeys;
+		private volatile Column[] columns;
+	}
+
+	// **************************************************************************
+	// ** getCache
+	// **************************************************************************
+	/**
+	 * Returns the cache associated with the given key (e.g. url and user).
+	 */
+	protected static MetadataCache getCache(String key) {
+		MetadataCache cache = caches.get(key);
+		if (cache == null) {
+			removeIdleCaches();
+			cache = new MetadataCache();
+			MetadataCache prev = caches.putIfAbsent(key, cache);
+			if (prev != null)
+				cache = prev;
+		}
+		cache.lastAccess = System.currentTimeMillis();
+		return cache;
+	}
+
+	// **************************************************************************
+	// ** removeIdleCaches
+	// **************************************************************************
+	/**
+	 * Removes caches that have not been used for longer than their time to
+	 * live. All entries of such a cache have expired anyway. Caches without a
+	 * time to live are kept until clear() is called.
+	 */
+	private static void removeIdleCaches() {
+		long now = System.currentTimeMillis();
+		for (java.util.Map.Entry<String, MetadataCache> entry : caches.entrySet()) {
+			MetadataCache cache = entry.getValue();
+			long ttl = cache.timeToLive;
+			if (ttl > 0 && now - cache.lastAccess > ttl)
+				caches.remove(entry.getKey(), cache);
+		}
+	}
+
+	// **************************************************************************
+	// ** clear
+	// **************************************************************************
+	/** Removes the caches of all databases. */
+	public static void clear() {
+		caches.clear();
+	}
+
+	// **************************************************************************
+	// ** setTimeToLive
+	// **************************************************************************
+	/**
+	 * Used to set the time, in milliseconds, after which cached metadata is
+	 * reloaded from the database. A value of 0 or less disables expiration.
+	 * The default is 5 minutes.
+	 */
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	// **************************************************************************
+	// ** invalidate
+	// **************************************************************************
+	/** Removes all tables, columns, and keys from the cache. */
+	public void invalidate() {
+		tables = null;
+		entries.clear();
+	}
+
+	// **************************************************************************
+	// ** invalidate
+	// **************************************************************************
+	/**
+	 * Removes the columns and keys of the given table from the cache. The
+	 * table name is case insensitive.
+	 */
+	public void invalidate(String tableName) {
+		if (tableName == null)
+			return;
+		String suffix = "." + tableName.toLowerCase();
+		for (String key : entries.keySet()) {
+			if (key.endsWith(suffix))
+				entries.remove(key);
+		}
+	}
+
+	// **************************************************************************
+	// ** getTables
+	// **************************************************************************
+	/**
+	 * Returns an array of tables found in the database. The tables use the
+	 * metadata of the given connection to look up columns and keys. Returns
+	 * null if the tables could not be retrieved.
+	 */
+	public Table[] getTables(Connection conn) {
+		Table[] arr = getCachedTables(conn);
+		if (arr == null)
+			return null;
+		java.sql.DatabaseMetaData dbmd = getMetaData(conn);
+		Table[] copy = new Table[arr.length];
+		for (int i = 0; i < arr.length; i++) {
+			copy[i] = arr[i].copy(dbmd);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the cached tables. The tables are not bound to a connection and
+	 * must not be passed to the caller directly.
+	 */
+	private Table[] getCachedTables(Connection conn) {
+		Table[] arr = tables;
+		if (arr == null || isExpired(tablesLoaded)) {
+			arr = loadTables(conn);
+			if (arr == null)
+				return null;
+			for (int i = 0; i < arr.length; i++) {
+				arr[i] = arr[i].copy(null);
+			}
+			tablesLoaded = System.currentTimeMillis();
+			tables = arr;
+		}
+		return arr;
+	}
+
+	// **************************************************************************
+	// ** getTable
+	// **************************************************************************
+	/**
+	 * Returns the table with the given name. An exact match is preferred over
+	 * a case-insensitive match. Tables that are not in the cache (e.g. tables
+	 * created after the cache was loaded) are looked up in the database and
+	 * added to the cache. Returns null if the table is not found. Missing
+	 * tables are not cached.
+	 *
+	 * @param schema
+	 *            Optional schema name. Ignored if null.
+	 */
+	public Table getTable(Connection conn, String tableName, String schema) {
+		if (tableName == null)
+			return null;
+		Table[] arr = getCachedTables(conn);
+		if (arr == null)
+			return null;
+
+		Table match = findTable(arr, tableName, schema);
+		if (match == null) {
+			match = loadTable(conn, tableName, schema);
+			if (match == null)
+				return null;
+			match = match.copy(null);
+			synchronized (this) {
+				arr = tables;
+				Table cached = arr == null ? null : findTable(arr, tableName, schema);
+				if (cached != null) {
+					match = cached;
+				} else if (arr != null) {
+					Table[] newArr = java.util.Arrays.copyOf(arr, arr.length + 1);
+					newArr[arr.length] = match;
+					tables = newArr;
+				}
+			}
+		}
+		return match.copy(getMetaData(conn));
+	}
+
+	private static Table findTable(Table[] arr, String tableName, String schema) {
+		Table match = null;
+		for (Table table : arr) {
+			if (schema != null && table.getSchema() != null && !schema.equalsIgnoreCase(table.getSchema()))
+				continue;
+			if (tableName.equals(table.getName())) {
+				match = table;
+				break;
+			}
+			if (match == null && tableName.equalsIgnoreCase(table.getName()))
+				match = table;
+		}
+		return match;
+	}
+
+	// **************************************************************************
+	// ** getColumns
+	// **************************************************************************
+	/**
+	 * Returns a list of columns in the given table. Returns null if no columns
+	 * are found.
+	 */
+	public Column[] getColumns(Connection conn, Table table) {
+		Entry entry = getEntry(table);
+		Column[] columns = entry.columns;
+		if (columns == null) {
+			java.sql.DatabaseMetaData dbmd = getMetaData(conn);
+			if (dbmd == null)
+				return null;
+			columns = table.copy(null).getColumns(dbmd, getPrimaryKeys(conn, table), getForeignKeys(conn, table));
+			if (columns == null)
+				return null;
+			entry.columns = columns;
+		}
+		return columns.clone();
+	}
+
+	// **************************************************************************
+	// ** getPrimaryKeys
+	// **************************************************************************
+	/**
+	 * Returns a list of primary keys in the given table.
+	 */
+	public Key[] getPrimaryKeys(Connection conn, Table table) {
+		Entry entry = getEntry(table);
+		Key[] keys = entry.primaryKeys;
+		if (keys == null) {
+			java.sql.DatabaseMetaData dbmd = getMetaData(conn);
+			if (dbmd == null)
+				return null;
+			keys = table.getPrimaryKeys(dbmd);
+			if (keys == null)
+				return null;
+			entry.primaryKeys = keys;
+		}
+		return keys.clone();
+	}
+
+	// **************************************************************************
+	// ** getForeignKeys
+	// **************************************************************************
+	/**
+	 * Returns a list of foreign keys found in the given table.
+	 */
+	public Key[] getForeignKeys(Connection conn, Table table) {
+		Entry entry = getEntry(table);
+		Key[] keys = entry.foreignKeys;
+		if (keys == null) {
+			java.sql.DatabaseMetaData dbmd = getMetaData(conn);
+			if (dbmd == null)
+				return null;
+			keys = table.getForeignKeys(dbmd);
+			if (keys == null)
+				return null;
+			entry.foreignKeys = keys;
+		}
+		return keys.clone();
+	}
+
+	private Entry getEntry(Table table) {
+		String key = table.getCatalog() + "." + table.getSchema() + "." + String.valueOf(table.getName()).toLowerCase();
+		Entry entry = entries.get(key);
+		if (entry == null || isExpired(entry.lastUpdate)) {
+			entry = new Entry();
+			entries.put(key, entry);
+		}
+		return entry;
+	}
+
+	private boolean isExpired(long lastUpdate) {
+		long ttl = timeToLive;
+		return ttl > 0 && System.currentTimeMillis() - lastUpdate > ttl;
+	}
+
+	private static java.sql.DatabaseMetaData getMetaData(Connection conn) {
+		try {
+			return conn.getConnection().getMetaData();
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	// **************************************************************************
+	// ** loadTable
+	// **************************************************************************
+	/**
+	 * Used to retrieve a table with the given name directly from the
+	 * database. Returns null if the table is not found.
+	 */
+	protected static Table loadTable(Connection conn, String tableName, String schema) {
+		try {
+			Table match = null;
+			java.sql.DatabaseMetaData dbmd = conn.getConnection().getMetaData();
+			java.sql.ResultSet rs = dbmd.getTables(null, null, tableName, new String[] { "TABLE" });
+			try {
+				while (rs.next()) {
+					Table table = new Table(rs, dbmd);
+					if (schema == null || table.getSchema() == null || schema.equalsIgnoreCase(table.getSchema())) {
+						match = table;
+						break;
+					}
+				}
+			} finally {
+				rs.close();
+			}
+			return match;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	// **************************************************************************
+	// ** loadTables
+	// **************************************************************************
+	/**
+	 * Used to retrieve an array of tables directly from the database.
+	 */
+	protected static Table[] loadTables(Connection conn) {
+		try {
+			java.util.ArrayList<Table> tables = new java.util.ArrayList<Table>();
+			java.sql.DatabaseMetaData dbmd = conn.getConnection().getMetaData();
+			java.sql.ResultSet rs = dbmd.getTables(null, null, null, new String[] { "TABLE" });
+			while (rs.next()) {
+				tables.add(new Table(rs, dbmd));
+			}
+			rs.close();
+			rs = null;
+			return tables.toArray(new Table[tables.size()]);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
@@ -45,6 +45,7 @@ public class Recordset {
 	 * Recordset.
 	 */
 	private Field[] Fields = null;
+	private java.util.HashMap<String, Integer> fieldIndex = null;
 
 	/**
 	 * Sets or returns the maximum number of records to return to a Recordset
@@ -335,6 +336,7 @@ public class Recordset {
 				Fields[i - 1] = new Field(i, rsmd);
 			}
 			rsmd = null;
+			fieldIndex = createFieldIndex();
 
 			x = -1;
 
@@ -343,7 +345,7 @@ public class Recordset {
 
 					EOF = false;
 					for (int i = 1; i <= cols; i++) {
-						Fields[i - 1].Value = new Value(rs.getObject(i));
+						Fields[i - 1].setRawValue(rs.getObject(i));
 					}
 					x += 1;
 				}
@@ -387,6 +389,7 @@ public class Recordset {
 			SQLException ex = e.getNextException();
 			ex.printStackTrace();
 		}
+		closePreparedStatements();
 
 		// Reset autocommit
 		try {
@@ -408,6 +411,7 @@ public class Recordset {
 			}
 			Fields = null;
 		}
+		fieldIndex = null;
 
 		endTime = System.currentTimeMillis();
 		EllapsedTime = endTime - startTime;
@@ -476,7 +480,7 @@ public class Recordset {
 			InsertOnUpdate = true;
 			for (int i = 1; i <= Fields.length; i++) {
 				Field Field = Fields[i - 1];
-				Field.Value = null;
+				Field.setRawValue(null);
 				Field.RequiresUpdate = false;
 			}
 		}
@@ -546,15 +550,15 @@ public class Recordset {
 				}
 			}
 
-			// Find primary key for the table. This slows things down
-			// quite a bit but we need it for the "where" clause.
+			// Find primary key for the table. We need it for the "where"
+			// clause. The keys are cached by the MetadataCache so the
+			// metadata is only queried once per table.
 			java.util.ArrayList<Field> keys = new java.util.ArrayList<Field>();
 			try {
-				java.sql.DatabaseMetaData dbmd = Conn.getMetaData();
-				java.sql.ResultSet r2 = dbmd.getTables(null, null, Fields[0].getTable(), new String[] { "TABLE" });
-				if (r2.next()) {
-					Table table = new Table(r2, dbmd);
-					Key[] arr = table.getPrimaryKeys();
+				MetadataCache cache = getDatabase().getMetadataCache();
+				Table table = cache.getTable(Connection, Fields[0].getTable(), Fields[0].getSchema());
+				if (table != null) {
+					Key[] arr = cache.getPrimaryKeys(Connection, table);
 					if (arr != null) {
 						for (int i = 0; i < arr.length; i++) {
 							Key key = arr[i];
@@ -564,7 +568,6 @@ public class Recordset {
 						}
 					}
 				}
-				r2.close();
 			} catch (Exception e) {
 			}
 
@@ -633,20 +636,10 @@ public class Recordset {
 			}
 		}
 
-		// Get prepared statement
-		java.sql.PreparedStatement stmt;
-		if (batchSize > 1) {
-			if (batchedStatements == null)
-				batchedStatements = new java.util.HashMap<String, java.sql.PreparedStatement>();
-			stmt = batchedStatements.get(sql.toString());
-			if (stmt == null) {
-				stmt = Conn.prepareStatement(sql.toString());
-				batchedStatements.put(sql.toString(), stmt);
-				Conn.setAutoCommit(false);
-			}
-		} else {
-			stmt = Conn.prepareStatement(sql.toString(), java.sql.Statement.RETURN_GENERATED_KEYS);
-		}
+		// Get prepared statement. Statements are cached by their SQL so
+		// that the same statement is reused for every record with the same
+		// set of columns.
+		java.sql.PreparedStatement stmt = getPreparedStatement(sql.toString());
 
 		// Set values using a prepared statement
 		int id = 1;
@@ -778,11 +771,14 @@ public class Recordset {
 				if (generatedKeys.next()) {
 					this.GeneratedKey = new Value(generatedKeys.getString(1));
 				}
+				generatedKeys.close();
 				InsertOnUpdate = false;
 			}
 
 		} else {
 			stmt.addBatch();
+			if (!batchedStatements.contains(stmt))
+				batchedStatements.add(stmt);
 			numBatches++;
 
 			if (numBatches == batchSize) {
@@ -796,6 +792,17 @@ public class Recordset {
 	// **************************************************************************
 
 	private String escape(String colName) {
+		if (escapedNames == null)
+			escapedNames = new java.util.HashMap<String, String>();
+		String escapedName = escapedNames.get(colName);
+		if (escapedName == null) {
+			escapedName = escape2(colName);
+			escapedNames.put(colName, escapedName);
+		}
+		return escapedName;
+	}
+
+	private String escape2(String colName) {
 		String[] keywords = javaxt.sql.Database.getReservedKeywords(Connection);
 		if (colName.contains(" "))
 			colName = "[" + colName + "]";
@@ -898,7 +905,9 @@ public class Recordset {
 
 	private int numBatches = 0;
 	private int batchSize = 1;
-	private java.util.HashMap<String, java.sql.PreparedStatement> batchedStatements;
+	private java.util.ArrayList<java.sql.PreparedStatement> batchedStatements = new java.util.ArrayList<java.sql.PreparedStatement>();
+	private java.util.HashMap<String, java.sql.PreparedStatement> preparedStatements;
+	private java.util.HashMap<String, String> escapedNames;
 
 	// **************************************************************************
 	// ** setBatchSize
@@ -907,7 +916,8 @@ public class Recordset {
 	 * Used to set the number of records to insert in a batch. By default, this
 	 * value is set to 1 so that records are inserted one at a time. By setting
 	 * a larger number, more records are inserted at a time which can
-	 * significantly improve performance.
+	 * significantly improve performance. Batched records are sent to the
+	 * database using a single prepared statement per set of columns.
 	 */
 	public void setBatchSize(int batchSize) {
 		if (batchSize > 0)
@@ -925,12 +935,10 @@ public class Recordset {
 	 * Returns the total number of rows that were updated.
 	 */
 	private int executeBatch() throws java.sql.SQLException {
-		if (batchedStatements == null)
+		if (batchedStatements.isEmpty())
 			return 0;
 		int ttl = 0;
-		java.util.Iterator<String> it = batchedStatements.keySet().iterator();
-		while (it.hasNext()) {
-			java.sql.PreparedStatement stmt = batchedStatements.get(it.next());
+		for (java.sql.PreparedStatement stmt : batchedStatements) {
 
 			int[] rowsUpdated = stmt.executeBatch();
 			if (rowsUpdated.length > 0)
@@ -945,6 +953,50 @@ public class Recordset {
 		return ttl;
 	}
 
+	// **************************************************************************
+	// ** getPreparedStatement
+	// **************************************************************************
+	/**
+	 * Returns a prepared statement for the given SQL. Statements are cached
+	 * until the recordset is closed. When batching is enabled, auto-commit is
+	 * disabled and the statements are prepared without generated keys.
+	 */
+	private java.sql.PreparedStatement getPreparedStatement(String sql) throws java.sql.SQLException {
+		if (preparedStatements == null)
+			preparedStatements = new java.util.HashMap<String, java.sql.PreparedStatement>();
+
+		boolean batch = batchSize > 1;
+		String key = (batch ? "B:" : "U:") + sql;
+		java.sql.PreparedStatement stmt = preparedStatements.get(key);
+		if (stmt == null) {
+			if (batch) {
+				stmt = Conn.prepareStatement(sql);
+				Conn.setAutoCommit(false);
+			} else {
+				stmt = Conn.prepareStatement(sql, java.sql.Statement.RETURN_GENERATED_KEYS);
+			}
+			preparedStatements.put(key, stmt);
+		}
+		return stmt;
+	}
+
+	// **************************************************************************
+	// ** closePreparedStatements
+	// **************************************************************************
+	private void closePreparedStatements() {
+		if (preparedStatements == null)
+			return;
+		for (java.sql.PreparedStatement stmt : preparedStatements.values()) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+			}
+		}
+		preparedStatements = null;
+		batchedStatements.clear();
+		escapedNames = null;
+	}
+
 	// **************************************************************************
 	// ** getGeneratedKey
 	// **************************************************************************
@@ -975,42 +1027,70 @@ public class Recordset {
 	 * field name is not found.
 	 */
 	public Field getField(String FieldName) {
-		if (Fields == null || Fields.length == 0)
-			return null;
+		int i = getFieldIndex(FieldName);
+		return i < 0 ? null : Fields[i];
+	}
 
+	// **************************************************************************
+	// ** getFieldIndex
+	// **************************************************************************
+	/**
+	 * Returns the index of a field in the array of fields. The field name is
+	 * case insensitive and may be prefixed with a table name (e.g.
+	 * "table.column") or a schema and table name (e.g. "schema.table.column").
+	 * Returns -1 if the field name is not found.
+	 */
+	public int getFieldIndex(String FieldName) {
+		if (Fields == null || Fields.length == 0)
+			return -1;
 		if (FieldName == null)
-			return null;
-		FieldName = FieldName.trim();
-		if (FieldName.length() == 0)
-			return null;
+			return -1;
 
-		String[] arr = FieldName.split("\\.");
+		if (fieldIndex == null)
+			fieldIndex = createFieldIndex();
 
-		for (Field field : Fields) {
+		// Try the name as is to avoid creating new strings
+		Integer i = fieldIndex.get(FieldName);
+		if (i == null) {
+			FieldName = FieldName.trim();
+			if (FieldName.length() == 0)
+				return -1;
+			i = fieldIndex.get(FieldName.toLowerCase());
+			if (i == null)
+				return -1;
+		}
+		return i;
+	}
 
+	// **************************************************************************
+	// ** createFieldIndex
+	// **************************************************************************
+	/**
+	 * Returns a map of field names to field indexes. Each field is added with
+	 * its name, "table.name", and "schema.table.name" in lower case and with
+	 * its name as it appears in the result set. If two fields have the same
+	 * name, the first one is used.
+	 */
+	private java.util.HashMap<String, Integer> createFieldIndex() {
+		java.util.HashMap<String, Integer> map = new java.util.HashMap<String, Integer>(Fields.length * 8);
+		for (int i = 0; i < Fields.length; i++) {
+			Field field = Fields[i];
 			String fieldName = field.getName();
 			if (fieldName == null)
 				continue;
+			Integer idx = i;
 
 			String tableName = field.getTable() == null ? "" : field.getTable();
 			String schemaName = field.getSchema() == null ? "" : field.getSchema();
-
-			if (arr.length == 3) {
-				if (fieldName.equalsIgnoreCase(arr[2]) && tableName.equalsIgnoreCase(arr[1])
-				        && schemaName.equalsIgnoreCase(arr[0])) {
-					return field;
-				}
-			} else if (arr.length == 2) {
-				if (fieldName.equalsIgnoreCase(arr[1]) && tableName.equalsIgnoreCase(arr[0])) {
-					return field;
-				}
-			} else if (arr.length == 1) {
-				if (fieldName.equalsIgnoreCase(arr[0]))
-					return field;
+			String name = fieldName.toLowerCase();
+			String table = tableName.toLowerCase() + "." + name;
+			String schema = schemaName.toLowerCase() + "." + table;
+			for (String key : new String[] { fieldName, name, table, schema }) {
+				if (!map.containsKey(key))
+					map.put(key, idx);
 			}
 		}
-
-		return null;
+		return map;
 	}
 
 	// **************************************************************************
@@ -1060,6 +1140,79 @@ public class Recordset {
 		return new Value(null);
 	}
 
+	// **************************************************************************
+	// ** getObject
+	// **************************************************************************
+	/**
+	 * Returns the value of a given field as returned by the JDBC driver. The
+	 * getObject, getString, getInt, getLong, getDouble, and getBoolean methods
+	 * can be used with getFieldIndex() to read values in a loop without looking
+	 * up the field name for each record. Returns null if the index is out of
+	 * range or if the value is null.
+	 */
+	public Object getObject(int i) {
+		if (Fields != null && i >= 0 && i < Fields.length)
+			return Fields[i].getRawValue();
+		return null;
+	}
+
+	/** Returns the value of a given field as a String or null. */
+	public String getString(int i) {
+		Object obj = getObject(i);
+		if (obj == null)
+			return null;
+		if (obj instanceof String)
+			return (String) obj;
+		return Fields[i].getValue().toString();
+	}
+
+	/** Returns the value of a given field as an int or 0 if the value is null. */
+	public int getInt(int i) {
+		Object obj = getObject(i);
+		if (obj instanceof Number)
+			return ((Number) obj).intValue();
+		if (obj == null)
+			return 0;
+		Integer val = Fields[i].getValue().toInteger();
+		return val == null ? 0 : val;
+	}
+
+	/** Returns the value of a given field as a long or 0 if the value is null. */
+	public long getLong(int i) {
+		Object obj = getObject(i);
+		if (obj instanceof Number)
+			return ((Number) obj).longValue();
+		if (obj == null)
+			return 0;
+		Long val = Fields[i].getValue().toLong();
+		return val == null ? 0 : val;
+	}
+
+	/** Returns the value of a given field as a double or 0 if the value is null. */
+	public double getDouble(int i) {
+		Object obj = getObject(i);
+		if (obj instanceof Number)
+			return ((Number) obj).doubleValue();
+		if (obj == null)
+			return 0;
+		Double val = Fields[i].getValue().toDouble();
+		return val == null ? 0 : val;
+	}
+
+	/**
+	 * Returns the value of a given field as a boolean or false if the value is
+	 * null.
+	 */
+	public boolean getBoolean(int i) {
+		Object obj = getObject(i);
+		if (obj instanceof Boolean)
+			return (Boolean) obj;
+		if (obj == null)
+			return false;
+		Boolean val = Fields[i].getValue().toBoolean();
+		return val == null ? false : val;
+	}
+
 	// **************************************************************************
 	// ** isDirty
 	// **************************************************************************
@@ -1092,20 +1245,15 @@ public class Recordset {
 
 	public void setValue(String FieldName, Value FieldValue) {
 		if (State == 1) {
-			for (int i = 0; i < Fields.length; i++) {
-				String name = Fields[i].getName();
-				if (name != null) {
-					if (name.equalsIgnoreCase(FieldName)) {
-						if (FieldValue == null)
-							FieldValue = new Value(null);
-
-						// Update the Field Value as needed.
-						if (!Fields[i].getValue().equals(FieldValue)) {
-							Fields[i].Value = FieldValue;
-							Fields[i].RequiresUpdate = true;
-						}
-						break;
-					}
+			int i = getFieldIndex(FieldName);
+			if (i >= 0) {
+				if (FieldValue == null)
+					FieldValue = new Value(null);
+
+				// Update the Field Value as needed.
+				if (!Fields[i].getValue().equals(FieldValue)) {
+					Fields[i].Value = FieldValue;
+					Fields[i].RequiresUpdate = true;
 				}
 			}
 		}
@@ -1193,7 +1341,7 @@ public class Recordset {
 				if (rs.next()) {
 					for (int i = 1; i <= Fields.length; i++) {
 						Field Field = Fields[i - 1];
-						Field.Value = new Value(rs.getObject(i));
+						Field.setRawValue(rs.getObject(i));
 						Field.RequiresUpdate = false;
 					}
 					x += 1;
@@ -1255,7 +1403,7 @@ public class Recordset {
 		try {
 			for (int i = 1; i <= Fields.length; i++) {
 				Field Field = Fields[i - 1];
-				Field.Value = new Value(rs.getObject(i));
+				Field.setRawValue(rs.getObject(i));
 				Field.RequiresUpdate = false;
 			}
 		} catch (Exception e) {
@@ -1309,7 +1457,10 @@ public class Recordset {
 
 		// Match selected tables to tables found in this database
 		java.util.ArrayList<Table> tables = new java.util.ArrayList<Table>();
-		for (Table table : Database.getTables(Connection)) {
+		Table[] arr = Database.getTables(Connection);
+		if (arr == null)
+			return;
+		for (Table table : arr) {
 			for (String selectedTable : selectedTables) {
 				if (selectedTable.contains("."))
 					selectedTable = selectedTable.substring(selectedTable.indexOf("."));
@@ -1349,6 +1500,9 @@ public class Recordset {
 
 		tables.clear();
 		tables = null;
+
+		// Table and schema names may have changed
+		fieldIndex = null;
 	}
 
 	// **************************************************************************
@@ -1362,8 +1516,12 @@ public class Recordset {
 
 		java.util.ArrayList<Column> matches = new java.util.ArrayList<Column>();
 
+		MetadataCache cache = getDatabase().getMetadataCache();
 		for (Table table : tables) {
-			for (Column column : table.getColumns()) {
+			Column[] columns = cache.getColumns(Connection, table);
+			if (columns == null)
+				continue;
+			for (Column column : columns) {
 				if (column.getName().equalsIgnoreCase(field.getName())) {
 					matches.add(column);
 				}
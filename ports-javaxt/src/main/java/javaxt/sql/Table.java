@@ -35,6 +35,24 @@ public class Table implements Comparable {
 	private Table() {
 	}
 
+	// **************************************************************************
+	// ** copy
+	// **************************************************************************
+	/**
+	 * Returns a copy of this table that uses the given metadata to look up
+	 * columns and keys. Used by the MetadataCache so cached tables don't keep
+	 * the metadata of a connection that may have been closed.
+	 */
+	protected Table copy(java.sql.DatabaseMetaData dbmd) {
+		Table table = new Table();
+		table.Name = Name;
+		table.Description = Description;
+		table.Schema = Schema;
+		table.Catalog = Catalog;
+		table.dbmd = dbmd;
+		return table;
+	}
+
 	// **************************************************************************
 	// ** getName
 	// **************************************************************************
@@ -65,10 +83,17 @@ public class Table implements Comparable {
 	 * found.
 	 */
 	public Column[] getColumns() {
+		return getColumns(dbmd, getPrimaryKeys(), getForeignKeys());
+	}
+
+	/**
+	 * Returns a list of columns in this table using the given metadata and
+	 * keys. Used by the MetadataCache to query the metadata with the current
+	 * connection.
+	 */
+	protected Column[] getColumns(java.sql.DatabaseMetaData dbmd, Key[] Keys, Key[] FKeys) {
 		try {
 			java.util.ArrayList<Column> columns = new java.util.ArrayList<Column>();
-			Key[] Keys = getPrimaryKeys();
-			Key[] FKeys = getForeignKeys();
 
 			java.sql.ResultSet rs = dbmd.getColumns(Catalog, Schema, Name, null);
 			while (rs.next()) {
@@ -115,6 +140,10 @@ public class Table implements Comparable {
 	 * table.
 	 */
 	public Key[] getPrimaryKeys() {
+		return getPrimaryKeys(dbmd);
+	}
+
+	protected Key[] getPrimaryKeys(java.sql.DatabaseMetaData dbmd) {
 		try {
 			java.util.ArrayList<Key> keys = new java.util.ArrayList<Key>();
 			java.sql.ResultSet rs = dbmd.getPrimaryKeys(Catalog, Schema, Name);
@@ -143,6 +172,10 @@ public class Table implements Comparable {
 	 * Returns a list of foreign keys found in this table.
 	 */
 	public Key[] getForeignKeys() {
+		return getForeignKeys(dbmd);
+	}
+
+	protected Key[] getForeignKeys(java.sql.DatabaseMetaData dbmd) {
 		try {
 			java.util.ArrayList<Key> keys = new java.util.ArrayList<Key>();
 			java.sql.ResultSet rs = dbmd.getImportedKeys(Catalog, Schema, Name);
@@ -17,7 +17,7 @@ import java.util.Locale;
 public class Date implements Comparable {
 
 	private Locale currentLocale = Locale.getDefault();
-	private java.util.TimeZone timeZone = Calendar.getInstance().getTimeZone();
+	private java.util.TimeZone timeZone = java.util.TimeZone.getDefault();
 	private java.util.Date currDate;
 
 	public static final String INTERVAL_MILLISECONDS = "S";
@@ -101,6 +101,19 @@ public class Date implements Comparable {
 
 	};
 
+	/**
+	 * SimpleDateFormats are expensive to create and are not thread-safe so
+	 * parsers are cached per thread, locale, and format.
+	 */
+	private static final ThreadLocal<HashMap<Locale, HashMap<String, SimpleDateFormat>>> formatters = new ThreadLocal<HashMap<Locale, HashMap<String, SimpleDateFormat>>>() {
+		@Override
+		protected HashMap<Locale, HashMap<String, SimpleDateFormat>> initialValue() {
+			return new HashMap<Locale, HashMap<String, SimpleDateFormat>>();
+		}
+	};
+
+	private static final java.util.TimeZone UTC = java.util.TimeZone.getTimeZone("UTC");
+
 	// **************************************************************************
 	// ** Constructor
 	// **************************************************************************
@@ -151,11 +164,19 @@ public class Date implements Comparable {
 	// **************************************************************************
 	/**
 	 * Creates a new instance of date using a String representation of a date.
+	 * ISO 8601 dates (e.g. "1976-06-07T13:02:09.000Z") are parsed directly.
+	 * Other dates are parsed using the first matching entry in a list of
+	 * supported formats.
 	 */
 	public Date(String date) throws ParseException {
 
 		try {
 
+			// Parse ISO 8601 dates without a SimpleDateFormat
+			String str = date.trim();
+			if (parseISODate(str))
+				return;
+
 			// Loop through all known date formats and try to convert the string
 			// to a date
 			for (String format : SupportedFormats) {
@@ -281,9 +302,7 @@ public class Date implements Comparable {
 		if (date == null)
 			throw new ParseException("Date is null.", 0);
 
-		SimpleDateFormat formatter = new SimpleDateFormat(format, currentLocale);
-		if (timeZone != null)
-			formatter.setTimeZone(timeZone);
+		SimpleDateFormat formatter = getFormatter(format);
 
 		try {
 			java.util.Date d = formatter.parse(date);
@@ -320,8 +339,7 @@ public class Date implements Comparable {
 						java.util.TimeZone zone = getTimeZone(tz);
 						if (zone != null) {
 							timeZone = zone;
-							formatter = new SimpleDateFormat(format, currentLocale);
-							formatter.setTimeZone(timeZone);
+							formatter = getFormatter(format);
 							return formatter.parse(date);
 						}
 					} catch (Exception ex) {
@@ -332,6 +350,187 @@ public class Date implements Comparable {
 		}
 	}
 
+	// **************************************************************************
+	// ** getFormatter
+	// **************************************************************************
+	/**
+	 * Returns a SimpleDateFormat for the given format. The formatter is cached
+	 * and should only be used by the current thread.
+	 */
+	private SimpleDateFormat getFormatter(String format) {
+		HashMap<Locale, HashMap<String, SimpleDateFormat>> locales = formatters.get();
+		HashMap<String, SimpleDateFormat> map = locales.get(currentLocale);
+		if (map == null) {
+			map = new HashMap<String, SimpleDateFormat>();
+			locales.put(currentLocale, map);
+		}
+		SimpleDateFormat formatter = map.get(format);
+		if (formatter == null) {
+			formatter = new SimpleDateFormat(format, currentLocale);
+			map.put(format, formatter);
+		}
+
+		// The time zone of the formatter is updated when parsing dates with a
+		// time zone so it has to be reset every time
+		formatter.setTimeZone(timeZone == null ? java.util.TimeZone.getDefault() : timeZone);
+		return formatter;
+	}
+
+	// **************************************************************************
+	// ** parseISODate
+	// **************************************************************************
+	/**
+	 * Used to parse ISO 8601 and RFC 3339 dates without creating a formatter.
+	 * Supports dates like "1976-06-07", "1976-06-07T13:02", "1976-06-07
+	 * 13:02:09", and "1976-06-07T13:02:09.123456+05:00". The time zone is
+	 * optional and can be "Z" (UTC) or an offset in "+HH:mm", "+HHmm", or "+HH"
+	 * format. Dates without a time zone are parsed in the current time zone.
+	 * Returns false if the string is not an ISO date, or if any of the fields
+	 * are out of range, in which case the date should be parsed using a
+	 * SimpleDateFormat.
+	 */
+	private boolean parseISODate(String date) {
+		int len = date.length();
+		if (len < 10 || date.charAt(4) != '-' || date.charAt(7) != '-')
+			return false;
+
+		int year = getDigits(date, 0, 4);
+		int month = getDigits(date, 5, 2);
+		int day = getDigits(date, 8, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > getDaysInMonth(year, month))
+			return false;
+
+		int hour = 0, minute = 0, second = 0, nanos = 0;
+		int pos = 10;
+		if (pos < len) {
+			char c = date.charAt(pos);
+			if ((c != 'T' && c != ' ') || len < 16 || date.charAt(13) != ':')
+				return false;
+			hour = getDigits(date, 11, 2);
+			minute = getDigits(date, 14, 2);
+			if (hour < 0 || hour > 23 || minute < 0 || minute > 59)
+				return false;
+			pos = 16;
+
+			// Seconds
+			if (pos < len && date.charAt(pos) == ':') {
+				second = getDigits(date, 17, 2);
+				if (second < 0 || second > 59)
+					return false;
+				pos = 19;
+
+				// Fraction of a second
+				if (pos < len && (date.charAt(pos) == '.' || date.charAt(pos) == ',')) {
+					pos++;
+					int digits = 0;
+					while (pos < len && digits < 9) {
+						int d = date.charAt(pos) - '0';
+						if (d < 0 || d > 9)
+							break;
+						nanos = nanos * 10 + d;
+						digits++;
+						pos++;
+					}
+					if (digits == 0)
+						return false;
+					for (int i = digits; i < 9; i++) {
+						nanos *= 10;
+					}
+				}
+			}
+		}
+
+		// Time zone
+		boolean local = pos == len;
+		java.util.TimeZone tz = null;
+		int offset = 0;
+		if (!local) {
+			char c = date.charAt(pos);
+			if (c == 'Z' && pos == len - 1) {
+				tz = UTC;
+			} else if (c == '+' || c == '-') {
+				int n = len - pos - 1;
+				int h, m = 0;
+				if (n == 2) {
+					h = getDigits(date, pos + 1, 2);
+				} else if (n == 4) {
+					h = getDigits(date, pos + 1, 2);
+					m = getDigits(date, pos + 3, 2);
+				} else if (n == 5 && date.charAt(pos + 3) == ':') {
+					h = getDigits(date, pos + 1, 2);
+					m = getDigits(date, pos + 4, 2);
+				} else {
+					return false;
+				}
+				if (h < 0 || h > 18 || m < 0 || m > 59)
+					return false;
+				offset = (h * 60 + m) * 60000;
+				if (c == '-')
+					offset = -offset;
+			} else {
+				return false;
+			}
+		}
+
+		long millis;
+		if (local) {
+
+			// No time zone was specified so use the current time zone
+			java.util.TimeZone zone = timeZone == null ? java.util.TimeZone.getDefault() : timeZone;
+			millis = java.time.LocalDateTime.of(year, month, day, hour, minute, second, nanos)
+			        .atZone(zone.toZoneId()).toInstant().toEpochMilli();
+		} else {
+			millis = ((getEpochDay(year, month, day) * 24 + hour) * 60 + minute) * 60000L + second * 1000L
+			        + nanos / 1000000 - offset;
+			if (tz != null)
+				timeZone = tz;
+		}
+
+		currDate = new java.util.Date(millis);
+		return true;
+	}
+
+	/**
+	 * Returns the value of the digits at the given position or -1 if one of
+	 * the characters is not a digit.
+	 */
+	private static int getDigits(String str, int offset, int length) {
+		if (offset + length > str.length())
+			return -1;
+		int val = 0;
+		for (int i = offset; i < offset + length; i++) {
+			int d = str.charAt(i) - '0';
+			if (d < 0 || d > 9)
+				return -1;
+			val = val * 10 + d;
+		}
+		return val;
+	}
+
+	private static int getDaysInMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/** Returns the number of days since 1/1/1970. */
+	private static long getEpochDay(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
 	// **************************************************************************
 	// ** setTimeZone
 	// **************************************************************************
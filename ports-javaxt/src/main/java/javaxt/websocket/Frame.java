@@ -1,7 +1,9 @@
 package javaxt.websocket;
 
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 //******************************************************************************
@@ -39,6 +41,13 @@ public abstract class Frame {
 	 */
 	private ByteBuffer unmaskedpayload;
 
+	/**
+	 * Payloads of continuation frames appended to this frame. The fragments
+	 * are joined into a single buffer the first time the payload is requested
+	 * so large fragmented messages are copied only once.
+	 */
+	private List<ByteBuffer> fragments;
+
 	/**
 	 * Defines whether the "Payload data" is masked.
 	 */
@@ -109,45 +118,63 @@ public abstract class Frame {
 	}
 
 	public ByteBuffer getPayloadData() {
+		if (fragments != null)
+			joinFragments();
 		return unmaskedpayload;
 	}
 
+	// **************************************************************************
+	// ** append
+	// **************************************************************************
+	/**
+	 * Used to append the payload of a continuation frame to this frame. The
+	 * payload is not copied until getPayloadData() is called.
+	 */
 	public void append(Frame nextframe) {
 		ByteBuffer b = nextframe.getPayloadData();
-		if (unmaskedpayload == null) {
-			unmaskedpayload = ByteBuffer.allocate(b.remaining());
-			b.mark();
-			unmaskedpayload.put(b);
-			b.reset();
-		} else {
-			b.mark();
-			unmaskedpayload.position(unmaskedpayload.limit());
-			unmaskedpayload.limit(unmaskedpayload.capacity());
-
-			if (b.remaining() > unmaskedpayload.remaining()) {
-				ByteBuffer tmp = ByteBuffer.allocate(b.remaining() + unmaskedpayload.capacity());
-				unmaskedpayload.flip();
-				tmp.put(unmaskedpayload);
-				tmp.put(b);
-				unmaskedpayload = tmp;
+		if (fragments == null)
+			fragments = new ArrayList<ByteBuffer>();
+		fragments.add(b.duplicate());
+		fin = nextframe.isFin();
+	}
 
-			} else {
-				unmaskedpayload.put(b);
-			}
-			unmaskedpayload.rewind();
-			b.reset();
+	private void joinFragments() {
+		long size = (unmaskedpayload == null ? 0 : unmaskedpayload.limit());
+		for (ByteBuffer b : fragments) {
+			size += b.remaining();
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Payloadsize is to big...");
 		}
-		fin = nextframe.isFin();
 
+		ByteBuffer buf = ByteBuffer.allocate((int) size);
+		if (unmaskedpayload != null) {
+			ByteBuffer b = unmaskedpayload.duplicate();
+			b.position(0);
+			buf.put(b);
+		}
+		for (ByteBuffer b : fragments) {
+			buf.put(b);
+		}
+		buf.flip();
+		unmaskedpayload = buf;
+		fragments = null;
 	}
 
 	@Override
 	public String toString() {
+		ByteBuffer payload = getPayloadData();
+		String str;
+		if (payload.remaining() > 1000) {
+			str = "(too big to display)";
+		} else {
+			byte[] b = new byte[payload.remaining()];
+			payload.duplicate().get(b);
+			str = new String(b);
+		}
 		return "Framedata{ optcode:" + getOpcode() + ", fin:" + isFin() + ", rsv1:" + isRSV1() + ", rsv2:" + isRSV2()
-		        + ", rsv3:" + isRSV3() + ", payloadlength:[pos:" + unmaskedpayload.position() + ", len:"
-		        + unmaskedpayload.remaining() + "], payload:"
-		        + (unmaskedpayload.remaining() > 1000 ? "(too big to display)" : new String(unmaskedpayload.array()))
-		        + "}";
+		        + ", rsv3:" + isRSV3() + ", payloadlength:[pos:" + payload.position() + ", len:" + payload.remaining()
+		        + "], payload:" + str + "}";
 	}
 
 	/**
@@ -158,6 +185,7 @@ public abstract class Frame {
 	 */
 	public void setPayload(ByteBuffer payload) {
 		this.unmaskedpayload = payload;
+		this.fragments = null;
 	}
 
 	/**
@@ -608,7 +636,7 @@ public abstract class Frame {
 
 	} // End CloseFrame Class
 
-	private final Random reuseableRandom = new Random();
+	private static final Random reuseableRandom = new Random();
 
 	public static Frame createFrame(String text, boolean mask) {
 		TextFrame curframe = new TextFrame();
@@ -658,20 +686,13 @@ public abstract class Frame {
 				realpacketsize += 2; // additional length bytes
 				if (maxpacketsize < realpacketsize)
 					throw new IncompleteFrameException(realpacketsize);
-				byte[] sizebytes = new byte[3];
-				sizebytes[1] = buffer.get( /* 1 + 1 */ );
-				sizebytes[2] = buffer.get( /* 1 + 2 */ );
-				payloadlength = new BigInteger(sizebytes).intValue();
+				payloadlength = buffer.getShort() & 0xffff;
 			} else {
 				realpacketsize += 8; // additional length bytes
 				if (maxpacketsize < realpacketsize)
 					throw new IncompleteFrameException(realpacketsize);
-				byte[] bytes = new byte[8];
-				for (int i = 0; i < 8; i++) {
-					bytes[i] = buffer.get( /* 1 + i */ );
-				}
-				long length = new BigInteger(bytes).longValue();
-				if (length > Integer.MAX_VALUE) {
+				long length = buffer.getLong();
+				if (length < 0 || length > Integer.MAX_VALUE) {
 					throw new FrameException("Payloadsize is to big...");
 				} else {
 					payloadlength = (int) length;
@@ -687,21 +708,16 @@ public abstract class Frame {
 		if (maxpacketsize < realpacketsize)
 			throw new IncompleteFrameException(realpacketsize);
 
+		// Copy the payload and unmask it in place. Works with heap and direct
+		// buffers.
+		int maskKey = MASK ? buffer.getInt() : 0;
 		ByteBuffer payload = ByteBuffer.allocate(checkAlloc(payloadlength));
-
+		ByteBuffer src = buffer.duplicate();
+		src.limit(src.position() + payloadlength);
+		payload.put(src);
+		buffer.position(buffer.position() + payloadlength);
 		if (MASK) {
-			byte[] maskskey = new byte[4];
-			buffer.get(maskskey);
-			for (int i = 0; i < payloadlength; i++) {
-				payload.put((byte) (buffer.get( /* payloadstart + i */ ) ^ maskskey[i % 4]));
-			}
-		} else {
-			try {
-				payload.put(buffer.array(), buffer.position(), payload.limit());
-				buffer.position(buffer.position() + payload.limit());
-			} catch (UnsupportedOperationException e) {
-				return null;
-			}
+			mask(payload, 0, payloadlength, maskKey);
 		}
 
 		Frame frame = Frame.get(optcode);
@@ -718,6 +734,38 @@ public abstract class Frame {
 		return frame;
 	}
 
+	// **************************************************************************
+	// ** mask
+	// **************************************************************************
+	/**
+	 * Used to mask or unmask bytes in a buffer. The bytes are XORed with the
+	 * 4 byte masking key as defined in RFC 6455. Bytes are processed 8 at a
+	 * time. The position and limit of the buffer are not changed.
+	 *
+	 * @param offset
+	 *            Absolute index of the first byte to mask.
+	 * @param length
+	 *            Number of bytes to mask.
+	 * @param maskKey
+	 *            Masking key (big-endian).
+	 */
+	public static void mask(ByteBuffer buffer, int offset, int length, int maskKey) {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			long m = ((long) maskKey << 32) | (maskKey & 0xffffffffL);
+			int i = 0;
+			for (; i + 8 <= length; i += 8) {
+				buffer.putLong(offset + i, buffer.getLong(offset + i) ^ m);
+			}
+			for (; i < length; i++) {
+				buffer.put(offset + i, (byte) (buffer.get(offset + i) ^ (maskKey >>> (24 - 8 * (i & 3)))));
+			}
+		} finally {
+			buffer.order(order);
+		}
+	}
+
 	// **************************************************************************
 	// ** checkAlloc
 	// **************************************************************************
@@ -758,12 +806,12 @@ public abstract class Frame {
 			throw new RuntimeException("Size representation not supported/specified");
 
 		if (mask) {
-			ByteBuffer maskkey = ByteBuffer.allocate(4);
-			maskkey.putInt(reuseableRandom.nextInt());
-			buf.put(maskkey.array());
-			for (int i = 0; mes.hasRemaining(); i++) {
-				buf.put((byte) (mes.get() ^ maskkey.get(i % 4)));
-			}
+			int maskKey = reuseableRandom.nextInt();
+			buf.putInt(maskKey);
+			int offset = buf.position();
+			int length = mes.remaining();
+			buf.put(mes.duplicate());
+			mask(buf, offset, length, maskKey);
 		} else {
 			buf.put(mes);
 			// Reset the position of the bytebuffer e.g. for additional use
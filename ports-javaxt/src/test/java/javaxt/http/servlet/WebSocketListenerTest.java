@@ -0,0 +1,157 @@
+package javaxt.http.servlet;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javaxt.http.Server;
+
+public class WebSocketListenerTest {
+
+	private Server server;
+	private int port;
+	private final BlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		KeyStore keystore = KeyStore.getInstance("JKS");
+		InputStream in = getClass().getResourceAsStream("keystore.jks");
+		try {
+			keystore.load(in, "password".toCharArray());
+		} finally {
+			in.close();
+		}
+
+		HttpServlet servlet = new HttpServlet() {
+			@Override
+			public void service(ServletRequest req, ServletResponse res) throws javax.servlet.ServletException,
+			        java.io.IOException {
+				new WebSocketListener((HttpServletRequest) req, (HttpServletResponse) res) {
+					@Override
+					public void onText(String str) {
+						messages.add(str);
+					}
+				};
+			}
+		};
+		servlet.setKeyStore(keystore, "password");
+
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+		server = new Server(port, 4, servlet);
+		server.start();
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void shouldReceiveEncryptedFramesLargerThanATlsRecord() throws Exception {
+		// given
+		StringBuilder str = new StringBuilder();
+		for (int i = 0; i < 40000; i++) {
+			str.append((char) ('a' + i % 26));
+		}
+		SSLSocket socket = connect();
+		try {
+			OutputStream out = socket.getOutputStream();
+
+			// when
+			out.write(createFrame(str.toString()));
+			out.write(createFrame("next"));
+			out.flush();
+
+			// then
+			assertEquals(messages.poll(10, TimeUnit.SECONDS), str.toString());
+			assertEquals(messages.poll(10, TimeUnit.SECONDS), "next");
+		} finally {
+			socket.close();
+		}
+	}
+
+	private SSLSocket connect() throws Exception {
+		SSLContext context = SSLContext.getInstance("TLS");
+		context.init(null, new TrustManager[] { new X509TrustManager() {
+			public void checkClientTrusted(X509Certificate[] chain, String authType) {
+			}
+
+			public void checkServerTrusted(X509Certificate[] chain, String authType) {
+			}
+
+			public X509Certificate[] getAcceptedIssuers() {
+				return new X509Certificate[0];
+			}
+		} }, null);
+
+		// Retry until the server accepts connections
+		SSLSocket socket = null;
+		for (int i = 0; socket == null; i++) {
+			try {
+				socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", port);
+			} catch (java.net.ConnectException e) {
+				if (i > 50)
+					throw e;
+				Thread.sleep(100);
+			}
+		}
+		socket.setEnabledProtocols(new String[] { "TLSv1.2" });
+		socket.setSoTimeout(10000);
+
+		// Upgrade the connection
+		OutputStream out = socket.getOutputStream();
+		out.write(("GET /ws HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+		        + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n\r\n").getBytes("UTF-8"));
+		out.flush();
+		InputStream in = socket.getInputStream();
+		StringBuilder header = new StringBuilder();
+		while (!header.toString().endsWith("\r\n\r\n")) {
+			int b = in.read();
+			if (b < 0)
+				throw new java.io.EOFException(header.toString());
+			header.append((char) b);
+		}
+		assertEquals(header.substring(0, header.indexOf("\r\n")), "HTTP/1.1 101 Web Socket Protocol Handshake");
+		return socket;
+	}
+
+	/** Returns a masked text frame, as sent by a client. */
+	private static byte[] createFrame(String str) throws Exception {
+		byte[] payload = str.getBytes("UTF-8");
+		byte[] mask = { 1, 2, 3, 4 };
+		java.io.ByteArrayOutputStream frame = new java.io.ByteArrayOutputStream();
+		frame.write(0x81);
+		if (payload.length < 126) {
+			frame.write(0x80 | payload.length);
+		} else {
+			frame.write(0x80 | 126);
+			frame.write(payload.length >> 8);
+			frame.write(payload.length);
+		}
+		frame.write(mask);
+		for (int i = 0; i < payload.length; i++) {
+			frame.write(payload[i] ^ mask[i % 4]);
+		}
+		return frame.toByteArray();
+	}
+}